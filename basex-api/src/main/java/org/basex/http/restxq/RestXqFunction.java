@@ -57,7 +57,7 @@ final class RestXqFunction implements Comparable<RestXqFunction> {
   RestXqPath path;
 
   /** Error. */
-  private RestXqError error;
+  RestXqError error;
   /** Query parameters. */
   private final ArrayList<RestXqParam> errorParams = new ArrayList<>();
 
@@ -70,14 +70,14 @@ final class RestXqFunction implements Comparable<RestXqFunction> {
   /** Cookie parameters. */
   private final ArrayList<RestXqParam> cookieParams = new ArrayList<>();
 
-  /** Query context. */
-  private final QueryContext qc;
   /** Consumed media types. */
   private final StringList consumes = new StringList();
   /** Returned media types. */
   final StringList produces = new StringList();
   /** Post/Put variable. */
   private QNm requestBody;
+  /** Main module that invokes the function (assigned if it can be imported). */
+  String query;
 
   /**
    * Constructor.
@@ -87,7 +87,6 @@ final class RestXqFunction implements Comparable<RestXqFunction> {
    */
   RestXqFunction(final StaticFunc function, final QueryContext qc, final RestXqModule module) {
     this.function = function;
-    this.qc = qc;
     this.module = module;
     output = qc.serParams();
   }
@@ -212,33 +211,34 @@ final class RestXqFunction implements Comparable<RestXqFunction> {
    * @param http http context
    * @param arg argument array
    * @param err optional query error
+   * @param qc query context
    * @throws QueryException query exception
    * @throws IOException I/O exception
    */
-  void bind(final HTTPContext http, final Expr[] arg, final QueryException err)
-      throws QueryException, IOException {
+  void bind(final HTTPContext http, final Expr[] arg, final QueryException err,
+      final QueryContext qc) throws QueryException, IOException {
 
     // bind variables from segments
     if(path != null) {
       for(final Entry<QNm, String> entry : path.values(http).entrySet()) {
         final QNm qnm = new QNm(entry.getKey().string(), function.sc);
         if(function.sc.elemNS != null && eq(qnm.uri(), function.sc.elemNS)) qnm.uri(EMPTY);
-        bind(qnm, arg, new Atm(entry.getValue()));
+        bind(qnm, arg, new Atm(entry.getValue()), qc);
       }
     }
 
     // bind request body in the correct format
     if(requestBody != null) {
       try {
-        bind(requestBody, arg, http.params.content());
+        bind(requestBody, arg, http.params.content(), qc);
       } catch(final IOException ex) {
         throw error(INPUT_CONV, ex);
       }
     }
 
     // bind query and form parameters
-    for(final RestXqParam rxp : queryParams) bind(rxp, arg, http.params.query().get(rxp.key));
-    for(final RestXqParam rxp : formParams) bind(rxp, arg, http.params.form().get(rxp.key));
+    for(final RestXqParam rxp : queryParams) bind(rxp, arg, http.params.query().get(rxp.key), qc);
+    for(final RestXqParam rxp : formParams) bind(rxp, arg, http.params.form().get(rxp.key), qc);
 
     // bind header parameters
     for(final RestXqParam rxp : headerParams) {
@@ -247,7 +247,7 @@ final class RestXqFunction implements Comparable<RestXqFunction> {
       while(en.hasMoreElements()) {
         for(final String s : en.nextElement().toString().split(", *")) tl.add(s);
       }
-      bind(rxp, arg, StrSeq.get(tl));
+      bind(rxp, arg, StrSeq.get(tl), qc);
     }
 
     // bind cookie parameters
@@ -259,7 +259,7 @@ final class RestXqFunction implements Comparable<RestXqFunction> {
           if(rxp.key.equals(c.getName())) val = Str.get(c.getValue());
         }
       }
-      bind(rxp, arg, val);
+      bind(rxp, arg, val, qc);
     }
 
     // bind errors
@@ -270,7 +270,7 @@ final class RestXqFunction implements Comparable<RestXqFunction> {
       final int nl = names.length;
       for(int n = 0; n < nl; n++) errs.put(string(names[n].local()), values[n]);
     }
-    for(final RestXqParam rxp : errorParams) bind(rxp, arg, errs.get(rxp.key));
+    for(final RestXqParam rxp : errorParams) bind(rxp, arg, errs.get(rxp.key), qc);
   }
 
   /**
@@ -400,11 +400,12 @@ final class RestXqFunction implements Comparable<RestXqFunction> {
    * @param args argument array
    * @param value values to be bound; the parameter's default value is assigned
    *        if the argument is {@code null} or empty
+   * @param qc query context
    * @throws QueryException query exception
    */
-  private void bind(final RestXqParam rxp, final Expr[] args, final Value value)
-      throws QueryException {
-    bind(rxp.name, args, value == null || value.isEmpty() ? rxp.value : value);
+  private void bind(final RestXqParam rxp, final Expr[] args, final Value value,
+      final QueryContext qc) throws QueryException {
+    bind(rxp.name, args, value == null || value.isEmpty() ? rxp.value : value, qc);
   }
 
   /**
@@ -412,9 +413,11 @@ final class RestXqFunction implements Comparable<RestXqFunction> {
    * @param name variable name
    * @param args argument array
    * @param value value to be bound
+   * @param qc query context
    * @throws QueryException query exception
    */
-  private void bind(final QNm name, final Expr[] args, final Value value) throws QueryException {
+  private void bind(final QNm name, final Expr[] args, final Value value,
+      final QueryContext qc) throws QueryException {
     // skip nulled values
     if(value == null) return;
 
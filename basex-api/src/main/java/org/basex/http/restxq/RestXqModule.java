@@ -9,21 +9,36 @@ import java.util.*;
 import org.basex.http.*;
 import org.basex.io.*;
 import org.basex.query.*;
+import org.basex.query.ann.*;
+import org.basex.query.expr.*;
 import org.basex.query.func.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.seq.*;
 
 /**
  * This class caches information on a single XQuery module with RESTXQ annotations.
+ * The module is parsed once per file timestamp. A function of a library module is invoked
+ * by a main module, which imports the module and binds the arguments to external variables.
+ * If the function is not updating, the compiled query plan is cached by
+ * {@link PreparedQueries} and reused by subsequent requests until the module is modified.
+ * Functions of main modules and private functions are parsed again for each request.
  *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
  */
 final class RestXqModule {
+  /** Prefix of the external variables that are bound to the function arguments. */
+  private static final String ARG = "arg";
+
   /** Supported methods. */
   private final ArrayList<RestXqFunction> functions = new ArrayList<>();
   /** File reference. */
   private final IOFile file;
   /** Parsing timestamp. */
-  private long time;
+  private final long time;
+  /** Module source. */
+  private String source;
 
   /**
    * Constructor.
@@ -40,17 +55,26 @@ final class RestXqModule {
    * @throws Exception exception (including unexpected ones)
    */
   boolean parse() throws Exception {
-    functions.clear();
+    try {
+      source = string(file.read());
+    } catch(final IOException ex) {
+      // may be triggered when reading the file
+      throw IOERR_X.get(null, ex);
+    }
 
     // loop through all functions
     try(final QueryContext qc = qc()) {
       // loop through all functions
+      final boolean library = QueryProcessor.isLibrary(source);
       final String name = file.name();
       for(final StaticFunc uf : qc.funcs.funcs()) {
         // only add functions that are defined in the same module (file)
         if(name.equals(new IOFile(uf.info.path()).name())) {
           final RestXqFunction rxf = new RestXqFunction(uf, qc, this);
-          if(rxf.parse()) functions.add(rxf);
+          if(rxf.parse()) {
+            if(library && !uf.anns.contains(Annotation.PRIVATE)) rxf.query = query(uf);
+            functions.add(rxf);
+          }
         }
       }
     }
@@ -65,13 +89,6 @@ final class RestXqModule {
     return time == file.timeStamp();
   }
 
-  /**
-   * Updates the timestamp.
-   */
-  void touch() {
-    time = file.timeStamp();
-  }
-
   /**
    * Returns all functions.
    * @return functions
@@ -90,11 +107,31 @@ final class RestXqModule {
   void process(final HTTPContext http, final RestXqFunction func, final QueryException error)
       throws Exception {
 
-    // create new XQuery instance
-    try(final QueryContext qc = qc()) {
-      final RestXqFunction rxf = new RestXqFunction(find(qc, func.function), qc, this);
-      rxf.parse();
-      RestXqResponse.create(rxf, qc, http, error);
+    if(func.query != null) {
+      // invoke function from main module, the query plan of which may have been cached
+      try(final QueryProcessor qp = new QueryProcessor(func.query, HTTPContext.context())) {
+        final Expr[] args = new Expr[func.function.args.length];
+        func.bind(http, args, error, qp.qc);
+        final int al = args.length;
+        for(int a = 0; a < al; a++) {
+          qp.bind(ARG + a, args[a] != null ? (Value) args[a] : Empty.SEQ);
+        }
+        qp.http(http);
+        qp.parse();
+        RestXqResponse.create(func, qp, qp.qc, http);
+      }
+    } else {
+      // create new XQuery instance
+      try(final QueryContext qc = qc()) {
+        final RestXqFunction rxf = new RestXqFunction(find(qc, func.function), qc, this);
+        rxf.parse();
+        final StaticFunc sf = rxf.function;
+        final Expr[] args = new Expr[sf.args.length];
+        rxf.bind(http, args, error, qc);
+        qc.mainModule(new MainModule(sf, args));
+        qc.http(http);
+        RestXqResponse.create(rxf, null, qc, http);
+      }
     }
   }
 
@@ -107,13 +144,26 @@ final class RestXqModule {
    */
   private QueryContext qc() throws QueryException {
     final QueryContext qc = new QueryContext(HTTPContext.context());
-    try {
-      qc.parse(string(file.read()), file.path(), null);
-      return qc;
-    } catch(final IOException ex) {
-      // may be triggered when reading the file
-      throw IOERR_X.get(null, ex);
+    qc.parse(source, file.path(), null);
+    return qc;
+  }
+
+  /**
+   * Returns a main module that imports this module and invokes the specified function.
+   * The arguments are bound to external variables.
+   * @param func function
+   * @return query string
+   */
+  private String query(final StaticFunc func) {
+    final StringBuilder sb = new StringBuilder("import module namespace m = ");
+    sb.append(Str.get(func.name.uri())).append(" at ").append(Str.get(file.path())).append(';');
+    final int al = func.args.length;
+    for(int a = 0; a < al; a++) {
+      sb.append("declare variable $").append(ARG).append(a).append(" external;");
     }
+    sb.append("m:").append(string(func.name.local())).append('(');
+    for(int a = 0; a < al; a++) sb.append(a == 0 ? "$" : ", $").append(ARG).append(a);
+    return sb.append(')').toString();
   }
 
   /**
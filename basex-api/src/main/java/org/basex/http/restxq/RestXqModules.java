@@ -13,6 +13,8 @@ import org.basex.util.*;
 
 /**
  * This class caches RESTXQ modules found in the HTTP root directory.
+ * The directory is checked for changes in the interval specified by
+ * {@link StaticOptions#PARSERESTXQ}.
  *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
@@ -23,6 +25,10 @@ public final class RestXqModules {
 
   /** Module cache. */
   private HashMap<String, RestXqModule> modules = new HashMap<>();
+  /** Routing table. */
+  private volatile RestXqRoutes routes;
+  /** Time of the last check for changes (ms). */
+  private volatile long checked;
   /** RESTXQ path. */
   private IOFile restxq;
   /** Private constructor. */
@@ -54,15 +60,8 @@ public final class RestXqModules {
    * @throws Exception exception (including unexpected ones)
    */
   RestXqFunction find(final HTTPContext http, final QNm error) throws Exception {
-    cache(http);
-
-    // collect all functions
-    final ArrayList<RestXqFunction> list = new ArrayList<>();
-    for(final RestXqModule mod : modules.values()) {
-      for(final RestXqFunction rxf : mod.functions()) {
-        if(rxf.matches(http, error)) list.add(rxf);
-      }
-    }
+    // collect all matching functions
+    final ArrayList<RestXqFunction> list = routes().find(http, error);
     // no path matches
     if(list.isEmpty()) return null;
 
@@ -125,54 +124,66 @@ public final class RestXqModules {
   }
 
   /**
-   * Updates the module cache. Parses new modules and discards obsolete ones.
-   * @param http http context
+   * Returns the routing table. Checks the modules for changes if the specified interval
+   * has passed.
+   * @return routing table
    * @throws Exception exception (including unexpected ones)
    */
-  private synchronized void cache(final HTTPContext http) throws Exception {
-    // initialize RESTXQ directory (may be relative against WEBPATH)
-    if(restxq == null) {
-      final StaticOptions sopts = HTTPContext.context().soptions;
-      final String webpath = sopts.get(StaticOptions.WEBPATH);
-      final String rxqpath = sopts.get(StaticOptions.RESTXQPATH);
-      restxq = new IOFile(webpath).resolve(rxqpath);
+  private RestXqRoutes routes() throws Exception {
+    final RestXqRoutes rt = routes;
+    if(rt != null && !expired()) return rt;
+
+    synchronized(this) {
+      if(routes != null && !expired()) return routes;
+
+      // initialize RESTXQ directory (may be relative against WEBPATH)
+      if(restxq == null) {
+        final StaticOptions sopts = HTTPContext.context().soptions;
+        final String webpath = sopts.get(StaticOptions.WEBPATH);
+        final String rxqpath = sopts.get(StaticOptions.RESTXQPATH);
+        restxq = new IOFile(webpath).resolve(rxqpath);
+      }
+      // create new cache
+      final long time = System.currentTimeMillis();
+      final HashMap<String, RestXqModule> cache = new HashMap<>();
+      cache(restxq, cache);
+      modules = cache;
+      routes = new RestXqRoutes(cache.values());
+      checked = time;
+      return routes;
     }
-    // create new cache
-    final HashMap<String, RestXqModule> cache = new HashMap<>();
-    cache(http, restxq, cache);
-    modules = cache;
+  }
+
+  /**
+   * Checks if the modules need to be checked for changes.
+   * @return result of check
+   */
+  private boolean expired() {
+    final long interval = HTTPContext.context().soptions.get(StaticOptions.PARSERESTXQ);
+    return interval >= 0 && System.currentTimeMillis() - checked >= interval * 1000;
   }
 
   /**
    * Parses the specified path for RESTXQ modules and caches new entries.
    * @param root root path
-   * @param http http context
    * @param cache cached modules
    * @throws Exception exception (including unexpected ones)
    */
-  private synchronized void cache(final HTTPContext http, final IOFile root,
-      final HashMap<String, RestXqModule> cache) throws Exception {
+  private void cache(final IOFile root, final HashMap<String, RestXqModule> cache)
+      throws Exception {
 
     for(final IOFile file : root.children()) {
       if(file.isDir()) {
-        cache(http, file, cache);
+        cache(file, cache);
       } else {
         final String path = file.path();
         if(file.hasSuffix(IO.XQSUFFIXES)) {
+          // create new module if it has not been parsed yet, or if it has been modified
           RestXqModule module = modules.get(path);
-          boolean parsed = false;
-          if(module != null) {
-            // check if module has been modified
-            parsed = module.uptodate();
-          } else {
-            // create new module
-            module = new RestXqModule(file);
-          }
+          final boolean parsed = module != null && module.uptodate();
+          if(!parsed) module = new RestXqModule(file);
           // add module if it has been parsed, and if it contains annotations
-          if(parsed || module.parse()) {
-            module.touch();
-            cache.put(path, module);
-          }
+          if(parsed || module.parse()) cache.put(path, module);
         }
       }
     }
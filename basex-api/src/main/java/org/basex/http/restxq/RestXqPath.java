@@ -5,6 +5,7 @@ import org.basex.query.QueryException;
 import org.basex.query.value.item.QNm;
 import org.basex.util.InputInfo;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -19,6 +20,8 @@ final class RestXqPath implements Comparable<RestXqPath> {
   private final String path;
   /** Path matcher. */
   private final RestXqPathMatcher matcher;
+  /** Leading path segments without templates. */
+  private final String[] literals;
 
   /**
    * Constructor.
@@ -29,6 +32,31 @@ final class RestXqPath implements Comparable<RestXqPath> {
   RestXqPath(final String path, final InputInfo info) throws QueryException {
     this.path = path;
     matcher = RestXqPathMatcher.parse(path, info);
+
+    // skip last segment if it is followed by a template
+    final int t = path.indexOf('{');
+    final String[] segments = segments(HTTPContext.decode(t == -1 ? path : path.substring(0, t)));
+    final int sl = segments.length;
+    literals = t == -1 || sl == 0 ? segments : Arrays.copyOf(segments, sl - 1);
+  }
+
+  /**
+   * Returns the leading path segments that contain no templates.
+   * A request can only match the path if its segments start with the same strings.
+   * @return segments
+   */
+  String[] literals() {
+    return literals;
+  }
+
+  /**
+   * Splits a decoded path into segments.
+   * @param path path
+   * @return segments
+   */
+  static String[] segments(final String path) {
+    final int s = path.startsWith("/") ? 1 : 0;
+    return s == path.length() ? new String[0] : path.substring(s).split("/", -1);
   }
 
   /**
@@ -3,11 +3,10 @@ package org.basex.http.restxq;
 import static org.basex.http.restxq.RestXqText.*;
 import static org.basex.util.Token.*;
 
+import org.basex.core.*;
 import org.basex.http.*;
 import org.basex.io.serial.*;
 import org.basex.query.*;
-import org.basex.query.expr.*;
-import org.basex.query.func.*;
 import org.basex.query.func.http.*;
 import org.basex.query.iter.*;
 import org.basex.query.value.item.*;
@@ -27,32 +26,23 @@ final class RestXqResponse {
   /**
    * Evaluates the specified function and creates a response.
    * @param function function to be evaluated
-   * @param query query context
+   * @param qp query processor (if {@code null}, the query context will be evaluated)
+   * @param query parsed query context
    * @param http HTTP context
-   * @param error optional query error
    * @throws Exception exception (including unexpected ones)
    */
-  static void create(final RestXqFunction function, final QueryContext query,
-      final HTTPContext http, final QueryException error) throws Exception {
+  static void create(final RestXqFunction function, final QueryProcessor qp,
+      final QueryContext query, final HTTPContext http) throws Exception {
 
-    // bind variables
-    final StaticFunc sf = function.function;
-    final Expr[] args = new Expr[sf.args.length];
-    function.bind(http, args, error);
-
-    // wrap function with a function call
-    final MainModule mm = new MainModule(sf, args);
-
-    // assign main module and http context and register process
-    query.mainModule(mm);
-    query.http(http);
-    query.context.register(query);
+    // register process
+    final Proc proc = qp != null ? qp : query;
+    query.context.register(proc);
 
     String redirect = null, forward = null;
     RestXqRespBuilder resp = null;
     try {
       // evaluate query
-      final Iter iter = query.iter();
+      final Iter iter = qp != null ? qp.iter() : query.iter();
       Item item = iter.next();
 
       // handle response element
@@ -92,8 +82,9 @@ final class RestXqResponse {
       }
 
     } finally {
-      query.close();
-      query.context.unregister(query);
+      if(qp != null) qp.close();
+      else query.close();
+      query.context.unregister(proc);
 
       if(redirect != null) {
         http.res.sendRedirect(redirect);
@@ -0,0 +1,130 @@
+package org.basex.http.restxq;
+
+import java.util.*;
+
+import org.basex.http.*;
+import org.basex.query.value.item.*;
+
+/**
+ * This class organizes the functions of all RESTXQ modules for finding the functions that
+ * match a request. Functions with paths are stored in a tree, which is indexed by the leading
+ * path segments without templates, and by the supported HTTP methods. Only the functions that
+ * are found on the way to the segments of the request path need to be checked.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class RestXqRoutes {
+  /** Root node. */
+  private final Node root = new Node();
+  /** Functions with error annotations. */
+  private final ArrayList<RestXqFunction> errors = new ArrayList<>();
+
+  /**
+   * Constructor.
+   * @param modules modules
+   */
+  RestXqRoutes(final Collection<RestXqModule> modules) {
+    for(final RestXqModule module : modules) {
+      for(final RestXqFunction rxf : module.functions()) {
+        if(rxf.path != null) {
+          Node node = root;
+          for(final String segment : rxf.path.literals()) node = node.child(segment);
+          node.add(rxf);
+        }
+        if(rxf.error != null) errors.add(rxf);
+      }
+    }
+  }
+
+  /**
+   * Returns all functions that match the current request or the specified error code.
+   * @param http HTTP context
+   * @param error error code (optional)
+   * @return functions
+   */
+  ArrayList<RestXqFunction> find(final HTTPContext http, final QNm error) {
+    final ArrayList<RestXqFunction> list = new ArrayList<>();
+    if(error != null) {
+      for(final RestXqFunction rxf : errors) {
+        if(rxf.matches(http, error)) list.add(rxf);
+      }
+    } else {
+      final String[] segments = RestXqPath.segments(http.path());
+      final int sl = segments.length;
+      Node node = root;
+      for(int s = 0; node != null; s++) {
+        node.find(http, list);
+        node = s < sl ? node.children.get(segments[s]) : null;
+      }
+    }
+    return list;
+  }
+
+  /** Node of the path tree. */
+  private static final class Node {
+    /** Child nodes, indexed by path segments. */
+    private final HashMap<String, Node> children = new HashMap<>();
+    /** Functions, indexed by HTTP methods. */
+    private final HashMap<String, ArrayList<RestXqFunction>> methods = new HashMap<>();
+    /** Functions without methods (accepting all methods). */
+    private final ArrayList<RestXqFunction> all = new ArrayList<>();
+
+    /**
+     * Returns the child node for the specified segment. Creates a new node if required.
+     * @param segment segment
+     * @return child node
+     */
+    private Node child(final String segment) {
+      Node node = children.get(segment);
+      if(node == null) {
+        node = new Node();
+        children.put(segment, node);
+      }
+      return node;
+    }
+
+    /**
+     * Adds a function.
+     * @param rxf function
+     */
+    private void add(final RestXqFunction rxf) {
+      if(rxf.methods.isEmpty()) {
+        all.add(rxf);
+      } else {
+        for(final String method : rxf.methods) {
+          ArrayList<RestXqFunction> list = methods.get(method);
+          if(list == null) {
+            list = new ArrayList<>(1);
+            methods.put(method, list);
+          }
+          list.add(rxf);
+        }
+      }
+    }
+
+    /**
+     * Adds the functions of this node that match the current request.
+     * @param http HTTP context
+     * @param list list of matching functions
+     */
+    private void find(final HTTPContext http, final ArrayList<RestXqFunction> list) {
+      final ArrayList<RestXqFunction> funcs = methods.get(http.method);
+      if(funcs != null) find(funcs, http, list);
+      find(all, http, list);
+    }
+
+    /**
+     * Adds the specified functions that match the current request.
+     * @param funcs functions
+     * @param http HTTP context
+     * @param list list of matching functions
+     */
+    private static void find(final ArrayList<RestXqFunction> funcs, final HTTPContext http,
+        final ArrayList<RestXqFunction> list) {
+      for(final RestXqFunction rxf : funcs) {
+        if(rxf.matches(http, null)) list.add(rxf);
+      }
+    }
+  }
+}
@@ -44,6 +44,8 @@ public abstract class HTTPTest extends SandboxTest {
    */
   protected static void init(final String rt, final boolean local) throws Exception {
     assertTrue(new IOFile(CONTEXT.soptions.get(StaticOptions.WEBPATH)).md());
+    // check RESTXQ modules for changes on each request
+    CONTEXT.soptions.set(StaticOptions.PARSERESTXQ, 0);
     root = rt;
 
     final StringList sl = new StringList();
@@ -184,6 +184,28 @@ public final class RestXqPathTest extends RestXqTest {
         "12ab3x");
   }
 
+  /**
+   * Functions with common path segments.
+   * @throws Exception exception
+   */
+  @Test
+  public void pathTree() throws Exception {
+    install("declare %R:path('a') function m:a() {'a'};" +
+        "declare %R:path('a/b') function m:ab() {'ab'};" +
+        "declare %R:path('a/{$x}') function m:ax($x) {'ax' || $x};" +
+        "declare %R:path('d/e{$x}') function m:dx($x) {'de' || $x};" +
+        "declare %R:POST %R:path('a/b') function m:abPost() {'post'};");
+    assertEquals("a", get("a"));
+    assertEquals("ab", get("a/b"));
+    assertEquals("axc", get("a/c"));
+    assertEquals("def", get("d/ef"));
+    try {
+      get("b");
+      fail("Error expected.");
+    } catch(final IOException ignored) {
+    }
+  }
+
   /**
    * Various annotations.
    * @throws Exception exception
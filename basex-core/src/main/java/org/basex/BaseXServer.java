@@ -4,6 +4,7 @@ import static org.basex.core.Text.*;
 
 import java.io.*;
 import java.net.*;
+import java.nio.channels.*;
 import java.util.*;
 
 import org.basex.api.client.*;
@@ -38,6 +39,8 @@ public final class BaseXServer extends CLI implements Runnable {
   private StringList commands;
   /** Server socket. */
   private ServerSocket socket;
+  /** Client selector (if client connections are handled by a selector). */
+  private ClientSelector selector;
   /** Start as daemon. */
   private boolean service;
   /** Quiet flag. */
@@ -104,7 +107,13 @@ public final class BaseXServer extends CLI implements Runnable {
       // execute initial command-line arguments
       for(final String cmd : commands) execute(cmd);
 
-      socket = new ServerSocket();
+      if(sopts.get(StaticOptions.SELECTOR)) {
+        final ServerSocketChannel ch = ServerSocketChannel.open();
+        socket = ch.socket();
+        selector = new ClientSelector(ch, this);
+      } else {
+        socket = new ServerSocket();
+      }
       socket.setReuseAddress(true);
       socket.bind(new InetSocketAddress(addr, port));
       esocket = new ServerSocket();
@@ -136,37 +145,23 @@ public final class BaseXServer extends CLI implements Runnable {
   @Override
   public void run() {
     running = true;
+    if(selector != null) {
+      try {
+        selector.listen();
+      } catch(final ClosedChannelException ex) {
+        Util.debug(ex);
+      } catch(final Throwable ex) {
+        // socket may have been unexpectedly closed
+        Util.errln(ex);
+        context.log.writeServer(LogType.ERROR, Util.message(ex));
+      }
+      return;
+    }
+
     while(running) {
       try {
-        final Socket s = socket.accept();
-        if(stopFile.exists()) {
-          if(!stopFile.delete()) {
-            context.log.writeServer(LogType.ERROR, Util.info(FILE_NOT_DELETED_X, stopFile));
-          }
-          quit();
-        } else {
-          // drop inactive connections
-          final long ka = context.soptions.get(StaticOptions.KEEPALIVE) * 1000L;
-          if(ka > 0) {
-            final long ms = System.currentTimeMillis();
-            for(final ClientListener cs : context.sessions) {
-              if(ms - cs.last > ka) cs.quit();
-            }
-          }
-          final ClientListener cl = new ClientListener(s, context, this);
-          // start authentication timeout
-          final long to = context.soptions.get(StaticOptions.KEEPALIVE) * 1000L;
-          if(to > 0) {
-            cl.auth.schedule(new TimerTask() {
-              @Override
-              public void run() {
-                cl.quitAuth();
-              }
-            }, to);
-            auth.add(cl);
-          }
-          cl.start();
-        }
+        final ClientListener cl = accept(socket.accept());
+        if(cl != null) cl.start();
       } catch(final SocketException ex) {
         break;
       } catch(final Throwable ex) {
@@ -178,6 +173,43 @@ public final class BaseXServer extends CLI implements Runnable {
     }
   }
 
+  /**
+   * Creates a session for a new client connection.
+   * @param s client socket
+   * @return client session, or {@code null} if the server has been stopped
+   */
+  public ClientListener accept(final Socket s) {
+    if(stopFile.exists()) {
+      if(!stopFile.delete()) {
+        context.log.writeServer(LogType.ERROR, Util.info(FILE_NOT_DELETED_X, stopFile));
+      }
+      quit();
+      return null;
+    }
+
+    // drop inactive connections
+    final long ka = context.soptions.get(StaticOptions.KEEPALIVE) * 1000L;
+    if(ka > 0) {
+      final long ms = System.currentTimeMillis();
+      for(final ClientListener cs : context.sessions) {
+        if(ms - cs.last > ka) cs.quit();
+      }
+    }
+    final ClientListener cl = new ClientListener(s, context, this);
+    // start authentication timeout
+    final long to = context.soptions.get(StaticOptions.KEEPALIVE) * 1000L;
+    if(to > 0) {
+      cl.auth.schedule(new TimerTask() {
+        @Override
+        public void run() {
+          cl.quitAuth();
+        }
+      }, to);
+      auth.add(cl);
+    }
+    return cl;
+  }
+
   /**
    * Generates a stop file for the specified port.
    * @param port server port
@@ -206,6 +238,7 @@ public final class BaseXServer extends CLI implements Runnable {
       // close interactive input if server was stopped by another process
       esocket.close();
       socket.close();
+      if(selector != null) selector.close();
     } catch(final IOException ex) {
       Util.errln(ex);
       context.log.writeServer(LogType.ERROR, Util.message(ex));
@@ -0,0 +1,242 @@
+package org.basex.api.client;
+
+import java.io.*;
+import java.util.*;
+import java.util.Map.Entry;
+
+import org.basex.core.*;
+import org.basex.io.*;
+import org.basex.io.in.*;
+import org.basex.io.out.*;
+import org.basex.server.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * This class collects requests of a client session, which will be sent to the server
+ * in one go. The server processes the requests in the given order. Requests are sent in
+ * windows of limited size, and the responses of a window are received before the next
+ * window is sent. Thus, many small requests only cost a single network round trip, and
+ * the server is never blocked by responses that have not been read yet.
+ *
+ * If a request fails, the remaining requests will still be processed, and the first error
+ * will be raised after all responses have been received.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class ClientBatch {
+  /** Types of responses. */
+  private enum Response {
+    /** Query request without result. */ QUERY,
+    /** Query request with result. */ RESULT,
+    /** Request with input. */ INPUT,
+    /** Database command. */ COMMAND
+  }
+
+  /**
+   * Maximum number of bytes of requests that are sent before their responses are read.
+   * The value is smaller than common socket buffers, so sending a window will never block.
+   * Larger requests are sent one by one.
+   */
+  private static final int WINDOW = 1 << 14;
+
+  /** Client session. */
+  private final ClientSession cs;
+  /** Buffered requests. */
+  private final ArrayOutput requests = new ArrayOutput();
+  /** Expected responses. */
+  private final ArrayList<Response> responses = new ArrayList<>();
+  /** End offsets of the buffered requests. */
+  private IntList ends = new IntList();
+
+  /**
+   * Constructor.
+   * @param session client session
+   */
+  ClientBatch(final ClientSession session) {
+    cs = session;
+  }
+
+  /**
+   * Adds a database command.
+   * @param command command to be executed
+   * @return self reference
+   * @throws IOException I/O exception
+   */
+  public ClientBatch execute(final String command) throws IOException {
+    send(command);
+    add(Response.COMMAND);
+    return this;
+  }
+
+  /**
+   * Adds a request for creating a database.
+   * @param name name of database
+   * @param input xml input
+   * @return self reference
+   * @throws IOException I/O exception
+   */
+  public ClientBatch create(final String name, final InputStream input) throws IOException {
+    return send(ServerCmd.CREATE, name, input);
+  }
+
+  /**
+   * Adds a request for adding a document to the opened database.
+   * @param path target path
+   * @param input xml input
+   * @return self reference
+   * @throws IOException I/O exception
+   */
+  public ClientBatch add(final String path, final InputStream input) throws IOException {
+    return send(ServerCmd.ADD, path, input);
+  }
+
+  /**
+   * Adds a request for replacing a document in the opened database.
+   * @param path document(s) to replace
+   * @param input new content
+   * @return self reference
+   * @throws IOException I/O exception
+   */
+  public ClientBatch replace(final String path, final InputStream input) throws IOException {
+    return send(ServerCmd.REPLACE, path, input);
+  }
+
+  /**
+   * Adds a request for storing raw data in the opened database.
+   * @param path target path
+   * @param input binary input
+   * @return self reference
+   * @throws IOException I/O exception
+   */
+  public ClientBatch store(final String path, final InputStream input) throws IOException {
+    return send(ServerCmd.STORE, path, input);
+  }
+
+  /**
+   * Adds the requests for creating a query, binding values, executing the query and
+   * closing it again.
+   * @param query query string
+   * @param bindings names of external variables and values to be bound
+   * (a {@code null} key binds the context value; may be {@code null})
+   * @return self reference
+   * @throws IOException I/O exception
+   */
+  public ClientBatch query(final String query, final Map<String, ?> bindings)
+      throws IOException {
+
+    send(ServerCmd.QUERY, query);
+    // the following requests reference the query by an empty id
+    if(bindings != null) {
+      for(final Entry<String, ?> binding : bindings.entrySet()) {
+        final String name = binding.getKey();
+        send(name == null ? ServerCmd.CONTEXT : ServerCmd.BIND,
+            '\0' + ClientQuery.binding(name, binding.getValue(), null));
+      }
+    }
+    send(ServerCmd.EXEC, "");
+    responses.set(responses.size() - 1, Response.RESULT);
+    send(ServerCmd.CLOSE, "");
+    return this;
+  }
+
+  /**
+   * Sends all requests and returns the results. For each query and database command,
+   * the result is returned. For each request with input, the info string is returned.
+   * The batch will be empty afterwards.
+   * @return results
+   * @throws IOException I/O exception
+   */
+  public String[] execute() throws IOException {
+    final ArrayList<Response> rs = new ArrayList<>(responses);
+    final int[] es = ends.finish();
+    final byte[] buffer = requests.buffer();
+    requests.reset();
+    responses.clear();
+    ends = new IntList();
+
+    final BufferInput bi = cs.sin;
+    final int rl = rs.size();
+    final StringList results = new StringList(rl);
+    String error = null;
+    for(int r = 0, off = 0; r < rl;) {
+      // send next window, consisting of at least one request
+      int w = r + 1;
+      while(w < rl && es[w] - off <= WINDOW) w++;
+      cs.sout.write(buffer, off, es[w - 1] - off);
+      cs.sout.flush();
+      off = es[w - 1];
+
+      // receive responses of the window
+      for(; r < w; r++) {
+        final Response resp = rs.get(r);
+        final ArrayOutput ao = new ArrayOutput();
+        if(resp != Response.INPUT) ClientSession.receive(bi, ao);
+        String info = resp == Response.INPUT || resp == Response.COMMAND ? bi.readString() : null;
+        if(ClientSession.ok(bi)) {
+          if(resp == Response.INPUT) results.add(info);
+          else if(resp != Response.QUERY) results.add(ao.toString());
+          if(info != null) cs.info = info;
+        } else {
+          if(info == null) info = bi.readString();
+          if(error == null) error = info;
+        }
+      }
+    }
+    if(error != null) throw new BaseXException(error);
+    return results.finish();
+  }
+
+  /**
+   * Buffers a request with input.
+   * @param command command
+   * @param arg string argument
+   * @param input input stream
+   * @return self reference
+   * @throws IOException I/O exception
+   */
+  private ClientBatch send(final ServerCmd command, final String arg, final InputStream input)
+      throws IOException {
+
+    requests.write(command.code);
+    send(arg);
+    final EncodingOutput eo = new EncodingOutput(requests);
+    final byte[] buffer = new byte[IO.BLOCKSIZE];
+    for(int r; (r = input.read(buffer)) != -1;) eo.write(buffer, 0, r);
+    requests.write(0);
+    add(Response.INPUT);
+    return this;
+  }
+
+  /**
+   * Buffers a query request.
+   * @param command command
+   * @param arg arguments
+   * @throws IOException I/O exception
+   */
+  private void send(final ServerCmd command, final String arg) throws IOException {
+    requests.write(command.code);
+    send(arg);
+    add(Response.QUERY);
+  }
+
+  /**
+   * Registers the expected response of a buffered request.
+   * @param response type of response
+   */
+  private void add(final Response response) {
+    responses.add(response);
+    ends.add((int) requests.size());
+  }
+
+  /**
+   * Buffers a string.
+   * @param string string to be sent
+   * @throws IOException I/O exception
+   */
+  private void send(final String string) throws IOException {
+    requests.write(Token.token(string));
+    requests.write(0);
+  }
+}
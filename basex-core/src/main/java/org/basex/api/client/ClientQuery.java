@@ -4,7 +4,6 @@ import java.io.*;
 
 import org.basex.api.dom.*;
 import org.basex.core.*;
-import org.basex.io.in.*;
 import org.basex.io.serial.*;
 import org.basex.query.*;
 import org.basex.query.value.*;
@@ -26,6 +25,8 @@ public class ClientQuery extends Query {
   final ClientSession cs;
   /** Query id. */
   final String id;
+  /** Maximum number of results that are requested at once (0: all results). */
+  private int chunk;
 
   /**
    * Standard constructor.
@@ -41,6 +42,17 @@ public class ClientQuery extends Query {
     id = session.exec(ServerCmd.QUERY, query, null);
   }
 
+  /**
+   * Sets the maximum number of results that will be requested from the server at once.
+   * If a positive number is specified, the results will be evaluated and requested in chunks,
+   * and the query will keep its database locks until all results have been returned or the
+   * query has been closed. By default, all results are requested at once.
+   * @param size number of results (0: all results)
+   */
+  public void setChunkSize(final int size) {
+    chunk = Math.max(0, size);
+  }
+
   @Override
   public String info() throws IOException {
     return cs.exec(ServerCmd.INFO, id, null);
@@ -59,6 +71,35 @@ public class ClientQuery extends Query {
   @Override
   public void bind(final String name, final Object value, final String type) throws IOException {
     cache = null;
+    final ServerCmd cmd = name == null ? ServerCmd.CONTEXT : ServerCmd.BIND;
+    cs.exec(cmd, id + '\0' + binding(name, value, type), null);
+  }
+
+  @Override
+  public void context(final Object value, final String type) throws IOException {
+    bind(null, value, type);
+  }
+
+  @Override
+  public String execute() throws IOException {
+    return cs.exec(ServerCmd.EXEC, id, out);
+  }
+
+  @Override
+  public void close() throws IOException {
+    cs.exec(ServerCmd.CLOSE, id, null);
+  }
+
+  /**
+   * Returns the arguments of a binding request.
+   * @param name name of variable ({@code null} for the context value)
+   * @param value value to be bound
+   * @param type type (may be {@code null})
+   * @return arguments: {name}0{val}0{type} or {val}0{type}
+   * @throws IOException I/O exception
+   */
+  static String binding(final String name, final Object value, final String type)
+      throws IOException {
 
     final Object vl = value  instanceof BXNode ? ((BXNode) value).getNode() : value;
     String t = type == null ? "" : type;
@@ -87,34 +128,23 @@ public class ClientQuery extends Query {
       v = value.toString();
     }
 
-    final ServerCmd cmd = name == null ? ServerCmd.CONTEXT : ServerCmd.BIND;
     final String n = name == null ? "" : name + '\0';
-    cs.exec(cmd, id + '\0' + n + v + '\0' + t, null);
-  }
-
-  @Override
-  public void context(final Object value, final String type) throws IOException {
-    bind(null, value, type);
-  }
-
-  @Override
-  public String execute() throws IOException {
-    return cs.exec(ServerCmd.EXEC, id, out);
+    return n + v + '\0' + t;
   }
 
   @Override
-  public void close() throws IOException {
-    cs.exec(ServerCmd.CLOSE, id, null);
-  }
-
-  @Override
-  @SuppressWarnings("resource")
   protected void cache() throws IOException {
-    cs.sout.write(ServerCmd.RESULTS.code);
-    cs.send(id);
+    if(chunk == 0) {
+      cs.sout.write(ServerCmd.RESULTS.code);
+      cs.send(id);
+    } else {
+      cs.sout.write(ServerCmd.CHUNK.code);
+      cs.send(id);
+      cs.send(Integer.toString(chunk));
+    }
     cs.sout.flush();
-    final BufferInput bi = new BufferInput(cs.sin);
-    cache(bi);
-    if(!ClientSession.ok(bi)) throw new BaseXException(bi.readString());
+    cache(cs.sin);
+    if(!ClientSession.ok(cs.sin)) throw new BaseXException(cs.sin.readString());
+    complete = chunk == 0 || cache.size() < chunk;
   }
 }
@@ -24,6 +24,8 @@ public abstract class Query implements Closeable {
   protected OutputStream out;
   /** Cached results. */
   protected TokenList cache;
+  /** Indicates if all results have been cached. */
+  boolean complete = true;
 
   /** Cached result types. */
   private ByteList types;
@@ -74,6 +76,8 @@ public abstract class Query implements Closeable {
    */
   public boolean more() throws IOException {
     if(cache == null) cache();
+    // request next results
+    if(pos == cache.size() && !complete) cache();
     if(pos < cache.size()) return true;
     cache = null;
     types = null;
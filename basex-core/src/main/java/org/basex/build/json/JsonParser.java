@@ -1,7 +1,10 @@
 package org.basex.build.json;
 
+import static org.basex.util.Token.*;
+
 import java.io.*;
 
+import org.basex.build.json.JsonOptions.JsonFormat;
 import org.basex.build.xml.*;
 import org.basex.core.*;
 import org.basex.io.*;
@@ -37,7 +40,39 @@ public final class JsonParser extends XMLParser {
    */
   public JsonParser(final IO source, final MainOptions opts, final JsonParserOptions jopts)
       throws IOException {
-    super(toXML(source, jopts), opts);
+    super(input(source, opts, jopts), opts);
+  }
+
+  /**
+   * Returns the XML input for the specified JSON document. If the document is an array,
+   * and if it is converted with the direct format, its members will be converted one by one.
+   * Otherwise, the complete document will be converted in main memory.
+   * @param io input
+   * @param opts database options
+   * @param jopts parser options
+   * @return XML input
+   * @throws IOException I/O exception
+   */
+  private static IO input(final IO io, final MainOptions opts, final JsonParserOptions jopts)
+      throws IOException {
+
+    // merged type attributes and indentation whitespaces require the complete document
+    if(jopts.get(JsonOptions.FORMAT) == JsonFormat.DIRECT && !jopts.get(JsonOptions.MERGE) &&
+        opts.get(MainOptions.CHOP)) {
+      final JsonMembers members = new JsonMembers(io, jopts);
+      boolean array = false;
+      try {
+        array = members.array();
+      } finally {
+        if(!array) members.close();
+      }
+      if(array) {
+        final IOStream xml = new IOStream(new XMLStream(members), io.path());
+        xml.name(io.name());
+        return xml;
+      }
+    }
+    return toXML(io, jopts);
   }
 
   /**
@@ -53,4 +88,66 @@ public final class JsonParser extends XMLParser {
     xml.name(io.name());
     return xml;
   }
+
+  /**
+   * Input stream that returns the members of a JSON array as XML.
+   */
+  private static final class XMLStream extends InputStream {
+    /** Array members. */
+    private final JsonMembers members;
+    /** Current bytes. */
+    private byte[] bytes = token("<json type=\"array\">");
+    /** Current position. */
+    private int pos;
+    /** Indicates if all members have been returned. */
+    private boolean end;
+
+    /**
+     * Constructor.
+     * @param members array members
+     */
+    private XMLStream(final JsonMembers members) {
+      this.members = members;
+    }
+
+    @Override
+    public int read() throws IOException {
+      return more() ? bytes[pos++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+      if(len == 0) return 0;
+      if(!more()) return -1;
+      final int l = Math.min(len, bytes.length - pos);
+      System.arraycopy(bytes, pos, b, off, l);
+      pos += l;
+      return l;
+    }
+
+    @Override
+    public void close() throws IOException {
+      members.close();
+    }
+
+    /**
+     * Checks if more bytes are available, and converts the next member if necessary.
+     * @return result of check
+     * @throws IOException I/O exception
+     */
+    private boolean more() throws IOException {
+      while(pos == bytes.length) {
+        if(end) return false;
+        final byte[] member = members.nextXML();
+        if(member == null) {
+          bytes = token("</json>");
+          end = true;
+        } else {
+          bytes = member;
+        }
+        pos = 0;
+      }
+      return true;
+    }
+  }
 }
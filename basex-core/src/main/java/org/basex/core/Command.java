@@ -318,8 +318,8 @@ public abstract class Command extends Proc {
    */
   protected final boolean finishUpdate(final Data data) {
     try {
-      if(data.meta.autoopt) Optimize.optimize(data, options, null);
-      data.finishUpdate(options);
+      Optimize.finish(data, options);
+      context.finishUpdate(data);
       return true;
     } catch(final IOException ex) {
       info(Util.message(ex));
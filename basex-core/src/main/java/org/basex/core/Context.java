@@ -4,6 +4,7 @@ import org.basex.core.locks.*;
 import org.basex.core.users.*;
 import org.basex.data.*;
 import org.basex.io.random.*;
+import org.basex.query.*;
 import org.basex.query.util.pkg.*;
 import org.basex.server.*;
 import org.basex.util.*;
@@ -40,6 +41,10 @@ public final class Context {
   public final Repo repo;
   /** Databases list. */
   public final Databases databases;
+  /** Prepared queries. */
+  public final PreparedQueries prepared;
+  /** Thread pool for parallel tasks. */
+  public final Workers workers;
 
   /** Log. */
   public final Log log;
@@ -90,6 +95,8 @@ public final class Context {
     events = ctx.events;
     sessions = ctx.sessions;
     databases = ctx.databases;
+    prepared = ctx.prepared;
+    workers = ctx.workers;
     blocker = ctx.blocker;
     locks = ctx.locks;
     users = ctx.users;
@@ -108,6 +115,8 @@ public final class Context {
     sessions = new Sessions();
     blocker = new ClientBlocker();
     databases = new Databases(soptions);
+    prepared = new PreparedQueries(soptions);
+    workers = new Workers();
     locks = soptions.get(StaticOptions.GLOBALLOCK) ? new ProcLocking(soptions) :
       new DBLocking(soptions);
     users = new Users(soptions);
@@ -141,6 +150,7 @@ public final class Context {
   public synchronized void close() {
     while(!sessions.isEmpty()) sessions.get(0).quit();
     dbs.close();
+    workers.close();
     log.close();
   }
 
@@ -255,6 +265,8 @@ public final class Context {
     final StringList read = prepareLock(lr.read, lr.readAll);
     final StringList write = prepareLock(lr.write, lr.writeAll);
     locks.acquire(pr, read, write);
+    pr.writeLocks = write;
+    pr.locked = true;
   }
 
   /**
@@ -264,10 +276,42 @@ public final class Context {
   public void unregister(final Proc pr) {
     assert pr.registered() : "Not registered:" + pr;
     pr.registered(false);
+    if(pr.updating && pr.locked) finishDeferred(pr.writeLocks);
+    pr.writeLocks = null;
+    pr.locked = false;
     locks.release(pr);
     pr.stopTimeout();
   }
 
+  /**
+   * Finishes an update operation on the specified database.
+   * If {@link MainOptions#GROUPFLUSH} is enabled, and if other transactions are waiting to
+   * update the same database, the updated data will not be flushed yet. Instead, it will be
+   * flushed by the last transaction of the group (see {@link #unregister(Proc)}), or when the
+   * database is closed.
+   * @param dt data reference
+   */
+  public void finishUpdate(final Data dt) {
+    if(options.get(MainOptions.AUTOFLUSH) && options.get(MainOptions.GROUPFLUSH) &&
+        locks.writers(dt.meta.name)) {
+      dt.deferUpdate();
+    } else {
+      dt.finishUpdate(options);
+    }
+  }
+
+  /**
+   * Finishes deferred update operations of write-locked databases that are
+   * not waited for by other transactions.
+   * @param write write-locked databases ({@code null}: all databases)
+   */
+  private void finishDeferred(final StringList write) {
+    for(final Data dt : dbs.list()) {
+      final String name = dt.meta.name;
+      if((write == null || write.contains(name)) && !locks.writers(name)) dt.finishDeferred();
+    }
+  }
+
   /**
    * Prepares the string list for locking.
    * @param sl string list
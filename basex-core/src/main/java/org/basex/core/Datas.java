@@ -73,6 +73,14 @@ public final class Datas {
     return false;
   }
 
+  /**
+   * Returns a copy of all data references.
+   * @return data references
+   */
+  synchronized ArrayList<Data> list() {
+    return new ArrayList<>(list);
+  }
+
   /**
    * Closes all data references.
    */
@@ -22,6 +22,8 @@ public final class MainOptions extends Options {
   public static final BooleanOption MAINMEM = new BooleanOption("MAINMEM", false);
   /** Flag for opening a database after creating it. */
   public static final BooleanOption CREATEONLY = new BooleanOption("CREATEONLY", false);
+  /** Flag for reading database files via memory mapping. */
+  public static final BooleanOption MMAP = new BooleanOption("MMAP", false);
 
   // Parsing
 
@@ -82,6 +84,10 @@ public final class MainOptions extends Options {
   public static final NumberOption INDEXSPLITSIZE = new NumberOption("INDEXSPLITSIZE", 0);
   /** Maximum number of fulltext index entries to keep in memory during index creation. */
   public static final NumberOption FTINDEXSPLITSIZE = new NumberOption("FTINDEXSPLITSIZE", 0);
+  /** Memory budget for building indexes, in megabytes (0: derived from the maximum heap size). */
+  public static final NumberOption INDEXMEMORY = new NumberOption("INDEXMEMORY", 0);
+  /** Maximum number of threads for building indexes (0: number of available processors). */
+  public static final NumberOption INDEXTHREADS = new NumberOption("INDEXTHREADS", 0);
 
   /** Maximum length of index entries. */
   public static final NumberOption MAXLEN = new NumberOption("MAXLEN", 96);
@@ -119,6 +125,8 @@ public final class MainOptions extends Options {
   public static final NumberOption INLINELIMIT = new NumberOption("INLINELIMIT", 100);
   /** Flag for tail-call optimization. */
   public static final NumberOption TAILCALLS = new NumberOption("TAILCALLS", 256);
+  /** Maximum number of threads for evaluating paths (1: sequential, 0: available processors). */
+  public static final NumberOption PATHTHREADS = new NumberOption("PATHTHREADS", 1);
   /** Favor global database when opening resources. */
   public static final BooleanOption DEFAULTDB = new BooleanOption("DEFAULTDB", false);
   /** Caches the query results. */
@@ -156,6 +164,13 @@ public final class MainOptions extends Options {
 
   /** Flushes the database after each update. */
   public static final BooleanOption AUTOFLUSH = new BooleanOption("AUTOFLUSH", true);
+  /**
+   * Groups the flushes of subsequent updates on the same database (relaxed durability):
+   * updates will be reported as successful before they have been flushed. If the process
+   * is terminated before the last update of a group has been flushed, the reported updates
+   * may be lost, and the database will need to be repaired.
+   */
+  public static final BooleanOption GROUPFLUSH = new BooleanOption("GROUPFLUSH", false);
   /** Writes original files back after updates. */
   public static final BooleanOption WRITEBACK = new BooleanOption("WRITEBACK", false);
   /** Maximum number of index occurrences to print. */
@@ -5,6 +5,7 @@ import static org.basex.core.Text.*;
 import java.util.*;
 
 import org.basex.core.locks.*;
+import org.basex.util.list.*;
 
 /**
  * This class is implemented by all kinds of processes.
@@ -22,8 +23,12 @@ public abstract class Proc {
 
   /** Indicates if a process is currently registered. */
   boolean registered;
+  /** Write-locked databases ({@code null}: all databases). */
+  StringList writeLocks;
+  /** Indicates if the locks of a registered process have been acquired. */
+  boolean locked;
   /** Stopped flag. */
-  private boolean stopped;
+  private volatile boolean stopped;
   /** Timer. */
   private Timer timer;
   /** Sub process. */
@@ -89,6 +94,14 @@ public abstract class Proc {
     stopTimeout();
   }
 
+  /**
+   * Checks if the process was interrupted.
+   * @return result of check
+   */
+  public final boolean stopped() {
+    return stopped;
+  }
+
   /**
    * Checks if the process was interrupted; if yes, sends a runtime exception.
    */
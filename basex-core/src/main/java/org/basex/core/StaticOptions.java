@@ -5,6 +5,7 @@ import static org.basex.util.Prop.*;
 import java.util.*;
 
 import org.basex.io.*;
+import org.basex.io.random.*;
 import org.basex.util.*;
 import org.basex.util.options.*;
 
@@ -36,6 +37,10 @@ public final class StaticOptions extends Options {
   public static final BooleanOption LANGKEYS = new BooleanOption("LANGKEYS", false);
   /** Applied locking algorithm: local (database) vs. global (process) locking. */
   public static final BooleanOption GLOBALLOCK = new BooleanOption("GLOBALLOCK", false);
+  /** Size of the page cache that is shared by all databases (in megabytes). */
+  public static final NumberOption PAGECACHE = new NumberOption("PAGECACHE", 64);
+  /** Maximum number of prepared queries whose static properties and parsed modules are cached. */
+  public static final NumberOption PREPARED = new NumberOption("PREPARED", 1000);
 
   /** Comment: written to options file. */
   public static final Comment C_CLIENT = new Comment("Client/Server Architecture");
@@ -66,9 +71,15 @@ public final class StaticOptions extends Options {
 
   /** Timeout (seconds) for processing client requests; deactivated if set to 0. */
   public static final NumberOption TIMEOUT = new NumberOption("TIMEOUT", 30);
+  /** Timeout (seconds) for requesting the next chunk of query results; deactivated if set to 0. */
+  public static final NumberOption CHUNKTIMEOUT = new NumberOption("CHUNKTIMEOUT", 60);
   /** Keep alive time of clients; deactivated if set to 0. */
   public static final NumberOption KEEPALIVE = new NumberOption("KEEPALIVE", 600);
-  /** Defines the number of parallel readers. */
+  /** Server: handle client connections with a selector instead of one thread per client. */
+  public static final BooleanOption SELECTOR = new BooleanOption("SELECTOR", false);
+  /** Server: maximum size of requests with input that are cached by the selector (bytes). */
+  public static final NumberOption SELECTORINPUT = new NumberOption("SELECTORINPUT", 1 << 26);
+  /** Defines the number of parallel readers and the number of parallel writers. */
   public static final NumberOption PARALLEL = new NumberOption("PARALLEL", 8);
   /** Logging flag. */
   public static final BooleanOption LOG = new BooleanOption("LOG", true);
@@ -83,6 +94,8 @@ public final class StaticOptions extends Options {
     HOME + (USERHOME ? NAME + "Web" : "webapp"));
   /** RESTXQ path (relative to web path). */
   public static final StringOption RESTXQPATH = new StringOption("RESTXQPATH", "");
+  /** Interval (seconds) for checking RESTXQ modules for changes (0: always, -1: only once). */
+  public static final NumberOption PARSERESTXQ = new NumberOption("PARSERESTXQ", 3);
   /** Local (embedded) mode. */
   public static final BooleanOption HTTPLOCAL = new BooleanOption("HTTPLOCAL", false);
   /** Port for stopping the web server. */
@@ -112,6 +125,7 @@ public final class StaticOptions extends Options {
     language = get(LANG);
     langkeys = get(LANGKEYS);
     debug = get(DEBUG);
+    PageCache.limit((long) get(PAGECACHE) << 20);
     final String ph = get(PROXYHOST);
     if(!ph.isEmpty()) {
       setSystem("http.proxyHost", ph);
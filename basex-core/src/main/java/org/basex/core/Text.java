@@ -51,6 +51,9 @@ public interface Text {
   /** False flag. */
   String FALSE = "false";
 
+  /** Prepared queries. */
+  String S_PREPARED = "Prepared Queries";
+
   /** Local (standalone) mode. */
   String S_STANDALONE = "Standalone";
   /** Start information. */
@@ -244,6 +247,10 @@ public interface Text {
   String TIMEOUT_EXCEEDED = lang("timeout_exceeded");
   /** Connection error. */
   String CONNECTION_ERROR = lang("connection_error");
+  /** Request limit exceeded. */
+  String REQUEST_LIMIT_X = "Input exceeds the maximum size of % bytes.";
+  /** Pending query results. */
+  String PENDING_RESULTS = "Updates are rejected while query results are pending.";
   /** Access denied. */
   String ACCESS_DENIED = lang("access_denied");
   /** User name. */
@@ -0,0 +1,34 @@
+package org.basex.core;
+
+import java.util.concurrent.*;
+
+/**
+ * This class provides a thread pool for evaluating tasks in parallel.
+ * It is shared by all clients of a database context and shut down with the context.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class Workers {
+  /** Thread pool (will be initialized on demand). */
+  private ForkJoinPool pool;
+
+  /**
+   * Returns the thread pool.
+   * @return thread pool
+   */
+  public synchronized ForkJoinPool pool() {
+    if(pool == null) pool = new ForkJoinPool();
+    return pool;
+  }
+
+  /**
+   * Shuts down the thread pool.
+   */
+  synchronized void close() {
+    if(pool != null) {
+      pool.shutdownNow();
+      pool = null;
+    }
+  }
+}
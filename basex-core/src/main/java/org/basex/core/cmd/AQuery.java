@@ -133,14 +133,22 @@ public abstract class AQuery extends Command {
    * @throws QueryException query exception
    */
   private void parse(final Performance p) throws QueryException {
+    bind();
+    qp.parse();
+    if(p != null) info.parsing += p.time();
+  }
+
+  /**
+   * Binds the HTTP context and the external variables.
+   * @throws QueryException query exception
+   */
+  private void bind() throws QueryException {
     qp.http(http);
     for(final String name : vars.keySet()) {
       final String[] value = vars.get(name);
       if(name == null) qp.context(value[0], value[1]);
       else qp.bind(name, value[0], value[1]);
     }
-    qp.parse();
-    if(p != null) info.parsing += p.time();
   }
 
   /**
@@ -204,8 +212,8 @@ public abstract class AQuery extends Command {
   public String parameters(final Context ctx) {
     try {
       qp(args[0], ctx);
-      parse(null);
-      return qp.qc.serParams().toString();
+      bind();
+      return qp.prepare().parameters;
     } catch(final QueryException ex) {
       error(Util.message(ex));
     } finally {
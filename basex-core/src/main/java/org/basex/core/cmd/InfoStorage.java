@@ -12,6 +12,7 @@ import org.basex.core.parse.Commands.Cmd;
 import org.basex.core.parse.Commands.CmdInfo;
 import org.basex.core.users.*;
 import org.basex.data.*;
+import org.basex.io.random.*;
 import org.basex.util.*;
 import org.basex.util.list.*;
 
@@ -60,6 +61,7 @@ public final class InfoStorage extends AQuery {
       }
       out.print(table(data, ps, pe));
     }
+    if(!data.inMemory()) out.print(NL + PageCache.table(data.meta.path));
     return true;
   }
 
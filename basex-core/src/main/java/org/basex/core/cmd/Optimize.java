@@ -8,6 +8,7 @@ import org.basex.core.*;
 import org.basex.core.users.*;
 import org.basex.data.*;
 import org.basex.index.*;
+import org.basex.index.ft.*;
 import org.basex.util.*;
 import org.basex.util.list.*;
 
@@ -66,6 +67,19 @@ public final class Optimize extends ACreate {
     return CREATE_STATS_D;
   }
 
+  /**
+   * Finalizes an update operation: optimizes the structures of a database if
+   * {@link MainOptions#AUTOOPTIMIZE} is enabled. Otherwise, rebuilds the full-text index
+   * if its delta structure has grown too large.
+   * @param data data
+   * @param options main options
+   * @throws IOException I/O Exception during index rebuild
+   */
+  public static void finish(final Data data, final MainOptions options) throws IOException {
+    if(data.meta.autoopt) optimize(data, options, null);
+    else if(fragmented(data)) create(IndexType.FULLTEXT, data, options, null);
+  }
+
   /**
    * Optimizes the structures of a database.
    * @param data data
@@ -118,6 +132,7 @@ public final class Optimize extends ACreate {
         } else if(kind == Data.ELEM) {
           final int id = data.name(pre);
           data.elemNames.index(data.elemNames.key(id), null, true);
+          if(level > 1) data.elemNames.stat(elms.peek()).setLeaf(false);
           data.paths.put(id, Data.ELEM, level);
           pars.push(pre);
           elms.push(id);
@@ -128,7 +143,11 @@ public final class Optimize extends ACreate {
           data.paths.put(id, Data.ATTR, level, val, md);
         } else {
           final byte[] val = data.text(pre, true);
-          if(kind == Data.TEXT && level > 1) data.elemNames.index(elms.peek(), val);
+          if(level > 1) {
+            // set leaf node information in index
+            if(kind == Data.TEXT) data.elemNames.index(elms.peek(), val);
+            else data.elemNames.stat(elms.peek()).setLeaf(false);
+          }
           data.paths.put(0, kind, level, val, md);
         }
         if(cmd != null) cmd.pre = pre;
@@ -147,7 +166,19 @@ public final class Optimize extends ACreate {
     // rebuild value indexes
     optimize(IndexType.ATTRIBUTE, data, options, md.createattr, md.attrindex, enforce, cmd);
     optimize(IndexType.TEXT,      data, options, md.createtext, md.textindex, enforce, cmd);
-    optimize(IndexType.FULLTEXT,  data, options, md.createftxt, md.ftxtindex, enforceFT, cmd);
+    // rebuild updatable full-text index if its delta structure has grown too large
+    optimize(IndexType.FULLTEXT,  data, options, md.createftxt, md.ftxtindex,
+        enforceFT || fragmented(data), cmd);
+  }
+
+  /**
+   * Checks if the delta structure of an updatable full-text index has grown too large.
+   * @param data data
+   * @return result of check
+   */
+  private static boolean fragmented(final Data data) {
+    return data.meta.ftxtindex && data.ftxtIndex instanceof FTIndex &&
+        ((FTIndex) data.ftxtIndex).fragmented();
   }
 
   /**
@@ -4,18 +4,19 @@ import static org.basex.util.Prop.*;
 
 import java.util.*;
 import java.util.Map.Entry;
-import java.util.concurrent.*;
-import java.util.concurrent.locks.*;
 
 import org.basex.core.*;
 import org.basex.util.list.*;
 
 /**
- * Manage read and write locks on arbitrary strings. Maximum of
- * {@link StaticOptions#PARALLEL} concurrent transactions are allowed,
- * further will be queued.
+ * Manage read and write locks on arbitrary strings.
  *
- * This class prevents locking deadlocks by sorting all all strings
+ * Transactions are admitted by a scheduler, which checks if all requested locks are
+ * available. All locks of a transaction are acquired at once, which prevents deadlocks.
+ * A waiting transaction will not block transactions that request other locks: it can only
+ * be overtaken by transactions that arrived later if their locks do not conflict with its own
+ * locks. Read-only and updating transactions have separate pools: a maximum of
+ * {@link StaticOptions#PARALLEL} transactions of each kind are run at the same time.
  *
  * Locks can only be released by the same thread which acquired it.
  *
@@ -30,9 +31,6 @@ import org.basex.util.list.*;
  * @author Jens Erat
  */
 public final class DBLocking implements Locking {
-  /** Fair scheduling; prevents starvation, but reduces parallelism. */
-  private static final boolean FAIR = true;
-
   /** Prefix for internal special locks. */
   private static final String PREFIX = "%";
   /** Special lock identifier for collection available via current context; will be substituted. */
@@ -52,44 +50,38 @@ public final class DBLocking implements Locking {
   /** Prefix for locks in Java modules. */
   public static final String MODULE_PREFIX = "&";
 
-  /** Lock for running thread counters. */
-  private final Object globalLock = new Object();
-  /** Number of running local writers. Guarded by {@code globalLock}. */
-  private int localWriters;
-  /** Number of running local writers. Guarded by {@code globalLock}. */
-  private int globalReaders;
-  /**
-   * Lock for global write locking.
-   *
-   * Exclusive lock - if globally writing,
-   * Shared lock    - else
-   */
-  private final ReentrantReadWriteLock writeAll = new ReentrantReadWriteLock();
-  /** Stores one lock for each object used for locking. */
-  private final Map<String, ReentrantReadWriteLock> locks = new HashMap<>();
-  /** Stores lock usage counters for each object used for locking. */
-  private final Map<String, Integer> lockUsage = new HashMap<>();
-  /**
-   * Currently running transactions.
-   * Used as monitor for atomizing access to {@link #queue}.
-   */
-  private int transactions;
-  /**
-   * Queue for transactions waiting.
-   *
-   * Used as monitor for waiting threads in queue.
-   */
-  private final Queue<Long> queue = new LinkedList<>();
+  /** Name of global locks in wait statistics. */
+  private static final String GLOBAL = PREFIX + "GLOBAL";
+
   /**
-   * Stores a list of objects each transaction has write-locked.
-   * Null means lock everything, an empty array lock nothing.
+   * Transactions waiting to be admitted, in the order of their arrival.
+   * Used as monitor for all scheduling data.
    */
-  private final ConcurrentMap<Long, StringList> writeLocked = new ConcurrentHashMap<>();
+  private final ArrayList<Transaction> pending = new ArrayList<>();
+  /** Running transactions, indexed by thread ids. */
+  private final Map<Long, Transaction> running = new HashMap<>();
+  /** Number of read locks on objects. */
+  private final Map<String, Integer> readers = new HashMap<>();
+  /** Write-locked objects. */
+  private final Set<String> writers = new HashSet<>();
+  /** Wait statistics for objects: number of waiting transactions and total wait time (ns). */
+  private final Map<String, long[]> waits = new TreeMap<>();
+  /** Number of transactions with global read locks. */
+  private int globalReaders;
+  /** Indicates if a transaction holds the global write lock. */
+  private boolean globalWriter;
+  /** Number of running read-only transactions. */
+  private int reading;
+  /** Number of running updating transactions. */
+  private int writing;
+
   /**
-   * Stores a list of objects each transaction has read-locked. Null means lock
-   * everything, an empty array lock nothing.
+   * Stores the number of transactions that are waiting to write-lock an object.
+   * Used as monitor for {@link #waitingAll}.
    */
-  private final ConcurrentMap<Long, StringList> readLocked = new ConcurrentHashMap<>();
+  private final Map<String, Integer> waiting = new HashMap<>();
+  /** Number of transactions waiting for a global write lock. Guarded by {@link #waiting}. */
+  private int waitingAll;
   /** Static options. */
   private final StaticOptions sopts;
 
@@ -104,172 +96,103 @@ public final class DBLocking implements Locking {
   @Override
   public void acquire(final Proc pr, final StringList read, final StringList write) {
     final long thread = Thread.currentThread().getId();
-    if(writeLocked.containsKey(thread) || readLocked.containsKey(thread))
-      throw new IllegalMonitorStateException("Thread already holds one or more locks.");
+    final Transaction tr = new Transaction(read, write);
+    synchronized(pending) {
+      if(running.containsKey(thread))
+        throw new IllegalMonitorStateException("Thread already holds one or more locks.");
+    }
 
-    // Wait in queue if necessary
-    synchronized(queue) { // Guard queue and transaction, monitor for waiting in queue
-      queue.add(thread);
-      while(transactions >= Math.max(sopts.get(StaticOptions.PARALLEL), 1)
-          || queue.peek() != thread) {
-        try {
-          queue.wait();
-        } catch(final InterruptedException ex) {
-          Thread.currentThread().interrupt();
-        }
+    // Announce write locks
+    synchronized(waiting) {
+      if(tr.write == null) {
+        waitingAll++;
+      } else {
+        for(final String object : tr.write) waiting(object, 1);
       }
-      final int t = transactions++;
-      assert t <= Math.max(sopts.get(StaticOptions.PARALLEL), 1);
-      queue.remove(thread);
     }
 
-    // Global write lock if write StringList is not set
-    (write == null ? writeAll.writeLock() : writeAll.readLock()).lock();
-
-    synchronized(globalLock) {
-      // local write locking
-      if(write != null && !write.isEmpty()) {
-        while(globalReaders > 0) {
-          try {
-            globalLock.wait();
-          } catch(final InterruptedException ex) {
-            Thread.currentThread().interrupt();
-          }
-        }
-        localWriters++;
-      }
-      // global read locking
-      if(read == null) {
-        while(localWriters > 0) {
-          try {
-            globalLock.wait();
-          } catch(final InterruptedException ex) {
-            Thread.currentThread().interrupt();
-          }
+    // Wait until all locks are available
+    boolean interrupted = false;
+    synchronized(pending) {
+      pending.add(tr);
+      schedule();
+      while(!tr.admitted) {
+        try {
+          pending.wait();
+        } catch(final InterruptedException ex) {
+          interrupted = true;
         }
-        globalReaders++;
       }
+      running.put(thread, tr);
+      tr.statistics();
     }
+    if(interrupted) Thread.currentThread().interrupt();
 
-    // Local locking
-    final StringList writeObjects;
-    if(write != null) {
-      writeObjects = write.sort().unique();
-      writeLocked.put(thread, writeObjects);
-    } else {
-      writeObjects = new StringList(0);
-    }
-    final StringList readObjects;
-    if(read != null) {
-      readObjects = read.sort().unique();
-      readLocked.put(thread, readObjects);
-    } else {
-      readObjects = new StringList(0);
-    }
-
-    // Use pattern similar to merge sort
-    int w = 0, r = 0;
-    final int rs = readObjects.size(), ws = writeObjects.size();
-    while(r < rs || w < ws) {
-      // Look what token comes earlier in alphabet, prefer writing against reading
-      if(w < ws && (r >= rs || writeObjects.get(w).compareTo(readObjects.get(r)) <= 0)) {
-        final String writeObject = writeObjects.get(w++);
-        setLockUsed(writeObject);
-        getOrCreateLock(writeObject).writeLock().lock();
-      } else
-      // Read lock only if not global write locking; otherwise no lock downgrading from
-      // global write lock is possible
-      if(write != null) {
-        final String readObject = readObjects.get(r++);
-        setLockUsed(readObject);
-        getOrCreateLock(readObject).readLock().lock();
+    synchronized(waiting) {
+      if(tr.write == null) {
+        waitingAll--;
+      } else {
+        for(final String object : tr.write) waiting(object, -1);
       }
     }
   }
 
-  /**
-   * Gets or creates lock on object.
-   * @param object to fetch lock for
-   * @return lock on object
-   */
-  private ReentrantReadWriteLock getOrCreateLock(final String object) {
-    ReentrantReadWriteLock lock;
-    synchronized(locks) { // Make sure each object lock is a singleton
-      lock = locks.get(object);
-      if(lock == null) { // Create lock if needed
-        lock = new ReentrantReadWriteLock(FAIR);
-        locks.put(object, lock);
-      }
+  @Override
+  public boolean writers(final String db) {
+    synchronized(waiting) {
+      return waitingAll > 0 || waiting.containsKey(db);
     }
-    return lock;
   }
 
   @Override
   public void release(final Proc pr) {
-    // Release all write locks
-    final Long thread = Thread.currentThread().getId();
-    final StringList writeObjects = writeLocked.remove(thread);
-    if(writeObjects != null) for(final String object : writeObjects) {
-      final ReentrantReadWriteLock lock = getOrCreateLock(object);
-      assert lock.getWriteHoldCount() == 1 : "Unexpected write lock count: "
-          + lock.getWriteHoldCount();
-      lock.writeLock().unlock();
-      unsetLockIfUnused(object);
-    }
-
-    // Release all read locks
-    final StringList readObjects = readLocked.remove(thread);
-    if(!writeAll.isWriteLocked() && readObjects != null)
-      for(final String object : readObjects) {
-        getOrCreateLock(object).readLock().unlock();
-        unsetLockIfUnused(object);
-      }
-
-    // Release global locks
-    (writeAll.isWriteLocked() ? writeAll.writeLock() : writeAll.readLock()).unlock();
-    if(writeObjects != null && !writeObjects.isEmpty()) synchronized(globalLock) {
-      localWriters--;
-      globalLock.notifyAll();
-    }
-    if(readObjects == null) synchronized(globalLock) {
-      globalReaders--;
-      globalLock.notifyAll();
-    }
-
-    // Allow another transaction to run
-    synchronized(queue) {
-      transactions--;
-      queue.notifyAll();
+    final long thread = Thread.currentThread().getId();
+    synchronized(pending) {
+      final Transaction tr = running.remove(thread);
+      if(tr == null) throw new IllegalMonitorStateException("Thread holds no locks.");
+      tr.unlock();
+      // admit waiting transactions
+      schedule();
     }
   }
 
   /**
-   * Marks a lock as used.
-   * @param lock Lock to set used
+   * Updates the number of transactions that are waiting to write-lock an object.
+   * Must be called with the {@link #waiting} monitor.
+   * @param object object
+   * @param diff difference
    */
-  private void setLockUsed(final String lock) {
-    synchronized(lockUsage) {
-      Integer usage = lockUsage.get(lock);
-      if(usage == null) usage = 0;
-      lockUsage.put(lock, ++usage);
-    }
+  private void waiting(final String object, final int diff) {
+    final Integer count = waiting.get(object);
+    final int c = (count == null ? 0 : count) + diff;
+    if(c == 0) waiting.remove(object);
+    else waiting.put(object, c);
   }
 
   /**
-   * Unsets lock if unused.
-   * @param object Object to test
+   * Admits all waiting transactions whose locks are available. A transaction will not
+   * be admitted if its locks conflict with those of a transaction that arrived earlier and
+   * is still waiting. Must be called with the {@link #pending} monitor.
    */
-  private void unsetLockIfUnused(final String object) {
-    synchronized(lockUsage) {
-      Integer usage = lockUsage.get(object);
-      assert usage != null;
-      if(--usage == 0) {
-        locks.remove(object);
-        lockUsage.remove(object);
+  private void schedule() {
+    final int parallel = Math.max(sopts.get(StaticOptions.PARALLEL), 1);
+    final ArrayList<Transaction> blocked = new ArrayList<>();
+    boolean admitted = false;
+    final Iterator<Transaction> iter = pending.iterator();
+    while(iter.hasNext()) {
+      final Transaction tr = iter.next();
+      boolean admit = (tr.updating() ? writing : reading) < parallel && tr.available();
+      for(int b = 0; admit && b < blocked.size(); b++) admit = !tr.conflicts(blocked.get(b));
+      if(admit) {
+        iter.remove();
+        tr.lock();
+        admitted = true;
       } else {
-        lockUsage.put(object, usage);
+        tr.waited = true;
+        blocked.add(tr);
       }
     }
+    if(admitted) pending.notifyAll();
   }
 
   /**
@@ -281,18 +204,179 @@ public final class DBLocking implements Locking {
     final StringBuilder sb = new StringBuilder(NL);
     sb.append("Locking" + NL);
     final String ind = "| ";
-    sb.append(ind + "Transactions running: " + transactions + NL);
-    sb.append(ind + "Transaction queue: " + queue + NL);
-    sb.append(ind + "Held locks by object:" + NL);
-    for(final Entry<String, ReentrantReadWriteLock> e : locks.entrySet())
-      sb.append(ind + ind + e.getKey() + " -> " + e.getValue() + NL);
-    sb.append(ind + "Held write locks by transaction:" + NL);
-    for(final Long thread : writeLocked.keySet())
-      sb.append(ind + ind + thread + " -> " + writeLocked.get(thread) + NL);
-    sb.append(ind + "Held read locks by transaction:" + NL);
-    for(final Long thread : readLocked.keySet())
-      sb.append(ind + ind + thread + " -> " + readLocked.get(thread) + NL);
+    synchronized(pending) {
+      sb.append(ind + "Transactions running: " + reading + " reading, " + writing + " writing"
+          + NL);
+      sb.append(ind + "Transactions waiting: " + pending + NL);
+      sb.append(ind + "Held locks by transaction:" + NL);
+      for(final Entry<Long, Transaction> e : running.entrySet())
+        sb.append(ind + ind + e.getKey() + " -> " + e.getValue() + NL);
+      sb.append(ind + "Waits by object (count, ms):" + NL);
+      for(final Entry<String, long[]> e : waits.entrySet()) {
+        final long[] w = e.getValue();
+        sb.append(ind + ind + e.getKey() + " -> " + w[0] + ", " + w[1] / 1000000 + NL);
+      }
+    }
     return sb.toString();
   }
 
+  /** Transaction and its locks. */
+  private final class Transaction {
+    /** Objects to be read-locked, excluding write-locked objects ({@code null}: all). */
+    private final StringList read;
+    /** Objects to be write-locked ({@code null}: all). */
+    private final StringList write;
+    /** Time of arrival. */
+    private final long time = System.nanoTime();
+    /** Indicates if the transaction had to wait for its locks. */
+    private boolean waited;
+    /** Indicates if the transaction has been admitted. */
+    private boolean admitted;
+
+    /**
+     * Constructor.
+     * @param read objects to be read-locked ({@code null}: all)
+     * @param write objects to be write-locked ({@code null}: all)
+     */
+    private Transaction(final StringList read, final StringList write) {
+      this.write = write == null ? null : write.sort().unique();
+      if(read == null || write == null) {
+        this.read = write == null ? new StringList(0) : null;
+      } else {
+        this.read = new StringList();
+        for(final String object : read.sort().unique()) {
+          if(!write.contains(object)) this.read.add(object);
+        }
+      }
+    }
+
+    /**
+     * Indicates if this is an updating transaction.
+     * @return result of check
+     */
+    private boolean updating() {
+      return write == null || !write.isEmpty();
+    }
+
+    /**
+     * Checks if all locks of this transaction are available.
+     * @return result of check
+     */
+    private boolean available() {
+      if(write == null) {
+        if(reading + writing > 0) return false;
+      } else {
+        if(globalWriter || read == null && !writers.isEmpty() ||
+            !write.isEmpty() && globalReaders > 0) return false;
+        for(final String object : write) {
+          if(writers.contains(object) || readers.containsKey(object)) return false;
+        }
+        if(read != null) {
+          for(final String object : read) {
+            if(writers.contains(object)) return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Checks if the locks of this transaction conflict with the specified transaction.
+     * @param tr transaction
+     * @return result of check
+     */
+    private boolean conflicts(final Transaction tr) {
+      if(write == null || tr.write == null) return true;
+      if(read == null && !tr.write.isEmpty() || tr.read == null && !write.isEmpty()) return true;
+      for(final String object : write) {
+        if(tr.write.contains(object) || tr.read != null && tr.read.contains(object)) return true;
+      }
+      if(read != null) {
+        for(final String object : read) {
+          if(tr.write.contains(object)) return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Acquires the locks of this transaction.
+     */
+    private void lock() {
+      admitted = true;
+      if(updating()) writing++;
+      else reading++;
+      if(write == null) {
+        globalWriter = true;
+      } else {
+        for(final String object : write) writers.add(object);
+        if(read == null) {
+          globalReaders++;
+        } else {
+          for(final String object : read) {
+            final Integer count = readers.get(object);
+            readers.put(object, count == null ? 1 : count + 1);
+          }
+        }
+      }
+    }
+
+    /**
+     * Releases the locks of this transaction.
+     */
+    private void unlock() {
+      if(updating()) writing--;
+      else reading--;
+      if(write == null) {
+        globalWriter = false;
+      } else {
+        for(final String object : write) writers.remove(object);
+        if(read == null) {
+          globalReaders--;
+        } else {
+          for(final String object : read) {
+            final int count = readers.get(object);
+            if(count == 1) readers.remove(object);
+            else readers.put(object, count - 1);
+          }
+        }
+      }
+    }
+
+    /**
+     * Updates the wait statistics of all locked objects.
+     */
+    private void statistics() {
+      if(!waited) return;
+      final long ns = System.nanoTime() - time;
+      if(write == null) {
+        statistics(GLOBAL, ns);
+      } else {
+        for(final String object : write) statistics(object, ns);
+        if(read == null) statistics(GLOBAL, ns);
+        else for(final String object : read) statistics(object, ns);
+      }
+    }
+
+    /**
+     * Updates the wait statistics of an object.
+     * @param object object
+     * @param ns wait time
+     */
+    private void statistics(final String object, final long ns) {
+      long[] w = waits.get(object);
+      if(w == null) {
+        w = new long[2];
+        waits.put(object, w);
+      }
+      w[0]++;
+      w[1] += ns;
+    }
+
+    @Override
+    public String toString() {
+      return "read: " + (read == null ? "all" : read) + ", write: " +
+          (write == null ? "all" : write);
+    }
+  }
 }
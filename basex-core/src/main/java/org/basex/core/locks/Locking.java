@@ -27,4 +27,11 @@ public interface Locking {
    * @param pr process
    */
   void release(final Proc pr);
+
+  /**
+   * Indicates if other transactions are waiting to write-lock the specified database.
+   * @param db name of database
+   * @return result of check
+   */
+  boolean writers(final String db);
 }
@@ -29,6 +29,8 @@ public final class ProcLocking implements Locking {
   private int readers;
   /** Writer flag. */
   private boolean writer;
+  /** Number of waiting writers. */
+  private int writers;
 
   /**
    * Default constructor.
@@ -45,6 +47,7 @@ public final class ProcLocking implements Locking {
     synchronized(mutex) {
       // add object to queue
       queue.add(o);
+      if(pr.updating) writers++;
 
       // maximum number of readers
       final int maxReaders = Math.max(sopts.get(StaticOptions.PARALLEL), 1);
@@ -65,7 +68,14 @@ public final class ProcLocking implements Locking {
           }
         }
         // check if process has already been stopped
-        pr.checkStop();
+        try {
+          pr.checkStop();
+        } catch(final ProcException ex) {
+          queue.remove(o);
+          if(pr.updating) writers--;
+          mutex.notifyAll();
+          throw ex;
+        }
         // wait for next process to be finalized
         try {
           mutex.wait();
@@ -75,6 +85,7 @@ public final class ProcLocking implements Locking {
       }
       // start process, remove from queue
       queue.remove(0);
+      if(pr.updating) writers--;
     }
   }
 
@@ -89,4 +100,11 @@ public final class ProcLocking implements Locking {
       mutex.notifyAll();
     }
   }
+
+  @Override
+  public boolean writers(final String db) {
+    synchronized(mutex) {
+      return writers > 0;
+    }
+  }
 }
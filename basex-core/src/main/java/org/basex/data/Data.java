@@ -155,6 +155,20 @@ public abstract class Data {
    */
   public abstract void finishUpdate(final MainOptions opts);
 
+  /**
+   * Defers the finalization of an update operation: the update file and the exclusive lock
+   * will be retained, and the updated data will be flushed by the next call of
+   * {@link #finishUpdate(MainOptions)} or {@link #finishDeferred()}, or when the database
+   * is closed. This way, the updates of subsequent transactions can be flushed at once
+   * (see {@link MainOptions#GROUPFLUSH}).
+   */
+  public abstract void deferUpdate();
+
+  /**
+   * Finishes a deferred update operation. Nothing happens if no update has been deferred.
+   */
+  public abstract void finishDeferred();
+
   /**
    * Flushes updated data.
    * @param all flush all data
@@ -491,6 +505,8 @@ public abstract class Data {
   public final void update(final int pre, final int kind, final byte[] name, final byte[] uri) {
     meta.update();
 
+    final int size = size(pre, kind), par = parent(pre, kind);
+    paths(this, pre, pre + size, par, false);
     if(kind == PI) {
       updateText(pre, trim(concat(name, SPACE, atom(pre))), PI);
     } else {
@@ -509,6 +525,7 @@ public abstract class Data {
       // write namespace flag
       table.write2(npre, 1, (ne || nsFlag(npre) ? 1 << 15 : 0) | name(npre));
     }
+    paths(this, pre, pre + size, par, true);
   }
 
   /**
@@ -523,7 +540,10 @@ public abstract class Data {
     if(eq(v, text(pre, kind != ATTR))) return;
 
     meta.update();
+    final int par = parent(pre, kind);
+    paths(this, pre, pre + 1, par, false);
     updateText(pre, v, kind);
+    paths(this, pre, pre + 1, par, true);
     if(kind == DOC) resources.rename(pre, value);
   }
 
@@ -542,6 +562,7 @@ public abstract class Data {
     final int tsize = size(tpre, tkind);
     final int tpar = parent(tpre, tkind);
     final int diff = size - tsize;
+    paths(this, tpre, tpre + tsize, tpar, false);
     buffer(size);
     resources.replace(tpre, tsize, source);
 
@@ -607,6 +628,7 @@ public abstract class Data {
     // update table:
     table.replace(tpre, buffer(), tsize);
     buffer(1);
+    paths(data, source.start, source.end, tpar, true);
 
     // no distance/size update if the two subtrees are of equal size
     if(diff == 0) return;
@@ -641,6 +663,7 @@ public abstract class Data {
     // delete references in document index
     int k = kind(pre);
     final int s = size(pre, k);
+    paths(this, pre, pre + s, parent(pre, k), false);
     resources.delete(pre, s);
 
     // delete entries in value indexes
@@ -837,6 +860,22 @@ public abstract class Data {
     }
 
     if(!cache) updateDist(tpre + size, size);
+    paths(data, source.start, source.end, tpar, true);
+  }
+
+  /**
+   * Adds nodes to or removes nodes from the path summary and the statistics.
+   * If the statistics are out-of-date, or if they do not match the database,
+   * they will be invalidated (and rebuilt by the next optimization).
+   * @param src data instance with the nodes
+   * @param start pre value of the first node
+   * @param end pre value after the last node
+   * @param par pre value of the parent of the first node ({@code -1} for document nodes)
+   * @param add add or remove nodes
+   */
+  private void paths(final Data src, final int start, final int end, final int par,
+      final boolean add) {
+    if(meta.uptodate && !paths.update(src, start, end, par, add)) meta.uptodate = false;
   }
 
   /**
@@ -47,8 +47,12 @@ public final class DiskData extends Data {
   private TokenObjMap<IntList> txtBuffer;
   /** Attribute values buffered for subsequent index updates. */
   private TokenObjMap<IntList> atvBuffer;
+  /** Texts buffered for subsequent full-text index updates. */
+  private TokenObjMap<IntList> ftxBuffer;
   /** Closed flag. */
   private boolean closed;
+  /** Indicates if the finalization of an update operation has been deferred. */
+  private boolean deferred;
 
   /**
    * Default constructor, called from {@link Open#open}.
@@ -114,8 +118,8 @@ public final class DiskData extends Data {
    */
   private void init() throws IOException {
     table = new TableDiskAccess(meta, false);
-    texts = new DataAccess(meta.dbfile(DATATXT));
-    values = new DataAccess(meta.dbfile(DATAATV));
+    texts = new DataAccess(meta.dbfile(DATATXT), meta.mmap);
+    values = new DataAccess(meta.dbfile(DATAATV), meta.mmap);
   }
 
   /**
@@ -155,6 +159,11 @@ public final class DiskData extends Data {
       close(IndexType.TEXT);
       close(IndexType.ATTRIBUTE);
       close(IndexType.FULLTEXT);
+      // all data has been written: remove updating file of deferred update
+      if(deferred) {
+        deferred = false;
+        removeUpdateFile();
+      }
     } catch(final IOException ex) {
       Util.stack(ex);
     }
@@ -214,7 +223,10 @@ public final class DiskData extends Data {
   }
 
   @Override
-  public void startUpdate(final MainOptions opts) throws IOException {
+  public synchronized void startUpdate(final MainOptions opts) throws IOException {
+    // deferred update: updating file and exclusive lock still exist
+    if(deferred) return;
+
     if(!table.lock(true)) throw new BaseXException(Text.DB_PINNED_X, meta.name);
     if(opts.get(MainOptions.AUTOFLUSH)) {
       final IOFile uf = meta.updateFile();
@@ -225,13 +237,29 @@ public final class DiskData extends Data {
 
   @Override
   public synchronized void finishUpdate(final MainOptions opts) {
+    finish(deferred || opts.get(MainOptions.AUTOFLUSH));
+  }
+
+  @Override
+  public synchronized void deferUpdate() {
+    // db:optimize(..., true) will close the database before this function is called
+    if(closed) removeUpdateFile();
+    else deferred = true;
+  }
+
+  @Override
+  public synchronized void finishDeferred() {
+    if(deferred) finish(true);
+  }
+
+  /**
+   * Finishes an update operation.
+   * @param auto flush all data and remove updating file
+   */
+  private void finish(final boolean auto) {
+    deferred = false;
     // remove updating file
-    final boolean auto = opts.get(MainOptions.AUTOFLUSH);
-    if(auto) {
-      final IOFile uf = meta.updateFile();
-      if(!uf.exists()) throw Util.notExpected("%: lock file does not exist.", meta.name);
-      if(!uf.delete()) throw Util.notExpected("%: could not delete lock file.", meta.name);
-    }
+    if(auto) removeUpdateFile();
 
     // db:optimize(..., true) will close the database before this function is called
     if(!closed) {
@@ -240,6 +268,15 @@ public final class DiskData extends Data {
     }
   }
 
+  /**
+   * Removes the file that indicates an update operation.
+   */
+  private void removeUpdateFile() {
+    final IOFile uf = meta.updateFile();
+    if(!uf.exists()) throw Util.notExpected("%: lock file does not exist.", meta.name);
+    if(!uf.delete()) throw Util.notExpected("%: could not delete lock file.", meta.name);
+  }
+
   @Override
   public synchronized void flush(final boolean all) {
     try {
@@ -250,6 +287,7 @@ public final class DiskData extends Data {
         values.flush();
         if(textIndex != null) ((DiskValues) textIndex).flush();
         if(attrIndex != null) ((DiskValues) attrIndex).flush();
+        if(ftxtIndex != null) ((FTIndex) ftxtIndex).flush();
       }
     } catch(final IOException ex) {
       Util.stack(ex);
@@ -279,9 +317,10 @@ public final class DiskData extends Data {
     final long o = textOff(pre);
     if(number(o)) return numDigits((int) o);
     final DataAccess da = text ? texts : values;
-    final int l = da.readNum(o & IO.OFFCOMP - 1);
+    final long off = o & IO.OFFCOMP - 1;
+    final int l = da.readNum(off);
     // compressed: next number contains number of compressed bytes
-    return compressed(o) ? da.readNum() : l;
+    return compressed(o) ? da.readNum(off + Num.length(l)) : l;
   }
 
   /**
@@ -334,6 +373,10 @@ public final class DiskData extends Data {
       final DiskValues index = (DiskValues) (text ? textIndex : attrIndex);
       // don't index document names
       if(index != null && kind != DOC) index.replace(oldval, value, id);
+      if(kind == TEXT) {
+        final FTIndex ftIndex = ftIndex();
+        if(ftIndex != null) ftIndex.replace(oldval, value, id);
+      }
     }
 
     // reference to text store
@@ -372,18 +415,49 @@ public final class DiskData extends Data {
   void indexBegin() {
     txtBuffer = new TokenObjMap<>();
     atvBuffer = new TokenObjMap<>();
+    ftxBuffer = ftIndex() != null ? new TokenObjMap<IntList>() : null;
   }
 
   @Override
   protected void indexAdd() {
     if(!txtBuffer.isEmpty()) ((DiskValues) textIndex).add(txtBuffer);
     if(!atvBuffer.isEmpty()) ((DiskValues) attrIndex).add(atvBuffer);
+    if(ftxBuffer != null && !ftxBuffer.isEmpty()) ((FTIndex) ftxtIndex).add(ftxBuffer);
   }
 
   @Override
   void indexDelete() {
     if(!txtBuffer.isEmpty()) ((DiskValues) textIndex).delete(txtBuffer);
     if(!atvBuffer.isEmpty()) ((DiskValues) attrIndex).delete(atvBuffer);
+    if(ftxBuffer != null && !ftxBuffer.isEmpty()) ((FTIndex) ftxtIndex).delete(ftxBuffer);
+  }
+
+  /**
+   * Returns the full-text index if it can be updated. Otherwise, if the index exists,
+   * it will be invalidated.
+   * @return full-text index or {@code null}
+   */
+  private FTIndex ftIndex() {
+    if(ftxtIndex == null) return null;
+    final FTIndex index = (FTIndex) ftxtIndex;
+    if(index.updatable()) return index;
+    meta.ftxtindex = false;
+    return null;
+  }
+
+  /**
+   * Adds an id to the buffered ids of a value.
+   * @param map buffer
+   * @param value value
+   * @param id id
+   */
+  private static void buffer(final TokenObjMap<IntList> map, final byte[] value, final int id) {
+    IntList ids = map.get(value);
+    if(ids == null) {
+      ids = new IntList(1);
+      map.put(value, ids);
+    }
+    ids.add(id);
   }
 
   @Override
@@ -400,13 +474,9 @@ public final class DiskData extends Data {
     }
 
     // add text to map to index later
-    if(meta.updindex && map != null && value.length <= meta.maxlen) {
-      IntList ids = map.get(value);
-      if(ids == null) {
-        ids = new IntList(1);
-        map.put(value, ids);
-      }
-      ids.add(id);
+    if(meta.updindex) {
+      if(map != null && value.length <= meta.maxlen) buffer(map, value, id);
+      if(kind == TEXT && ftxBuffer != null) buffer(ftxBuffer, value, id);
     }
 
     // add text to text file
@@ -423,8 +493,8 @@ public final class DiskData extends Data {
 
   @Override
   protected void indexDelete(final int pre, final int size) {
-    final boolean textI = meta.textindex, attrI = meta.attrindex;
-    if(textI || attrI) {
+    final boolean textI = meta.textindex, attrI = meta.attrindex, ftxtI = ftIndex() != null;
+    if(textI || attrI || ftxtI) {
       // collect all keys and ids
       indexBegin();
       final int l = pre + size;
@@ -434,16 +504,9 @@ public final class DiskData extends Data {
         final boolean text = k == TEXT || k == COMM || k == PI;
         if(textI && text || attrI && k == ATTR) {
           final byte[] key = text(p, text);
-          if(key.length <= meta.maxlen) {
-            final TokenObjMap<IntList> m = text ? txtBuffer : atvBuffer;
-            IntList ids = m.get(key);
-            if(ids == null) {
-              ids = new IntList(1);
-              m.put(key, ids);
-            }
-            ids.add(id(p));
-          }
+          if(key.length <= meta.maxlen) buffer(text ? txtBuffer : atvBuffer, key, id(p));
         }
+        if(ftxtI && k == TEXT) buffer(ftxBuffer, text(p, true), id(p));
       }
       indexDelete();
     }
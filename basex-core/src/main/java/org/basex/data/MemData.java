@@ -97,6 +97,12 @@ public final class MemData extends Data {
   @Override
   public void finishUpdate(final MainOptions opts) { }
 
+  @Override
+  public void deferUpdate() { }
+
+  @Override
+  public void finishDeferred() { }
+
   @Override
   public void flush(final boolean all) { }
 
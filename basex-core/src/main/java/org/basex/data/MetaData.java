@@ -41,6 +41,8 @@ public final class MetaData {
 
   /** Flag for whitespace chopping. */
   public volatile boolean chop;
+  /** Flag for reading database files via memory mapping (not stored on disk). */
+  public volatile boolean mmap;
   /** Flag for activated automatic index update. */
   public volatile boolean updindex;
   /** Flag for automatic index updating. */
@@ -112,6 +114,7 @@ public final class MetaData {
     this.name = name;
     path = sopts != null ? sopts.dbpath(name) : null;
     chop = options.get(MainOptions.CHOP);
+    mmap = options.get(MainOptions.MMAP);
     createtext = options.get(MainOptions.TEXTINDEX);
     createattr = options.get(MainOptions.ATTRINDEX);
     createftxt = options.get(MainOptions.FTINDEX);
@@ -363,13 +366,12 @@ public final class MetaData {
   public void update() {
     // update database timestamp
     time = System.currentTimeMillis();
-    uptodate = false;
     dirty = true;
     if(!updindex) {
       textindex = false;
       attrindex = false;
+      ftxtindex = false;
     }
-    ftxtindex = false;
   }
 
   /**
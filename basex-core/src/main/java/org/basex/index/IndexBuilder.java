@@ -3,6 +3,8 @@ package org.basex.index;
 import static org.basex.core.Text.*;
 
 import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
 
 import org.basex.core.*;
 import org.basex.data.*;
@@ -16,35 +18,113 @@ import org.basex.util.*;
  * @author Christian Gruen
  */
 public abstract class IndexBuilder extends Proc {
+  /** Minimum number of nodes per partition. */
+  private static final int PARTITION = 1 << 12;
+  /** Default memory budget (in megabytes). */
+  private static final int BUDGET = 256;
+  /** Memory that has been reserved by all running index builders (in bytes). */
+  private static long reserved;
+
   /** Data reference. */
   protected final Data data;
   /** Total parsing value. */
   protected final int size;
   /** Number of index operations to perform before writing a partial index to disk. */
   private final int splitSize;
+  /** Memory budget for temporary index structures (in bytes). */
+  private final long budget;
+  /** Memory share of a single partition (in bytes). */
+  private final long share;
 
-  /** Maximum memory to consume. */
-  private final long maxMem = (long) (Runtime.getRuntime().maxMemory() * 0.8);
+  /** Number of partitions that will be indexed in parallel. */
+  protected final int partitions;
 
-  /** Current pre value. */
+  /** Number of processed nodes. */
   protected int pre;
   /** Total number of index operations (may get pretty large). */
   protected long count;
   /** Number of partial index structures. */
   protected int splits;
-  /** Threshold for freeing memory when estimating main memory consumption. */
-  private int gcCount;
 
   /**
    * Constructor.
    * @param data reference
    * @param max maximum number of operations per partial index
+   * @param options main options
    */
-  protected IndexBuilder(final Data data, final int max) {
+  protected IndexBuilder(final Data data, final int max, final MainOptions options) {
     this.data = data;
     size = data.meta.size;
     splitSize = max;
-    if(Performance.memory() >= maxMem) Performance.gc(1);
+    partitions = Math.max(1, Math.min(threads(options), size / PARTITION));
+    budget = budget(options);
+    share = budget / partitions;
+  }
+
+  /**
+   * Returns the memory budget for temporary index structures.
+   * If no budget has been specified, it will be derived from the maximum heap size.
+   * @param options main options
+   * @return budget in bytes
+   */
+  private static long budget(final MainOptions options) {
+    final long mb = options.get(MainOptions.INDEXMEMORY);
+    return mb > 0 ? mb << 20 :
+      Math.min((long) BUDGET << 20, Runtime.getRuntime().maxMemory() >> 2);
+  }
+
+  /**
+   * Returns the number of threads that will be used for building indexes.
+   * @param options main options
+   * @return number of threads
+   */
+  private static int threads(final MainOptions options) {
+    final int threads = options.get(MainOptions.INDEXTHREADS);
+    return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Runs the specified tasks and waits until all of them have been completed.
+   * If more than one thread is available, the tasks will be run in parallel.
+   * @param tasks tasks
+   * @param threads maximum number of threads
+   * @throws IOException I/O exception
+   */
+  protected static void execute(final List<? extends Callable<Void>> tasks, final int threads)
+      throws IOException {
+
+    final int tl = tasks.size(), nt = Math.min(tl, threads);
+    try {
+      if(nt < 2) {
+        for(final Callable<Void> task : tasks) task.call();
+      } else {
+        final ExecutorService es = Executors.newFixedThreadPool(nt);
+        try {
+          for(final Future<Void> future : es.invokeAll(tasks)) future.get();
+        } finally {
+          es.shutdownNow();
+        }
+      }
+    } catch(final ExecutionException ex) {
+      final Throwable th = ex.getCause();
+      if(th instanceof IOException) throw (IOException) th;
+      if(th instanceof RuntimeException) throw (RuntimeException) th;
+      if(th instanceof Error) throw (Error) th;
+      throw new IOException(th);
+    } catch(final IOException | RuntimeException ex) {
+      throw ex;
+    } catch(final Exception ex) {
+      throw new IOException(ex);
+    }
+  }
+
+  /**
+   * Returns the first pre value of the specified partition.
+   * @param partition partition (the number of partitions will return the database size)
+   * @return pre value
+   */
+  protected final int start(final int partition) {
+    return (int) ((long) size * partition / partitions);
   }
 
   /**
@@ -62,41 +142,74 @@ public abstract class IndexBuilder extends Proc {
     if(Prop.debug && (pre & 0x1FFFFF) == 0) Util.err(".");
   }
 
+  /**
+   * Registers processed nodes and index operations.
+   * @param nodes number of processed nodes
+   * @param ops number of index operations
+   */
+  protected final synchronized void progress(final int nodes, final long ops) {
+    pre += nodes;
+    count += ops;
+  }
+
+  /**
+   * Returns a new split number.
+   * @return split number
+   */
+  protected final synchronized int nextSplit() {
+    return splits++;
+  }
+
+  /**
+   * Reserves the memory budget of this builder before the index is built.
+   * The budgets of all running builders must not exceed half of the maximum heap size;
+   * if necessary, the builder waits until other builders have released their budgets.
+   */
+  protected final void reserve() {
+    final long max = Runtime.getRuntime().maxMemory() >> 1;
+    synchronized(IndexBuilder.class) {
+      while(reserved != 0 && reserved + budget > max) {
+        checkStop();
+        try {
+          IndexBuilder.class.wait(100);
+        } catch(final InterruptedException ex) {
+          throw new ProcException();
+        }
+      }
+      reserved += budget;
+    }
+  }
+
+  /**
+   * Releases the memory budget of this builder after the index has been built.
+   */
+  protected final void release() {
+    synchronized(IndexBuilder.class) {
+      reserved -= budget;
+      IndexBuilder.class.notifyAll();
+    }
+  }
+
   /**
    * Decides whether in-memory temporary index structures are so large
    * that we must flush them to disk before continuing.
+   * @param ops number of index operations since the last split of the current partition
+   * @param memory estimated memory consumption of the temporary index structures
+   *   of the current partition
    * @return true if structures shall be flushed to disk
-   * @throws IOException I/O Exception
    */
-  protected final boolean split() throws IOException {
-    // checks if a fixed split size has been specified
+  protected final boolean split(final long ops, final long memory) {
+    // checks if a fixed split size has been specified; otherwise, apply memory budget
     final boolean split;
     if(splitSize > 0) {
-      split = count >= (splits + 1L) * splitSize;
+      split = ops >= splitSize;
     } else {
-      // if not, estimate how much main memory is left
-      split = Performance.memory() >= maxMem;
-      // stop operation if index splitting degenerates
-      int gc = gcCount;
-      if(split) {
-        if(gc >= 0) throw new BaseXException(OUT_OF_MEM + H_OUT_OF_MEM);
-        gc = 30;
-      } else {
-        gc = Math.max(-1, gc - 1);
-      }
-      gcCount = gc;
+      split = ops > 0 && memory >= share;
     }
     if(split && Prop.debug) Util.err("|");
     return split;
   }
 
-  /**
-   * Performs memory cleanup after writing partial memory if necessary.
-   */
-  protected final void finishSplit() {
-    if(splitSize <= 0) Performance.gc(1);
-  }
-
   /**
    * Prints some final debugging information.
    * @param perf performance
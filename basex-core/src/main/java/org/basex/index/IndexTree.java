@@ -15,6 +15,8 @@ import org.basex.util.list.*;
 public class IndexTree {
   /** Factor for resize. */
   protected static final double FACTOR = 1.2;
+  /** Estimated memory consumption of a tree node, or an entry of a list (excluding contents). */
+  protected static final int ENTRY = 32;
 
   /** Keys saved in the tree. */
   public final TokenList keys = new TokenList(FACTOR);
@@ -25,6 +27,8 @@ public class IndexTree {
   protected TokenIntMap maps = new TokenIntMap();
   /** Current iterator node. */
   protected int cn;
+  /** Estimated memory consumption of the values and mappings (in bytes). */
+  protected long valueMemory;
 
   /** Tree structure [left, right, parent]. */
   private final IntList tree = new IntList(FACTOR);
@@ -32,6 +36,8 @@ public class IndexTree {
   private final BoolList mod = new BoolList();
   /** Tree root node. */
   private int root = -1;
+  /** Estimated memory consumption of the keys and the tree structure (in bytes). */
+  private long keyMemory;
 
   /**
    * Indexes the specified key and value.
@@ -64,14 +70,15 @@ public class IndexTree {
       final int c = Token.diff(key, keys.get(n));
       if(c == 0) {
         if(exist) {
-          values.set(n, Num.add(values.get(n), value));
+          add(n, value);
         } else {
           final int i = maps.get(Num.num(n));
           if(i < 0) {
             maps.put(Num.num(n), values.size());
-            values.add(Num.newNum(value));
+            add(Num.newNum(value));
+            valueMemory += ENTRY;
           } else {
-            values.set(i, Num.add(values.get(i), value));
+            add(i, value);
           }
         }
         return n;
@@ -100,6 +107,15 @@ public class IndexTree {
     return values.size();
   }
 
+  /**
+   * Returns the estimated memory consumption of the tree. The estimate is computed
+   * from the indexed keys and values and does not depend on the state of the heap.
+   * @return number of bytes
+   */
+  public final long memory() {
+    return keyMemory + valueMemory;
+  }
+
   /**
    * Initializes the index iterator.
    * will be removed to save memory.
@@ -155,11 +171,35 @@ public class IndexTree {
     tree.add(par); // parent node
     mod.add(false);
     keys.add(key);
-    values.add(Num.newNum(value));
-    if(!exist) maps.put(Num.num(keys.size() - 1), values.size() - 1);
+    keyMemory += ENTRY + key.length;
+    add(Num.newNum(value));
+    if(!exist) {
+      maps.put(Num.num(keys.size() - 1), values.size() - 1);
+      valueMemory += ENTRY;
+    }
     return mod.size() - 1;
   }
 
+  /**
+   * Adds a new value array.
+   * @param value value array
+   */
+  private void add(final byte[] value) {
+    values.add(value);
+    valueMemory += ENTRY + value.length;
+  }
+
+  /**
+   * Adds a value to an existing value array.
+   * @param index index of the value array
+   * @param value value to be added
+   */
+  private void add(final int index, final int value) {
+    final byte[] old = values.get(index), arr = Num.add(old, value);
+    values.set(index, arr);
+    valueMemory += arr.length - old.length;
+  }
+
   /**
    * Gets the left child.
    * @param nd current node
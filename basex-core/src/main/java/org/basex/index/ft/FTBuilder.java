@@ -5,6 +5,8 @@ import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 
 import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
 
 import org.basex.core.*;
 import org.basex.data.*;
@@ -12,6 +14,7 @@ import org.basex.index.*;
 import org.basex.io.out.DataOutput;
 import org.basex.util.*;
 import org.basex.util.ft.*;
+import org.basex.util.hash.*;
 import org.basex.util.list.*;
 
 /**
@@ -21,12 +24,8 @@ import org.basex.util.list.*;
  * @author Christian Gruen
  */
 public final class FTBuilder extends IndexBuilder {
-  /** Value trees. */
-  private final FTIndexTrees tree;
-  /** Word parser. */
-  private final FTLexer lex;
-  /** Number of indexed tokens. */
-  private long ntok;
+  /** Full-text options. */
+  private final FTOpt fto;
 
   /**
    * Constructor.
@@ -35,10 +34,9 @@ public final class FTBuilder extends IndexBuilder {
    * @throws IOException IOException
    */
   public FTBuilder(final Data data, final MainOptions options) throws IOException {
-    super(data, options.get(MainOptions.FTINDEXSPLITSIZE));
-    tree = new FTIndexTrees(data.meta.maxlen);
+    super(data, options.get(MainOptions.FTINDEXSPLITSIZE), options);
 
-    final FTOpt fto = new FTOpt();
+    fto = new FTOpt();
     fto.set(FTFlag.DC, options.get(MainOptions.DIACRITICS));
     fto.set(FTFlag.ST, options.get(MainOptions.STEMMING));
     fto.cs = options.get(MainOptions.CASESENS) ? FTCase.SENSITIVE : FTCase.INSENSITIVE;
@@ -49,70 +47,133 @@ public final class FTBuilder extends IndexBuilder {
       throw new BaseXException(NO_TOKENIZER_X, fto.ln);
     if(options.get(MainOptions.STEMMING) && !Stemmer.supportFor(fto.ln))
       throw new BaseXException(NO_STEMMER_X, fto.ln);
-
-    lex = new FTLexer(fto);
   }
 
-  /**
-   * Extracts and indexes words from the specified data reference.
-   * @throws IOException I/O Exception
-   */
-  private void index() throws IOException {
+  @Override
+  public FTIndex build() throws IOException {
     // delete old index
     abort();
 
     final Performance perf = Prop.debug ? new Performance() : null;
     Util.debug(det());
 
-    for(pre = 0; pre < size; ++pre) {
-      if((pre & 0xFFFF) == 0) check();
+    reserve();
+    try {
+      if(partitions == 1) {
+        // finalize partial or all index structures
+        final StringList names = index(0, size, DATAFTX, false);
+        if(names != null) merge(names);
+      } else {
+        // index pre value ranges in parallel; partial structures are merged in pre order
+        final ArrayList<Callable<Void>> tasks = new ArrayList<>(partitions);
+        final StringList[] names = new StringList[partitions];
+        for(int p = 0; p < partitions; p++) {
+          final int pp = p, start = start(p), end = start(p + 1);
+          tasks.add(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+              names[pp] = index(start, end, DATAFTX + pp + '_', true);
+              return null;
+            }
+          });
+        }
+        execute(tasks, partitions);
 
-      final int k = data.kind(pre);
+        final StringList all = new StringList();
+        for(final StringList nm : names) all.add(nm);
+        merge(all);
+      }
+    } finally {
+      release();
+    }
+
+    // updatable index: create empty delta structure
+    if(data.meta.updindex) FTIndex.write(data, new IntSet(), new TokenObjMap<IntList>());
+
+    data.meta.ftxtindex = true;
+    finishIndex(perf);
+    return new FTIndex(data);
+  }
+
+  /**
+   * Extracts and indexes words from the specified pre value range.
+   * @param start first pre value
+   * @param end pre value after the last node to be indexed
+   * @param prefix prefix of partial index structures
+   * @param parallel parallel flag (if true, only partial structures will be written)
+   * @return names of the partial index structures, or {@code null} if the final index
+   *   structure has been written
+   * @throws IOException I/O Exception
+   */
+  private StringList index(final int start, final int end, final String prefix,
+      final boolean parallel) throws IOException {
+
+    FTIndexTrees tree = new FTIndexTrees(data.meta.maxlen);
+    final FTLexer lex = new FTLexer(fto);
+    final StopWords sw = fto.sw;
+    final StringList names = new StringList();
+    // updatable index: index ids instead of pre values
+    final boolean ids = data.meta.updindex;
+
+    // split counter of the current trees, number of partial structures,
+    // number of indexed tokens and index operations
+    int cf = 0, runs = 0, done = start;
+    long ntok = 0, ops = 0;
+    for(int p = start; p < end; ++p) {
+      if((p - start & 0xFFFF) == 0 && p != start) {
+        progress(p - done, 0);
+        done = p;
+        check();
+      }
+
+      final int k = data.kind(p);
       if(k != Data.TEXT) continue;
 
-      /* Current lexer position. */
-      final StopWords sw = lex.ftOpt().sw;
-      lex.init(data.text(pre, true));
+      lex.init(data.text(p, true));
       int pos = -1;
       while(lex.hasNext()) {
         final byte[] tok = lex.nextToken();
         ++pos;
         // skip too long and stopword tokens
         if(tok.length <= data.meta.maxlen && (sw.isEmpty() || !sw.contains(tok))) {
-          // check if main memory is exhausted
-          if((ntok++ & 0x0FFF) == 0 && split()) {
-            writeIndex(true);
-            finishSplit();
+          // check if the memory budget is exhausted
+          if((ntok++ & 0x0FFF) == 0) {
+            final long mem = tree.memory();
+            if(split(ops, mem)) {
+              names.add(writeIndex(tree, prefix + runs++, cf));
+              progress(0, ops);
+              ops = 0;
+              // keys are retained by the trees: start from scratch if they occupy most memory
+              if(tree.memory() > mem >> 1) {
+                tree = new FTIndexTrees(data.meta.maxlen);
+                cf = 0;
+              } else {
+                cf++;
+              }
+            }
           }
-          tree.index(tok, pre, pos, splits);
-          count++;
+          tree.index(tok, ids ? data.id(p) : p, pos, cf);
+          ops++;
         }
       }
     }
+    progress(end - done, ops);
 
-    // finalize partial or all index structures
-    write(splits > 0);
-
-    data.meta.ftxtindex = true;
-    finishIndex(perf);
-  }
-
-  @Override
-  public FTIndex build() throws IOException {
-    index();
-    return new FTIndex(data);
+    if(parallel || runs > 0) {
+      names.add(writeIndex(tree, prefix + runs, cf));
+      return names;
+    }
+    writeIndex(tree, DATAFTX, cf);
+    return null;
   }
 
   /**
-   * Writes the index data to disk.
-   * @param partial write partial index
+   * Merges the specified partial index structures. The pre values of the
+   * structures must be ascending (ids of updatable indexes need not be ascending).
+   * @param names names of the partial index structures
    * @throws IOException I/O exception
    */
-  private void write(final boolean partial) throws IOException {
-    writeIndex(partial);
-    if(!partial) return;
-
-    // merges temporary index files
+  private void merge(final StringList names) throws IOException {
     try(final DataOutput outX = new DataOutput(data.meta.dbfile(DATAFTX + 'x'));
         final DataOutput outY = new DataOutput(data.meta.dbfile(DATAFTX + 'y'));
         final DataOutput outZ = new DataOutput(data.meta.dbfile(DATAFTX + 'z'))) {
@@ -120,8 +181,9 @@ public final class FTBuilder extends IndexBuilder {
       final IntList ind = new IntList();
 
       // open all temporary sorted lists
-      final FTList[] v = new FTList[splits];
-      for(int b = 0; b < splits; ++b) v[b] = new FTList(data, b);
+      final int sz = names.size();
+      final FTList[] v = new FTList[sz];
+      for(int b = 0; b < sz; ++b) v[b] = new FTList(data, names.get(b));
 
       final IntList il = new IntList();
       while(check(v)) {
@@ -129,7 +191,7 @@ public final class FTBuilder extends IndexBuilder {
         int m = 0;
         il.add(m);
         // find next token to write on disk
-        for(int i = 0; i < splits; ++i) {
+        for(int i = 0; i < sz; ++i) {
           if(m == i || v[i].tok.length == 0) continue;
           final int l = v[i].tok.length - v[m].tok.length;
           final int d = diff(v[m].tok, v[i].tok);
@@ -154,7 +216,8 @@ public final class FTBuilder extends IndexBuilder {
         // merge and write data size
         outY.write4(merge(outZ, il, v));
       }
-      writeInd(outX, ind, ind.get(ind.size() - 2) + 1, (int) outY.size());
+      final int is = ind.size();
+      writeInd(outX, ind, is == 0 ? 1 : ind.get(is - 2) + 1, (int) outY.size());
     }
   }
 
@@ -180,12 +243,16 @@ public final class FTBuilder extends IndexBuilder {
   }
 
   /**
-   * Writes the current index to disk.
-   * @param partial partial flag
+   * Writes the specified index to disk.
+   * @param tree index trees
+   * @param name name of the index structure
+   * @param cf split counter of the index trees
+   * @return name of the index structure
    * @throws IOException I/O exception
    */
-  private void writeIndex(final boolean partial) throws IOException {
-    final String name = DATAFTX + (partial ? splits : "");
+  private String writeIndex(final FTIndexTrees tree, final String name, final int cf)
+      throws IOException {
+
     try(final DataOutput outX = new DataOutput(data.meta.dbfile(name + 'x'));
         final DataOutput outY = new DataOutput(data.meta.dbfile(name + 'y'));
         final DataOutput outZ = new DataOutput(data.meta.dbfile(name + 'z'))) {
@@ -195,7 +262,7 @@ public final class FTBuilder extends IndexBuilder {
       long dr = 0;
       int tr = 0;
       int j = 0;
-      while(tree.more(splits)) {
+      while(tree.more(cf)) {
         final FTIndexTree t = tree.nextTree();
         t.next();
         final byte[] key = t.nextTok();
@@ -222,7 +289,8 @@ public final class FTBuilder extends IndexBuilder {
     tree.initFT();
 
     // increase split counter
-    splits++;
+    nextSplit();
+    return name;
   }
 
   /**
@@ -6,12 +6,17 @@ import static org.basex.util.Token.*;
 import static org.basex.util.ft.FTFlag.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.core.*;
 import org.basex.data.*;
 import org.basex.index.*;
 import org.basex.index.query.*;
 import org.basex.index.stats.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.BufferOutput;
+import org.basex.io.out.DataOutput;
 import org.basex.io.random.*;
 import org.basex.query.expr.ft.*;
 import org.basex.util.*;
@@ -41,19 +46,44 @@ import org.basex.util.list.*;
  * <li>File <b>z</b> contains the {@code id/pos} references.
  *   The values are ordered, but not distinct:<br/>
  *   {@code pre1/pos1, pre2/pos2, pre3/pos3, ...} [{@link Num}]</li>
+ * <li>File <b>d</b> only exists if the index is updatable
+ *   ({@link MainOptions#UPDINDEX}). It contains a snapshot of the delta structure,
+ *   followed by a log of the texts that have been indexed since then:<br/>
+ *   Structure: {@code [d, n, [t, i] ..., [a, j, x] ...]}<br/>
+ *   {@code d} are the ids of the nodes whose entries in file <b>z</b> are obsolete [Nums]<br/>
+ *   {@code n} is the number of tokens in the delta [Num]<br/>
+ *   {@code t} is a token [Token], and {@code i} are alternating id/pos values [Nums]<br/>
+ *   {@code a} indicates if a text was added or removed [Bool],
+ *   {@code j} is the id of its node [Num], and {@code x} is the text [Token]
+ * </li>
  * </ul>
  *
+ * <p>If the index is updatable, ids will be stored instead of pre values. Updates are
+ * buffered in the delta structure, which is merged with the main structure at query time.
+ * When the database is flushed, the updated texts are appended to the log. The snapshot
+ * is rewritten if the log has grown larger than the snapshot (see {@link #LOG}), and the
+ * delta structure is discarded as soon as the index is rebuilt (see {@link #fragmented()}).
+ * </p>
+ *
+ * <p>All lookups are based on positional file access; they can be performed by concurrent
+ * threads, and each returned iterator holds its own cached results.</p>
+ *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
  */
 public final class FTIndex implements Index {
   /** Entry size. */
   private static final int ENTRY = 9;
-
-  /** Cached texts. Increases used memory, but speeds up repeated queries. */
+  /** Maximum size ratio between the delta and the main structure (power of two). */
+  private static final int DELTA = 3;
+  /** Minimum number of entries in the delta structure before the index is rebuilt. */
+  private static final int REBUILD = 1 << 12;
+  /** Minimum size of the log before the snapshot of the delta structure is rewritten. */
+  private static final int LOG = 1 << 20;
+
+  /** Cached texts (synchronized on itself). Increases used memory, but speeds up repeated
+   * queries. */
   private final IntObjMap<byte[]> ctext = new IntObjMap<>();
-  /** Levenshtein reference. */
-  private final Levenshtein ls = new Levenshtein();
   /** Data reference. */
   private final Data data;
 
@@ -70,6 +100,29 @@ public final class FTIndex implements Index {
   /** Token positions. */
   private final int[] tp;
 
+  /** Indicates if the index is updatable (ids are stored instead of pre values). */
+  private final boolean updatable;
+  /** Ids of nodes whose entries in the main structure are obsolete. */
+  private final IntSet deleted = new IntSet();
+  /** Delta structure: tokens of updated texts and their alternating id/pos values. */
+  private final TokenObjMap<IntList> delta = new TokenObjMap<>();
+  /** Number of id/pos pairs in the delta structure. */
+  private int pairs;
+  /** Add flags of the updated texts that have not been logged yet. */
+  private final BoolList adds = new BoolList();
+  /** Node ids of the updated texts that have not been logged yet. */
+  private final IntList ids = new IntList();
+  /** Updated texts that have not been logged yet. */
+  private final TokenList texts = new TokenList();
+  /** Size of the snapshot of the delta structure on disk. */
+  private long snapshot;
+  /** Size of the log on disk. */
+  private long logged;
+  /** Lexer for updated texts (lazy instantiation). */
+  private FTLexer lexer;
+  /** Stop words for updated texts (lazy instantiation). */
+  private StopWords sw;
+
   /**
    * Constructor, initializing the index structure.
    * @param d data reference
@@ -79,8 +132,8 @@ public final class FTIndex implements Index {
     data = d;
 
     // cache token length index
-    inY = new DataAccess(d.meta.dbfile(DATAFTX + 'y'));
-    inZ = new DataAccess(d.meta.dbfile(DATAFTX + 'z'));
+    inY = new DataAccess(d.meta.dbfile(DATAFTX + 'y'), d.meta.mmap);
+    inZ = new DataAccess(d.meta.dbfile(DATAFTX + 'z'), d.meta.mmap);
     inX = new DataAccess(d.meta.dbfile(DATAFTX + 'x'));
     tp = new int[d.meta.maxlen + 3];
     final int tl = tp.length;
@@ -100,13 +153,134 @@ public final class FTIndex implements Index {
       tp[p] = r;
     }
     tp[tl - 1] = (int) inY.length();
+
+    // read delta structure
+    final IOFile file = d.meta.dbfile(DATAFTX + 'd');
+    updatable = d.meta.updindex && file.exists();
+    if(updatable) {
+      final long length = file.length();
+      try(final DataInput in = new DataInput(file)) {
+        for(final int id : in.readNums()) deleted.add(id);
+        for(int n = in.readNum(); n > 0; n--) {
+          final byte[] token = in.readToken();
+          final IntList list = new IntList(in.readNums());
+          delta.put(token, list);
+          pairs += list.size() >> 1;
+        }
+        snapshot = in.size();
+        // replay logged updates
+        while(in.size() < length) {
+          final boolean add = in.readBool();
+          final int id = in.readNum();
+          index(in.readToken(), id, add);
+        }
+      }
+      logged = length - snapshot;
+      adds.reset();
+      ids.reset();
+      texts.reset();
+    }
+  }
+
+  /**
+   * Indicates if the index is updatable. If {@code false} is returned, the index
+   * will be invalidated by updates.
+   * @return result of check
+   */
+  public boolean updatable() {
+    return updatable;
+  }
+
+  /**
+   * Indicates if the delta structure has grown so large that the index should be rebuilt.
+   * @return result of check
+   */
+  public boolean fragmented() {
+    final long entries = pairs + deleted.size();
+    return entries > REBUILD && entries << DELTA > inZ.length();
+  }
+
+  /**
+   * Adds the tokens of the specified texts.
+   * @param map texts and ids of the nodes
+   */
+  public void add(final TokenObjMap<IntList> map) {
+    index(map, true);
+  }
+
+  /**
+   * Removes the tokens of the specified texts.
+   * @param map texts and ids of the nodes
+   */
+  public void delete(final TokenObjMap<IntList> map) {
+    index(map, false);
+  }
+
+  /**
+   * Replaces the tokens of a text.
+   * @param old old text
+   * @param text new text
+   * @param id id of the node
+   */
+  public void replace(final byte[] old, final byte[] text, final int id) {
+    index(old, id, false);
+    index(text, id, true);
+  }
+
+  /**
+   * Appends the updated texts to the log. If the log has grown too large, the snapshot of
+   * the delta structure will be rewritten instead.
+   * @throws IOException I/O exception
+   */
+  public void flush() throws IOException {
+    final int us = ids.size();
+    if(us == 0) return;
+
+    final IOFile file = data.meta.dbfile(DATAFTX + 'd');
+    if(logged > Math.max(LOG, snapshot)) {
+      write(data, deleted, delta);
+      snapshot = file.length();
+      logged = 0;
+    } else {
+      try(final DataOutput out = new DataOutput(
+          new BufferOutput(new FileOutputStream(file.file(), true)))) {
+        for(int u = 0; u < us; u++) {
+          out.writeBool(adds.get(u));
+          out.writeNum(ids.get(u));
+          out.writeToken(texts.get(u));
+        }
+        logged += out.size();
+      }
+    }
+    adds.reset();
+    ids.reset();
+    texts.reset();
+  }
+
+  /**
+   * Writes a delta structure to disk.
+   * @param data data reference
+   * @param deleted ids of nodes whose entries in the main structure are obsolete
+   * @param delta delta structure
+   * @throws IOException I/O exception
+   */
+  static void write(final Data data, final IntSet deleted, final TokenObjMap<IntList> delta)
+      throws IOException {
+    try(final DataOutput out = new DataOutput(data.meta.dbfile(DATAFTX + 'd'))) {
+      out.writeNums(deleted.toArray());
+      out.writeNum(delta.size());
+      for(final byte[] token : delta) {
+        out.writeToken(token);
+        out.writeNums(delta.get(token).toArray());
+      }
+    }
   }
 
   @Override
-  public synchronized void init() { }
+  public void init() { }
 
   @Override
-  public synchronized int costs(final IndexToken it) {
+  public int costs(final IndexToken it) {
     final byte[] tok = it.get();
     if(tok.length > data.meta.maxlen) return Integer.MAX_VALUE;
 
@@ -114,11 +288,12 @@ public final class FTIndex implements Index {
     final FTOpt opt = ((FTLexer) it).ftOpt();
     if(opt.is(FZ) || opt.is(WC)) return Math.max(1, data.meta.size >> 4);
 
-    return entry(tok).size;
+    final IntList list = delta.get(tok);
+    return entry(tok).size + (list == null ? 0 : list.size() >> 1);
   }
 
   @Override
-  public synchronized IndexIterator iter(final IndexToken it) {
+  public IndexIterator iter(final IndexToken it) {
     final byte[] tok = it.get();
 
     // wildcard search
@@ -131,7 +306,14 @@ public final class FTIndex implements Index {
 
     // return cached or new result
     final IndexEntry e = entry(tok);
-    return e.size > 0 ? iter(e.offset, e.size, inZ, tok) : FTIndexIterator.FTEMPTY;
+    final IntList list = delta.get(tok);
+    if(e.size == 0 && list == null) return FTIndexIterator.FTEMPTY;
+
+    final IntList pr = new IntList(e.size);
+    final IntList ps = new IntList(e.size);
+    if(e.size > 0) add(inZ.readNums(e.offset, e.size << 1), pr, ps);
+    if(list != null) addDelta(list, pr, ps);
+    return iter(new FTCache(pr, ps), tok);
   }
 
   /**
@@ -151,18 +333,27 @@ public final class FTIndex implements Index {
   @Override
   public EntryIterator entries(final IndexEntries entries) {
     final byte[] prefix = entries.get();
+    return delta.isEmpty() && deleted.isEmpty() ? entries(prefix) : merged(prefix);
+  }
+
+  /**
+   * Returns the entries of the main structure that start with the specified prefix.
+   * @param prefix prefix
+   * @return entry iterator
+   */
+  private EntryIterator entries(final byte[] prefix) {
     return new EntryIterator() {
       int ti = prefix.length - 1, i, e, nr;
       boolean inner;
 
       @Override
-      public synchronized byte[] next() {
+      public byte[] next() {
         if(inner && i < e) {
           // loop through all entries with the same character length
           final byte[] entry = inY.readBytes(i, ti);
           if(startsWith(entry, prefix)) {
-            final long poi = inY.read5();
-            nr = inY.read4();
+            final long poi = pointer(i, ti);
+            nr = size(i, ti);
             if(prefix.length != 0) cache.add(entry, nr, poi);
             i += ti + ENTRY;
             return entry;
@@ -192,6 +383,58 @@ public final class FTIndex implements Index {
     };
   }
 
+  /**
+   * Returns the entries of the main and the delta structure that start with the specified
+   * prefix. Obsolete entries are skipped.
+   * @param prefix prefix
+   * @return entry iterator
+   */
+  private EntryIterator merged(final byte[] prefix) {
+    final TokenIntMap map = new TokenIntMap();
+    final EntryIterator ei = entries(prefix);
+    for(byte[] token; (token = ei.next()) != null;) {
+      int c = ei.count();
+      if(!deleted.isEmpty()) {
+        final IndexEntry e = entry(token);
+        final int[] values = inZ.readNums(e.offset, e.size << 1);
+        final int vl = values.length;
+        for(int v = 0; v < vl; v += 2) {
+          if(deleted.contains(values[v])) c--;
+        }
+      }
+      if(c > 0) map.put(token, c);
+    }
+    for(final byte[] token : delta) {
+      if(startsWith(token, prefix)) {
+        map.put(token, Math.max(0, map.get(token)) + (delta.get(token).size() >> 1));
+      }
+    }
+
+    // sort tokens by length and lexicographically (see order of main structure)
+    final TokenList list = new TokenList(map.size());
+    for(final byte[] token : map) list.add(token);
+    final byte[][] tokens = list.finish();
+    Arrays.sort(tokens, new Comparator<byte[]>() {
+      @Override
+      public int compare(final byte[] t1, final byte[] t2) {
+        final int d = t1.length - t2.length;
+        return d != 0 ? d : diff(t1, t2);
+      }
+    });
+    return new EntryIterator() {
+      int t = -1;
+
+      @Override
+      public byte[] next() {
+        return ++t < tokens.length ? tokens[t] : null;
+      }
+      @Override
+      public int count() {
+        return map.get(tokens[t]);
+      }
+    };
+  }
+
   /**
    * Binary search.
    * @param token token to look for
@@ -206,10 +449,15 @@ public final class FTIndex implements Index {
     while(l <= h) {
       final int m = l + h >>> 1;
       final int p = start + m * tl;
-      byte[] txt = ctext.get(p);
+      byte[] txt;
+      synchronized(ctext) {
+        txt = ctext.get(p);
+      }
       if(txt == null) {
         txt = inY.readBytes(p, ti);
-        ctext.put(p, txt);
+        synchronized(ctext) {
+          ctext.put(p, txt);
+        }
       }
       final int d = diff(txt, token);
       if(d == 0) return start + m * tl;
@@ -220,7 +468,7 @@ public final class FTIndex implements Index {
   }
 
   @Override
-  public synchronized byte[] info(final MainOptions options) {
+  public byte[] info(final MainOptions options) {
     final TokenBuilder tb = new TokenBuilder();
     final long l = inX.length() + inY.length() + inZ.length();
     tb.add(LI_SIZE + Performance.format(l, true) + NL);
@@ -237,7 +485,12 @@ public final class FTIndex implements Index {
   }
 
   @Override
-  public synchronized void close() {
+  public void close() {
+    try {
+      flush();
+    } catch(final IOException ex) {
+      Util.stack(ex);
+    }
     inX.close();
     inY.close();
     inZ.close();
@@ -320,7 +573,8 @@ public final class FTIndex implements Index {
    * @param k number of errors allowed
    * @return iterator
    */
-  private synchronized IndexIterator fuzzy(final byte[] token, final int k) {
+  private IndexIterator fuzzy(final byte[] token, final int k) {
+    final Levenshtein ls = new Levenshtein();
     FTIndexIterator it = FTIndexIterator.FTEMPTY;
     final int tokl = token.length, tl = tp.length;
     final int e = Math.min(tl - 1, tokl + k);
@@ -333,12 +587,19 @@ public final class FTIndex implements Index {
       while(t < tl && r == -1) r = tp[t++];
       while(p < r) {
         if(ls.similar(inY.readBytes(p, s), token, k)) {
-          it = FTIndexIterator.union(iter(pointer(p, s), size(p, s), inZ, token), it);
+          it = FTIndexIterator.union(iter(pointer(p, s), size(p, s), token), it);
         }
         p += s + ENTRY;
       }
     }
-    return it;
+
+    // add matching tokens of the delta structure
+    final IntList pr = new IntList();
+    final IntList ps = new IntList();
+    for(final byte[] t : delta) {
+      if(ls.similar(t, token, k)) addDelta(delta.get(t), pr, ps);
+    }
+    return pr.isEmpty() ? it : FTIndexIterator.union(iter(new FTCache(pr, ps), token), it);
   }
 
   /**
@@ -346,7 +607,7 @@ public final class FTIndex implements Index {
    * @param token token to look for
    * @return iterator
    */
-  private synchronized IndexIterator wc(final byte[] token) {
+  private IndexIterator wc(final byte[] token) {
     final FTIndexIterator it = FTIndexIterator.FTEMPTY;
     final FTWildcard wc = new FTWildcard(token);
     if(!wc.parse()) return it;
@@ -367,17 +628,14 @@ public final class FTIndex implements Index {
       while(i < e) {
         final byte[] t = inY.readBytes(i, ti);
         if(!startsWith(t, pref)) break;
-        if(wc.match(t)) {
-          inZ.cursor(pointer(i, ti));
-          final int s = size(i, ti);
-          for(int d = 0; d < s; d++) {
-            pr.add(inZ.readNum());
-            ps.add(inZ.readNum());
-          }
-        }
+        if(wc.match(t)) add(inZ.readNums(pointer(i, ti), size(i, ti) << 1), pr, ps);
         i += ti + ENTRY;
       }
     }
+    // add matching tokens of the delta structure
+    for(final byte[] t : delta) {
+      if(wc.match(t)) addDelta(delta.get(t), pr, ps);
+    }
     return iter(new FTCache(pr, ps), token);
   }
 
@@ -385,29 +643,119 @@ public final class FTIndex implements Index {
    * Returns an iterator for an index entry.
    * @param off offset on entries
    * @param size number of id/pos entries
-   * @param da data source
    * @param token index token
    * @return iterator
    */
-  private static FTIndexIterator iter(final long off, final int size, final DataAccess da,
-      final byte[] token) {
-    da.cursor(off);
+  private FTIndexIterator iter(final long off, final int size, final byte[] token) {
     final IntList pr = new IntList(size);
     final IntList ps = new IntList(size);
-    for(int c = 0; c < size; c++) {
-      pr.add(da.readNum());
-      ps.add(da.readNum());
-    }
+    add(inZ.readNums(off, size << 1), pr, ps);
     return iter(new FTCache(pr, ps), token);
   }
 
+  /**
+   * Adds pre/pos pairs of the main structure to the specified lists.
+   * If the index is updatable, obsolete entries are skipped, and ids are mapped to pre values.
+   * @param values alternating pre (or id) and pos values
+   * @param pr pre values
+   * @param ps pos values
+   */
+  private void add(final int[] values, final IntList pr, final IntList ps) {
+    final int vl = values.length;
+    for(int v = 0; v < vl; v += 2) {
+      final int id = values[v];
+      if(updatable) {
+        if(deleted.contains(id)) continue;
+        pr.add(data.pre(id));
+      } else {
+        pr.add(id);
+      }
+      ps.add(values[v + 1]);
+    }
+  }
+
+  /**
+   * Adds pre/pos pairs of the delta structure to the specified lists.
+   * @param values alternating id and pos values
+   * @param pr pre values
+   * @param ps pos values
+   */
+  private void addDelta(final IntList values, final IntList pr, final IntList ps) {
+    final int vl = values.size();
+    for(int v = 0; v < vl; v += 2) {
+      pr.add(data.pre(values.get(v)));
+      ps.add(values.get(v + 1));
+    }
+  }
+
+  /**
+   * Adds or removes the tokens of the specified texts.
+   * @param map texts and ids of the nodes
+   * @param add add or remove tokens
+   */
+  private void index(final TokenObjMap<IntList> map, final boolean add) {
+    for(final byte[] text : map) {
+      final IntList ids = map.get(text);
+      final int is = ids.size();
+      for(int i = 0; i < is; i++) index(text, ids.get(i), add);
+    }
+  }
+
+  /**
+   * Adds or removes the tokens of a text. If tokens are removed, the entries of the node
+   * in the main structure will be marked as obsolete.
+   * @param text text
+   * @param id id of the node
+   * @param add add or remove tokens
+   */
+  private void index(final byte[] text, final int id, final boolean add) {
+    if(lexer == null) {
+      lexer = new FTLexer(new FTOpt().copy(data.meta));
+      sw = new StopWords();
+      sw.comp(data);
+    }
+    if(!add) deleted.add(id);
+    adds.add(add);
+    ids.add(id);
+    texts.add(text);
+
+    lexer.init(text);
+    int pos = -1;
+    while(lexer.hasNext()) {
+      final byte[] tok = lexer.nextToken();
+      ++pos;
+      // skip too long and stopword tokens (see FTBuilder)
+      if(tok.length > data.meta.maxlen || !sw.isEmpty() && sw.contains(tok)) continue;
+
+      final IntList list = delta.get(tok);
+      if(add) {
+        if(list == null) {
+          delta.put(tok, new IntList(2).add(id, pos));
+        } else {
+          list.add(id, pos);
+        }
+        pairs++;
+      } else if(list != null) {
+        // remove all entries of the node
+        final IntList values = new IntList(list.size());
+        final int vl = list.size();
+        for(int v = 0; v < vl; v += 2) {
+          if(list.get(v) != id) values.add(list.get(v), list.get(v + 1));
+        }
+        pairs -= vl - values.size() >> 1;
+        if(values.isEmpty()) delta.delete(tok);
+        else delta.put(tok, values);
+      }
+    }
+  }
+
   /**
    * Returns an iterator for an index entry.
    * @param ftc id cache
    * @param token index token
    * @return iterator
    */
-  private static synchronized FTIndexIterator iter(final FTCache ftc, final byte[] token) {
+  private static FTIndexIterator iter(final FTCache ftc, final byte[] token) {
     final int size = ftc.pre.size();
 
     return new FTIndexIterator() {
@@ -415,7 +763,7 @@ public final class FTIndex implements Index {
       int pos, pre, c;
 
       @Override
-      public synchronized boolean more() {
+      public boolean more() {
         if(c == size) return false;
         all.reset(pos);
         pre = ftc.pre.get(ftc.order[c]);
@@ -427,12 +775,12 @@ public final class FTIndex implements Index {
       }
 
       @Override
-      public synchronized FTMatches matches() {
+      public FTMatches matches() {
         return all;
       }
 
       @Override
-      public synchronized int pre() {
+      public int pre() {
         return pre;
       }
 
@@ -442,7 +790,7 @@ public final class FTIndex implements Index {
       }
 
       @Override
-      public synchronized int size() {
+      public int size() {
         return size;
       }
 
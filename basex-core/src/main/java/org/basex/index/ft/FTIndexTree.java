@@ -39,13 +39,17 @@ final class FTIndexTree extends IndexTree {
     if(os == keys.size()) {
       final int i = cf > 0 ? maps.get(Num.num(n)) : n;
       if(poss.size() > i && poss.get(i) != null) {
-        poss.set(i, Num.add(poss.get(i), pos));
+        final byte[] old = poss.get(i), arr = Num.add(old, pos);
+        poss.set(i, arr);
         numpre.set(i, numpre.get(i) + 1);
+        valueMemory += arr.length - old.length;
         return;
       }
     }
-    poss.add(Num.newNum(pos));
+    final byte[] arr = Num.newNum(pos);
+    poss.add(arr);
     numpre.add(1);
+    valueMemory += ENTRY + arr.length;
   }
 
   /**
@@ -56,6 +60,7 @@ final class FTIndexTree extends IndexTree {
     values = new TokenList(FACTOR);
     numpre = new IntList(FACTOR);
     maps = new TokenIntMap();
+    valueMemory = 0;
   }
 
   /**
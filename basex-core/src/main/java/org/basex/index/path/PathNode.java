@@ -115,6 +115,19 @@ public final class PathNode {
     return node;
   }
 
+  /**
+   * Returns the child with the specified name and kind.
+   * @param nm name id
+   * @param knd node kind
+   * @return node reference or {@code null}
+   */
+  PathNode child(final int nm, final byte knd) {
+    for(final PathNode c : children) {
+      if(c.kind == knd && c.name == nm) return c;
+    }
+    return null;
+  }
+
   /**
    * Writes the node to the specified output stream.
    * @param out output stream
@@ -8,7 +8,9 @@ import java.util.*;
 import org.basex.core.*;
 import org.basex.data.*;
 import org.basex.index.*;
+import org.basex.index.name.*;
 import org.basex.index.query.*;
+import org.basex.index.stats.*;
 import org.basex.io.in.DataInput;
 import org.basex.io.out.DataOutput;
 import org.basex.util.*;
@@ -117,6 +119,108 @@ public final class PathSummary implements Index {
     }
   }
 
+  // Update Index =============================================================
+
+  /**
+   * Adds nodes to or removes nodes from the summary and the statistics of the element and
+   * attribute names. Added nodes are read from the specified data instance, which may differ
+   * from the database. Removed nodes must still exist in the database.
+   * @param src data instance with the nodes
+   * @param start pre value of the first node
+   * @param end pre value after the last node
+   * @param par pre value of the parent of the first node in the database
+   *   ({@code -1} for document nodes)
+   * @param add add or remove nodes
+   * @return {@code false} if the summary does not match the database
+   */
+  public boolean update(final Data src, final int start, final int end, final int par,
+      final boolean add) {
+
+    // find path nodes and element names of all ancestors
+    final ArrayList<PathNode> nodes = new ArrayList<>();
+    final IntList elems = new IntList(), pres = new IntList();
+    final IntList ancs = new IntList();
+    for(int p = par; p != -1; p = data.parent(p, data.kind(p))) ancs.add(p);
+    for(int a = ancs.size() - 1; a >= 0; a--) {
+      final int pre = ancs.get(a);
+      final int kind = data.kind(pre);
+      final PathNode node = nodes.isEmpty() ? kind == Data.DOC ? root : null :
+        kind == Data.ELEM ? nodes.get(nodes.size() - 1).child(data.name(pre), Data.ELEM) : null;
+      if(node == null) return false;
+      nodes.add(node);
+      elems.push(kind == Data.ELEM ? data.name(pre) : 0);
+      pres.push(-1);
+    }
+
+    // add or remove nodes
+    final MetaData meta = data.meta;
+    final int anc = nodes.size();
+    for(int pre = start; pre < end; pre++) {
+      final byte kind = (byte) src.kind(pre);
+      final int pr = src.parent(pre, kind);
+      while(nodes.size() > anc && pres.peek() > pr) {
+        nodes.remove(nodes.size() - 1);
+        elems.pop();
+        pres.pop();
+      }
+      final boolean top = nodes.isEmpty();
+      if(top != (kind == Data.DOC)) return false;
+      final PathNode parent = top ? null : nodes.get(nodes.size() - 1);
+      final int elem = top ? 0 : elems.peek();
+
+      final int name;
+      final Names names;
+      if(kind == Data.ELEM || kind == Data.ATTR) {
+        names = kind == Data.ELEM ? data.elemNames : data.attrNames;
+        name = src == data ? src.name(pre) : names.id(src.name(pre, kind));
+      } else {
+        names = null;
+        name = 0;
+      }
+
+      final PathNode node;
+      if(top) {
+        node = root;
+        root.stats.count += add ? 1 : -1;
+      } else if(add) {
+        final byte[] value = kind == Data.ELEM ? null : src.text(pre, kind != Data.ATTR);
+        node = parent.index(name, kind, value, meta);
+        if(kind == Data.ELEM) {
+          names.index(names.key(name), null, true);
+        } else if(kind == Data.ATTR) {
+          names.index(names.key(name), value, true);
+        } else if(kind == Data.TEXT && elem != 0) {
+          data.elemNames.index(elem, value);
+        }
+        // element has children other than texts and attributes
+        if(kind != Data.TEXT && kind != Data.ATTR && parent.kind == Data.ELEM) {
+          parent.stats.setLeaf(false);
+          if(elem != 0) data.elemNames.stat(elem).setLeaf(false);
+        }
+      } else {
+        node = parent.child(name, kind);
+        if(node == null) return false;
+        final Stats stats = names != null ? names.stat(name) :
+          kind == Data.TEXT && elem != 0 ? data.elemNames.stat(elem) : null;
+        // only retrieve values if they are required by the statistics
+        if(kind != Data.ELEM && (node.stats.type != StatsType.TEXT ||
+            stats != null && stats.type != StatsType.TEXT)) {
+          final byte[] value = src.text(pre, kind != Data.ATTR);
+          node.stats.delete(value, meta);
+          if(stats != null) stats.delete(value, meta);
+        }
+        node.stats.count--;
+        if(names != null && stats != null) stats.count--;
+      }
+      if(kind == Data.DOC || kind == Data.ELEM) {
+        nodes.add(node);
+        elems.push(kind == Data.ELEM ? name : 0);
+        pres.push(pre);
+      }
+    }
+    return true;
+  }
+
   // Traverse Index ===========================================================
 
   /**
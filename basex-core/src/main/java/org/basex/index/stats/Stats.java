@@ -141,7 +141,7 @@ public final class Stats {
     if(t == StatsType.DOUBLE) {
       final double d = toDouble(value);
       if(Double.isNaN(d)) {
-        t = cats.size() <= meta.maxcats ? StatsType.CATEGORY : StatsType.TEXT;
+        t = cats != null && cats.size() <= meta.maxcats ? StatsType.CATEGORY : StatsType.TEXT;
       } else {
         if(min > d) min = d;
         if(max < d) max = d;
@@ -155,6 +155,33 @@ public final class Stats {
     type = t;
   }
 
+  /**
+   * Removes a value. The number of occurrences of categories will be decreased, and categories
+   * without occurrences will be removed. The minimum and maximum values will be preserved,
+   * i.e., the resulting range may be larger than the actual range of all values.
+   * @param value value to be removed
+   * @param meta meta data
+   */
+  public void delete(final byte[] value, final MetaData meta) {
+    if(value.length == 0 || type == StatsType.TEXT || ws(value)) return;
+    if(cats == null || cats.size() > meta.maxcats) return;
+
+    final int c = cats.get(value);
+    if(c > 1) {
+      cats.put(value, c - 1);
+    } else if(c == 1) {
+      final TokenIntMap map = new TokenIntMap();
+      for(final byte[] cat : cats) {
+        if(!eq(cat, value)) map.put(cat, cats.get(cat));
+      }
+      cats = map;
+    } else {
+      // number of occurrences is unknown (legacy format): discard statistics
+      type = StatsType.TEXT;
+      cats = null;
+    }
+  }
+
   @Override
   public String toString() {
     final StringBuilder sb = new StringBuilder(count + "x");
@@ -20,6 +20,7 @@ import org.basex.util.list.*;
 /**
  * This class provides access to attribute values and text contents stored on disk.
  * The data structure is described in the {@link DiskValuesBuilder} class.
+ * All read operations are based on positional file access and can be performed concurrently.
  *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
@@ -33,15 +34,13 @@ public class DiskValues implements Index {
   final Data data;
   /** Cached index entries: mapping between keys and index entries. */
   final IndexCache cache = new IndexCache();
-  /** Cached texts: mapping between key positions and indexed texts. */
+  /** Cached texts: mapping between key positions and indexed texts (synchronized on itself). */
   final IntObjMap<byte[]> ctext = new IntObjMap<>();
   /** Number of current index entries. */
   final AtomicInteger size = new AtomicInteger();
 
   /** Value type (texts/attributes). */
   private final boolean text;
-  /** Synchronization object. */
-  private final Object monitor = new Object();
 
   /**
    * Constructor, initializing the index structure.
@@ -63,9 +62,9 @@ public class DiskValues implements Index {
   DiskValues(final Data data, final boolean text, final String pref) throws IOException {
     this.data = data;
     this.text = text;
-    idxl = new DataAccess(data.meta.dbfile(pref + 'l'));
-    idxr = new DataAccess(data.meta.dbfile(pref + 'r'));
-    size.set(idxl.read4());
+    idxl = new DataAccess(data.meta.dbfile(pref + 'l'), data.meta.mmap);
+    idxr = new DataAccess(data.meta.dbfile(pref + 'r'), data.meta.mmap);
+    size.set(idxl.read4(0));
   }
 
   @Override
@@ -77,15 +76,13 @@ public class DiskValues implements Index {
     tb.add(LI_STRUCTURE).add(SORTED_LIST).add(NL);
     final IndexStats stats = new IndexStats(options.get(MainOptions.MAXSTAT));
 
-    synchronized(monitor) {
-      final long l = idxl.length() + idxr.length();
-      tb.add(LI_SIZE).add(Performance.format(l, true)).add(NL);
-      final int s = size();
-      for(int m = 0; m < s; ++m) {
-        final long pos = idxr.read5(m * 5L);
-        final int oc = idxl.readNum(pos);
-        if(stats.adding(oc)) stats.add(data.text(pre(idxl.readNum()), text));
-      }
+    final long l = idxl.length() + idxr.length();
+    tb.add(LI_SIZE).add(Performance.format(l, true)).add(NL);
+    final int s = size();
+    for(int m = 0; m < s; ++m) {
+      final long pos = idxr.read5(m * 5L);
+      final int oc = idxl.readNum(pos);
+      if(stats.adding(oc)) stats.add(data.text(pre(idxl.readNum(pos + Num.length(oc))), text));
     }
     stats.print(tb);
     return tb.finish();
@@ -114,10 +111,8 @@ public class DiskValues implements Index {
 
   @Override
   public void close() {
-    synchronized(monitor) {
-      idxl.close();
-      idxr.close();
-    }
+    idxl.close();
+    idxr.close();
   }
 
   /**
@@ -188,15 +183,13 @@ public class DiskValues implements Index {
    */
   int get(final byte[] key, final int first, final int last) {
     int l = first, h = last - 1;
-    synchronized(monitor) {
-      while(l <= h) {
-        final int m = l + h >>> 1;
-        final byte[] txt = indexEntry(m).key;
-        final int d = diff(txt, key);
-        if(d == 0) return m;
-        if(d < 0) l = m + 1;
-        else h = m - 1;
-      }
+    while(l <= h) {
+      final int m = l + h >>> 1;
+      final byte[] txt = indexEntry(m).key;
+      final int d = diff(txt, key);
+      if(d == 0) return m;
+      if(d < 0) l = m + 1;
+      else h = m - 1;
     }
     return -(l + 1);
   }
@@ -222,18 +215,11 @@ public class DiskValues implements Index {
     final long p = get(tok);
     if(p < 0) return new IndexEntry(tok, 0, 0);
 
-    final int count;
-    final long offset;
-
-    synchronized(monitor) {
-      // get position in heap file
-      final long pos = idxr.read5(p * 5L);
-      // the first heap entry represents the number of hits
-      count = idxl.readNum(pos);
-      offset = idxl.cursor();
-    }
-
-    return cache.add(tok, count, offset);
+    // get position in heap file
+    final long pos = idxr.read5(p * 5L);
+    // the first heap entry represents the number of hits
+    final int count = idxl.readNum(pos);
+    return cache.add(tok, count, pos + Num.length(count));
   }
 
   /**
@@ -274,12 +260,10 @@ public class DiskValues implements Index {
       @Override
       public byte[] next() {
         if(++ix < s) {
-          synchronized(monitor) {
-            final IndexEntry entry = indexEntry(ix);
-            if(startsWith(entry.key, prefix)) {
-              count = entry.size;
-              return entry.key;
-            }
+          final IndexEntry entry = indexEntry(ix);
+          if(startsWith(entry.key, prefix)) {
+            count = entry.size;
+            return entry.key;
           }
         }
         count = -1;
@@ -307,11 +291,9 @@ public class DiskValues implements Index {
       @Override
       public byte[] next() {
         if(++ix <= last) {
-          synchronized(monitor) {
-            final IndexEntry entry = indexEntry(ix);
-            count = entry.size;
-            return entry.key;
-          }
+          final IndexEntry entry = indexEntry(ix);
+          count = entry.size;
+          return entry.key;
         }
         count = -1;
         return null;
@@ -338,11 +320,9 @@ public class DiskValues implements Index {
       @Override
       public byte[] next() {
         if(--ix >= first) {
-          synchronized(monitor) {
-            final IndexEntry entry = indexEntry(ix);
-            count = entry.size;
-            return entry.key;
-          }
+          final IndexEntry entry = indexEntry(ix);
+          count = entry.size;
+          return entry.key;
         }
         count = -1;
         return null;
@@ -357,13 +337,16 @@ public class DiskValues implements Index {
 
   /**
    * Read a key at the given position.
-   * <p><em>Important:</em> This method is NOT thread-safe, since it is used in loops.</p>
+   * <p><em>Important:</em> This method is thread-safe.</p>
    * @param index key position
    * @return key
    */
   private IndexEntry indexEntry(final int index) {
     // try the cache first
-    byte[] key = ctext.get(index);
+    byte[] key;
+    synchronized(ctext) {
+      key = ctext.get(index);
+    }
     if(key != null) {
       final IndexEntry entry = cache.get(key);
       if(entry != null) return entry;
@@ -374,8 +357,10 @@ public class DiskValues implements Index {
     final int sz = idxl.readNum(pos);
     final long off = pos + Num.length(sz);
     if(key == null) {
-      key = data.text(pre(idxl.readNum()), text);
-      ctext.put(index, key);
+      key = data.text(pre(idxl.readNum(off)), text);
+      synchronized(ctext) {
+        ctext.put(index, key);
+      }
     }
     return cache.add(key, sz, off);
   }
@@ -389,13 +374,7 @@ public class DiskValues implements Index {
    */
   private IndexIterator iter(final int sz, final long offset) {
     final IntList pres = new IntList(sz);
-    synchronized(monitor) {
-      idxl.cursor(offset);
-      for(int i = 0, id = 0; i < sz; i++) {
-        id += idxl.readNum();
-        pres.add(pre(id));
-      }
-    }
+    add(pres, idxl.readNums(offset, sz));
     return iter(pres.sort());
   }
 
@@ -408,23 +387,18 @@ public class DiskValues implements Index {
   private IndexIterator idRange(final StringRange tok) {
     // check if min and max are positive integers with the same number of digits
     final IntList pres = new IntList();
-    synchronized(monitor) {
-      final int i = get(tok.min);
-      final int s = size();
-      for(int l = i < 0 ? -i - 1 : tok.mni ? i : i + 1; l < s; l++) {
-        final int ps = idxl.readNum(idxr.read5(l * 5L));
-        int id = idxl.readNum();
-        final int pre = pre(id);
-
-        // value is too large: skip traversal
-        final int d = diff(data.text(pre, text), tok.max);
-        if(d > 0 || !tok.mxi && d == 0) break;
-        // add pre values
-        for(int p = 0; p < ps; ++p) {
-          pres.add(pre(id));
-          id += idxl.readNum();
-        }
-      }
+    final int i = get(tok.min);
+    final int s = size();
+    for(int l = i < 0 ? -i - 1 : tok.mni ? i : i + 1; l < s; l++) {
+      final long pos = idxr.read5(l * 5L);
+      final int ps = idxl.readNum(pos);
+      final long off = pos + Num.length(ps);
+
+      // value is too large: skip traversal
+      final int d = diff(data.text(pre(idxl.readNum(off)), text), tok.max);
+      if(d > 0 || !tok.mxi && d == 0) break;
+      // add pre values
+      add(pres, idxl.readNums(off, ps));
     }
     return iter(pres.sort());
   }
@@ -442,31 +416,40 @@ public class DiskValues implements Index {
     final boolean simple = len != 0 && min > 0 && (long) min == min && token(min).length == len;
 
     final IntList pres = new IntList();
-    synchronized(monitor) {
-      final int s = size();
-      for(int l = 0; l < s; ++l) {
-        final int ds = idxl.readNum(idxr.read5(l * 5L));
-        int id = idxl.readNum();
-        final int pre = pre(id);
-
-        final double v = data.textDbl(pre, text);
-        if(v >= min && v <= max) {
-          // value is in range
-          for(int d = 0; d < ds; ++d) {
-            pres.add(pre(id));
-            id += idxl.readNum();
-          }
-        } else if(simple && v > max && data.textLen(pre, text) == len) {
-          // if limits are integers, if min, max and current value have the same
-          // string length, and if current value is larger than max, test can be
-          // skipped, as all remaining values will be bigger
-          break;
-        }
+    final int s = size();
+    for(int l = 0; l < s; ++l) {
+      final long pos = idxr.read5(l * 5L);
+      final int ds = idxl.readNum(pos);
+      final long off = pos + Num.length(ds);
+      final int pre = pre(idxl.readNum(off));
+
+      final double v = data.textDbl(pre, text);
+      if(v >= min && v <= max) {
+        // value is in range
+        add(pres, idxl.readNums(off, ds));
+      } else if(simple && v > max && data.textLen(pre, text) == len) {
+        // if limits are integers, if min, max and current value have the same
+        // string length, and if current value is larger than max, test can be
+        // skipped, as all remaining values will be bigger
+        break;
       }
     }
     return iter(pres.sort());
   }
 
+  /**
+   * Adds the pre values of the specified id distances to a list.
+   * @param pres pre values
+   * @param dists id distances
+   */
+  private void add(final IntList pres, final int[] dists) {
+    int id = 0;
+    for(final int d : dists) {
+      id += d;
+      pres.add(pre(id));
+    }
+  }
+
   /**
    * Returns an iterator for the specified id list.
    * @param pres pre values
@@ -504,7 +487,8 @@ public class DiskValues implements Index {
       tb.add("- references:").add("\n");
       for(int m = 0; m < sz; m++) {
         final long pos = idxr.read5(m * 5L);
-        final int oc = idxl.readNum(pos);
+        idxl.cursor(pos);
+        final int oc = idxl.readNum();
         int id = idxl.readNum();
         tb.add("  ").addInt(m).add(". key: \"").add(data.text(pre(id), text)).add("\"; offset: ");
         tb.addLong(pos).add("; id/dists: ").addInt(id).add('/').addInt(pre(id));
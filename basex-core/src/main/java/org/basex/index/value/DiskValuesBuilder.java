@@ -5,6 +5,8 @@ import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 
 import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
 
 import org.basex.core.*;
 import org.basex.data.*;
@@ -35,8 +37,6 @@ import org.basex.util.list.*;
  * @author Christian Gruen
  */
 public final class DiskValuesBuilder extends IndexBuilder {
-  /** Temporary value tree. */
-  private IndexTree index = new IndexTree();
   /** Index type (attributes/texts). */
   private final boolean text;
 
@@ -47,7 +47,7 @@ public final class DiskValuesBuilder extends IndexBuilder {
    * @param text value type (text/attribute)
    */
   public DiskValuesBuilder(final Data data, final MainOptions options, final boolean text) {
-    super(data, options.get(MainOptions.INDEXSPLITSIZE));
+    super(data, options.get(MainOptions.INDEXSPLITSIZE), options);
     this.text = text;
   }
 
@@ -59,31 +59,30 @@ public final class DiskValuesBuilder extends IndexBuilder {
     final Performance perf = Prop.debug ? new Performance() : null;
     Util.debug(det());
 
-    final int k = text ? Data.TEXT : Data.ATTR;
-
-    for(pre = 0; pre < size; ++pre) {
-      if((pre & 0x0FFF) == 0) {
-        check();
-        // check if main memory is exhausted
-        if(split()) {
-          writeIndex(true);
-          index = new IndexTree();
-          finishSplit();
+    reserve();
+    try {
+      if(partitions == 1) {
+        index(0, size, false);
+        // merge partial index structures
+        if(splits > 1) merge();
+      } else {
+        // index pre value ranges in parallel and merge the partial index structures
+        final ArrayList<Callable<Void>> tasks = new ArrayList<>(partitions);
+        for(int p = 0; p < partitions; p++) {
+          final int start = start(p), end = start(p + 1);
+          tasks.add(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+              index(start, end, true);
+              return null;
+            }
+          });
         }
+        execute(tasks, partitions);
+        merge();
       }
-      // skip too long values
-      if(data.kind(pre) == k && data.textLen(pre, text) <= data.meta.maxlen) {
-        index.index(data.text(pre, text), data.meta.updindex ? data.id(pre) : pre);
-        count++;
-      }
-    }
-
-    writeIndex(splits > 0);
-    // merge partial index structures
-    if(splits > 1) {
-      index = null;
-      Performance.gc(1);
-      merge();
+    } finally {
+      release();
     }
 
     if(text) data.meta.textindex = true;
@@ -93,6 +92,43 @@ public final class DiskValuesBuilder extends IndexBuilder {
     return data.meta.updindex ? new UpdatableDiskValues(data, text) : new DiskValues(data, text);
   }
 
+  /**
+   * Indexes the values of the specified pre value range.
+   * @param start first pre value
+   * @param end pre value after the last node to be indexed
+   * @param parallel parallel flag (if true, only partial structures will be written)
+   * @throws IOException I/O exception
+   */
+  private void index(final int start, final int end, final boolean parallel)
+      throws IOException {
+
+    final int k = text ? Data.TEXT : Data.ATTR;
+    IndexTree index = new IndexTree();
+    long ops = 0;
+    int done = start;
+    for(int p = start; p < end; ++p) {
+      if((p - start & 0x0FFF) == 0 && p != start) {
+        progress(p - done, 0);
+        done = p;
+        check();
+        // check if the memory budget is exhausted
+        if(split(ops, index.memory())) {
+          writeIndex(index, true);
+          index = new IndexTree();
+          progress(0, ops);
+          ops = 0;
+        }
+      }
+      // skip too long values
+      if(data.kind(p) == k && data.textLen(p, text) <= data.meta.maxlen) {
+        index.index(data.text(p, text), data.meta.updindex ? data.id(p) : p);
+        ops++;
+      }
+    }
+    progress(end - done, ops);
+    writeIndex(index, parallel || splits > 0);
+  }
+
   /**
    * Merges cached index files.
    * @throws IOException I/O exception
@@ -156,13 +192,15 @@ public final class DiskValuesBuilder extends IndexBuilder {
   }
 
   /**
-   * Writes the current index tree to disk.
+   * Writes the specified index tree to disk.
+   * @param index index tree
    * @param partial partial flag
    * @throws IOException I/O exception
    */
-  private void writeIndex(final boolean partial) throws IOException {
-    // write id arrays and references
-    final String name = (text ? DATATXT : DATAATV) + (partial ? splits : "");
+  private void writeIndex(final IndexTree index, final boolean partial) throws IOException {
+    // write id arrays and references; increase split counter
+    final int split = nextSplit();
+    final String name = (text ? DATATXT : DATAATV) + (partial ? split : "");
     try(final DataOutput outL = new DataOutput(data.meta.dbfile(name + 'l'));
         final DataOutput outR = new DataOutput(data.meta.dbfile(name + 'r'))) {
       outL.write4(index.size());
@@ -195,8 +233,6 @@ public final class DiskValuesBuilder extends IndexBuilder {
         while(index.more()) outT.writeToken(index.keys.get(index.next()));
       }
     }
-    // increase split counter
-    splits++;
   }
 
   /**
@@ -64,7 +64,8 @@ final class DiskValuesMerger {
    * @return compressed values
    */
   private byte[] nextValues() {
-    return dv.idxr.cursor() >= dv.idxr.length() ? EMPTY :
-      dv.idxl.readBytes(dv.idxr.read5(), dv.idxl.read4());
+    if(dv.idxr.cursor() >= dv.idxr.length()) return EMPTY;
+    final long pos = dv.idxr.read5();
+    return dv.idxl.readBytes(pos, dv.idxl.read4(pos));
   }
 }
@@ -48,7 +48,8 @@ public final class UpdatableDiskValues extends DiskValues {
       if(index >= 0) {
         final int[] ids = map.get(key).finish();
         final long off = idxr.read5(index * 5L);
-        final int oldSize = idxl.readNum(off);
+        idxl.cursor(off);
+        final int oldSize = idxl.readNum();
         final IntList il = new IntList(oldSize + ids.length);
         for(int o = 0, c = 0; o < oldSize; ++o) {
           c += idxl.readNum();
@@ -129,7 +130,8 @@ public final class UpdatableDiskValues extends DiskValues {
     } else {
       // add id to the existing id list
       final long off = idxr.read5(index * 5L);
-      final int num = idxl.readNum(off);
+      idxl.cursor(off);
+      final int num = idxl.readNum();
       final int newSize = num + 1;
       newIds = new IntList(newSize);
 
@@ -165,7 +167,8 @@ public final class UpdatableDiskValues extends DiskValues {
     final long off = idxr.read5(index * 5L);
 
     // read each id from the list and skip the ones that should be deleted
-    final int oldSize = idxl.readNum(off), delSize = ids.length, newSize = oldSize - delSize;
+    idxl.cursor(off);
+    final int oldSize = idxl.readNum(), delSize = ids.length, newSize = oldSize - delSize;
     final IntList newIds = new IntList(newSize);
     for(int o = 0, d = 0, currId = 0; o < oldSize; o++) {
       currId += idxl.readNum();
@@ -25,6 +25,11 @@ public final class ArrayInput extends BufferInput {
     this(Token.token(in));
   }
 
+  @Override
+  public int available() {
+    return bsize - bpos;
+  }
+
   @Override
   protected int readByte() {
     return bpos < bsize ? buffer[bpos++] & 0xFF : -1;
@@ -28,7 +28,7 @@ public class BufferInput extends InputStream {
   /** Buffer marker to jump back ({@code -1} if not available). */
   private int bmark;
   /** Number of read bytes. */
-  private int read;
+  private long read;
 
   /**
    * Constructor.
@@ -101,9 +101,9 @@ public class BufferInput extends InputStream {
     final int blen = buffer.length;
     final byte[] buf = buffer;
     if(bpos >= bsize) {
-      read += bsize;
       if(bsize == blen) {
         // reset mark if buffer is full
+        read += bsize;
         bmark = -1;
         bsize = 0;
         bpos = 0;
@@ -116,6 +116,11 @@ public class BufferInput extends InputStream {
     return buf[bpos++] & 0xFF;
   }
 
+  @Override
+  public int available() throws IOException {
+    return bsize - bpos + (in != null ? in.available() : 0);
+  }
+
   /**
    * Reads a string from the input stream, suffixed by a {@code 0} byte.
    * @return string
@@ -147,7 +152,7 @@ public class BufferInput extends InputStream {
    * Returns the number of read bytes.
    * @return read bytes
    */
-  public final int size() {
+  public final long size() {
     return read + bpos;
   }
 
@@ -17,6 +17,8 @@ import org.basex.util.*;
 public final class NewlineInput extends TextInput {
   /** Next value ({@code -2} means no caching). */
   private int next = -2;
+  /** Byte position of the cached value. */
+  private long npos;
 
   /**
    * Constructor.
@@ -51,11 +53,23 @@ public final class NewlineInput extends TextInput {
       next = -2;
     }
     if(n != '\r') return n;
+    final long p = size();
     n = super.read();
-    if(n != '\n') next = n;
+    if(n != '\n') {
+      next = n;
+      npos = p;
+    }
     return '\n';
   }
 
+  /**
+   * Returns the number of bytes that have been consumed by the characters returned so far.
+   * @return byte position
+   */
+  public long position() {
+    return next == -2 ? size() : npos;
+  }
+
   /**
    * Reads and returns a single line.
    * @return line or {@code null}
@@ -105,7 +105,7 @@ public class XMLInput extends InputStream {
    * @return file position
    */
   public int pos() {
-    return Math.max(ip, inputs[ip].size() + pp);
+    return (int) Math.max(ip, inputs[ip].size() + pp);
   }
 
   /**
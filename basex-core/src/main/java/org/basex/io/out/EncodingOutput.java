@@ -31,6 +31,22 @@ public final class EncodingOutput extends OutputStream {
     os.write(b);
   }
 
+  @Override
+  public void write(final byte[] b, final int off, final int len) throws IOException {
+    // write bytes in chunks, prefixing bytes that need to be encoded
+    final int e = off + len;
+    int s = off;
+    for(int o = off; o < e; o++) {
+      final byte c = b[o];
+      if(c == 0x00 || c == (byte) 0xFF) {
+        os.write(b, s, o - s);
+        os.write(0xFF);
+        s = o;
+      }
+    }
+    os.write(b, s, e - s);
+  }
+
   @Override
   public void flush() throws IOException {
     os.flush();
@@ -10,6 +10,7 @@ import org.basex.core.*;
 import org.basex.io.*;
 import org.basex.io.in.*;
 import org.basex.query.value.item.*;
+import org.basex.util.*;
 import org.basex.util.list.*;
 
 /**
@@ -18,7 +19,7 @@ import org.basex.util.list.*;
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
  */
-public abstract class CsvConverter extends Proc {
+public abstract class CsvConverter extends Proc implements Closeable {
   /** CSV token. */
   public static final byte[] CSV = token("csv");
   /** CSV token. */
@@ -40,6 +41,10 @@ public abstract class CsvConverter extends Proc {
   private final CsvParserOptions copts;
   /** Current input. */
   protected NewlineInput nli;
+  /** Indicates if records are streamed (see {@link #open(IO)}). */
+  protected boolean stream;
+  /** Parser for incremental conversion. */
+  private CsvParser parser;
 
   /**
    * Constructor.
@@ -65,6 +70,57 @@ public abstract class CsvConverter extends Proc {
     return finish();
   }
 
+  /**
+   * Prepares the incremental conversion of the specified input.
+   * The records can then be requested via {@link #next()}.
+   * @param input input
+   * @throws IOException I/O exception
+   */
+  public final void open(final IO input) throws IOException {
+    final NewlineInput in = new NewlineInput(input);
+    try {
+      nli = in.encoding(copts.get(CsvParserOptions.ENCODING));
+      parser = CsvParser.get(in, copts, this);
+      stream = true;
+    } catch(final IOException ex) {
+      in.close();
+      throw ex;
+    }
+  }
+
+  /**
+   * Returns the next converted record.
+   * The input will be closed if all records have been returned.
+   * @return record or {@code null}
+   * @throws IOException I/O exception
+   */
+  public final Item next() throws IOException {
+    if(nli == null) return null;
+    try {
+      while(parser.next()) {
+        final Item record = poll();
+        if(record != null) return record;
+      }
+    } catch(final IOException ex) {
+      close();
+      throw ex;
+    }
+    close();
+    return null;
+  }
+
+  /**
+   * Closes the input of an incremental conversion.
+   * @throws IOException I/O exception
+   */
+  @Override
+  public final void close() throws IOException {
+    if(nli != null) {
+      nli.close();
+      nli = null;
+    }
+  }
+
   /**
    * Returns a CSV converter for the given configuration.
    * @param copts options
@@ -96,6 +152,16 @@ public abstract class CsvConverter extends Proc {
    */
   protected abstract void entry(final byte[] value) throws IOException;
 
+  /**
+   * Returns the record that has been completed during the incremental conversion,
+   * and removes it from the converter.
+   * @return record or {@code null}
+   * @throws IOException I/O exception
+   */
+  protected Item poll() throws IOException {
+    throw Util.notExpected();
+  }
+
   /**
    * Returns the resulting byte array.
    * @return result
@@ -29,10 +29,17 @@ final class CsvDirectConverter extends CsvConverter {
   @Override
   protected void record() {
     record = new FElem(RECORD);
-    root.add(record);
+    if(!stream) root.add(record);
     col = 0;
   }
 
+  @Override
+  protected FElem poll() {
+    final FElem elem = record;
+    record = null;
+    return elem;
+  }
+
   @Override
   protected void header(final byte[] value) {
     headers.add(ats ? value : XMLToken.encode(value, lax));
@@ -37,10 +37,28 @@ final class CsvMapConverter extends CsvConverter {
   protected void record() {
     record = new ValueBuilder();
     if(!headers.isEmpty()) record.add(Map.EMPTY);
-    records.add(record);
+    if(!stream) records.add(record);
     col = 0;
   }
 
+  @Override
+  protected Map poll() throws QueryIOException {
+    final ValueBuilder vb = record;
+    if(vb == null) return null;
+    record = null;
+    if(!headers.isEmpty()) return (Map) vb.get(0);
+
+    // no headers: use column positions as keys
+    try {
+      Map map = Map.EMPTY;
+      final int vs = (int) vb.size();
+      for(int v = 0; v < vs; v++) map = map.put(Int.get(v + 1), vb.get(v), null);
+      return map;
+    } catch(final QueryException ex) {
+      throw new QueryIOException(ex);
+    }
+  }
+
   @Override
   protected void entry(final byte[] value) throws QueryIOException {
     if(headers.isEmpty()) {
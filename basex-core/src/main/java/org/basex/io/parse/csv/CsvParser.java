@@ -26,12 +26,16 @@ final class CsvParser {
   /** Parse quotes.  */
   private final boolean quotes;
 
+  /** Current entry. */
+  private final TokenBuilder entry = new TokenBuilder();
   /** First entry of a line. */
   private boolean first = true;
   /** Quoted state.  */
   private boolean quoted;
   /** Data mode. */
   private boolean data;
+  /** Indicates if the end of the input has been reached. */
+  private boolean ended;
 
   /**
    * Constructor.
@@ -46,6 +50,7 @@ final class CsvParser {
     separator = opts.separator();
     quotes = opts.get(CsvOptions.QUOTES);
     backslashes = opts.get(CsvOptions.BACKSLASHES);
+    data = !header;
   }
 
   /**
@@ -58,16 +63,30 @@ final class CsvParser {
    */
   static void parse(final TextInput input, final CsvParserOptions opts, final CsvConverter conv)
       throws IOException {
-    new CsvParser(input, opts, conv).parse();
+    final CsvParser parser = new CsvParser(input, opts, conv);
+    while(parser.next());
   }
 
   /**
-   * Parses a CSV expression.
+   * Returns a parser for the incremental conversion of the input.
+   * @param input input string
+   * @param opts options
+   * @param conv converter
+   * @return parser
+   */
+  static CsvParser get(final TextInput input, final CsvParserOptions opts,
+      final CsvConverter conv) {
+    return new CsvParser(input, opts, conv);
+  }
+
+  /**
+   * Parses the next line of the CSV input. A line may span several lines of the input
+   * if it contains quoted newlines.
+   * @return {@code false} if the input had already been completely parsed
    * @throws IOException query I/O exception
    */
-  private void parse() throws IOException {
-    final TokenBuilder entry = new TokenBuilder();
-    data = !header;
+  boolean next() throws IOException {
+    if(ended) return false;
 
     int ch = input.read();
     while(ch != -1) {
@@ -104,6 +123,7 @@ final class CsvParser {
         record(entry, !entry.isEmpty());
         first = true;
         data = true;
+        return true;
       } else {
         if(backslashes) {
           if(ch == '\\') ch = bs();
@@ -115,6 +135,8 @@ final class CsvParser {
       ch = input.read();
     }
     record(entry, !entry.isEmpty());
+    ended = true;
+    return true;
   }
 
   /**
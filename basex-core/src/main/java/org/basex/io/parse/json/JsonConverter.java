@@ -46,7 +46,21 @@ public abstract class JsonConverter {
    * @return result
    */
   public Item convert(final byte[] input, final String path) throws QueryIOException {
-    JsonParser.parse(Token.string(input), path, jopts, this);
+    return convert(input, path, 1, 1);
+  }
+
+  /**
+   * Converts the specified input, which is part of a larger document, to an XQuery item.
+   * @param input input
+   * @param path input path (can be {@code null)}
+   * @param line line of the first character in the document
+   * @param col column of the first character in the document
+   * @throws QueryIOException query I/O exception
+   * @return result
+   */
+  public Item convert(final byte[] input, final String path, final int line, final int col)
+      throws QueryIOException {
+    JsonParser.parse(Token.string(input), path, jopts, this, line, col);
     return finish();
   }
 
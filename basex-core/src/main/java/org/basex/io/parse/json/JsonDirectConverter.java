@@ -53,7 +53,7 @@ public final class JsonDirectConverter extends JsonXmlConverter {
   private final boolean lax;
 
   /** Name of next element. */
-  private byte[] name = JSON;
+  byte[] name = JSON;
 
   /**
    * Constructor.
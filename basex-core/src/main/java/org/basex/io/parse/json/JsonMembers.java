@@ -0,0 +1,369 @@
+package org.basex.io.parse.json;
+
+import static org.basex.io.parse.json.JsonConstants.*;
+import static org.basex.query.QueryError.*;
+import static org.basex.util.Token.*;
+
+import java.io.*;
+
+import org.basex.build.json.*;
+import org.basex.io.*;
+import org.basex.io.in.*;
+import org.basex.io.serial.*;
+import org.basex.query.*;
+import org.basex.query.value.item.*;
+import org.basex.util.*;
+import org.basex.util.options.Options.YesNo;
+
+/**
+ * <p>This class reads the members of a JSON array incrementally. The input is scanned
+ * character by character, and only the text of the current member is kept in main memory.
+ * Each member is converted by a new instance of the {@link JsonConverter} that has been
+ * chosen by the parser options, i.e., the result of a member is identical to the result
+ * of parsing it as a separate JSON document.</p>
+ *
+ * <p>The array can be the root of the input, or it can be selected by a path of object keys.
+ * If the selected value is no array, it will be returned as single member.
+ * Syntax errors in the members will be detected by the {@link JsonParser}.</p>
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class JsonMembers implements Closeable {
+  /** Input. */
+  private final TextInput input;
+  /** Parser options. */
+  private final JsonParserOptions jopts;
+  /** Input path. */
+  private final String path;
+  /** Keys of the objects that lead to the array. */
+  private final byte[][] keys;
+  /** Cached member text. */
+  private final TokenBuilder tb = new TokenBuilder();
+
+  /** Serialization parameters for XML members (lazy instantiation). */
+  private SerializerOptions sopts;
+  /** Current character ({@code -1}: end of input). */
+  private int curr;
+  /** Current line. */
+  private int line = 1;
+  /** Current column. */
+  private int col;
+  /** State: 0 = initial, 1 = inside array, 2 = single value, 3 = finished. */
+  private int state;
+  /** Line of the current member. */
+  private int mline;
+  /** Column of the current member. */
+  private int mcol;
+
+  /**
+   * Constructor.
+   * @param io input
+   * @param jopts parser options
+   * @param keys keys of the objects that lead to the array
+   * @throws IOException I/O exception
+   */
+  public JsonMembers(final IO io, final JsonParserOptions jopts, final byte[]... keys)
+      throws IOException {
+    this.jopts = jopts;
+    this.keys = keys;
+    path = io.path();
+    input = new TextInput(io);
+    try {
+      input.encoding(jopts.get(JsonParserOptions.ENCODING));
+    } catch(final IOException ex) {
+      input.close();
+      throw ex;
+    }
+  }
+
+  /**
+   * Indicates if the selected value is an array. If {@code false} is returned,
+   * the selected value will be returned as single member.
+   * @return result of check
+   * @throws IOException I/O exception
+   */
+  public boolean array() throws IOException {
+    init();
+    return state == 1;
+  }
+
+  /**
+   * Returns the next member, converted to an XQuery item.
+   * @return item or {@code null}
+   * @throws IOException I/O exception
+   */
+  public Item next() throws IOException {
+    while(true) {
+      final byte[] member = member();
+      if(member == null) return null;
+      final Item item = JsonConverter.get(jopts).convert(member, path, mline, mcol);
+      if(item != null) return item;
+    }
+  }
+
+  /**
+   * Returns the next member as serialized XML element, which is named {@code _}
+   * and has been created with the direct conversion format.
+   * @return serialized element or {@code null}
+   * @throws IOException I/O exception
+   */
+  public byte[] nextXML() throws IOException {
+    final byte[] member = member();
+    if(member == null) return null;
+    final JsonDirectConverter conv = new JsonDirectConverter(jopts);
+    conv.name = VALUE;
+    if(sopts == null) {
+      sopts = new SerializerOptions();
+      sopts.set(SerializerOptions.INDENT, YesNo.NO);
+    }
+    return conv.convert(member, path, mline, mcol).serialize(sopts).finish();
+  }
+
+  /**
+   * Returns the text of the next member.
+   * @return member or {@code null}
+   * @throws IOException I/O exception
+   */
+  public byte[] member() throws IOException {
+    init();
+    if(state == 3) return null;
+    if(state == 2) {
+      // single value
+      state = 3;
+      start();
+      value(true);
+      close();
+      return tb.toArray();
+    }
+
+    skipWs();
+    if(curr == ']') {
+      state = 3;
+      close();
+      return null;
+    }
+    start();
+    value(true);
+    skipWs();
+    if(curr == ',') {
+      read();
+    } else if(curr != ']') {
+      throw error("Expected ',' or ']', found %", found());
+    }
+    return tb.toArray();
+  }
+
+  @Override
+  public void close() throws IOException {
+    input.close();
+  }
+
+  // PRIVATE METHODS ==============================================================================
+
+  /**
+   * Starts caching a new member.
+   */
+  private void start() {
+    tb.reset();
+    mline = line;
+    mcol = col;
+  }
+
+  /**
+   * Locates the array that contains the members.
+   * @throws IOException I/O exception
+   */
+  private void init() throws IOException {
+    if(state != 0) return;
+    read();
+    for(final byte[] key : keys) {
+      skipWs();
+      if(!find(key)) {
+        state = 3;
+        close();
+        return;
+      }
+    }
+    skipWs();
+    if(curr == '[') {
+      read();
+      state = 1;
+    } else {
+      state = 2;
+    }
+  }
+
+  /**
+   * Moves the cursor to the value of the specified key.
+   * @param key key
+   * @return {@code true} if the key was found
+   * @throws IOException I/O exception
+   */
+  private boolean find(final byte[] key) throws IOException {
+    if(curr != '{') return false;
+    read();
+    skipWs();
+    while(curr != '}') {
+      // parse key
+      tb.reset();
+      if(curr == '"') {
+        string(false);
+      } else {
+        while(curr != -1 && curr != ':' && !ws(curr)) {
+          tb.add(curr);
+          read();
+        }
+      }
+      final boolean found = eq(tb.toArray(), key);
+      skipWs();
+      if(curr != ':') throw error("Expected ':', found %", found());
+      read();
+      skipWs();
+      if(found) return true;
+      // skip value
+      tb.reset();
+      value(false);
+      skipWs();
+      if(curr == ',') {
+        read();
+        skipWs();
+      } else if(curr != '}') {
+        throw error("Expected ',' or '}', found %", found());
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Scans a single value and caches its characters.
+   * @param cache cache characters
+   * @throws IOException I/O exception
+   */
+  private void value(final boolean cache) throws IOException {
+    int depth = 0;
+    while(true) {
+      final int ch = curr;
+      if(ch == -1) {
+        if(depth > 0) throw error("Unexpected end of input");
+        if(cache) tb.trim();
+        return;
+      }
+      if(ch == '"') {
+        if(cache) tb.add(ch);
+        string(cache);
+        if(depth == 0) return;
+        continue;
+      }
+      if(depth == 0 && (ch == ',' || ch == ']' || ch == '}')) {
+        if(tb.isEmpty() && cache) throw error("Unexpected character: %", found());
+        // remove trailing whitespaces
+        if(cache) tb.trim();
+        return;
+      }
+      if(ch == '[' || ch == '{') {
+        depth++;
+      } else if(ch == ']' || ch == '}') {
+        depth--;
+      }
+      if(cache) tb.add(ch);
+      read();
+      if(depth == 0 && (ch == ']' || ch == '}')) return;
+    }
+  }
+
+  /**
+   * Scans a string literal. If the characters are not cached, the unescaped string
+   * will be assigned to the token builder.
+   * @param cache cache raw characters
+   * @throws IOException I/O exception
+   */
+  private void string(final boolean cache) throws IOException {
+    int hi = 0; // cached high surrogate
+    read();
+    while(curr != '"') {
+      if(curr == -1) throw error("Unexpected end of input in string literal");
+      int cp = curr;
+      if(curr == '\\') {
+        if(cache) tb.add(curr);
+        read();
+        if(curr == -1) continue;
+        cp = curr;
+        if(!cache) {
+          if(curr == 'u') {
+            cp = 0;
+            for(int i = 0; i < 4; i++) {
+              read();
+              final int d = Character.digit(curr, 16);
+              if(d == -1) throw error("Illegal hexadecimal digit: %", found());
+              cp = (cp << 4) + d;
+            }
+          } else {
+            cp = curr == 'n' ? '\n' : curr == 't' ? '\t' : curr == 'r' ? '\r' :
+              curr == 'b' ? '\b' : curr == 'f' ? '\f' : curr;
+          }
+        }
+      }
+      read();
+      // combine escaped surrogate pairs
+      if(hi != 0) {
+        if(cp >= 0xDC00 && cp <= 0xDFFF) cp = (hi - 0xD800 << 10) + cp - 0xDC00 + 0x10000;
+        else tb.add(hi);
+        hi = 0;
+      }
+      if(!cache && cp >= 0xD800 && cp <= 0xDBFF) hi = cp;
+      else tb.add(cp);
+    }
+    if(hi != 0) tb.add(hi);
+    if(cache) tb.add('"');
+    read();
+  }
+
+  /**
+   * Skips whitespaces.
+   * @throws IOException I/O exception
+   */
+  private void skipWs() throws IOException {
+    while(ws(curr)) read();
+  }
+
+  /**
+   * Checks if the specified character is a whitespace.
+   * @param ch character
+   * @return result of check
+   */
+  private static boolean ws(final int ch) {
+    return ch == ' ' || ch == '\t' || ch == '\r' || ch == '\n';
+  }
+
+  /**
+   * Reads the next character.
+   * @throws IOException I/O exception
+   */
+  private void read() throws IOException {
+    if(curr == '\n') {
+      line++;
+      col = 0;
+    }
+    curr = input.read();
+    col++;
+  }
+
+  /**
+   * Returns a string representation of the current character.
+   * @return string
+   */
+  private String found() {
+    return curr == -1 ? "end of input" : "'" + new TokenBuilder().add(curr) + "'";
+  }
+
+  /**
+   * Returns a parse error.
+   * @param msg error message
+   * @param ext error details
+   * @return exception
+   */
+  private QueryIOException error(final String msg, final Object... ext) {
+    return new QueryIOException(BXJS_PARSE_X_X_X.get(null, line, col, Util.inf(msg, ext)));
+  }
+}
@@ -35,6 +35,10 @@ final class JsonParser extends InputParser {
   private final JsonDuplicates duplicates;
   /** Token builder for string literals. */
   private final TokenBuilder tb = new TokenBuilder();
+  /** Line of the first character in the document. */
+  private int line = 1;
+  /** Column of the first character in the document. */
+  private int col = 1;
 
   /**
    * Constructor taking the input string and the spec according to which it is parsed.
@@ -61,8 +65,26 @@ final class JsonParser extends InputParser {
    */
   static void parse(final String input, final String path, final JsonParserOptions opts,
       final JsonConverter conv) throws QueryIOException {
+    parse(input, path, opts, conv, 1, 1);
+  }
+
+  /**
+   * Parses an input string that is part of a larger document.
+   * Error positions will refer to the document.
+   * @param input input string
+   * @param path input path (can be {@code null)}
+   * @param opts options
+   * @param conv converter
+   * @param line line of the first character in the document
+   * @param col column of the first character in the document
+   * @throws QueryIOException parse exception
+   */
+  static void parse(final String input, final String path, final JsonParserOptions opts,
+      final JsonConverter conv, final int line, final int col) throws QueryIOException {
     final JsonParser parser = new JsonParser(input, opts, conv);
     parser.file = path;
+    parser.line = line;
+    parser.col = col;
     parser.parse();
   }
 
@@ -439,7 +461,10 @@ final class JsonParser extends InputParser {
    * @return build exception
    */
   private QueryIOException error(final QueryError err, final String msg, final Object... ext) {
-    final InputInfo info = new InputInfo(this);
+    // positions are relative to the first character of the parsed input
+    final InputInfo ii = new InputInfo(this);
+    final int l = ii.line(), c = l == 1 ? ii.column() + col - 1 : ii.column();
+    final InputInfo info = new InputInfo(file, l + line - 1, c);
     return new QueryIOException(err.get(info, info.line(), info.column(), Util.inf(msg, ext)));
   }
 }
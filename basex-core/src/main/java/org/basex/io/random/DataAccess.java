@@ -1,25 +1,50 @@
 package org.basex.io.random;
 
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
 
 import org.basex.io.*;
 import org.basex.util.*;
 
 /**
  * This class allows positional read and write access to a database file.
+ * If memory mapping is requested, read operations will be performed on the mapped file
+ * until the first write operation is triggered.
+ *
+ * As long as no unflushed changes exist, positional read operations can be performed by
+ * concurrent threads without locking: blocks are either read from the mapped file, the
+ * {@link PageCache} or via positional reads from the file channel. Positional reads do not
+ * change the file cursor; non-positional reads must be preceded by {@link #cursor(long)}.
  *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
  */
 public final class DataAccess implements Closeable {
+  /** Thread-local blocks for positional reads. */
+  private static final ThreadLocal<byte[]> BLOCK = new ThreadLocal<byte[]>() {
+    @Override
+    protected byte[] initialValue() {
+      return new byte[IO.BLOCKSIZE];
+    }
+  };
+
   /** Buffer manager. */
   private final Buffers bm = new Buffers();
+  /** Page cache handle. */
+  private final PageCache.CachedFile cache;
   /** Reference to the data input stream. */
   private final RandomAccessFile raf;
+  /** Memory-mapped file (can be {@code null}). */
+  private volatile MappedFile mapped;
+  /** Position in the memory-mapped file. */
+  private long mpos;
   /** File length. */
   private long length;
   /** Changed flag. */
   private boolean changed;
+  /** Indicates if changes have not been flushed yet. */
+  private volatile boolean dirty;
   /** Offset. */
   private int off;
 
@@ -29,13 +54,26 @@ public final class DataAccess implements Closeable {
    * @throws IOException I/O Exception
    */
   public DataAccess(final IOFile file) throws IOException {
+    this(file, false);
+  }
+
+  /**
+   * Constructor, initializing the file reader.
+   * @param file the file to be read
+   * @param map map file into memory
+   * @throws IOException I/O Exception
+   */
+  public DataAccess(final IOFile file, final boolean map) throws IOException {
     RandomAccessFile f = null;
+    cache = PageCache.open(file);
     try {
       f = new RandomAccessFile(file.file(), "rw");
       length = f.length();
       raf = f;
+      if(map) mapped = new MappedFile(f.getChannel(), length);
       cursor(0);
     } catch(final IOException ex) {
+      PageCache.close(cache);
       if(f != null) f.close();
       throw ex;
     }
@@ -51,6 +89,7 @@ public final class DataAccess implements Closeable {
         raf.setLength(length);
         changed = false;
       }
+      dirty = false;
     } catch(final IOException ex) {
       Util.stack(ex);
     }
@@ -59,6 +98,8 @@ public final class DataAccess implements Closeable {
   @Override
   public synchronized void close() {
     flush();
+    PageCache.close(cache);
+    mapped = null;
     try {
       raf.close();
     } catch(final IOException ex) {
@@ -71,7 +112,7 @@ public final class DataAccess implements Closeable {
    * @return position in the file
    */
   public long cursor() {
-    return buffer(false).pos + off;
+    return mapped != null ? mpos : buffer(false).pos + off;
   }
 
   /**
@@ -95,9 +136,15 @@ public final class DataAccess implements Closeable {
    * @param pos position
    * @return integer value
    */
-  public synchronized byte read1(final long pos) {
-    cursor(pos);
-    return read1();
+  public byte read1(final long pos) {
+    final MappedFile mf = mapped;
+    if(mf != null) return (byte) mf.read1(pos);
+    final Reader r = reader(pos);
+    if(r != null) return (byte) r.read();
+    synchronized(this) {
+      cursor(pos);
+      return read1();
+    }
   }
 
   /**
@@ -113,9 +160,15 @@ public final class DataAccess implements Closeable {
    * @param pos position
    * @return integer value
    */
-  public synchronized int read4(final long pos) {
-    cursor(pos);
-    return read4();
+  public int read4(final long pos) {
+    final MappedFile mf = mapped;
+    if(mf != null) return mf.read4(pos);
+    final Reader r = reader(pos);
+    if(r != null) return (r.read() << 24) + (r.read() << 16) + (r.read() << 8) + r.read();
+    synchronized(this) {
+      cursor(pos);
+      return read4();
+    }
   }
 
   /**
@@ -123,6 +176,11 @@ public final class DataAccess implements Closeable {
    * @return integer value
    */
   public synchronized int read4() {
+    if(mapped != null) {
+      final int v = mapped.read4(mpos);
+      mpos += 4;
+      return v;
+    }
     return (read() << 24) + (read() << 16) + (read() << 8) + read();
   }
 
@@ -131,9 +189,16 @@ public final class DataAccess implements Closeable {
    * @param pos position
    * @return long value
    */
-  public synchronized long read5(final long pos) {
-    cursor(pos);
-    return read5();
+  public long read5(final long pos) {
+    final MappedFile mf = mapped;
+    if(mf != null) return mf.read5(pos);
+    final Reader r = reader(pos);
+    if(r != null) return ((long) r.read() << 32) + ((long) r.read() << 24) +
+        (r.read() << 16) + (r.read() << 8) + r.read();
+    synchronized(this) {
+      cursor(pos);
+      return read5();
+    }
   }
 
   /**
@@ -141,6 +206,11 @@ public final class DataAccess implements Closeable {
    * @return long value
    */
   public synchronized long read5() {
+    if(mapped != null) {
+      final long v = mapped.read5(mpos);
+      mpos += 5;
+      return v;
+    }
     return ((long) read() << 32) + ((long) read() << 24) + (read() << 16) + (read() << 8) + read();
   }
 
@@ -149,9 +219,45 @@ public final class DataAccess implements Closeable {
    * @param p text position
    * @return read num
    */
-  public synchronized int readNum(final long p) {
-    cursor(p);
-    return readNum();
+  public int readNum(final long p) {
+    final MappedFile mf = mapped;
+    if(mf != null) return mf.readNum(p);
+    final Reader r = reader(p);
+    if(r != null) return r.readNum();
+    synchronized(this) {
+      cursor(p);
+      return readNum();
+    }
+  }
+
+  /**
+   * Reads a sequence of {@link Num} values from disk.
+   * @param p position of the first value
+   * @param count number of values
+   * @return values
+   */
+  public int[] readNums(final long p, final int count) {
+    final int[] values = new int[count];
+    final MappedFile mf = mapped;
+    if(mf != null) {
+      long pos = p;
+      for(int c = 0; c < count; c++) {
+        final int v = mf.readNum(pos);
+        values[c] = v;
+        pos += Num.length(v);
+      }
+      return values;
+    }
+    final Reader r = reader(p);
+    if(r != null) {
+      for(int c = 0; c < count; c++) values[c] = r.readNum();
+    } else {
+      synchronized(this) {
+        cursor(p);
+        for(int c = 0; c < count; c++) values[c] = readNum();
+      }
+    }
+    return values;
   }
 
   /**
@@ -159,9 +265,20 @@ public final class DataAccess implements Closeable {
    * @param p text position
    * @return text as byte array
    */
-  public synchronized byte[] readToken(final long p) {
-    cursor(p);
-    return readToken();
+  public byte[] readToken(final long p) {
+    final MappedFile mf = mapped;
+    if(mf != null) {
+      final int l = mf.readNum(p);
+      final byte[] b = new byte[l];
+      mf.read(p + Num.length(l), b, 0, l);
+      return b;
+    }
+    final Reader r = reader(p);
+    if(r != null) return r.read(r.readNum());
+    synchronized(this) {
+      cursor(p);
+      return readToken();
+    }
   }
 
   /**
@@ -179,9 +296,19 @@ public final class DataAccess implements Closeable {
    * @param len length
    * @return byte array
    */
-  public synchronized byte[] readBytes(final long pos, final int len) {
-    cursor(pos);
-    return readBytes(len);
+  public byte[] readBytes(final long pos, final int len) {
+    final MappedFile mf = mapped;
+    if(mf != null) {
+      final byte[] b = new byte[len];
+      mf.read(pos, b, 0, len);
+      return b;
+    }
+    final Reader r = reader(pos);
+    if(r != null) return r.read(len);
+    synchronized(this) {
+      cursor(pos);
+      return readBytes(len);
+    }
   }
 
   /**
@@ -190,9 +317,15 @@ public final class DataAccess implements Closeable {
    * @return byte array
    */
   public synchronized byte[] readBytes(final int len) {
+    final byte[] b = new byte[len];
+    if(mapped != null) {
+      mapped.read(mpos, b, 0, len);
+      mpos += len;
+      return b;
+    }
+
     int l = len;
     int ll = IO.BLOCKSIZE - off;
-    final byte[] b = new byte[l];
 
     System.arraycopy(buffer(false).data, off, b, 0, Math.min(l, ll));
     if(l > ll) {
@@ -213,6 +346,10 @@ public final class DataAccess implements Closeable {
    * @param pos read position
    */
   public void cursor(final long pos) {
+    if(mapped != null) {
+      mpos = pos;
+      return;
+    }
     off = (int) (pos & IO.BLOCKSIZE - 1);
     final long b = pos - off;
     if(!bm.cursor(b)) return;
@@ -221,9 +358,11 @@ public final class DataAccess implements Closeable {
     try {
       if(bf.dirty) writeBlock(bf);
       bf.pos = b;
-      raf.seek(bf.pos);
-      if(bf.pos < raf.length())
-        raf.readFully(bf.data, 0, (int) Math.min(length - bf.pos, IO.BLOCKSIZE));
+      if(b < raf.length() && !PageCache.read(cache, b, bf.data)) {
+        raf.seek(b);
+        raf.readFully(bf.data, 0, (int) Math.min(length - b, IO.BLOCKSIZE));
+        PageCache.add(cache, b, bf.data);
+      }
     } catch(final IOException ex) {
       Util.stack(ex);
     }
@@ -253,6 +392,7 @@ public final class DataAccess implements Closeable {
    * @param value value to be written
    */
   public void write5(final long pos, final long value) {
+    unmap();
     cursor(pos);
     write((byte) (value >>> 32));
     write((byte) (value >>> 24));
@@ -267,6 +407,7 @@ public final class DataAccess implements Closeable {
    * @param value byte array to be appended
    */
   public void write4(final long pos, final int value) {
+    unmap();
     cursor(pos);
     write4(value);
   }
@@ -276,6 +417,7 @@ public final class DataAccess implements Closeable {
    * @param value value to be written
    */
   public void write4(final int value) {
+    unmap();
     write(value >>> 24);
     write(value >>> 16);
     write(value >>>  8);
@@ -288,6 +430,7 @@ public final class DataAccess implements Closeable {
    * @param value value to be written
    */
   public void writeNum(final long pos, final int value) {
+    unmap();
     cursor(pos);
     writeNum(value);
   }
@@ -298,6 +441,7 @@ public final class DataAccess implements Closeable {
    * @param values integer values
    */
   public void writeNums(final long p, final int[] values) {
+    unmap();
     cursor(p);
     writeNum(values.length);
     for(final int n : values) writeNum(n);
@@ -310,6 +454,7 @@ public final class DataAccess implements Closeable {
    * @param len token length
    */
   public void writeBytes(final byte[] buffer, final int offset, final int len) {
+    unmap();
     final int last = offset + len;
     int o = offset;
 
@@ -332,6 +477,7 @@ public final class DataAccess implements Closeable {
    * @param values byte array to be appended
    */
   public void writeToken(final long pos, final byte[] values) {
+    unmap();
     cursor(pos);
     writeToken(values, 0, values.length);
   }
@@ -345,8 +491,10 @@ public final class DataAccess implements Closeable {
    * @return new offset to store text
    */
   public long free(final long pos, final int size) {
+    unmap();
     // old text size (available space)
-    int os = readNum(pos) + (int) (cursor() - pos);
+    final int l = readNum(pos);
+    int os = l + Num.length(l);
 
     // extend available space by subsequent zero-bytes
     cursor(pos + os);
@@ -382,17 +530,40 @@ public final class DataAccess implements Closeable {
   private synchronized void length(final long len) {
     if(len != length) {
       changed = true;
+      dirty = true;
       length = len;
     }
   }
 
   // PRIVATE METHODS ==========================================================
 
+  /**
+   * Switches from memory-mapped to buffered access.
+   */
+  private void unmap() {
+    dirty = true;
+    if(mapped != null) {
+      final long pos = mpos;
+      mapped = null;
+      cursor(pos);
+    }
+  }
+
+  /**
+   * Returns a reader for lock-free positional reads.
+   * @param pos read position
+   * @return reader, or {@code null} if unflushed changes exist
+   */
+  private Reader reader(final long pos) {
+    return dirty ? null : new Reader(pos);
+  }
+
   /**
    * Reads the next byte.
    * @return next byte
    */
   private int read() {
+    if(mapped != null) return mapped.read1(mpos++);
     final Buffer bf = buffer();
     return bf.data[off++] & 0xFF;
   }
@@ -446,6 +617,7 @@ public final class DataAccess implements Closeable {
     final long pos = buffer.pos, len = Math.min(IO.BLOCKSIZE, length - pos);
     raf.seek(pos);
     raf.write(buffer.data, 0, (int) len);
+    PageCache.update(cache, pos, buffer.data);
     buffer.dirty = false;
   }
 
@@ -466,4 +638,94 @@ public final class DataAccess implements Closeable {
     if(next) cursor(bm.current().pos + IO.BLOCKSIZE);
     return bm.current();
   }
+
+  /** Reader for positional reads, which keeps its own position and block. */
+  private final class Reader {
+    /** Block data. */
+    private final byte[] data = BLOCK.get();
+    /** Current block position. */
+    private long block = -1;
+    /** Read position. */
+    private long pos;
+
+    /**
+     * Constructor.
+     * @param pos read position
+     */
+    Reader(final long pos) {
+      this.pos = pos;
+    }
+
+    /**
+     * Reads the next byte.
+     * @return next byte
+     */
+    int read() {
+      final long b = pos & -IO.BLOCKSIZE;
+      if(b != block) load(b);
+      return data[(int) (pos++ - b)] & 0xFF;
+    }
+
+    /**
+     * Reads the next compressed number.
+     * @return next integer
+     */
+    int readNum() {
+      final int value = read();
+      switch(value & 0xC0) {
+      case 0:
+        return value;
+      case 0x40:
+        return (value - 0x40 << 8) + read();
+      case 0x80:
+        return (value - 0x80 << 24) + (read() << 16) + (read() << 8) + read();
+      default:
+        return (read() << 24) + (read() << 16) + (read() << 8) + read();
+      }
+    }
+
+    /**
+     * Reads a number of bytes.
+     * @param len length
+     * @return byte array
+     */
+    byte[] read(final int len) {
+      final byte[] b = new byte[len];
+      for(int o = 0; o < len;) {
+        final long bl = pos & -IO.BLOCKSIZE;
+        if(bl != block) load(bl);
+        final int i = (int) (pos - bl), l = Math.min(len - o, IO.BLOCKSIZE - i);
+        System.arraycopy(data, i, b, o, l);
+        pos += l;
+        o += l;
+      }
+      return b;
+    }
+
+    /**
+     * Loads the specified block from the page cache or from disk.
+     * @param b block position
+     */
+    private void load(final long b) {
+      block = b;
+      if(b >= length || PageCache.read(cache, b, data)) return;
+      final int len = (int) Math.min(length - b, IO.BLOCKSIZE);
+      try {
+        // interrupted threads would close the channel: resort to the file pointer
+        if(Thread.currentThread().isInterrupted()) {
+          synchronized(DataAccess.this) {
+            raf.seek(b);
+            raf.readFully(data, 0, len);
+          }
+        } else {
+          final FileChannel fc = raf.getChannel();
+          final ByteBuffer bb = ByteBuffer.wrap(data, 0, len);
+          while(bb.hasRemaining() && fc.read(bb, b + bb.position()) != -1);
+        }
+        PageCache.add(cache, b, data);
+      } catch(final IOException ex) {
+        Util.stack(ex);
+      }
+    }
+  }
 }
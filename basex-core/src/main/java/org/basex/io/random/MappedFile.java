@@ -0,0 +1,119 @@
+package org.basex.io.random;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * This class provides read-only access to a memory-mapped file.
+ * Files larger than {@link #CHUNK} bytes are mapped in several chunks.
+ * Positional read operations are thread-safe. The mapped memory is released by the garbage
+ * collector as soon as the instance is not referenced anymore, as concurrent readers may
+ * still access a mapping that has been replaced.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class MappedFile {
+  /** Chunk size (must be 1 << n). */
+  private static final int CHUNK = 1 << 30;
+  /** Mapped chunks. */
+  private final MappedByteBuffer[] chunks;
+  /** Number of mapped bytes. */
+  private final long size;
+
+  /**
+   * Constructor.
+   * @param channel file channel
+   * @param size number of bytes to be mapped
+   * @throws IOException I/O exception
+   */
+  MappedFile(final FileChannel channel, final long size) throws IOException {
+    this.size = size;
+    final int cs = (int) ((size + CHUNK - 1) / CHUNK);
+    chunks = new MappedByteBuffer[cs];
+    for(int c = 0; c < cs; c++) {
+      final long pos = (long) c * CHUNK;
+      chunks[c] = channel.map(MapMode.READ_ONLY, pos, Math.min(CHUNK, size - pos));
+    }
+  }
+
+  /**
+   * Returns the number of mapped bytes.
+   * @return size
+   */
+  long size() {
+    return size;
+  }
+
+  /**
+   * Reads a byte value from the specified position.
+   * @param pos position
+   * @return unsigned byte value
+   */
+  int read1(final long pos) {
+    return chunks[(int) (pos / CHUNK)].get((int) (pos & CHUNK - 1)) & 0xFF;
+  }
+
+  /**
+   * Reads an integer value from the specified position.
+   * @param pos position
+   * @return integer value
+   */
+  int read4(final long pos) {
+    final int o = (int) (pos & CHUNK - 1);
+    if(o <= CHUNK - 4) return chunks[(int) (pos / CHUNK)].getInt(o);
+    return (read1(pos) << 24) + (read1(pos + 1) << 16) + (read1(pos + 2) << 8) + read1(pos + 3);
+  }
+
+  /**
+   * Reads a 5-byte value from the specified position.
+   * @param pos position
+   * @return long value
+   */
+  long read5(final long pos) {
+    return ((long) read1(pos) << 32) + (read4(pos + 1) & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Reads a compressed integer value from the specified position.
+   * @param pos position
+   * @return integer value
+   */
+  int readNum(final long pos) {
+    final int v = read1(pos);
+    switch(v & 0xC0) {
+    case 0:
+      return v;
+    case 0x40:
+      return (v - 0x40 << 8) + read1(pos + 1);
+    case 0x80:
+      return (v - 0x80 << 24) + (read1(pos + 1) << 16) + (read1(pos + 2) << 8) + read1(pos + 3);
+    default:
+      return read4(pos + 1);
+    }
+  }
+
+  /**
+   * Copies bytes from the specified position to an array.
+   * @param pos position
+   * @param bytes target array
+   * @param off array offset
+   * @param len number of bytes
+   */
+  void read(final long pos, final byte[] bytes, final int off, final int len) {
+    long p = pos;
+    int o = off, l = len;
+    while(l > 0) {
+      final int co = (int) (p & CHUNK - 1), cl = Math.min(l, CHUNK - co);
+      // duplicate buffer to keep the position of the shared buffer untouched
+      final ByteBuffer bb = chunks[(int) (p / CHUNK)].duplicate();
+      bb.position(co);
+      bb.get(bytes, o, cl);
+      p += cl;
+      o += cl;
+      l -= cl;
+    }
+  }
+}
@@ -0,0 +1,349 @@
+package org.basex.io.random;
+
+import java.util.*;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.*;
+
+import org.basex.io.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * This class provides a process-wide page cache, which is shared by all open database files.
+ * It serves as second level below the small buffers that are managed by each file instance.
+ *
+ * Pages are evicted via the 2Q replacement strategy: pages that have been requested once
+ * (e.g. in the course of a sequential scan) are only kept in a small FIFO queue. If they
+ * are requested again after having been evicted, they will be promoted to the main LRU queue.
+ * The cache is split into segments to reduce lock contention.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class PageCache {
+  /** Number of segments (must be 1 << n). */
+  private static final int SEGMENTS = 1 << 4;
+  /** Segments. */
+  private static final Segment[] SEGS = new Segment[SEGMENTS];
+  /** Open files. */
+  private static final ArrayList<CachedFile> FILES = new ArrayList<>();
+  /** File counter. */
+  private static final AtomicLong IDS = new AtomicLong();
+
+  static {
+    for(int s = 0; s < SEGMENTS; s++) SEGS[s] = new Segment();
+  }
+
+  /** Private constructor. */
+  private PageCache() { }
+
+  /**
+   * Assigns the maximum size of the cache.
+   * Pages will be discarded if the new size is smaller than the current one.
+   * @param bytes maximum size in bytes ({@code 0}: cache is disabled)
+   */
+  public static void limit(final long bytes) {
+    final int pages = (int) Math.min(Integer.MAX_VALUE, Math.max(0, bytes) / IO.BLOCKSIZE);
+    for(final Segment seg : SEGS) seg.limit(pages / SEGMENTS);
+  }
+
+  /**
+   * Returns the number of currently cached bytes.
+   * @return number of bytes
+   */
+  public static long size() {
+    long size = 0;
+    for(final Segment seg : SEGS) size += seg.size();
+    return size * IO.BLOCKSIZE;
+  }
+
+  /**
+   * Returns a table with the cache statistics of all open files in the specified directory.
+   * @param dir directory
+   * @return table
+   */
+  public static Table table(final IOFile dir) {
+    final Table table = new Table();
+    table.header.add("FILE");
+    table.header.add("HITS");
+    table.header.add("MISSES");
+    table.header.add("RATIO");
+    for(int i = 0; i < 4; ++i) table.align.add(i != 0);
+
+    synchronized(FILES) {
+      for(final CachedFile cf : FILES) {
+        // skip files in other directories (including directories with the same prefix)
+        if(!dir.eq(cf.file.parent())) continue;
+        final long h = cf.hits.get(), m = cf.misses.get();
+        final TokenList tl = new TokenList();
+        tl.add(cf.file.name());
+        tl.add(h);
+        tl.add(m);
+        tl.add(h + m == 0 ? "-" : h * 100 / (h + m) + "%");
+        table.contents.add(tl);
+      }
+    }
+    table.description = Performance.format(size()) + " of " + Performance.format(capacity()) +
+        " cached, % open files";
+    return table.sort();
+  }
+
+  /**
+   * Registers a file.
+   * @param file file
+   * @return file handle
+   */
+  static CachedFile open(final IOFile file) {
+    final CachedFile cf = new CachedFile(file, IDS.incrementAndGet());
+    synchronized(FILES) { FILES.add(cf); }
+    return cf;
+  }
+
+  /**
+   * Unregisters a file and discards all its pages.
+   * @param cf file handle
+   */
+  static void close(final CachedFile cf) {
+    synchronized(FILES) { FILES.remove(cf); }
+    if(cf.cached.get() != 0) {
+      for(final Segment seg : SEGS) seg.remove(cf);
+    }
+  }
+
+  /**
+   * Copies a cached page to the specified array.
+   * @param cf file handle
+   * @param block block position
+   * @param data target array
+   * @return {@code true} if the page was found in the cache
+   */
+  static boolean read(final CachedFile cf, final long block, final byte[] data) {
+    final Page page = new Page(cf.id, block);
+    final boolean hit = segment(page).read(page, data);
+    (hit ? cf.hits : cf.misses).incrementAndGet();
+    return hit;
+  }
+
+  /**
+   * Caches a page that has just been read from disk.
+   * @param cf file handle
+   * @param block block position
+   * @param data page data
+   */
+  static void add(final CachedFile cf, final long block, final byte[] data) {
+    final Page page = new Page(cf.id, block);
+    if(segment(page).add(page, data)) cf.cached.incrementAndGet();
+  }
+
+  /**
+   * Updates a page that has just been written to disk.
+   * The page will only be updated if it is currently cached.
+   * @param cf file handle
+   * @param block block position
+   * @param data page data
+   */
+  static void update(final CachedFile cf, final long block, final byte[] data) {
+    if(cf.cached.get() == 0) return;
+    final Page page = new Page(cf.id, block);
+    segment(page).update(page, data);
+  }
+
+  /**
+   * Returns the maximum size of the cache.
+   * @return number of bytes
+   */
+  static long capacity() {
+    long max = 0;
+    for(final Segment seg : SEGS) max += seg.max;
+    return max * IO.BLOCKSIZE;
+  }
+
+  /**
+   * Returns the segment of the specified page.
+   * @param page page
+   * @return segment
+   */
+  private static Segment segment(final Page page) {
+    final int h = page.hashCode();
+    return SEGS[(h ^ h >>> 16) & SEGMENTS - 1];
+  }
+
+  /** Handle of a cached file. */
+  static final class CachedFile {
+    /** File. */
+    final IOFile file;
+    /** Unique id. */
+    final long id;
+    /** Number of cache hits. */
+    final AtomicLong hits = new AtomicLong();
+    /** Number of cache misses. */
+    final AtomicLong misses = new AtomicLong();
+    /** Number of pages that have been added to the cache (an upper bound). */
+    final AtomicLong cached = new AtomicLong();
+
+    /**
+     * Constructor.
+     * @param file file
+     * @param id unique id
+     */
+    private CachedFile(final IOFile file, final long id) {
+      this.file = file;
+      this.id = id;
+    }
+  }
+
+  /** Page key. */
+  private static final class Page {
+    /** File id. */
+    final long file;
+    /** Block position. */
+    final long block;
+
+    /**
+     * Constructor.
+     * @param file file id
+     * @param block block position
+     */
+    Page(final long file, final long block) {
+      this.file = file;
+      this.block = block;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if(!(obj instanceof Page)) return false;
+      final Page p = (Page) obj;
+      return file == p.file && block == p.block;
+    }
+
+    @Override
+    public int hashCode() {
+      final long h = block * 0x9E3779B97F4A7C15L + file;
+      return (int) (h ^ h >>> 32);
+    }
+  }
+
+  /** Cache segment with 2Q replacement. */
+  private static final class Segment {
+    /** Pages that have been requested once (FIFO). */
+    private final LinkedHashMap<Page, byte[]> in = new LinkedHashMap<>();
+    /** Pages that have been requested again after their eviction (LRU). */
+    private final LinkedHashMap<Page, byte[]> main = new LinkedHashMap<>(16, 0.75f, true);
+    /** Keys of pages that have recently been evicted from the FIFO queue. */
+    private final LinkedHashMap<Page, Boolean> out = new LinkedHashMap<>();
+    /** Maximum number of pages. */
+    private int max;
+
+    /**
+     * Assigns a new maximum number of pages.
+     * @param pages number of pages
+     */
+    synchronized void limit(final int pages) {
+      max = pages;
+      while(in.size() + main.size() > max) evict();
+      while(out.size() > max >>> 1) remove(out);
+    }
+
+    /**
+     * Returns the number of cached pages.
+     * @return number of pages
+     */
+    synchronized int size() {
+      return in.size() + main.size();
+    }
+
+    /**
+     * Copies a cached page to the specified array.
+     * @param page page
+     * @param data target array
+     * @return {@code true} if the page was found
+     */
+    synchronized boolean read(final Page page, final byte[] data) {
+      byte[] d = main.get(page);
+      if(d == null) d = in.get(page);
+      if(d == null) return false;
+      System.arraycopy(d, 0, data, 0, IO.BLOCKSIZE);
+      return true;
+    }
+
+    /**
+     * Adds a page.
+     * @param page page
+     * @param data page data
+     * @return {@code true} if the page was added
+     */
+    synchronized boolean add(final Page page, final byte[] data) {
+      if(max == 0 || main.containsKey(page) || in.containsKey(page)) return false;
+      // reuse array of evicted page
+      byte[] d = in.size() + main.size() >= max ? evict() : null;
+      if(d == null) d = new byte[IO.BLOCKSIZE];
+      System.arraycopy(data, 0, d, 0, IO.BLOCKSIZE);
+      // pages that have been evicted from the FIFO queue before are promoted
+      if(out.remove(page) != null) main.put(page, d);
+      else in.put(page, d);
+      return true;
+    }
+
+    /**
+     * Updates a cached page.
+     * @param page page
+     * @param data page data
+     */
+    synchronized void update(final Page page, final byte[] data) {
+      byte[] d = main.get(page);
+      if(d == null) d = in.get(page);
+      if(d != null) System.arraycopy(data, 0, d, 0, IO.BLOCKSIZE);
+    }
+
+    /**
+     * Removes all pages of the specified file.
+     * @param cf file handle
+     */
+    synchronized void remove(final CachedFile cf) {
+      remove(in, cf.id);
+      remove(main, cf.id);
+      remove(out, cf.id);
+    }
+
+    /**
+     * Evicts a page.
+     * @return data of the evicted page, or {@code null}
+     */
+    private byte[] evict() {
+      // FIFO queue exceeds its share (25%): move key of oldest page to ghost queue
+      if(in.size() > max >>> 2 || main.isEmpty()) {
+        if(in.isEmpty()) return null;
+        final Entry<Page, byte[]> e = remove(in);
+        out.put(e.getKey(), Boolean.TRUE);
+        if(out.size() > max >>> 1) remove(out);
+        return e.getValue();
+      }
+      return remove(main).getValue();
+    }
+
+    /**
+     * Removes the first entry from the specified map.
+     * @param map map
+     * @param <V> value type
+     * @return removed entry
+     */
+    private static <V> Entry<Page, V> remove(final LinkedHashMap<Page, V> map) {
+      final Iterator<Entry<Page, V>> iter = map.entrySet().iterator();
+      final Entry<Page, V> e = iter.next();
+      iter.remove();
+      return e;
+    }
+
+    /**
+     * Removes all entries of a file from the specified map.
+     * @param map map
+     * @param id file id
+     */
+    private static void remove(final LinkedHashMap<Page, ?> map, final long id) {
+      final Iterator<Page> iter = map.keySet().iterator();
+      while(iter.hasNext()) {
+        if(iter.next().file == id) iter.remove();
+      }
+    }
+  }
+}
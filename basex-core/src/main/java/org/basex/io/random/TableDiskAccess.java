@@ -15,6 +15,8 @@ import org.basex.util.*;
 
 /**
  * This class stores the table on disk and reads it block-wise.
+ * If memory mapping is enabled, entries will be read from the mapped file
+ * until the first update is performed.
  *
  * NOTE: this class is not thread-safe.
  *
@@ -25,8 +27,12 @@ import org.basex.util.*;
 public final class TableDiskAccess extends TableAccess {
   /** Buffer manager. */
   private final Buffers bm = new Buffers();
+  /** Page cache handle. */
+  private final PageCache.CachedFile cache;
   /** File storing all blocks. */
   private final RandomAccessFile file;
+  /** Memory-mapped file (can be {@code null}). */
+  private MappedFile mapped;
   /** Bitmap storing free (=0) and used (=1) pages. */
   private BitArray usedPages;
   /** File lock. */
@@ -83,8 +89,14 @@ public final class TableDiskAccess extends TableAccess {
     }
 
     // initialize data file
-    file = new RandomAccessFile(meta.dbfile(DATATBL).file(), "rw");
-    if(!lock(write)) throw new BaseXException(Text.DB_PINNED_X, md.name);
+    final IOFile tbl = meta.dbfile(DATATBL);
+    file = new RandomAccessFile(tbl.file(), "rw");
+    cache = PageCache.open(tbl);
+    if(!lock(write)) {
+      close();
+      throw new BaseXException(Text.DB_PINNED_X, md.name);
+    }
+    if(md.mmap && !write) mapped = new MappedFile(file.getChannel(), file.length());
   }
 
   /**
@@ -128,6 +140,8 @@ public final class TableDiskAccess extends TableAccess {
   @Override
   public synchronized void close() throws IOException {
     flush(true);
+    PageCache.close(cache);
+    mapped = null;
     file.close();
   }
 
@@ -146,6 +160,7 @@ public final class TableDiskAccess extends TableAccess {
   @Override
   public synchronized int read1(final int pre, final int off) {
     final int o = off + cursor(pre);
+    if(mapped != null) return mapped.read1(position(o));
     final byte[] b = bm.current().data;
     return b[o] & 0xFF;
   }
@@ -153,6 +168,10 @@ public final class TableDiskAccess extends TableAccess {
   @Override
   public synchronized int read2(final int pre, final int off) {
     final int o = off + cursor(pre);
+    if(mapped != null) {
+      final long p = position(o);
+      return (mapped.read1(p) << 8) + mapped.read1(p + 1);
+    }
     final byte[] b = bm.current().data;
     return ((b[o] & 0xFF) << 8) + (b[o + 1] & 0xFF);
   }
@@ -160,6 +179,7 @@ public final class TableDiskAccess extends TableAccess {
   @Override
   public synchronized int read4(final int pre, final int off) {
     final int o = off + cursor(pre);
+    if(mapped != null) return mapped.read4(position(o));
     final byte[] b = bm.current().data;
     return ((b[o] & 0xFF) << 24) + ((b[o + 1] & 0xFF) << 16) +
       ((b[o + 2] & 0xFF) << 8) + (b[o + 3] & 0xFF);
@@ -168,6 +188,7 @@ public final class TableDiskAccess extends TableAccess {
   @Override
   public synchronized long read5(final int pre, final int off) {
     final int o = off + cursor(pre);
+    if(mapped != null) return mapped.read5(position(o));
     final byte[] b = bm.current().data;
     return ((long) (b[o] & 0xFF) << 32) + ((long) (b[o + 1] & 0xFF) << 24) +
       ((b[o + 2] & 0xFF) << 16) + ((b[o + 3] & 0xFF) << 8) + (b[o + 4] & 0xFF);
@@ -175,6 +196,7 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public void write1(final int pre, final int off, final int v) {
+    unmap();
     final int o = off + cursor(pre);
     final Buffer bf = bm.current();
     final byte[] b = bf.data;
@@ -184,6 +206,7 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public void write2(final int pre, final int off, final int v) {
+    unmap();
     final int o = off + cursor(pre);
     final Buffer bf = bm.current();
     final byte[] b = bf.data;
@@ -194,6 +217,7 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public void write4(final int pre, final int off, final int v) {
+    unmap();
     final int o = off + cursor(pre);
     final Buffer bf = bm.current();
     final byte[] b = bf.data;
@@ -206,6 +230,7 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public void write5(final int pre, final int off, final long v) {
+    unmap();
     final int o = off + cursor(pre);
     final Buffer bf = bm.current();
     final byte[] b = bf.data;
@@ -421,6 +446,7 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   protected void dirty() {
+    unmap();
     // initialize data structures required for performing updates
     if(fpres == null) {
       final int b = blocks;
@@ -437,6 +463,26 @@ public final class TableDiskAccess extends TableAccess {
 
   // PRIVATE METHODS ==========================================================
 
+  /**
+   * Switches from memory-mapped to buffered access.
+   */
+  private void unmap() {
+    if(mapped != null) {
+      mapped = null;
+      // read current block into buffer
+      if(page != -1) readBlock(page(page));
+    }
+  }
+
+  /**
+   * Returns the file position of the specified offset in the current block.
+   * @param off offset in the block
+   * @return file position
+   */
+  private long position(final int off) {
+    return (long) page(page) * IO.BLOCKSIZE + off;
+  }
+
   /**
    * Searches for the block containing the entry for the specified pre value.
    * Reads the block and returns its offset inside the block.
@@ -512,7 +558,7 @@ public final class TableDiskAccess extends TableAccess {
    * @param b block to fetch
    */
   private void readBlock(final int b) {
-    if(!bm.cursor(b)) return;
+    if(mapped != null || !bm.cursor(b)) return;
 
     final Buffer bf = bm.current();
     try {
@@ -520,9 +566,10 @@ public final class TableDiskAccess extends TableAccess {
       bf.pos = b;
       if(b >= blocks) {
         blocks = b + 1;
-      } else {
+      } else if(!PageCache.read(cache, b, bf.data)) {
         file.seek(bf.pos * IO.BLOCKSIZE);
         file.readFully(bf.data);
+        PageCache.add(cache, b, bf.data);
       }
     } catch(final IOException ex) {
       Util.stack(ex);
@@ -548,6 +595,7 @@ public final class TableDiskAccess extends TableAccess {
   private void writeBlock(final Buffer bf) throws IOException {
     file.seek(bf.pos * IO.BLOCKSIZE);
     file.write(bf.data);
+    PageCache.update(cache, bf.pos, bf.data);
     bf.dirty = false;
   }
 
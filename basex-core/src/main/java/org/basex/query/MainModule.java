@@ -13,6 +13,7 @@ import org.basex.query.value.node.*;
 import org.basex.query.value.type.*;
 import org.basex.query.var.*;
 import org.basex.util.*;
+import org.basex.util.hash.*;
 import org.basex.util.list.*;
 
 /**
@@ -76,6 +77,17 @@ public final class MainModule extends StaticScope {
     }
   }
 
+  /**
+   * Creates a copy of this module.
+   * @param qc query context
+   * @param vs mapping from old variable IDs to new variable copies
+   * @return copy
+   */
+  MainModule copy(final QueryContext qc, final IntObjMap<Var> vs) {
+    final VarScope scp = scope.copy(qc, vs);
+    return new MainModule(expr.copy(qc, scp, vs), scp, declType, docString(), sc, info);
+  }
+
   /**
    * Evaluates this module and returns the result as a cached value iterator.
    * @param qc query context
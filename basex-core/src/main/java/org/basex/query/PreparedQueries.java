@@ -0,0 +1,265 @@
+package org.basex.query;
+
+import java.util.*;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.*;
+
+import org.basex.core.*;
+import org.basex.core.users.*;
+import org.basex.io.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * This class caches prepared queries, which are shared by all sessions.
+ *
+ * Entries are identified by the query string and all options that affect static
+ * analysis (base URI, default serialization parameters, mixing of updates).
+ * An entry contains the static properties of a query, which can be requested without
+ * parsing the query again, and parsed modules of previous executions. A parsed module
+ * will never be compiled: each execution compiles its own copy. Parsed modules hold no
+ * references to databases or other resources.
+ *
+ * An entry is invalidated if one of the imported library modules has been modified.
+ * The time stamps of the modules are checked at most once per second.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class PreparedQueries {
+  /** Maximum number of idle parsed modules per entry. */
+  private static final int PARSED = 8;
+  /** Interval for checking the time stamps of imported modules (milliseconds). */
+  private static final long CHECK = 1000;
+
+  /** Cached entries. */
+  private final LinkedHashMap<String, Prepared> map = new LinkedHashMap<>(16, 0.75f, true);
+  /** Number of cache hits. */
+  private final AtomicLong hits = new AtomicLong();
+  /** Number of cache misses. */
+  private final AtomicLong misses = new AtomicLong();
+  /** Static options. */
+  private final StaticOptions sopts;
+
+  /**
+   * Constructor.
+   * @param sopts static options
+   */
+  public PreparedQueries(final StaticOptions sopts) {
+    this.sopts = sopts;
+  }
+
+  /**
+   * Returns the static properties of the specified query.
+   * @param query query string
+   * @param ctx database context
+   * @return properties, or {@code null} if no valid entry exists
+   */
+  public Prepared get(final String query, final Context ctx) {
+    final String key = key(query, ctx);
+    Prepared p;
+    synchronized(map) {
+      p = map.get(key);
+    }
+    if(p != null && !p.valid()) {
+      synchronized(map) {
+        if(map.get(key) == p) map.remove(key);
+      }
+      p = null;
+    }
+    (p != null ? hits : misses).incrementAndGet();
+    return p;
+  }
+
+  /**
+   * Caches the static properties of a parsed query.
+   * An existing valid entry will be returned instead.
+   * @param query query string
+   * @param qc query context
+   * @return properties
+   */
+  Prepared add(final String query, final QueryContext qc) {
+    final String key = key(query, qc.context);
+    final Prepared p = new Prepared(key, qc);
+    final int max = sopts.get(StaticOptions.PREPARED);
+    if(max <= 0) return p;
+
+    synchronized(map) {
+      final Prepared old = map.get(key);
+      if(old != null && old.valid()) return old;
+      map.put(key, p);
+      final Iterator<Entry<String, Prepared>> iter = map.entrySet().iterator();
+      for(int s = map.size(); s > max; s--) {
+        iter.next();
+        iter.remove();
+      }
+    }
+    return p;
+  }
+
+  /**
+   * Returns the number of cached entries.
+   * @return number of entries
+   */
+  public int size() {
+    synchronized(map) {
+      return map.size();
+    }
+  }
+
+  /**
+   * Removes all entries.
+   */
+  public void clear() {
+    synchronized(map) {
+      map.clear();
+    }
+  }
+
+  @Override
+  public String toString() {
+    final ArrayList<Prepared> list;
+    synchronized(map) {
+      list = new ArrayList<>(map.values());
+    }
+    int parsed = 0;
+    for(final Prepared p : list) parsed += p.parsed();
+    final long h = hits.get(), m = misses.get();
+    return Util.info("% cached, % parsed, % hits, % misses (%)", list.size(), parsed, h, m,
+        h + m == 0 ? "-" : h * 100 / (h + m) + "%");
+  }
+
+  /**
+   * Creates a cache key.
+   * @param query query string
+   * @param ctx database context
+   * @return key
+   */
+  private static String key(final String query, final Context ctx) {
+    final MainOptions opts = ctx.options;
+    return new StringBuilder().append(opts.get(MainOptions.QUERYPATH)).append('\0').
+        append(opts.get(MainOptions.SERIALIZER)).append('\0').
+        append(opts.get(MainOptions.MIXUPDATES)).append('\0').append(query).toString();
+  }
+
+  /** Static properties of a query. */
+  public final class Prepared {
+    /** Updating flag. */
+    public final boolean updating;
+    /** Serialization parameters. */
+    public final String parameters;
+    /** Cache key. */
+    private final String key;
+    /** Paths to imported modules. */
+    private final String[] modules;
+    /** Time stamps of the imported modules. */
+    private final long[] stamps;
+    /** Idle parsed modules. */
+    private final ArrayList<QueryContext> parsed = new ArrayList<>(1);
+    /** Indicates if parsed modules can be copied. */
+    private volatile boolean copyable;
+    /** Time of the last check of the module time stamps. */
+    private volatile long checked;
+
+    /**
+     * Constructor.
+     * @param key cache key
+     * @param qc parsed query context
+     */
+    private Prepared(final String key, final QueryContext qc) {
+      this.key = key;
+      updating = qc.updating;
+      parameters = qc.serParams().toString();
+      copyable = copyable(qc);
+      final StringList paths = new StringList();
+      for(final byte[] path : qc.modParsed) {
+        if(path.length != 0) paths.add(Token.string(path));
+      }
+      modules = paths.finish();
+      final int ms = modules.length;
+      stamps = new long[ms];
+      for(int m = 0; m < ms; m++) stamps[m] = IO.get(modules[m]).timeStamp();
+      checked = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns an idle parsed module for exclusive use, or parses the query.
+     * @param query query string
+     * @param ctx database context
+     * @return query context with the parsed module, or {@code null} if it cannot be copied
+     * @throws QueryException query exception
+     */
+    QueryContext checkout(final String query, final Context ctx) throws QueryException {
+      if(!copyable) return null;
+      // error messages of parsed modules contain full paths for admins only
+      final boolean admin = ctx.user().has(Perm.ADMIN);
+      synchronized(parsed) {
+        for(final QueryContext qc : parsed) {
+          if(qc.context.user().has(Perm.ADMIN) == admin) {
+            parsed.remove(qc);
+            return qc;
+          }
+        }
+      }
+      final QueryContext qc = new QueryContext(ctx);
+      try {
+        qc.parseMain(query, null, null);
+      } catch(final QueryException ex) {
+        qc.close();
+        throw ex;
+      }
+      if(copyable(qc)) return qc;
+      copyable = false;
+      qc.close();
+      return null;
+    }
+
+    /**
+     * Returns a parsed module after its copy has been evaluated.
+     * @param qc query context with the parsed module
+     */
+    void checkin(final QueryContext qc) {
+      synchronized(map) {
+        if(map.get(key) != this) return;
+      }
+      synchronized(parsed) {
+        if(parsed.size() < PARSED) parsed.add(qc);
+      }
+    }
+
+    /**
+     * Checks if none of the imported modules has been modified.
+     * @return result of check
+     */
+    private boolean valid() {
+      final long time = System.currentTimeMillis();
+      if(time - checked < CHECK) return true;
+      final int ms = modules.length;
+      for(int m = 0; m < ms; m++) {
+        if(IO.get(modules[m]).timeStamp() != stamps[m]) return false;
+      }
+      checked = time;
+      return true;
+    }
+
+    /**
+     * Returns the number of idle parsed modules.
+     * @return number of modules
+     */
+    int parsed() {
+      synchronized(parsed) {
+        return parsed.size();
+      }
+    }
+  }
+
+  /**
+   * Checks if the main module of a parsed query can be copied: no modules must have been
+   * loaded from the repository or from Java classes.
+   * @param qc query context
+   * @return result of check
+   */
+  private static boolean copyable(final QueryContext qc) {
+    return qc.root != null && !qc.resources.loaded();
+  }
+}
@@ -137,6 +137,8 @@ public final class QueryContext extends Proc implements Closeable {
 
   /** Root expression of the query. */
   public MainModule root;
+  /** Declarations of a parsed query and their copies (only assigned while it is copied). */
+  public IdentityHashMap<StaticDecl, StaticDecl> copies;
 
   /** Compilation flag. */
   private boolean compiled;
@@ -232,6 +234,40 @@ public final class QueryContext extends Proc implements Closeable {
     return new QueryParser(query, path, this, sc).parseLibrary(true);
   }
 
+  /**
+   * Assigns a copy of a main module that has been parsed, but not compiled, by another
+   * query context. The parsed query can be copied again after this query has been closed.
+   * @param parsed query context of the parsed query
+   */
+  void copy(final QueryContext parsed) {
+    copies = new IdentityHashMap<>();
+    try {
+      final IntObjMap<Var> vs = new IntObjMap<>();
+      funcs.copy(parsed.funcs, this, vs);
+      vars.copy(parsed.vars, this, vs);
+      if(parsed.ctxItem != null) ctxItem = parsed.ctxItem.copy(this, vs);
+      root = parsed.root.copy(this, vs);
+    } finally {
+      copies = null;
+    }
+    info.query = parsed.info.query;
+    updating = parsed.updating;
+    for(final byte[] path : parsed.modParsed) modParsed.put(path, parsed.modParsed.get(path));
+    if(parsed.serialOpts != null) serialOpts = new SerializerOptions(parsed.serialOpts);
+    if(parsed.ftOpt != null) ftOpt().copy(parsed.ftOpt);
+    readLocks.add(parsed.readLocks);
+    writeLocks.add(parsed.writeLocks);
+
+    // cache original values of database options
+    final StringList opts = parsed.tempOpts;
+    final int os = opts.size();
+    for(int o = 0; o < os; o += 2) {
+      final Option<?> opt = context.options.option(opts.get(o).toUpperCase(Locale.ENGLISH));
+      staticOpts.put(opt, context.options.get(opt));
+    }
+    tempOpts.add(opts);
+  }
+
   /**
    * Sets the main module (root expression).
    * @param rt main module
@@ -796,6 +832,28 @@ public final class QueryContext extends Proc implements Closeable {
     return as;
   }
 
+  /**
+   * Creates a query context for evaluating expressions of this query in a separate thread.
+   * The new context has its own evaluation stack and focus. It shares the resources of this
+   * context, including its static variables, and adopts its date and time.
+   * @return query context
+   * @throws QueryException query exception
+   */
+  public QueryContext fork() throws QueryException {
+    initDateTime();
+    final QueryContext qc = new QueryContext(this);
+    qc.date = date;
+    qc.dtm = dtm;
+    qc.time = time;
+    qc.zone = zone;
+    qc.nano = nano;
+    qc.http = http;
+    qc.collations = collations;
+    qc.scoring = scoring;
+    qc.maxCalls = maxCalls;
+    return qc;
+  }
+
   /**
    * Initializes the static date and time context of a query if not done yet.
    * @return self reference
@@ -4,6 +4,7 @@ import static org.basex.core.Text.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.Map.Entry;
 import java.util.regex.*;
 
 import org.basex.core.*;
@@ -12,9 +13,11 @@ import org.basex.core.locks.*;
 import org.basex.data.*;
 import org.basex.io.parse.json.*;
 import org.basex.io.serial.*;
+import org.basex.query.PreparedQueries.Prepared;
 import org.basex.query.expr.*;
 import org.basex.query.iter.*;
 import org.basex.query.value.*;
+import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
 
 /**
@@ -36,6 +39,10 @@ public final class QueryProcessor extends Proc implements Closeable {
   private final String query;
   /** Parsed flag. */
   private boolean parsed;
+  /** Static properties of the query (may be {@code null}). */
+  private Prepared prepared;
+  /** Query context with the parsed module that has been copied (may be {@code null}). */
+  private QueryContext copied;
 
   /**
    * Default constructor.
@@ -55,8 +62,40 @@ public final class QueryProcessor extends Proc implements Closeable {
   public void parse() throws QueryException {
     if(parsed) return;
     parsed = true;
-    qc.parseMain(query, null, sc);
-    updating = qc.updating;
+
+    final PreparedQueries pq = qc.context.prepared;
+    final boolean cache = cacheable();
+    if(cache) {
+      // copy module that has been parsed by a previous execution
+      if(prepared == null) prepared = pq.get(query, qc.context);
+      if(prepared != null) {
+        copied = prepared.checkout(query, qc.context);
+        if(copied != null) {
+          copy();
+          return;
+        }
+      }
+    }
+    parseMain();
+    if(cache && prepared == null) prepared = pq.add(query, qc);
+  }
+
+  /**
+   * Returns the static properties of the query. The properties will be retrieved from the
+   * cache of prepared queries, or the query will be parsed.
+   * @return properties
+   * @throws QueryException query exception
+   */
+  public Prepared prepare() throws QueryException {
+    final PreparedQueries pq = qc.context.prepared;
+    if(!parsed) {
+      if(prepared == null) prepared = pq.get(query, qc.context);
+      if(prepared != null) return prepared;
+      parsed = true;
+      parseMain();
+    }
+    if(prepared == null) prepared = pq.add(query, qc);
+    return prepared;
   }
 
   /**
@@ -98,6 +137,40 @@ public final class QueryProcessor extends Proc implements Closeable {
     return qc.execute();
   }
 
+  /**
+   * Parses the main module.
+   * @throws QueryException query exception
+   */
+  private void parseMain() throws QueryException {
+    qc.parseMain(query, null, sc);
+    updating = qc.updating;
+  }
+
+  /**
+   * Assigns a copy of the parsed module, and performs the remaining steps of the parser.
+   * @throws QueryException query exception
+   */
+  private void copy() throws QueryException {
+    final MainOptions opts = qc.context.options;
+    final String path = opts.get(MainOptions.QUERYPATH);
+    if(!path.isEmpty()) sc.baseURI(path);
+    for(final Entry<String, String> entry : bindings(opts).entrySet()) {
+      qc.bind(entry.getKey(), new Atm(entry.getValue()), sc);
+    }
+    qc.copy(copied);
+    updating = qc.updating;
+  }
+
+  /**
+   * Checks if the query can be cached: no context value may be bound, and the static context
+   * and the static resources must not have been changed.
+   * @return result of check
+   */
+  private boolean cacheable() {
+    return qc.ctxItem == null && qc.modDeclared.isEmpty() && qc.stop == null &&
+        qc.thes == null && sc.baseURI() == Uri.EMPTY && sc.ns.size() == 0 && sc.elemNS == null;
+  }
+
   /**
    * Binds a value with the specified type to a global variable.
    * If the value is an {@link Expr} instance, it is directly assigned.
@@ -234,6 +307,10 @@ public final class QueryProcessor extends Proc implements Closeable {
   @Override
   public void close() {
     qc.close();
+    if(copied != null) {
+      prepared.checkin(copied);
+      copied = null;
+    }
   }
 
   @Override
@@ -24,6 +24,8 @@ import org.basex.util.list.*;
 /**
  * This class provides access to all kinds of resources (databases, documents, database connections,
  * sessions) used by an XQuery expression.
+ * Resources may be shared by functions that are evaluated in parallel. Hence, all methods that
+ * add or return resources are synchronized.
  *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
@@ -48,6 +50,8 @@ public final class QueryResources {
   private ModuleLoader modules;
   /** External resources. */
   private final HashMap<Class<? extends QueryResource>, QueryResource> external = new HashMap<>();
+  /** Input streams of lazy iterators, which may not be fully consumed. */
+  private final ArrayList<Closeable> streams = new ArrayList<>(0);
 
   /** Pending output. */
   public final ValueBuilder output = new ValueBuilder();
@@ -88,7 +92,7 @@ public final class QueryResources {
    * Adds an external resource.
    * @param ext external resource
    */
-  public void add(final QueryResource ext) {
+  public synchronized void add(final QueryResource ext) {
     external.put(ext.getClass(), ext);
   }
 
@@ -99,21 +103,51 @@ public final class QueryResources {
    * @return resource
    */
   @SuppressWarnings("unchecked")
-  public <R extends QueryResource> R get(final Class<? extends R> resource) {
+  public synchronized <R extends QueryResource> R get(final Class<? extends R> resource) {
     return (R) external.get(resource);
   }
 
+  /**
+   * Registers an input stream of a lazy iterator. The stream will be closed when the query
+   * is closed, even if the iterator has not been fully consumed.
+   * @param stream input stream
+   */
+  public synchronized void register(final Closeable stream) {
+    streams.add(stream);
+  }
+
+  /**
+   * Unregisters and closes an input stream of a lazy iterator.
+   * @param stream input stream
+   * @throws IOException I/O exception
+   */
+  public synchronized void close(final Closeable stream) throws IOException {
+    streams.remove(stream);
+    stream.close();
+  }
+
   /**
    * Closes all opened data references that have not been added by the global context.
    */
   void close() {
+    // close external resources (may still access databases)
+    for(final QueryResource c : external.values()) c.close();
+
+    // close input streams of iterators that have not been fully consumed
+    for(final Closeable stream : streams) {
+      try {
+        stream.close();
+      } catch(final IOException ex) {
+        Util.debug(ex);
+      }
+    }
+    streams.clear();
+
     for(final Data data : datas) Close.close(data, qc.context);
     datas.clear();
 
     // close dynamically loaded JAR files
     if(modules != null) modules.close();
-    // close external resources
-    for(final QueryResource c : external.values()) c.close();
   }
 
   /**
@@ -123,7 +157,7 @@ public final class QueryResources {
    * @return database instance
    * @throws QueryException query exception
    */
-  public Data database(final String name, final InputInfo info) throws QueryException {
+  public synchronized Data database(final String name, final InputInfo info) throws QueryException {
     // check if a database with the same name has already been opened
     for(final Data data : datas) {
       if(data.inMemory()) continue;
@@ -148,7 +182,7 @@ public final class QueryResources {
    * @return document
    * @throws QueryException query exception
    */
-  public DBNode doc(final QueryInput qi, final IO baseIO, final InputInfo info)
+  public synchronized DBNode doc(final QueryInput qi, final IO baseIO, final InputInfo info)
       throws QueryException {
 
     // favor default database
@@ -196,7 +230,7 @@ public final class QueryResources {
    * @return collection
    * @throws QueryException query exception
    */
-  public Value collection(final QueryInput qi, final IO baseIO, final InputInfo info)
+  public synchronized Value collection(final QueryInput qi, final IO baseIO, final InputInfo info)
       throws QueryException {
 
     // favor default database
@@ -241,7 +275,7 @@ public final class QueryResources {
    * Returns a reference to the updates.
    * @return updates
    */
-  public Updates updates() {
+  public synchronized Updates updates() {
     if(updates == null) updates = new Updates();
     return updates;
   }
@@ -250,7 +284,7 @@ public final class QueryResources {
    * Returns the module loader.
    * @return module loader
    */
-  public ModuleLoader modules() {
+  public synchronized ModuleLoader modules() {
     if(modules == null) modules = new ModuleLoader(qc.context);
     return modules;
   }
@@ -259,7 +293,7 @@ public final class QueryResources {
    * Removes and closes a database if it has not been added by the global context.
    * @param name name of database to be removed
    */
-  public void remove(final String name) {
+  public synchronized void remove(final String name) {
     final int ds = datas.size();
     for(int d = globalData ? 1 : 0; d < ds; d++) {
       final Data data = datas.get(d);
@@ -279,6 +313,14 @@ public final class QueryResources {
     return globalData ? datas.get(0) : null;
   }
 
+  /**
+   * Indicates if modules have been loaded from the repository or from Java classes.
+   * @return result of check
+   */
+  synchronized boolean loaded() {
+    return modules != null;
+  }
+
   /**
    * Returns a valid reference if a file is found in the specified path or the static base uri.
    * Otherwise, returns an error.
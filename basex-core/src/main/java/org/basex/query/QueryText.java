@@ -797,6 +797,10 @@ public interface QueryText {
   /** Optimization info. */
   String OPTPRED = "rewriting % to predicate(s)";
   /** Optimization info. */
+  String OPTHASH = "rewriting % to hash join";
+  /** Optimization info. */
+  String OPTAGGR = "aggregating % incrementally";
+  /** Optimization info. */
   String OPTCAST = "removing redundant % cast.";
   /** Optimization info. */
   String OPTVAR = "removing variable %";
@@ -48,6 +48,14 @@ public abstract class StaticScope extends ExprInfo implements Scope {
     this.doc = doc != null && !doc.isEmpty() ? Token.token(doc) : null;
   }
 
+  /**
+   * Returns the xqdoc documentation.
+   * @return documentation (may be {@code null})
+   */
+  protected final String docString() {
+    return doc == null ? null : Token.string(doc);
+  }
+
   @Override
   public final boolean compiled() {
     return compiled;
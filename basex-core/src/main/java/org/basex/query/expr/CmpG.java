@@ -264,12 +264,13 @@ public final class CmpG extends Cmp {
 
   /**
    * Compares a single item.
+   * This function is e.g. called by {@link org.basex.query.expr.gflwor.HashJoin}.
    * @param it1 first item to be compared
    * @param it2 second item to be compared
    * @return result of check
    * @throws QueryException query exception
    */
-  private boolean eval(final Item it1, final Item it2) throws QueryException {
+  public boolean eval(final Item it1, final Item it2) throws QueryException {
     final Type t1 = it1.type, t2 = it2.type;
     if(!(it1 instanceof FItem || it2 instanceof FItem) &&
         (t1 == t2 || t1.isUntyped() || t2.isUntyped() ||
@@ -278,6 +279,14 @@ public final class CmpG extends Cmp {
     throw diffError(info, it1, it2);
   }
 
+  /**
+   * Checks if this is an equality comparison on the default collation.
+   * @return result of check
+   */
+  public boolean equality() {
+    return op == OpG.EQ && coll == null;
+  }
+
   @Override
   public CmpG invert() {
     final Expr e1 = exprs[0], e2 = exprs[1];
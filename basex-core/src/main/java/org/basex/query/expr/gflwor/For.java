@@ -2,6 +2,7 @@ package org.basex.query.expr.gflwor;
 
 import static org.basex.query.QueryText.*;
 
+import java.util.*;
 import java.util.List;
 
 import org.basex.query.*;
@@ -35,6 +36,8 @@ public final class For extends ForLet {
   Var score;
   /** {@code allowing empty} flag. */
   final boolean empty;
+  /** Indicates if the table of a hash join can be reused for all tuples. */
+  boolean join;
 
   /**
    * Constructor.
@@ -60,6 +63,8 @@ public final class For extends ForLet {
       private Iter iter;
       /** Current position. */
       private long p;
+      /** Table of a hash join. */
+      private HashJoin.Table table;
 
       @Override
       public boolean next(final QueryContext qc) throws QueryException {
@@ -107,6 +112,10 @@ public final class For extends ForLet {
             } finally {
               qc.scoring = s;
             }
+          } else if(join && expr instanceof HashJoin) {
+            final HashJoin hj = (HashJoin) expr;
+            if(table == null) table = hj.table(qc);
+            iter = hj.iter(table, qc);
           } else {
             iter = expr.iter(qc);
           }
@@ -189,6 +198,25 @@ public final class For extends ForLet {
     }
   }
 
+  /**
+   * Tries to rewrite the loop expression to a hash join.
+   * @param vars variables that are bound anew for each tuple of the preceding clauses
+   * @param qc query context
+   * @param scp variable scope
+   * @throws QueryException query exception
+   */
+  void toJoin(final ArrayList<Var> vars, final QueryContext qc, final VarScope scp)
+      throws QueryException {
+
+    if(!(expr instanceof HashJoin)) {
+      if(empty || pos != null || score != null) return;
+      final HashJoin hj = HashJoin.get(expr, vars, qc, scp);
+      if(hj == null) return;
+      expr = hj;
+    }
+    join = true;
+  }
+
   /**
    * Tries to add the given expression as a predicate to the loop expression.
    * @param qc query context
@@ -29,6 +29,8 @@ public final class GFLWOR extends ParseExpr {
   private final LinkedList<Clause> clauses;
   /** Return expression. */
   public Expr ret;
+  /** Indicates if the table of a hash join in the return expression can be reused. */
+  private boolean join;
 
   /**
    * Constructor.
@@ -64,6 +66,9 @@ public final class GFLWOR extends ParseExpr {
       private Iter sub = Empty.ITER;
       /** If the iterator has been emptied. */
       private boolean drained;
+      /** Table of a hash join. */
+      private HashJoin.Table table;
+
       @Override
       public Item next() throws QueryException {
         if(drained) return null;
@@ -75,7 +80,13 @@ public final class GFLWOR extends ParseExpr {
             drained = true;
             return null;
           }
-          sub = ret.iter(qc);
+          if(join && ret instanceof HashJoin) {
+            final HashJoin hj = (HashJoin) ret;
+            if(table == null) table = hj.table(qc);
+            sub = hj.iter(table, qc);
+          } else {
+            sub = ret.iter(qc);
+          }
         }
       }
     };
@@ -216,7 +227,10 @@ public final class GFLWOR extends ParseExpr {
        * */
     } while(changed);
 
+    // rewrite joins of independent sequences
+    hashJoins(qc, scp);
     mergeWheres();
+    aggregates(qc);
 
     size = calcSize();
     if(size == 0 && !has(Flag.NDT) && !has(Flag.UPD)) {
@@ -596,6 +610,52 @@ public final class GFLWOR extends ParseExpr {
     return changed;
   }
 
+  /**
+   * Rewrites {@code for} clauses and return expressions with equality predicates to hash joins.
+   * Joins are only rewritten if all clauses are for, let and where clauses, or in the
+   * leading clauses of this kind, as the variables of all other clauses may be rebound.
+   * @param qc query context
+   * @param scp variable scope
+   * @throws QueryException query exception
+   */
+  private void hashJoins(final QueryContext qc, final VarScope scp) throws QueryException {
+    // variables that are bound anew for each tuple
+    final ArrayList<Var> vars = new ArrayList<>();
+    boolean flwr = true;
+    for(final Clause clause : clauses) {
+      flwr &= clause instanceof For || clause instanceof Let || clause instanceof Where;
+      if(clause instanceof For) {
+        final For fr = (For) clause;
+        fr.join = false;
+        if(flwr && !vars.isEmpty()) fr.toJoin(vars, qc, scp);
+      }
+      if(flwr && (clause instanceof For || !vars.isEmpty())) Collections.addAll(vars, clause.vars);
+    }
+
+    join = false;
+    if(flwr && !vars.isEmpty()) {
+      if(!(ret instanceof HashJoin)) {
+        final HashJoin hj = HashJoin.get(ret, vars, qc, scp);
+        if(hj == null) return;
+        ret = hj;
+      }
+      join = true;
+    }
+  }
+
+  /**
+   * Detects non-grouping variables whose values can be aggregated incrementally.
+   * @param qc query context
+   */
+  private void aggregates(final QueryContext qc) {
+    final int cs = clauses.size();
+    int c = 0;
+    for(final Clause clause : clauses) {
+      c++;
+      if(clause instanceof GroupBy) ((GroupBy) clause).aggregate(clauses.subList(c, cs), ret, qc);
+    }
+  }
+
   /** Merges consecutive {@code where} clauses. */
   private void mergeWheres() {
     Where before = null;
@@ -1,16 +1,21 @@
 package org.basex.query.expr.gflwor;
 
+import static org.basex.query.QueryError.*;
 import static org.basex.query.QueryText.*;
+import static org.basex.query.value.type.AtomType.*;
 
 import java.util.*;
+import java.util.List;
 
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.expr.gflwor.GFLWOR.Clause;
 import org.basex.query.expr.gflwor.GFLWOR.Eval;
+import org.basex.query.func.*;
 import org.basex.query.iter.*;
 import org.basex.query.util.*;
 import org.basex.query.util.collation.*;
+import org.basex.query.value.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
 import org.basex.query.value.seq.*;
@@ -35,6 +40,8 @@ public final class GroupBy extends Clause {
   private Var[] post;
   /** Number of non-occluded grouping variables. */
   private final int nonOcc;
+  /** Aggregate functions of non-grouping variables (can be {@code null}). */
+  private Function[] aggr;
 
   /**
    * Constructor.
@@ -110,7 +117,7 @@ public final class GroupBy extends Clause {
           }
         }
         final int pl = post.length;
-        for(int i = 0; i < pl; i++) qc.set(post[i], curr.ngv[i].value(), info);
+        for(int i = 0; i < pl; i++) qc.set(post[i], value(curr, i), info);
         return true;
       }
 
@@ -158,9 +165,10 @@ public final class GroupBy extends Clause {
           if(grp == null) {
             // new group, add it to the list
             final ValueBuilder[] ngs = new ValueBuilder[pl];
-            final int nl = ngs.length;
-            for(int n = 0; n < nl; n++) ngs[n] = new ValueBuilder();
-            grp = new Group(key, ngs);
+            for(int g = 0; g < pl; g++) {
+              if(aggr == null || aggr[g] == null) ngs[g] = new ValueBuilder();
+            }
+            grp = new Group(key, ngs, aggr != null);
             grps.add(grp);
 
             // insert the group into the hash table
@@ -174,7 +182,20 @@ public final class GroupBy extends Clause {
           }
 
           // add values of non-grouping variables to the group
-          for(int g = 0; g < pl; g++) grp.ngv[g].add(preExpr[g].value(qc));
+          for(int g = 0; g < pl; g++) {
+            final Function f = aggr == null ? null : aggr[g];
+            if(f == null) {
+              grp.ngv[g].add(preExpr[g].value(qc));
+            } else if(f == Function.COUNT) {
+              grp.counts[g] += preExpr[g].value(qc).size();
+            } else {
+              final Iter iter = preExpr[g].atomIter(qc, info);
+              for(Item it; (it = iter.next()) != null;) {
+                grp.sums[g] = sum(grp.sums[g], it);
+                grp.counts[g]++;
+              }
+            }
+          }
         }
 
         // we're finished, copy the array so the list can be garbage-collected
@@ -183,6 +204,78 @@ public final class GroupBy extends Clause {
     };
   }
 
+  /**
+   * Returns the value of a non-grouping variable.
+   * If the variable is aggregated, a value is returned that yields the same result
+   * when being passed on to the aggregate function.
+   * @param group group
+   * @param i index of the variable
+   * @return value
+   * @throws QueryException query exception
+   */
+  private Value value(final Group group, final int i) throws QueryException {
+    final Function f = aggr == null ? null : aggr[i];
+    if(f == null) return group.ngv[i].value();
+    final long c = group.counts[i];
+    if(f == Function.COUNT) return RangeSeq.get(1, c, true);
+    final Item sum = group.sums[i];
+    return sum == null ? Empty.SEQ : f == Function.AVG ? Calc.DIV.ev(info, sum, Int.get(c)) : sum;
+  }
+
+  /**
+   * Adds an item to a sum, applying the rules of {@code fn:sum}.
+   * @param sum current sum (can be {@code null})
+   * @param it item to be added
+   * @return new sum
+   * @throws QueryException query exception
+   */
+  private Item sum(final Item sum, final Item it) throws QueryException {
+    if(sum == null) {
+      final Item rs = it.type.isUntyped() ? Dbl.get(it.dbl(info)) : it;
+      if(!(rs instanceof ANum) && rs.type != DTD && rs.type != YMD)
+        throw SUM_X_X.get(info, rs.type, rs);
+      return rs;
+    }
+    final boolean num = sum instanceof ANum;
+    if(it.type.isNumberOrUntyped()) {
+      if(!num) throw SUMDUR_X_X.get(info, it.type, it);
+    } else {
+      if(num) throw SUMNUM_X_X.get(info, it.type, it);
+      if(it.type != sum.type) throw SUMDUR_X_X.get(info, it.type, it);
+    }
+    return Calc.PLUS.ev(info, sum, it);
+  }
+
+  /**
+   * Detects non-grouping variables that are only referenced as arguments of
+   * {@code fn:count}, {@code fn:sum} or {@code fn:avg}. The results of these functions
+   * will be computed incrementally, and the values of the variables will not be materialized.
+   * @param clauses subsequent clauses
+   * @param ret return expression
+   * @param qc query context
+   */
+  void aggregate(final List<Clause> clauses, final Expr ret, final QueryContext qc) {
+    final int pl = post.length;
+    final Function[] funcs = new Function[pl];
+    boolean found = false;
+    for(int p = 0; p < pl; p++) {
+      final Var var = post[p];
+      final AggrVisitor visitor = new AggrVisitor(var);
+      for(final Clause clause : clauses) clause.accept(visitor);
+      ret.accept(visitor);
+      if(visitor.func != null && visitor.calls == visitor.refs) {
+        funcs[p] = visitor.func;
+        if(aggr == null || aggr[p] != funcs[p]) {
+          qc.compInfo(OPTAGGR, var);
+          // the type of the grouped values does not apply to the aggregated value
+          var.resetType();
+        }
+        found = true;
+      }
+    }
+    aggr = found ? funcs : null;
+  }
+
   /**
    * Checks two keys for equality.
    * @param its1 first keys
@@ -219,6 +312,8 @@ public final class GroupBy extends Clause {
   public GroupBy optimize(final QueryContext qc, final VarScope scp) throws QueryException {
     final int pl = preExpr.length;
     for(int p = 0; p < pl; p++) {
+      // aggregated variables are bound to the results of the aggregate functions
+      if(aggr != null && aggr[p] != null) continue;
       final SeqType it = preExpr[p].seqType();
       post[p].refineType(it.withOcc(it.mayBeZero() ? Occ.ZERO_MORE : Occ.ONE_MORE), qc, info);
     }
@@ -258,7 +353,9 @@ public final class GroupBy extends Clause {
     }
 
     // done
-    return new GroupBy(Arr.copyAll(qc, scp, vs, specs), pEx, ps, nonOcc, info);
+    final GroupBy gb = new GroupBy(Arr.copyAll(qc, scp, vs, specs), pEx, ps, nonOcc, info);
+    if(aggr != null) gb.aggr = aggr.clone();
+    return gb;
   }
 
   @Override
@@ -275,6 +372,7 @@ public final class GroupBy extends Clause {
     final int len = preExpr.length;
     for(int p = 0; p < post.length; p++) {
       if(!used.get(post[p].id)) {
+        if(aggr != null) aggr = Array.delete(aggr, p);
         preExpr = Array.delete(preExpr, p);
         post = Array.delete(post, p--);
       }
@@ -318,7 +416,9 @@ public final class GroupBy extends Clause {
     final StringBuilder sb = new StringBuilder();
     final int pl = post.length;
     for(int p = 0; p < pl; p++) {
-      sb.append(LET).append(" (: post-group :) ").append(post[p]);
+      sb.append(LET).append(" (: post-group");
+      if(aggr != null && aggr[p] != null) sb.append(", ").append(aggr[p].args(post[p]));
+      sb.append(" :) ").append(post[p]);
       sb.append(' ').append(ASSIGN).append(' ').append(preExpr[p]).append(' ');
     }
     sb.append(GROUP).append(' ').append(BY);
@@ -405,8 +505,12 @@ public final class GroupBy extends Clause {
   private static final class Group {
     /** Grouping key, may contain {@code null} values. */
     final Item[] key;
-    /** Non-grouping variables. */
+    /** Non-grouping variables (entries are {@code null} for aggregated variables). */
     final ValueBuilder[] ngv;
+    /** Number of items of aggregated variables (can be {@code null}). */
+    final long[] counts;
+    /** Sums of aggregated variables (can be {@code null}). */
+    final Item[] sums;
     /** Overflow list. */
     Group next;
 
@@ -414,10 +518,60 @@ public final class GroupBy extends Clause {
      * Constructor.
      * @param k grouping key
      * @param ng non-grouping variables
+     * @param aggr create accumulators for aggregated variables
      */
-    Group(final Item[] k, final ValueBuilder[] ng) {
+    Group(final Item[] k, final ValueBuilder[] ng, final boolean aggr) {
       key = k;
       ngv = ng;
+      counts = aggr ? new long[ng.length] : null;
+      sums = aggr ? new Item[ng.length] : null;
+    }
+  }
+
+  /**
+   * Visitor for finding calls of aggregate functions on a non-grouping variable.
+   *
+   * @author BaseX Team 2005-15, BSD License
+   * @author Christian Gruen
+   */
+  private static final class AggrVisitor extends ASTVisitor {
+    /** Variable. */
+    private final Var var;
+    /** Aggregate function ({@code null} if none has been found, or if functions differ). */
+    private Function func;
+    /** Number of references to the variable. */
+    private int refs;
+    /** Number of references inside aggregate functions. */
+    private int calls;
+    /** Indicates if different aggregate functions have been found. */
+    private boolean mixed;
+
+    /**
+     * Constructor.
+     * @param var variable
+     */
+    AggrVisitor(final Var var) {
+      this.var = var;
+    }
+
+    @Override
+    public boolean used(final VarRef ref) {
+      if(ref.var.is(var)) refs++;
+      return true;
+    }
+
+    @Override
+    public boolean funcCall(final StandardFunc call) {
+      final Expr[] args = call.exprs;
+      if(args.length == 1 && args[0] instanceof VarRef && ((VarRef) args[0]).var.is(var)) {
+        final Function f = call.sig;
+        if(f == Function.COUNT || f == Function.SUM || f == Function.AVG) {
+          mixed |= func != null && func != f;
+          func = mixed ? null : f;
+          calls++;
+        }
+      }
+      return true;
     }
   }
 }
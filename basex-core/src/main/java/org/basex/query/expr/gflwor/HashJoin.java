@@ -0,0 +1,423 @@
+package org.basex.query.expr.gflwor;
+
+import java.util.*;
+
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.query.expr.path.*;
+import org.basex.query.iter.*;
+import org.basex.query.util.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.query.value.type.*;
+import org.basex.query.value.type.SeqType.Occ;
+import org.basex.query.var.*;
+import org.basex.util.*;
+import org.basex.util.hash.*;
+import org.basex.util.list.*;
+
+/**
+ * Hash join. Returns all items of the input sequence for which the join predicate
+ * (a general equality comparison) is successful.
+ *
+ * This expression replaces the expression of a {@code for} clause if the input sequence and
+ * the join keys are independent of the preceding clauses, and if the other operand (the probe)
+ * depends on the current tuple (example: {@code for $a in A for $b in B[key = $a/probe]}).
+ * The join keys of the input sequence are indexed once, and the resulting table is probed for
+ * each tuple. If the keys have different types that may still be comparable (e.g., untyped
+ * items and numbers), they are compared sequentially. The results are identical to those of
+ * the original filter.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class HashJoin extends ParseExpr {
+  /** Input sequence. */
+  private Expr root;
+  /** Join predicate. */
+  private Expr pred;
+  /** Offset of the operand with the join keys (depends on the context item). */
+  private int key;
+
+  /**
+   * Constructor.
+   * @param info input info
+   * @param root input sequence
+   * @param pred join predicate
+   * @param key offset of the operand with the join keys
+   */
+  private HashJoin(final InputInfo info, final Expr root, final Expr pred, final int key) {
+    super(info);
+    this.root = root;
+    this.pred = pred;
+    this.key = key;
+    seqType = SeqType.get(root.seqType().type, Occ.ZERO_MORE);
+  }
+
+  /**
+   * Tries to rewrite the expression of a {@code for} clause to a hash join.
+   * @param expr expression
+   * @param vars variables that are bound anew for each tuple of the preceding clauses
+   * @param qc query context
+   * @param scp variable scope
+   * @return hash join or {@code null}
+   * @throws QueryException query exception
+   */
+  static HashJoin get(final Expr expr, final ArrayList<Var> vars, final QueryContext qc,
+      final VarScope scp) throws QueryException {
+
+    // find last predicate
+    final Expr[] preds;
+    if(expr instanceof Filter) {
+      preds = ((Filter) expr).preds;
+    } else if(expr instanceof AxisPath) {
+      final AxisPath path = (AxisPath) expr;
+      preds = path.step(path.steps.length - 1).preds;
+    } else {
+      return null;
+    }
+    final int pl = preds.length;
+    if(pl == 0) return null;
+    final Expr pred = preds[pl - 1];
+    final int key = key(pred);
+    if(key == -1) return null;
+
+    // probe must depend on the current tuple; keys and input must be independent of it
+    final Expr probe = ((CmpG) pred).exprs[1 - key];
+    if(!uses(probe, vars) || uses(((CmpG) pred).exprs[key], vars)) return null;
+
+    final Expr root;
+    if(expr instanceof Filter) {
+      final Filter filter = (Filter) expr;
+      root = pl == 1 ? filter.root : Filter.get(filter.info, filter.root,
+          Arrays.copyOf(preds, pl - 1)).optimize(qc, scp);
+    } else {
+      root = ((AxisPath) expr).removePred().optimize(qc, scp);
+    }
+    // input must yield the same items for each tuple
+    if(root.has(Flag.NDT) || root.has(Flag.CNS) || root.has(Flag.UPD) || uses(root, vars))
+      return null;
+
+    qc.compInfo(QueryText.OPTHASH, pred);
+    return new HashJoin(((ParseExpr) expr).info, root, pred, key);
+  }
+
+  @Override
+  public void checkUp() throws QueryException {
+    checkNoneUp(root, pred);
+  }
+
+  @Override
+  public Expr compile(final QueryContext qc, final VarScope scp) throws QueryException {
+    root = root.compile(qc, scp);
+    final Value cv = qc.value;
+    qc.value = Path.initial(qc, root);
+    try {
+      pred = pred.compile(qc, scp);
+    } finally {
+      qc.value = cv;
+    }
+    return optimize(qc, scp);
+  }
+
+  @Override
+  public Expr optimize(final QueryContext qc, final VarScope scp) throws QueryException {
+    // fall back to a filter if the predicate has been rewritten
+    key = key(pred);
+    if(key == -1) return Filter.get(info, root, pred).optimize(qc, scp);
+    if(root.isEmpty()) return optPre(qc);
+    seqType = SeqType.get(root.seqType().type, Occ.ZERO_MORE);
+    return this;
+  }
+
+  @Override
+  public Iter iter(final QueryContext qc) throws QueryException {
+    return iter(table(qc), qc);
+  }
+
+  /**
+   * Evaluates the input sequence and indexes the join keys.
+   * @param qc query context
+   * @return table
+   * @throws QueryException query exception
+   */
+  Table table(final QueryContext qc) throws QueryException {
+    final Table table = new Table();
+    final Expr keys = ((CmpG) pred).exprs[key];
+    final Iter ir = qc.iter(root);
+    final Value cv = qc.value;
+    try {
+      for(Item it; (it = ir.next()) != null;) {
+        qc.checkStop();
+        final int id = table.item(it);
+        qc.value = it;
+        final Iter ki = keys.atomIter(qc, info);
+        for(Item k; (k = ki.next()) != null;) table.add(k, id, info);
+      }
+    } finally {
+      qc.value = cv;
+    }
+    return table;
+  }
+
+  /**
+   * Returns the items whose keys match the probe of the current tuple.
+   * @param table table
+   * @param qc query context
+   * @return iterator
+   * @throws QueryException query exception
+   */
+  Iter iter(final Table table, final QueryContext qc) throws QueryException {
+    final CmpG cmp = (CmpG) pred;
+    final IntList ids = new IntList();
+    final Iter ir = cmp.exprs[1 - key].atomIter(qc, info);
+    for(Item it; (it = ir.next()) != null;) table.find(it, cmp, key == 0, ids, info);
+    // return items in their original order, and only once
+    if(ids.size() > 1) ids.sort().distinct();
+
+    return new Iter() {
+      final int is = ids.size();
+      int i;
+
+      @Override
+      public Item next() {
+        return i < is ? table.items[ids.get(i++)] : null;
+      }
+    };
+  }
+
+  @Override
+  public boolean has(final Flag flag) {
+    return root.has(flag) || flag != Flag.CTX && pred.has(flag);
+  }
+
+  @Override
+  public boolean removable(final Var var) {
+    return root.removable(var) && !pred.uses(var);
+  }
+
+  @Override
+  public VarUsage count(final Var var) {
+    final VarUsage inPred = pred.count(var), inRoot = root.count(var);
+    return inPred == VarUsage.NEVER ? inRoot : VarUsage.MORE_THAN_ONCE;
+  }
+
+  @Override
+  public Expr inline(final QueryContext qc, final VarScope scp, final Var var, final Expr ex)
+      throws QueryException {
+
+    final Expr rt = root.inline(qc, scp, var, ex);
+    if(rt != null) root = rt;
+    final Expr pr = pred.inline(qc, scp, var, ex);
+    if(pr != null) pred = pr;
+    return rt != null || pr != null ? optimize(qc, scp) : null;
+  }
+
+  @Override
+  public Expr copy(final QueryContext qc, final VarScope scp, final IntObjMap<Var> vs) {
+    return copyType(new HashJoin(info, root.copy(qc, scp, vs), pred.copy(qc, scp, vs), key));
+  }
+
+  @Override
+  public boolean accept(final ASTVisitor visitor) {
+    visitor.enterFocus();
+    if(!pred.accept(visitor)) return false;
+    visitor.exitFocus();
+    return root.accept(visitor);
+  }
+
+  @Override
+  public int exprSize() {
+    return root.exprSize() + pred.exprSize() + 1;
+  }
+
+  @Override
+  public void plan(final FElem plan) {
+    addPlan(plan, planElem(), root, pred);
+  }
+
+  @Override
+  public String toString() {
+    return root + "[" + pred + ']';
+  }
+
+  /**
+   * Returns the offset of the operand with the join keys.
+   * @param pred predicate
+   * @return offset, or {@code -1} if the predicate cannot be used for a hash join
+   */
+  private static int key(final Expr pred) {
+    if(!(pred instanceof CmpG) || !((CmpG) pred).equality() || pred.has(Flag.FCS) ||
+        pred.has(Flag.NDT)) return -1;
+    final Expr[] ops = ((CmpG) pred).exprs;
+    final boolean ctx1 = ops[0].has(Flag.CTX), ctx2 = ops[1].has(Flag.CTX);
+    return ctx1 == ctx2 ? -1 : ctx1 ? 0 : 1;
+  }
+
+  /**
+   * Checks if the specified expression uses one of the specified variables.
+   * @param expr expression
+   * @param vars variables
+   * @return result of check
+   */
+  private static boolean uses(final Expr expr, final ArrayList<Var> vars) {
+    for(final Var var : vars) if(expr.uses(var)) return true;
+    return false;
+  }
+
+  /** Hash table with the join keys of the input items. */
+  static final class Table {
+    /** Key type: string or URI. */
+    private static final int STRING = 0;
+    /** Key type: untyped atomic. */
+    private static final int UNTYPED = 1;
+    /** Key type: number. */
+    private static final int NUMBER = 2;
+    /** Key type: other. */
+    private static final int OTHER = 3;
+
+    /** Input items. */
+    Item[] items = new Item[Array.CAPACITY];
+    /** Number of input items. */
+    private int size;
+
+    /** Join keys. */
+    private Item[] keys = new Item[Array.CAPACITY];
+    /** Ids of the items the keys belong to. */
+    private int[] ids = new int[Array.CAPACITY];
+    /** Hash values of the keys. */
+    private int[] hash = new int[Array.CAPACITY];
+    /** Pointers to the next key in the same bucket ({@code -1}: no next key). */
+    private int[] next = new int[Array.CAPACITY];
+    /** Hash buckets, pointing to the last key ({@code -1}: empty). */
+    private int[] buckets = new int[Array.CAPACITY];
+    /** Number of keys. */
+    private int keySize;
+    /** Number of keys per type. */
+    private final int[] types = new int[4];
+
+    /** Constructor. */
+    Table() {
+      Arrays.fill(buckets, -1);
+    }
+
+    /**
+     * Adds an input item.
+     * @param item item
+     * @return id of the item
+     */
+    int item(final Item item) {
+      if(size == items.length) items = Arrays.copyOf(items, Array.newSize(size));
+      items[size] = item;
+      return size++;
+    }
+
+    /**
+     * Adds a join key.
+     * @param item key
+     * @param id id of the input item
+     * @param ii input info
+     * @throws QueryException query exception
+     */
+    void add(final Item item, final int id, final InputInfo ii) throws QueryException {
+      if(keySize == keys.length) rehash();
+      final int t = type(item);
+      types[t]++;
+      final int h = t == OTHER ? 0 : hash(item, ii), b = h & buckets.length - 1;
+      keys[keySize] = item;
+      ids[keySize] = id;
+      hash[keySize] = h;
+      next[keySize] = buckets[b];
+      buckets[b] = keySize++;
+    }
+
+    /**
+     * Adds the ids of all input items with keys that are equal to the specified item.
+     * @param item item
+     * @param cmp comparison
+     * @param keyFirst indicates if the join keys are the first operand
+     * @param list list for the resulting ids
+     * @param ii input info
+     * @throws QueryException query exception
+     */
+    void find(final Item item, final CmpG cmp, final boolean keyFirst, final IntList list,
+        final InputInfo ii) throws QueryException {
+
+      // use hash values if items of all other types would either be unequal or raise an error
+      final int t = type(item);
+      final boolean hashed = t == STRING || t == UNTYPED ? types[NUMBER] + types[OTHER] == 0 :
+        t == NUMBER && types[STRING] + types[UNTYPED] + types[OTHER] == 0;
+      if(hashed) {
+        final int h = hash(item, ii);
+        for(int k = buckets[h & buckets.length - 1]; k != -1; k = next[k]) {
+          if(hash[k] == h && eval(k, item, cmp, keyFirst)) list.add(ids[k]);
+        }
+      } else {
+        for(int k = 0; k < keySize; k++) {
+          if(eval(k, item, cmp, keyFirst)) list.add(ids[k]);
+        }
+      }
+    }
+
+    /**
+     * Compares a key with the specified item.
+     * @param k key offset
+     * @param item item
+     * @param cmp comparison
+     * @param keyFirst indicates if the join keys are the first operand
+     * @return result of check
+     * @throws QueryException query exception
+     */
+    private boolean eval(final int k, final Item item, final CmpG cmp, final boolean keyFirst)
+        throws QueryException {
+      return keyFirst ? cmp.eval(keys[k], item) : cmp.eval(item, keys[k]);
+    }
+
+    /**
+     * Doubles the capacity of the table.
+     */
+    private void rehash() {
+      final int s = keySize << 1;
+      keys = Arrays.copyOf(keys, s);
+      ids = Arrays.copyOf(ids, s);
+      hash = Arrays.copyOf(hash, s);
+      next = Arrays.copyOf(next, s);
+      buckets = new int[s];
+      Arrays.fill(buckets, -1);
+      for(int k = 0; k < keySize; k++) {
+        final int b = hash[k] & s - 1;
+        next[k] = buckets[b];
+        buckets[b] = k;
+      }
+    }
+
+    /**
+     * Returns the key type of an item.
+     * @param item item
+     * @return type
+     */
+    private static int type(final Item item) {
+      // floats are excluded, as other numbers will be converted to floats for comparison
+      return item instanceof AStr ? STRING : item.type.isUntyped() ? UNTYPED :
+        item instanceof ANum && item.type != AtomType.FLT ? NUMBER : OTHER;
+    }
+
+    /**
+     * Computes the hash value of a string or number. Numbers are hashed by their double
+     * value, as this is the type all numbers are promoted to in comparisons.
+     * @param item item
+     * @param ii input info
+     * @return hash value
+     * @throws QueryException query exception
+     */
+    private static int hash(final Item item, final InputInfo ii) throws QueryException {
+      if(item instanceof ANum) {
+        // positive and negative zero are equal
+        final long l = Double.doubleToLongBits(item.dbl(ii) + 0d);
+        return (int) (l ^ l >>> 32);
+      }
+      return Token.hash(item.string(ii));
+    }
+  }
+}
@@ -2,25 +2,40 @@ package org.basex.query.expr.path;
 
 import static org.basex.query.QueryError.*;
 
+import java.util.*;
+
+import org.basex.core.*;
+import org.basex.data.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
+import org.basex.query.expr.ft.*;
+import org.basex.query.func.*;
 import org.basex.query.iter.*;
+import org.basex.query.util.*;
 import org.basex.query.util.list.*;
 import org.basex.query.value.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
+import org.basex.query.value.type.*;
 import org.basex.query.var.*;
 import org.basex.util.*;
 import org.basex.util.hash.*;
 
 /**
  * Iterative path expression for location paths which return sorted and
- * duplicate-free results.
+ * duplicate-free results. If the root expression yields a large number of database documents,
+ * the steps will be evaluated in parallel for disjoint chunks of documents.
  *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
  */
 final class IterPath extends AxisPath {
+  /** Minimum number of database nodes for evaluating a path in parallel. */
+  private static final int PARALLEL = 1 << 16;
+
+  /** Indicates if the steps can be evaluated in parallel ({@code null}: unknown). */
+  private Boolean parallel;
+
   /**
    * Constructor.
    * @param info input info
@@ -32,11 +47,48 @@ final class IterPath extends AxisPath {
   }
 
   @Override
-  public NodeIter iter(final QueryContext qc) {
+  public NodeIter iter(final QueryContext qc) throws QueryException {
+    // documents are disjoint: evaluate steps in parallel if the input is large enough
+    if(root != null && root.seqType().type == NodeType.DOC) {
+      final int threads = threads(qc);
+      if(threads > 1 && parallel()) {
+        final Value rt = qc.value(root);
+        final ArrayList<Value> chunks = chunks(rt, threads);
+        return chunks != null ? new ParallelIter(this, chunks, threads, qc) : iter(rt, qc);
+      }
+    }
+    return iter(root, qc);
+  }
+
+  /**
+   * Returns all nodes of this path for the specified root value.
+   * Called by worker threads of the {@link ParallelIter}.
+   * @param rt root value
+   * @param qc query context
+   * @return nodes
+   * @throws QueryException query exception
+   */
+  ANodeList nodes(final Value rt, final QueryContext qc) throws QueryException {
+    final ANodeList list = new ANodeList();
+    final NodeIter ir = iter(rt, qc);
+    for(ANode n; (n = ir.next()) != null;) {
+      qc.checkStop();
+      list.add(n);
+    }
+    return list;
+  }
+
+  /**
+   * Returns an iterator for the specified root expression.
+   * @param rt root expression; can be a {@code null} reference
+   * @param qc query context
+   * @return iterator
+   */
+  private NodeIter iter(final Expr rt, final QueryContext qc) {
     return new NodeIter() {
-      final boolean r = root != null;
+      final boolean r = rt != null;
       final int sz = steps.length + (r ? 1 : 0);
-      final Expr[] expr = r ? new ExprList(sz).add(root).add(steps).finish() : steps;
+      final Expr[] expr = r ? new ExprList(sz).add(rt).add(steps).finish() : steps;
       final Iter[] iter = new Iter[sz];
       ANode node;
       int pos = -1;
@@ -91,6 +143,107 @@ final class IterPath extends AxisPath {
     };
   }
 
+  /**
+   * Returns the number of threads that may be used for evaluating the path.
+   * @param qc query context
+   * @return number of threads
+   */
+  private static int threads(final QueryContext qc) {
+    final int threads = qc.context.options.get(MainOptions.PATHTHREADS);
+    return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Checks if the steps can be evaluated by worker threads. This is the case if the steps
+   * have no side effects, if they do not reference variables that are declared outside
+   * the steps, and if they contain no full-text expressions, which cache evaluation results.
+   * The bodies of called functions are checked as well.
+   * @return result of check
+   */
+  private boolean parallel() {
+    if(parallel == null) {
+      final BitSet declared = new BitSet();
+      final IdentityHashMap<StaticFunc, Boolean> funcs = new IdentityHashMap<>();
+      final ASTVisitor visitor = new ASTVisitor() {
+        @Override
+        public boolean declared(final Var var) {
+          declared.set(var.id);
+          return true;
+        }
+
+        @Override
+        public boolean used(final VarRef ref) {
+          return declared.get(ref.var.id);
+        }
+
+        @Override
+        public boolean staticFuncCall(final StaticFuncCall call) {
+          final StaticFunc func = call.func();
+          return func == null || funcs.put(func, Boolean.TRUE) != null || func.visit(this);
+        }
+
+        @Override
+        public boolean ftExpr(final FTExpr expr) {
+          return false;
+        }
+      };
+      boolean p = true;
+      for(final Expr step : steps) {
+        p &= !step.has(Flag.NDT) && !step.has(Flag.UPD) && !step.has(Flag.HOF) &&
+            step.accept(visitor);
+      }
+      parallel = p;
+    }
+    return parallel;
+  }
+
+  /**
+   * Divides the root nodes into chunks with a similar number of descendants.
+   * @param rt root value
+   * @param threads number of threads
+   * @return chunks, or {@code null} if the path should be evaluated sequentially
+   */
+  private static ArrayList<Value> chunks(final Value rt, final int threads) {
+    final long rs = rt.size();
+    if(rs < 2) return null;
+
+    // only consider database documents; sum up their sizes
+    long total = 0;
+    for(long r = 0; r < rs; r++) {
+      final Item it = rt.itemAt(r);
+      if(!(it instanceof DBNode)) return null;
+      total += size((DBNode) it);
+    }
+    if(total < PARALLEL) return null;
+
+    final long max = Math.max(1, total / (threads * 4L));
+    final ArrayList<Value> chunks = new ArrayList<>();
+    ValueBuilder vb = new ValueBuilder();
+    long size = 0;
+    for(long r = 0; r < rs; r++) {
+      final DBNode node = (DBNode) rt.itemAt(r);
+      vb.add(node);
+      size += size(node);
+      if(size >= max) {
+        chunks.add(vb.value());
+        vb = new ValueBuilder();
+        size = 0;
+      }
+    }
+    if(vb.size() != 0) chunks.add(vb.value());
+    return chunks.size() > 1 ? chunks : null;
+  }
+
+  /**
+   * Returns the number of nodes of the specified database node and its descendants.
+   * @param node database node
+   * @return size
+   */
+  private static int size(final DBNode node) {
+    final Data data = node.data();
+    return data.size(node.pre, data.kind(node.pre));
+  }
+
   @Override
   public IterPath copy(final QueryContext qc, final VarScope scp, final IntObjMap<Var> vs) {
     final Expr rt = root == null ? null : root.copy(qc, scp, vs);
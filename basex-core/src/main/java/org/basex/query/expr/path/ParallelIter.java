@@ -0,0 +1,207 @@
+package org.basex.query.expr.path;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.basex.core.*;
+import org.basex.query.*;
+import org.basex.query.iter.*;
+import org.basex.query.util.list.*;
+import org.basex.query.value.*;
+import org.basex.query.value.node.*;
+import org.basex.util.*;
+
+/**
+ * Iterator, which evaluates the steps of a path for chunks of root nodes in worker threads.
+ * The results are returned in the order of the chunks. The number of chunks that are evaluated
+ * in advance is limited by the number of threads. Pending evaluations will be stopped if an
+ * error is raised, or if the query is closed before all results have been requested.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class ParallelIter extends NodeIter {
+  /** Interval for checking if the query has been stopped (ms). */
+  private static final int INTERVAL = 100;
+  /** Worker threads. */
+  private static final ExecutorService WORKERS = Executors.newCachedThreadPool(
+    new ThreadFactory() {
+      @Override
+      public Thread newThread(final Runnable r) {
+        final Thread thread = new Thread(r, "PathWorker");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+
+  /** Path. */
+  private final IterPath path;
+  /** Chunks of root nodes. */
+  private final ArrayList<Value> chunks;
+  /** Maximum number of chunks that are evaluated at the same time. */
+  private final int threads;
+  /** Query context. */
+  private final QueryContext qc;
+  /** Registered evaluations. */
+  private final Evaluations evals;
+
+  /** Results of chunks that are currently evaluated. */
+  private final ArrayDeque<Future<ANodeList>> results = new ArrayDeque<>();
+  /** Query contexts of chunks that are currently evaluated. */
+  private final ArrayDeque<QueryContext> contexts = new ArrayDeque<>();
+  /** Index of next chunk to be evaluated. */
+  private int chunk;
+  /** Current nodes (may be {@code null}). */
+  private ANodeList nodes;
+  /** Position of next node. */
+  private int pos;
+
+  /**
+   * Constructor.
+   * @param path path
+   * @param chunks chunks of root nodes
+   * @param threads maximum number of threads
+   * @param qc query context
+   */
+  ParallelIter(final IterPath path, final ArrayList<Value> chunks, final int threads,
+      final QueryContext qc) {
+    this.path = path;
+    this.chunks = chunks;
+    this.threads = threads;
+    this.qc = qc;
+
+    final QueryResources res = qc.resources;
+    synchronized(res) {
+      Evaluations ev = res.get(Evaluations.class);
+      if(ev == null) {
+        ev = new Evaluations();
+        res.add(ev);
+      }
+      evals = ev;
+    }
+    evals.add(this);
+  }
+
+  @Override
+  public ANode next() throws QueryException {
+    while(nodes == null || pos == nodes.size()) {
+      // start evaluation of next chunks
+      final int cs = chunks.size();
+      while(chunk < cs && results.size() < threads) {
+        final Value rt = chunks.get(chunk);
+        chunks.set(chunk++, null);
+        final QueryContext qctx = qc.fork();
+        results.add(WORKERS.submit(new Callable<ANodeList>() {
+          @Override
+          public ANodeList call() throws QueryException {
+            return path.nodes(rt, qctx);
+          }
+        }));
+        contexts.add(qctx);
+      }
+      if(results.isEmpty()) {
+        evals.remove(this);
+        return null;
+      }
+      nodes = result();
+      pos = 0;
+    }
+    return nodes.get(pos++);
+  }
+
+  /**
+   * Waits for the result of the next chunk.
+   * @return nodes
+   * @throws QueryException query exception
+   */
+  private ANodeList result() throws QueryException {
+    final Future<ANodeList> future = results.poll();
+    final QueryContext qctx = contexts.poll();
+    boolean ok = false;
+    try {
+      while(true) {
+        qc.checkStop();
+        try {
+          final ANodeList list = future.get(INTERVAL, TimeUnit.MILLISECONDS);
+          ok = true;
+          return list;
+        } catch(final TimeoutException ex) {
+          // check again if query was stopped
+        }
+      }
+    } catch(final InterruptedException ex) {
+      throw new ProcException();
+    } catch(final ExecutionException ex) {
+      final Throwable th = ex.getCause();
+      if(th instanceof QueryException) throw (QueryException) th;
+      if(th instanceof RuntimeException) throw (RuntimeException) th;
+      throw (Error) th;
+    } finally {
+      if(!ok) {
+        qctx.stop();
+        finish(future);
+        cancel();
+        evals.remove(this);
+      }
+    }
+  }
+
+  /**
+   * Stops the evaluation of all pending chunks and waits until the workers have finished.
+   */
+  private void cancel() {
+    for(final QueryContext qctx : contexts) qctx.stop();
+    for(final Future<ANodeList> future : results) finish(future);
+    contexts.clear();
+    results.clear();
+    chunk = chunks.size();
+  }
+
+  /**
+   * Waits until the specified evaluation has finished. Errors will be ignored.
+   * @param future future
+   */
+  private static void finish(final Future<ANodeList> future) {
+    try {
+      future.get();
+    } catch(final Exception ex) {
+      // evaluation has been stopped or has failed
+      Util.debug(ex);
+    }
+  }
+
+  /**
+   * Parallel path evaluations of a query. All evaluations that are still pending
+   * will be stopped when the query is closed.
+   */
+  static final class Evaluations implements QueryResource {
+    /** Registered iterators. */
+    private final ArrayList<ParallelIter> iters = new ArrayList<>();
+
+    /**
+     * Registers an iterator.
+     * @param iter iterator
+     */
+    synchronized void add(final ParallelIter iter) {
+      iters.add(iter);
+    }
+
+    /**
+     * Unregisters an iterator.
+     * @param iter iterator
+     */
+    synchronized void remove(final ParallelIter iter) {
+      iters.remove(iter);
+    }
+
+    @Override
+    public void close() {
+      final ParallelIter[] its;
+      synchronized(this) {
+        its = iters.toArray(new ParallelIter[iters.size()]);
+        iters.clear();
+      }
+      for(final ParallelIter iter : its) iter.cancel();
+    }
+  }
+}
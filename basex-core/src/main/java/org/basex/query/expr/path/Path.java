@@ -239,6 +239,19 @@ public abstract class Path extends ParseExpr {
     return get(info, root, steps);
   }
 
+  /**
+   * Removes the last predicate of the last step.
+   * @return resulting path instance
+   */
+  public final Path removePred() {
+    final int ls = steps.length - 1;
+    final Step step = axisStep(ls);
+    final Expr[] stps = steps.clone();
+    stps[ls] = Step.get(step.info, step.axis, step.test,
+        Arrays.copyOf(step.preds, step.preds.length - 1));
+    return get(info, root, stps);
+  }
+
   /**
    * Returns the path nodes that will result from this path.
    * @param qc query context
@@ -721,6 +721,9 @@ public enum Function {
   /** XQuery function. */
   _CSV_PARSE(CsvParse.class, "parse(string[,config])", arg(STR, MAP_O), ITEM, CSV_URI),
   /** XQuery function. */
+  _CSV_PARSE_STREAM(CsvParseStream.class, "parse-stream(uri[,config])",
+      arg(STR, MAP_O), ITEM_ZM, flag(NDT), CSV_URI),
+  /** XQuery function. */
   _CSV_SERIALIZE(CsvSerialize.class, "serialize(item[,params])", arg(ITEM_ZO, ITEM_ZO), STR,
       CSV_URI),
 
@@ -879,8 +882,9 @@ public enum Function {
   _FILE_READ_TEXT(FileReadText.class, "read-text(path[,encoding])",
       arg(STR, STR), STR, flag(NDT), FILE_URI),
   /** XQuery function. */
-  _FILE_READ_TEXT_LINES(FileReadTextLines.class, "read-text-lines(path[,encoding])",
-      arg(STR, STR), STR_ZM, flag(NDT), FILE_URI),
+  _FILE_READ_TEXT_LINES(FileReadTextLines.class,
+      "read-text-lines(path[,encoding[,offset[,length]]])",
+      arg(STR, STR, ITR, ITR), STR_ZM, flag(NDT), FILE_URI),
   /** XQuery function. */
   _FILE_READ_BINARY(FileReadBinary.class, "read-binary(path[,offset[,length]])",
       arg(STR, ITR, ITR), B64, flag(NDT), FILE_URI),
@@ -1030,6 +1034,9 @@ public enum Function {
   /** XQuery function. */
   _JSON_PARSE(JsonParse.class, "parse(string[,config])", arg(STR, MAP_O), ITEM, JSON_URI),
   /** XQuery function. */
+  _JSON_PARSE_STREAM(JsonParseStream.class, "parse-stream(uri[,config[,keys]])",
+      arg(STR, MAP_O, STR_ZM), ITEM_ZM, flag(NDT), JSON_URI),
+  /** XQuery function. */
   _JSON_SERIALIZE(JsonSerialize.class, "serialize(items[,params])", arg(ITEM_ZO, ITEM_ZO), STR,
       JSON_URI),
 
@@ -1193,6 +1200,9 @@ public enum Function {
       arg(STR, ITEM), NOD, flag(NDT), XQUERY_URI),
   /** XQuery function. */
   _XQUERY_TYPE(XQueryType.class, "type(value)", arg(ITEM_ZM), ITEM_ZM, XQUERY_URI),
+  /** XQuery function. */
+  _XQUERY_FORK_JOIN(XQueryForkJoin.class, "fork-join(functions)",
+      arg(FUN_ZM), ITEM_ZM, flag(HOF, NDT), XQUERY_URI),
 
   /* XSLT Module. */
 
@@ -115,6 +115,29 @@ public final class StaticFunc extends StaticDecl implements XQFunction {
     return tb.toString();
   }
 
+  /**
+   * Returns the copy of this function that has been created for the specified query context.
+   * If no parsed query is being copied, the function itself is returned.
+   * @param qc query context
+   * @param vs mapping from old variable IDs to new variable copies
+   * @return function
+   */
+  StaticFunc copy(final QueryContext qc, final IntObjMap<Var> vs) {
+    if(qc.copies == null) return this;
+    StaticFunc sf = (StaticFunc) qc.copies.get(this);
+    if(sf == null) {
+      final VarScope scp = scope.copy(qc, vs);
+      final int al = args.length;
+      final Var[] as = new Var[al];
+      for(int a = 0; a < al; a++) as[a] = vs.get(args[a].id);
+      sf = new StaticFunc(anns, name, as, declType, null, sc, scp, docString(), info);
+      qc.copies.put(this, sf);
+      qc.funcs.add(sf);
+      if(expr != null) sf.expr = expr.copy(qc, scp, vs);
+    }
+    return sf;
+  }
+
   /**
    * Checks if this function calls itself recursively.
    * @return result of check
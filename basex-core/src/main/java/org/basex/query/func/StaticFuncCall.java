@@ -83,7 +83,7 @@ public final class StaticFuncCall extends FuncCall {
   @Override
   public StaticFuncCall copy(final QueryContext qc, final VarScope scp, final IntObjMap<Var> vs) {
     final Expr[] args = Arr.copyAll(qc, scp, vs, exprs);
-    final StaticFuncCall call = new StaticFuncCall(name, args, sc, func, info);
+    final StaticFuncCall call = new StaticFuncCall(name, args, sc, func.copy(qc, vs), info);
     call.seqType = seqType;
     call.size = size;
     return call;
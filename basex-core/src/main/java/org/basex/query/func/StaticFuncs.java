@@ -68,6 +68,26 @@ public final class StaticFuncs extends ExprInfo {
     return fn;
   }
 
+  /**
+   * Adds copies of the functions of a parsed query.
+   * @param parsed functions of the parsed query
+   * @param qc query context
+   * @param vs mapping from old variable IDs to new variable copies
+   */
+  public void copy(final StaticFuncs parsed, final QueryContext qc, final IntObjMap<Var> vs) {
+    // functions are copied on demand: retain the original order
+    for(final byte[] sig : parsed.funcs) funcs.put(sig, new FuncCache(null));
+    for(final FuncCache fc : parsed.funcs.values()) fc.func.copy(qc, vs);
+  }
+
+  /**
+   * Adds a copied function.
+   * @param sf function
+   */
+  void add(final StaticFunc sf) {
+    funcs.get(sf.id()).func = sf;
+  }
+
   /**
    * Creates a reference to an already declared or referenced function.
    * @param name name of the function
@@ -27,6 +27,8 @@ public final class AdminLogs extends AdminFn {
   @Override
   public Iter iter(final QueryContext qc) throws QueryException {
     checkAdmin(qc);
+    // write pending log entries
+    qc.context.log.flush();
 
     final ValueBuilder vb = new ValueBuilder();
     if(exprs.length == 0) {
@@ -2,8 +2,7 @@ package org.basex.query.func.array;
 
 import org.basex.query.*;
 import org.basex.query.iter.*;
-import org.basex.query.util.list.*;
-import org.basex.query.value.*;
+import org.basex.query.value.array.Array;
 import org.basex.query.value.item.*;
 import org.basex.util.*;
 
@@ -16,11 +15,9 @@ import org.basex.util.*;
 public final class ArrayJoin extends ArrayFn {
   @Override
   public Item item(final QueryContext qc, final InputInfo ii) throws QueryException {
-    final ValueList vl = new ValueList();
+    Array array = Array.EMPTY;
     final Iter ir = qc.iter(exprs[0]);
-    for(Item it; (it = ir.next()) != null;) {
-      for(final Value v : toArray(it).members()) vl.add(v);
-    }
-    return vl.array();
+    for(Item it; (it = ir.next()) != null;) array = array.concat(toArray(it));
+    return array;
   }
 }
@@ -1,8 +1,6 @@
 package org.basex.query.func.array;
 
 import org.basex.query.*;
-import org.basex.query.util.list.*;
-import org.basex.query.value.array.Array;
 import org.basex.query.value.item.*;
 import org.basex.util.*;
 
@@ -15,10 +13,6 @@ import org.basex.util.*;
 public final class ArrayReverse extends ArrayFn {
   @Override
   public Item item(final QueryContext qc, final InputInfo ii) throws QueryException {
-    final Array array = toArray(exprs[0], qc);
-    final int as = array.arraySize();
-    final ValueList vl = new ValueList(as);
-    for(int a = as - 1; a >= 0; a--) vl.add(array.get(a));
-    return vl.array();
+    return toArray(exprs[0], qc).reverse();
   }
 }
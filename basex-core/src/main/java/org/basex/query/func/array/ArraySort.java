@@ -29,7 +29,7 @@ public final class ArraySort extends StandardFunc {
       for(final Value v : value.members()) vl.add(v);
     }
 
-    final Integer[] order = FnSort.sort(vl, this);
+    final int[] order = FnSort.sort(vl, this, qc);
     final ValueList tmp = new ValueList(sz);
     for(int r = 0; r < sz; r++) tmp.add(value.get(order[r]));
     return tmp.array();
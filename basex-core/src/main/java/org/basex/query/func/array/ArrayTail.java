@@ -15,6 +15,6 @@ public final class ArrayTail extends ArrayFn {
   @Override
   public Item item(final QueryContext qc, final InputInfo ii) throws QueryException {
     final Array array = toArray(exprs[0], qc);
-    return Array.get(array, checkPos(array, 1) + 1, array.arraySize() - 1);
+    return array.subArray(checkPos(array, 1) + 1, array.arraySize() - 1);
   }
 }
@@ -0,0 +1,55 @@
+package org.basex.query.func.csv;
+
+import static org.basex.query.QueryError.*;
+
+import java.io.*;
+
+import org.basex.build.csv.*;
+import org.basex.io.*;
+import org.basex.io.parse.csv.*;
+import org.basex.query.*;
+import org.basex.query.iter.*;
+import org.basex.query.value.item.*;
+import org.basex.util.*;
+
+/**
+ * Function implementation.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class CsvParseStream extends CsvFn {
+  @Override
+  public Iter iter(final QueryContext qc) throws QueryException {
+    checkCreate(qc);
+    final IO io = checkPath(exprs[0], qc);
+    final CsvParserOptions opts = toOptions(1, Q_OPTIONS, new CsvParserOptions(), qc);
+    final CsvConverter conv = CsvConverter.get(opts);
+    try {
+      conv.open(io);
+    } catch(final IOException ex) {
+      throw BXCS_PARSE_X.get(info, ex);
+    }
+    // the input will be closed with the query if the iterator is not fully consumed
+    final QueryResources rs = qc.resources;
+    rs.register(conv);
+    return new Iter() {
+      @Override
+      public Item next() throws QueryException {
+        qc.checkStop();
+        try {
+          final Item it = conv.next();
+          if(it == null) rs.close(conv);
+          return it;
+        } catch(final IOException ex) {
+          try {
+            rs.close(conv);
+          } catch(final IOException e) {
+            Util.debug(e);
+          }
+          throw BXCS_PARSE_X.get(info, ex);
+        }
+      }
+    };
+  }
+}
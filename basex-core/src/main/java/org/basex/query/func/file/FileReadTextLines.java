@@ -1,8 +1,18 @@
 package org.basex.query.func.file;
 
+import static org.basex.query.QueryError.*;
+import static org.basex.util.Strings.*;
+
+import java.io.*;
+import java.nio.file.*;
+
+import org.basex.core.*;
+import org.basex.io.*;
+import org.basex.io.in.*;
 import org.basex.query.*;
-import org.basex.query.func.fn.*;
 import org.basex.query.iter.*;
+import org.basex.query.value.item.*;
+import org.basex.util.*;
 
 /**
  * Function implementation.
@@ -14,6 +24,128 @@ public final class FileReadTextLines extends FileRead {
   @Override
   public Iter iter(final QueryContext qc) throws QueryException {
     checkCreate(qc);
-    return Parse.textIter(text(qc).string(info));
+    final Path path = toPath(0, qc);
+    final String enc = toEncoding(1, FILE_UNKNOWN_ENCODING_X, qc);
+    final long off = exprs.length > 2 ? toLong(exprs[2], qc) : 0;
+    long len = exprs.length > 3 ? toLong(exprs[3], qc) : 0;
+
+    if(!Files.exists(path)) throw FILE_NOT_FOUND_X.get(info, path);
+    if(Files.isDirectory(path)) throw FILE_IS_DIR_X.get(info, path);
+
+    final IOFile file = new IOFile(path.toFile());
+    final long flen = file.length();
+    if(exprs.length < 4) len = flen - off;
+    if(off < 0 || off > flen || len < 0 || off + len > flen)
+      throw FILE_OUT_OF_RANGE_X_X.get(info, off, off + len);
+
+    final boolean valid = qc.context.options.get(MainOptions.CHECKSTRINGS);
+    try {
+      return lines(file, enc, off, off + len, valid, qc);
+    } catch(final IOException ex) {
+      throw FILE_IO_ERROR_X.get(info, ex);
+    }
+  }
+
+  /**
+   * Returns an iterator over all lines that start in the specified byte range.
+   * The file is read and decoded incrementally. If the range does not start at
+   * the beginning of a line, the first (incomplete) line will be skipped.
+   * @param file file
+   * @param encoding encoding (may be {@code null})
+   * @param start byte offset of the range
+   * @param end byte offset after the range
+   * @param valid validate characters
+   * @param qc query context
+   * @return iterator
+   * @throws IOException I/O exception
+   */
+  private Iter lines(final IOFile file, final String encoding, final long start,
+      final long end, final boolean valid, final QueryContext qc) throws IOException {
+
+    // without offset, the text input will guess the encoding by itself
+    String enc = encoding;
+    if(start > 0 && enc == null) {
+      try(final TextInput ti = new TextInput(file)) {
+        enc = ti.encoding();
+      }
+    }
+
+    final FileInputStream fis = new FileInputStream(file.file());
+    final NewlineInput nli;
+    final long offset;
+    try {
+      // skip incomplete line before decoding the input
+      offset = start > 0 ? lineStart(fis, enc, start) : 0;
+      fis.getChannel().position(offset);
+      nli = new NewlineInput(fis);
+      nli.encoding(enc).validate(valid);
+    } catch(final IOException ex) {
+      fis.close();
+      throw ex;
+    }
+    // the stream will be closed with the query if the iterator is not fully consumed
+    final QueryResources rs = qc.resources;
+    rs.register(nli);
+
+    final TokenBuilder tb = new TokenBuilder();
+    return new Iter() {
+      boolean more = true;
+
+      @Override
+      public Item next() throws QueryException {
+        if(!more) return null;
+        try {
+          if(offset + nli.position() < end && nli.readLine(tb)) return Str.get(tb.toArray());
+          more = false;
+          rs.close(nli);
+          return null;
+        } catch(final IOException ex) {
+          more = false;
+          try {
+            rs.close(nli);
+          } catch(final IOException e) {
+            Util.debug(e);
+          }
+          throw FILE_IO_ERROR_X.get(info, ex);
+        }
+      }
+    };
+  }
+
+  /**
+   * Returns the byte offset of the first line that starts at or after the specified offset.
+   * Newlines are detected at byte level, so the decoder will always start at a character
+   * boundary.
+   * @param fis file input stream
+   * @param enc encoding
+   * @param start byte offset of the range
+   * @return offset of the first line
+   * @throws IOException I/O exception
+   */
+  private static long lineStart(final FileInputStream fis, final String enc, final long start)
+      throws IOException {
+
+    // size of a code unit, and position of the significant byte
+    final int unit = enc == UTF32 ? 4 : enc == UTF16 || enc == UTF16LE || enc == UTF16BE ? 2 : 1;
+    final int sig = enc == UTF16LE ? 0 : unit - 1;
+    // start with the preceding code unit to find out if the range starts with a new line
+    long pos = (start - 1) / unit * unit;
+    fis.getChannel().position(pos);
+    final BufferInput bi = new BufferInput(fis);
+    boolean cr = false;
+    while(true) {
+      int ch = 0;
+      for(int u = 0; u < unit; u++) {
+        final int b = bi.read();
+        if(b == -1) return pos;
+        if(u == sig) ch = b;
+        else if(b != 0) ch = -1;
+      }
+      // carriage return: check if it is followed by a newline
+      if(cr && ch != '\n') return pos;
+      pos += unit;
+      if(ch == '\n') return pos;
+      cr = ch == '\r';
+    }
   }
 }
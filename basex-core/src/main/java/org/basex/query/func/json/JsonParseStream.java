@@ -0,0 +1,70 @@
+package org.basex.query.func.json;
+
+import static org.basex.query.QueryError.*;
+
+import java.io.*;
+
+import org.basex.build.json.*;
+import org.basex.io.*;
+import org.basex.io.parse.json.*;
+import org.basex.query.*;
+import org.basex.query.iter.*;
+import org.basex.query.value.item.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * Function implementation.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class JsonParseStream extends JsonFn {
+  @Override
+  public Iter iter(final QueryContext qc) throws QueryException {
+    checkCreate(qc);
+    final IO io = checkPath(exprs[0], qc);
+    final JsonParserOptions opts = toOptions(1, Q_OPTIONS, new JsonParserOptions(), qc);
+    final TokenList keys = new TokenList();
+    if(exprs.length > 2) {
+      final Iter ir = qc.iter(exprs[2]);
+      for(Item it; (it = ir.next()) != null;) keys.add(toToken(it));
+    }
+
+    final JsonMembers members;
+    try {
+      members = new JsonMembers(io, opts, keys.finish());
+    } catch(final IOException ex) {
+      throw BXJS_PARSE_X_X_X.get(info, 1, 1, ex);
+    }
+    // the input will be closed with the query if the iterator is not fully consumed
+    final QueryResources rs = qc.resources;
+    rs.register(members);
+    return new Iter() {
+      @Override
+      public Item next() throws QueryException {
+        qc.checkStop();
+        try {
+          final Item it = members.next();
+          if(it == null) close();
+          return it;
+        } catch(final QueryIOException ex) {
+          close();
+          throw ex.getCause(info);
+        } catch(final IOException ex) {
+          close();
+          throw BXJS_PARSE_X_X_X.get(info, 1, 1, ex);
+        }
+      }
+
+      /** Closes the input. */
+      private void close() {
+        try {
+          rs.close(members);
+        } catch(final IOException ex) {
+          Util.debug(ex);
+        }
+      }
+    };
+  }
+}
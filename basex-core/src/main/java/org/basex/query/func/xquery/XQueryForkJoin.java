@@ -0,0 +1,172 @@
+package org.basex.query.func.xquery;
+
+import static org.basex.query.QueryError.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.basex.core.*;
+import org.basex.query.*;
+import org.basex.query.ann.*;
+import org.basex.query.expr.*;
+import org.basex.query.func.*;
+import org.basex.query.iter.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.seq.*;
+import org.basex.query.value.type.*;
+import org.basex.util.*;
+
+/**
+ * Function implementation.
+ *
+ * Zero-arity function items are evaluated in parallel. Each function is invoked with a separate
+ * query context, which shares the resources (opened databases, documents) of the calling query.
+ * No additional locks are acquired: all databases that are accessed by the functions must
+ * already be locked by the calling query. If a function raises an error, all other functions
+ * will be stopped.
+ *
+ * All queries share a pool with a fixed number of worker threads. Functions that have not been
+ * picked up by a worker yet are evaluated by the calling thread, so nested calls cannot block
+ * each other if all workers are busy.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class XQueryForkJoin extends StandardFunc {
+  /** Interval for checking if the calling query has been stopped (ms). */
+  private static final int INTERVAL = 100;
+  /** Worker threads. */
+  private static final ExecutorService WORKERS = Executors.newFixedThreadPool(
+    Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+      @Override
+      public Thread newThread(final Runnable r) {
+        final Thread thread = new Thread(r, "ForkJoinWorker");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+
+  @Override
+  public Iter iter(final QueryContext qc) throws QueryException {
+    return value(qc).iter();
+  }
+
+  @Override
+  public Value value(final QueryContext qc) throws QueryException {
+    final ArrayList<FItem> funcs = new ArrayList<>();
+    final Iter ir = qc.iter(exprs[0]);
+    for(Item it; (it = ir.next()) != null;) {
+      final FItem func = (FItem) checkType(it, FuncType.ANY_FUN);
+      if(func.arity() != 0) {
+        final Expr e = func instanceof FuncItem ? ((FuncItem) func).expr : func;
+        throw INVARITY_X_X_X_X.get(info, e, 0, "s", func.arity());
+      }
+      if(func.annotations().contains(Annotation.UPDATING)) throw BXXQ_UPDATING.get(info);
+      funcs.add(func);
+    }
+
+    final int fs = funcs.size();
+    if(fs == 0) return Empty.SEQ;
+    if(fs == 1) return funcs.get(0).invokeValue(qc, info);
+
+    final Task[] tasks = new Task[fs];
+    for(int f = 0; f < fs; f++) {
+      tasks[f] = new Task(funcs.get(f), qc.fork());
+      WORKERS.execute(tasks[f]);
+    }
+    final Value[] values = new Value[fs];
+    boolean ok = false;
+    try {
+      // evaluate functions in the calling thread that have not been picked up by a worker yet
+      for(int f = 0; f < fs; f++) {
+        final Task task = tasks[f];
+        if(task.start()) task.value = task.func.invokeValue(qc, info);
+      }
+      // wait for the remaining results; stop evaluation if the calling query is stopped
+      for(int f = 0; f < fs; f++) {
+        final Task task = tasks[f];
+        while(!task.done.await(INTERVAL, TimeUnit.MILLISECONDS)) qc.checkStop();
+        final Throwable th = task.error;
+        if(th instanceof QueryException) throw (QueryException) th;
+        if(th instanceof RuntimeException) throw (RuntimeException) th;
+        if(th != null) throw (Error) th;
+        values[f] = task.value;
+      }
+      ok = true;
+    } catch(final InterruptedException ex) {
+      throw new ProcException();
+    } finally {
+      // fail fast: skip or stop all functions that are still running, and wait until they
+      // have finished
+      if(!ok) {
+        for(final Task task : tasks) {
+          if(!task.start()) task.qc.stop();
+        }
+        for(final Task task : tasks) {
+          try {
+            task.done.await();
+          } catch(final InterruptedException ex) {
+            Util.debug(ex);
+          }
+        }
+      }
+    }
+
+    final ValueBuilder vb = new ValueBuilder();
+    for(final Value value : values) vb.add(value);
+    return vb.value();
+  }
+
+  /**
+   * Function that is evaluated by a worker thread or by the calling thread.
+   */
+  private final class Task implements Runnable {
+    /** Function. */
+    private final FItem func;
+    /** Query context of the worker thread. */
+    private final QueryContext qc;
+    /** Signals that the evaluation has finished or will be skipped. */
+    private final CountDownLatch done = new CountDownLatch(1);
+    /** Indicates if the evaluation has been started or skipped. */
+    private final AtomicBoolean started = new AtomicBoolean();
+    /** Result. */
+    private Value value;
+    /** Error. */
+    private Throwable error;
+
+    /**
+     * Constructor.
+     * @param func function
+     * @param qc query context of the worker thread
+     */
+    private Task(final FItem func, final QueryContext qc) {
+      this.func = func;
+      this.qc = qc;
+    }
+
+    /**
+     * Claims the function for evaluation. If the claim is successful, the task will be
+     * marked as done, and the worker thread will skip it.
+     * @return {@code true} if the function has not been claimed before
+     */
+    private boolean start() {
+      if(!started.compareAndSet(false, true)) return false;
+      done.countDown();
+      return true;
+    }
+
+    @Override
+    public void run() {
+      if(!started.compareAndSet(false, true)) return;
+      try {
+        value = func.invokeValue(qc, info);
+      } catch(final Throwable th) {
+        error = th;
+      } finally {
+        done.countDown();
+      }
+    }
+  }
+}
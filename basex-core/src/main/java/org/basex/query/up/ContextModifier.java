@@ -129,7 +129,7 @@ public abstract class ContextModifier {
     } finally {
       // remove locks: in case of a crash, remove only already acquired write locks
       for(final Data data : datas) {
-        data.finishUpdate(qc.context.options);
+        qc.context.finishUpdate(data);
       }
     }
 
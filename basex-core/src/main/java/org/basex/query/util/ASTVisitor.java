@@ -2,6 +2,7 @@ package org.basex.query.util;
 
 import org.basex.query.*;
 import org.basex.query.expr.*;
+import org.basex.query.expr.ft.*;
 import org.basex.query.func.*;
 import org.basex.query.value.item.*;
 import org.basex.query.var.*;
@@ -63,6 +64,16 @@ public abstract class ASTVisitor {
     return true;
   }
 
+  /**
+   * Notifies the visitor of a built-in function call.
+   * @param call function call
+   * @return if more expressions should be visited
+   */
+  @SuppressWarnings("unused")
+  public boolean funcCall(final StandardFunc call) {
+    return true;
+  }
+
   /**
    * Notifies the visitor of a dynamic function call.
    * @param call function call
@@ -83,6 +94,16 @@ public abstract class ASTVisitor {
     return true;
   }
 
+  /**
+   * Notifies the visitor of a full-text expression.
+   * @param expr full-text expression
+   * @return if more expressions should be visited
+   */
+  @SuppressWarnings("unused")
+  public boolean ftExpr(final FTExpr expr) {
+    return true;
+  }
+
   /**
    * Notifies the visitor of a database lock.
    * @param db database to be locked
@@ -63,6 +63,7 @@ public final class DataBuilder {
    */
   public void build(final ANodeList nodes) {
     data.meta.update();
+    data.meta.uptodate = false;
     int ds = data.meta.size;
     for(final ANode n : nodes) ds = addNode(n, ds, -1, null);
   }
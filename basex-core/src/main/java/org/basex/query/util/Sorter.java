@@ -0,0 +1,482 @@
+package org.basex.query.util;
+
+import static org.basex.query.QueryError.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.basex.query.*;
+import org.basex.query.iter.*;
+import org.basex.query.util.collation.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.util.*;
+
+/**
+ * This class computes a stable sort order for a list of entries.
+ * The sort keys are added column by column. If all keys of a column are integers, doubles, or
+ * strings compared by codepoints, they are stored in primitive arrays.
+ * Larger inputs are sorted in parallel by a fork/join merge sort.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class Sorter {
+  /** Minimum number of entries for sorting a partition in parallel. */
+  private static final int PARALLEL = 1 << 13;
+  /** Maximum number of entries for insertion sort. */
+  private static final int INSERTION = 1 << 4;
+
+  /** Sort key columns. */
+  private final ArrayList<Column> columns = new ArrayList<>();
+  /** Number of entries. */
+  private final int size;
+  /** Query context. */
+  private final QueryContext qc;
+
+  /**
+   * Constructor.
+   * @param size number of entries
+   * @param qc query context
+   */
+  public Sorter(final int size, final QueryContext qc) {
+    this.size = size;
+    this.qc = qc;
+  }
+
+  /**
+   * Adds a column with single sort keys, as specified by the {@code order by} clause.
+   * {@code null} and {@code NaN} are treated as empty keys.
+   * @param keys sort keys (can contain {@code null} references)
+   * @param desc descending order
+   * @param least empty keys are sorted first
+   * @param coll collation (can be {@code null})
+   * @param info input info
+   * @throws QueryException query exception
+   */
+  public void add(final Item[] keys, final boolean desc, final boolean least,
+      final Collation coll, final InputInfo info) throws QueryException {
+
+    boolean[] empty = null;
+    for(int i = 0; i < size; i++) {
+      final Item it = keys[i];
+      if(it == null || it == Dbl.NAN || it == Flt.NAN) {
+        if(empty == null) empty = new boolean[size];
+        empty[i] = true;
+      }
+    }
+    Column col = primitive(keys, empty, coll, desc, least);
+    if(col == null) {
+      for(int i = 0; i < size; i++) {
+        if(keys[i] != null) keys[i] = local(keys[i], info);
+      }
+      col = new ItemColumn(keys, empty, desc, least, coll, info);
+    }
+    columns.add(col);
+  }
+
+  /**
+   * Adds a column with sequences as sort keys, which are compared as specified by the
+   * {@code fn:sort} function.
+   * @param keys sort keys
+   * @param coll collation (can be {@code null})
+   * @param info input info
+   * @throws QueryException query exception
+   */
+  public void add(final Value[] keys, final Collation coll, final InputInfo info)
+      throws QueryException {
+
+    // single items: try to store keys in primitive arrays
+    boolean single = true;
+    for(int i = 0; i < size && single; i++) single = keys[i].size() == 1;
+    if(single) {
+      final Item[] items = new Item[size];
+      for(int i = 0; i < size; i++) items[i] = keys[i].itemAt(0);
+      final Column col = primitive(items, null, coll, false, false);
+      if(col != null) {
+        columns.add(col);
+        return;
+      }
+    }
+    // atomize nodes and materialize streamed items, as keys may be compared concurrently
+    for(int i = 0; i < size; i++) {
+      final Value value = keys[i];
+      final long vs = value.size();
+      ValueBuilder vb = null;
+      for(int v = 0; v < vs; v++) {
+        final Item it = value.itemAt(v);
+        final Item ma = local(it, info);
+        if(ma != it && vb == null) {
+          vb = new ValueBuilder((int) vs);
+          for(int w = 0; w < v; w++) vb.add(value.itemAt(w));
+        }
+        if(vb != null) vb.add(ma);
+      }
+      if(vb != null) keys[i] = vb.value();
+    }
+    columns.add(new ValueColumn(keys, coll, info));
+  }
+
+  /**
+   * Returns the sort order.
+   * @return positions of the sorted entries
+   * @throws QueryException query exception
+   */
+  public int[] sort() throws QueryException {
+    final int[] order = new int[size];
+    for(int i = 0; i < size; i++) order[i] = i;
+    if(size > 1) {
+      final int[] tmp = new int[size];
+      if(size >= PARALLEL << 1 && concurrent()) {
+        try {
+          qc.context.workers.pool().invoke(new Task(order, tmp, 0, size));
+        } catch(final QueryRTException ex) {
+          throw ex.getCause();
+        }
+      } else {
+        sort(order, tmp, 0, size);
+      }
+      // ranges of stopped queries are skipped: raise interruption in the calling thread
+      qc.checkStop();
+    }
+    return order;
+  }
+
+  // PRIVATE METHODS ==============================================================================
+
+  /**
+   * Checks if the entries can be sorted in parallel.
+   * @return result of check
+   */
+  private boolean concurrent() {
+    if(Runtime.getRuntime().availableProcessors() < 2) return false;
+    for(final Column col : columns) {
+      if(!col.concurrent()) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Returns an item that can safely be compared by multiple threads.
+   * Nodes are atomized, and streamed items are materialized.
+   * @param item item
+   * @param info input info
+   * @return resulting item
+   * @throws QueryException query exception
+   */
+  private static Item local(final Item item, final InputInfo info) throws QueryException {
+    return item instanceof ANode ? new Atm(item.string(info)) :
+      item instanceof StrStream || item instanceof B64Stream ? item.materialize(info) : item;
+  }
+
+  /**
+   * Returns a column with primitive keys.
+   * @param keys sort keys
+   * @param empty flags for empty keys (can be {@code null})
+   * @param coll collation (can be {@code null})
+   * @param desc descending order
+   * @param least empty keys are sorted first
+   * @return column, or {@code null} if the keys have different or unsupported types
+   * @throws QueryException query exception
+   */
+  private Column primitive(final Item[] keys, final boolean[] empty, final Collation coll,
+      final boolean desc, final boolean least) throws QueryException {
+
+    boolean itr = true, dbl = true, str = coll == null;
+    for(int i = 0; i < size && (itr || dbl || str); i++) {
+      if(empty != null && empty[i]) continue;
+      final Item it = keys[i];
+      itr &= it instanceof Int;
+      dbl &= it instanceof Dbl && !Double.isNaN(((Dbl) it).dbl());
+      str &= it instanceof Str || it instanceof Atm;
+    }
+    if(itr) {
+      final long[] values = new long[size];
+      for(int i = 0; i < size; i++) {
+        if(empty == null || !empty[i]) values[i] = keys[i].itr(null);
+      }
+      return new Column(empty, desc, least) {
+        @Override
+        int diff(final int i1, final int i2) {
+          final long v1 = values[i1], v2 = values[i2];
+          return v1 < v2 ? -1 : v1 > v2 ? 1 : 0;
+        }
+      };
+    }
+    if(dbl) {
+      final double[] values = new double[size];
+      for(int i = 0; i < size; i++) {
+        if(empty == null || !empty[i]) values[i] = keys[i].dbl(null);
+      }
+      return new Column(empty, desc, least) {
+        @Override
+        int diff(final int i1, final int i2) {
+          final double v1 = values[i1], v2 = values[i2];
+          return v1 < v2 ? -1 : v1 > v2 ? 1 : 0;
+        }
+      };
+    }
+    if(str) {
+      final byte[][] values = new byte[size][];
+      for(int i = 0; i < size; i++) {
+        if(empty == null || !empty[i]) values[i] = keys[i].string(null);
+      }
+      return new Column(empty, desc, least) {
+        @Override
+        int diff(final int i1, final int i2) {
+          return Token.diff(values[i1], values[i2]);
+        }
+      };
+    }
+    return null;
+  }
+
+  /**
+   * Compares two entries.
+   * @param i1 position of first entry
+   * @param i2 position of second entry
+   * @return result of comparison
+   * @throws QueryException query exception
+   */
+  private int compare(final int i1, final int i2) throws QueryException {
+    for(final Column col : columns) {
+      final int c = col.compare(i1, i2);
+      if(c != 0) return c;
+    }
+    return 0;
+  }
+
+  /**
+   * Sorts the specified range of entries.
+   * @param order sort order
+   * @param tmp temporary array
+   * @param lo first position (inclusive)
+   * @param hi last position (exclusive)
+   * @throws QueryException query exception
+   */
+  private void sort(final int[] order, final int[] tmp, final int lo, final int hi)
+      throws QueryException {
+
+    if(hi - lo <= INSERTION) {
+      for(int i = lo + 1; i < hi; i++) {
+        final int o = order[i];
+        int j = i;
+        for(; j > lo && compare(order[j - 1], o) > 0; j--) order[j] = order[j - 1];
+        order[j] = o;
+      }
+    } else if(!qc.stopped()) {
+      final int mid = lo + hi >>> 1;
+      sort(order, tmp, lo, mid);
+      sort(order, tmp, mid, hi);
+      merge(order, tmp, lo, mid, hi);
+    }
+  }
+
+  /**
+   * Merges two adjacent sorted ranges. Entries of the first range are preferred if two
+   * entries are equal.
+   * @param order sort order
+   * @param tmp temporary array
+   * @param lo first position of the first range
+   * @param mid first position of the second range
+   * @param hi last position of the second range (exclusive)
+   * @throws QueryException query exception
+   */
+  private void merge(final int[] order, final int[] tmp, final int lo, final int mid,
+      final int hi) throws QueryException {
+
+    // skip merge if ranges are already in order
+    if(compare(order[mid - 1], order[mid]) <= 0) return;
+
+    System.arraycopy(order, lo, tmp, lo, mid - lo);
+    int i = lo, j = mid, k = lo;
+    while(i < mid && j < hi) order[k++] = compare(order[j], tmp[i]) < 0 ? order[j++] : tmp[i++];
+    while(i < mid) order[k++] = tmp[i++];
+  }
+
+  /** Parallel sort task. */
+  private final class Task extends RecursiveAction {
+    /** Serial version UID. */
+    private static final long serialVersionUID = 1L;
+    /** Sort order. */
+    private final int[] order;
+    /** Temporary array. */
+    private final int[] tmp;
+    /** First position (inclusive). */
+    private final int lo;
+    /** Last position (exclusive). */
+    private final int hi;
+
+    /**
+     * Constructor.
+     * @param order sort order
+     * @param tmp temporary array
+     * @param lo first position (inclusive)
+     * @param hi last position (exclusive)
+     */
+    Task(final int[] order, final int[] tmp, final int lo, final int hi) {
+      this.order = order;
+      this.tmp = tmp;
+      this.lo = lo;
+      this.hi = hi;
+    }
+
+    @Override
+    protected void compute() {
+      if(qc.stopped()) return;
+      try {
+        if(hi - lo < PARALLEL << 1) {
+          sort(order, tmp, lo, hi);
+        } else {
+          final int mid = lo + hi >>> 1;
+          invokeAll(new Task(order, tmp, lo, mid), new Task(order, tmp, mid, hi));
+          merge(order, tmp, lo, mid, hi);
+        }
+      } catch(final QueryException ex) {
+        throw new QueryRTException(ex);
+      }
+    }
+  }
+
+  /** Column with sort keys. */
+  private abstract static class Column {
+    /** Flags for empty keys (can be {@code null}). */
+    private final boolean[] empty;
+    /** Descending order. */
+    private final boolean desc;
+    /** Empty keys are sorted first. */
+    private final boolean least;
+
+    /**
+     * Constructor.
+     * @param empty flags for empty keys (can be {@code null})
+     * @param desc descending order
+     * @param least empty keys are sorted first
+     */
+    Column(final boolean[] empty, final boolean desc, final boolean least) {
+      this.empty = empty;
+      this.desc = desc;
+      this.least = least;
+    }
+
+    /**
+     * Compares the keys of two entries.
+     * @param i1 position of first entry
+     * @param i2 position of second entry
+     * @return result of comparison
+     * @throws QueryException query exception
+     */
+    final int compare(final int i1, final int i2) throws QueryException {
+      final int c;
+      if(empty != null && (empty[i1] || empty[i2])) {
+        c = empty[i1] == empty[i2] ? 0 : empty[i1] == least ? -1 : 1;
+      } else {
+        c = diff(i1, i2);
+      }
+      return desc ? -c : c;
+    }
+
+    /**
+     * Compares two non-empty keys.
+     * @param i1 position of first entry
+     * @param i2 position of second entry
+     * @return result of comparison
+     * @throws QueryException query exception
+     */
+    abstract int diff(int i1, int i2) throws QueryException;
+
+    /**
+     * Checks if keys can be compared concurrently.
+     * @return result of check
+     */
+    boolean concurrent() {
+      return true;
+    }
+  }
+
+  /** Column with single items. */
+  private static final class ItemColumn extends Column {
+    /** Sort keys. */
+    private final Item[] keys;
+    /** Collation (can be {@code null}). */
+    private final Collation coll;
+    /** Input info. */
+    private final InputInfo info;
+
+    /**
+     * Constructor.
+     * @param keys sort keys
+     * @param empty flags for empty keys (can be {@code null})
+     * @param desc descending order
+     * @param least empty keys are sorted first
+     * @param coll collation (can be {@code null})
+     * @param info input info
+     */
+    ItemColumn(final Item[] keys, final boolean[] empty, final boolean desc,
+        final boolean least, final Collation coll, final InputInfo info) {
+      super(empty, desc, least);
+      this.keys = keys;
+      this.coll = coll;
+      this.info = info;
+    }
+
+    @Override
+    int diff(final int i1, final int i2) throws QueryException {
+      final Item m = keys[i1], n = keys[i2];
+      if(!m.comparable(n)) throw castError(info, n, m.type);
+      return m.diff(n, coll, info);
+    }
+
+    @Override
+    boolean concurrent() {
+      // collators may not be thread-safe
+      return coll == null;
+    }
+  }
+
+  /** Column with sequences. */
+  private static final class ValueColumn extends Column {
+    /** Sort keys. */
+    private final Value[] keys;
+    /** Collation (can be {@code null}). */
+    private final Collation coll;
+    /** Input info. */
+    private final InputInfo info;
+
+    /**
+     * Constructor.
+     * @param keys sort keys
+     * @param coll collation (can be {@code null})
+     * @param info input info
+     */
+    ValueColumn(final Value[] keys, final Collation coll, final InputInfo info) {
+      super(null, false, false);
+      this.keys = keys;
+      this.coll = coll;
+      this.info = info;
+    }
+
+    @Override
+    int diff(final int i1, final int i2) throws QueryException {
+      final Value v1 = keys[i1], v2 = keys[i2];
+      final long s1 = v1.size(), s2 = v2.size(), sl = Math.min(s1, s2);
+      for(int v = 0; v < sl; v++) {
+        final Item it1 = v1.itemAt(v), it2 = v2.itemAt(v);
+        if(!it1.comparable(it2)) {
+          if(it1 instanceof FItem) throw FIEQ_X.get(info, it1.type);
+          if(it2 instanceof FItem) throw FIEQ_X.get(info, it2.type);
+          throw diffError(info, it1, it2);
+        }
+        final int d = it1.diff(it2, coll, info);
+        if(d != 0) return d;
+      }
+      return (int) (s1 - s2);
+    }
+
+    @Override
+    boolean concurrent() {
+      return coll == null;
+    }
+  }
+}
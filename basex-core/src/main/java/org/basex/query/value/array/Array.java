@@ -3,6 +3,8 @@ package org.basex.query.value.array;
 import static org.basex.query.QueryError.*;
 import static org.basex.query.QueryText.*;
 
+import java.util.*;
+
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.func.fn.*;
@@ -11,7 +13,7 @@ import org.basex.query.util.collation.*;
 import org.basex.query.util.list.*;
 import org.basex.query.value.*;
 import org.basex.query.value.item.*;
-import org.basex.query.value.map.*;
+import org.basex.query.value.map.Map;
 import org.basex.query.value.node.*;
 import org.basex.query.value.type.*;
 import org.basex.query.var.*;
@@ -20,40 +22,55 @@ import org.basex.util.*;
 /**
  * Array item.
  *
+ * Arrays are persistent: all update operations return new instances, and the original
+ * array is left untouched. The members are stored in a height-balanced tree of chunks,
+ * and up to {@link #CHUNK} members are buffered at both ends of the array. This way,
+ * members can be appended and prepended in amortized constant time, and all other
+ * updates and lookups take logarithmic time.
+ *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
  */
 public final class Array extends FItem {
+  /** Maximum number of members in a tree leaf and in the buffers at both ends. */
+  static final int CHUNK = 1 << 5;
+  /** No members. */
+  private static final Value[] NONE = {};
   /** Empty array. */
-  public static final Array EMPTY = new Array(new Value[0], 0, 0);
-  /** Members of the array. */
-  private final Value[] members;
-  /** Starting index. */
-  private final int start;
-  /** Length. */
+  public static final Array EMPTY = new Array(NONE, null, NONE);
+
+  /** Members in front of the tree (at most {@link #CHUNK}). */
+  private final Value[] front;
+  /** Tree with the remaining members (can be {@code null}). */
+  private final Node tree;
+  /** Members after the tree (at most {@link #CHUNK}). */
+  private final Value[] back;
+  /** Number of members. */
   private final int size;
 
   /**
    * Constructor.
-   * @param members array members
-   * @param start starting index
-   * @param size number of members
+   * @param front members in front of the tree
+   * @param tree tree (can be {@code null})
+   * @param back members after the tree
    */
-  private Array(final Value[] members, final int start, final int size) {
+  private Array(final Value[] front, final Node tree, final Value[] back) {
     super(SeqType.ANY_ARRAY, new AnnList());
-    this.members = members;
-    this.start = start;
-    this.size = size;
+    this.front = front;
+    this.tree = tree;
+    this.back = back;
+    size = front.length + treeSize() + back.length;
   }
 
   /**
    * Returns an instance of this class.
-   * @param members values
+   * @param members values (will not be modified)
    * @return instance
    */
   public static Array get(final Value... members) {
     final int s = members.length;
-    return s == 0 ? EMPTY : new Array(members, 0, s);
+    return s == 0 ? EMPTY : s <= CHUNK ? new Array(members, null, NONE) :
+      new Array(NONE, Node.build(members, 0, s), NONE);
   }
 
   /**
@@ -64,8 +81,7 @@ public final class Array extends FItem {
    * @return resulting array
    */
   public static Array get(final Array array, final int start, final int size) {
-    return size == 0 ? EMPTY : start == 0 && size == array.size ? array :
-      new Array(array.members, array.start + start, size);
+    return array.subArray(start, size);
   }
 
   @Override
@@ -133,8 +149,13 @@ public final class Array extends FItem {
    * Returns a member iterator.
    * @return iterator
    */
-  public ArrayIterator<Value> members() {
-    return new ArrayIterator<>(members, start, start + size);
+  public Iterable<Value> members() {
+    return new Iterable<Value>() {
+      @Override
+      public Iterator<Value> iterator() {
+        return new MemberIterator();
+      }
+    };
   }
 
   /**
@@ -143,7 +164,125 @@ public final class Array extends FItem {
    * @return value
    */
   public Value get(final int index) {
-    return members[start + index];
+    final int fl = front.length;
+    if(index < fl) return front[index];
+    final int i = index - fl, ts = treeSize();
+    return i < ts ? tree.get(i) : back[i - ts];
+  }
+
+  /**
+   * Returns a new array in which the member at the specified index is replaced.
+   * @param index index (must be valid)
+   * @param value new member
+   * @return new array
+   */
+  public Array put(final int index, final Value value) {
+    final int fl = front.length, ts = treeSize();
+    if(index < fl) {
+      final Value[] f = front.clone();
+      f[index] = value;
+      return new Array(f, tree, back);
+    }
+    if(index < fl + ts) return new Array(front, tree.put(index - fl, value), back);
+    final Value[] b = back.clone();
+    b[index - fl - ts] = value;
+    return new Array(front, tree, b);
+  }
+
+  /**
+   * Returns a new array with the specified member appended.
+   * @param value member to be added
+   * @return new array
+   */
+  public Array append(final Value value) {
+    final int bl = back.length;
+    if(bl < CHUNK) return new Array(front, tree, insert(back, bl, value));
+    return new Array(front, Node.join(tree, new Leaf(back)), new Value[] { value });
+  }
+
+  /**
+   * Returns a new array with the specified member prepended.
+   * @param value member to be added
+   * @return new array
+   */
+  public Array prepend(final Value value) {
+    if(front.length < CHUNK) return new Array(insert(front, 0, value), tree, back);
+    return new Array(new Value[] { value }, Node.join(new Leaf(front), tree), back);
+  }
+
+  /**
+   * Returns a new array with a member inserted at the specified index.
+   * @param index index ({@code 0 <= index <= size})
+   * @param value member to be inserted
+   * @return new array
+   */
+  public Array insertBefore(final int index, final Value value) {
+    final int fl = front.length, ts = treeSize(), bl = back.length;
+    if(index <= fl && fl < CHUNK) return new Array(insert(front, index, value), tree, back);
+    if(index >= fl + ts && bl < CHUNK) {
+      return new Array(front, tree, insert(back, index - fl - ts, value));
+    }
+    if(tree != null && index >= fl && index <= fl + ts) {
+      return new Array(front, tree.insert(index - fl, value), back);
+    }
+    // the affected buffer is full: move all members to the tree
+    final Node node = Node.join(Node.join(leaf(front), tree), leaf(back));
+    return new Array(NONE, node.insert(index, value), NONE);
+  }
+
+  /**
+   * Returns a new array without the member at the specified index.
+   * @param index index (must be valid)
+   * @return new array
+   */
+  public Array remove(final int index) {
+    if(size == 1) return EMPTY;
+    final int fl = front.length, ts = treeSize();
+    if(index < fl) return new Array(delete(front, index), tree, back);
+    if(index < fl + ts) return new Array(front, tree.remove(index - fl), back);
+    return new Array(front, tree, delete(back, index - fl - ts));
+  }
+
+  /**
+   * Returns a subarray.
+   * @param start start index
+   * @param length number of members
+   * @return new array
+   */
+  public Array subArray(final int start, final int length) {
+    if(length == 0) return EMPTY;
+    if(start == 0 && length == size) return this;
+
+    final int end = start + length, fl = front.length, te = fl + treeSize();
+    final Value[] f = slice(front, start, Math.min(end, fl));
+    final int ts = Math.max(start, fl), tl = Math.min(end, te) - ts;
+    final Node t = tl > 0 ? tree.sub(ts - fl, tl) : null;
+    final Value[] b = slice(back, Math.max(start, te) - te, end - te);
+    return new Array(f, t, b);
+  }
+
+  /**
+   * Returns the concatenation of this and the specified array.
+   * @param array array to be appended
+   * @return new array
+   */
+  public Array concat(final Array array) {
+    if(size == 0) return array;
+    if(array.size == 0) return this;
+    final Node node = Node.join(Node.join(tree, leaf(back)), Node.join(leaf(array.front),
+        array.tree));
+    return new Array(front, node, array.back);
+  }
+
+  /**
+   * Returns an array with the members in reverse order.
+   * @return new array
+   */
+  public Array reverse() {
+    final Value[] members = new Value[size];
+    int m = size;
+    for(final Value v : members()) members[--m] = v;
+    return get(members);
   }
 
   /**
@@ -157,7 +296,7 @@ public final class Array extends FItem {
   @Override
   public Array materialize(final InputInfo ii) throws QueryException {
     final ValueList vl = new ValueList(size);
-    for(int a = 0; a < size; a++) vl.add(get(a).materialize(ii));
+    for(final Value v : members()) vl.add(v.materialize(ii));
     return vl.array();
   }
 
@@ -175,8 +314,7 @@ public final class Array extends FItem {
   @Override
   public long atomSize() {
     long s = 0;
-    for(int a = 0; a < size; a++) {
-      final Value v = get(a);
+    for(final Value v : members()) {
       final long vs = v.size();
       for(int i = 0; i < vs; i++) s += v.itemAt(i).atomSize();
     }
@@ -195,7 +333,7 @@ public final class Array extends FItem {
     if(single && s > 1) throw SEQFOUND_X.get(ii, this);
     if(size == 1) return get(0).atomValue(ii);
     final ValueBuilder vb = new ValueBuilder((int) s);
-    for(int a = 0; a < size; a++) vb.add(get(a).atomValue(ii));
+    for(final Value v : members()) vb.add(v.atomValue(ii));
     return vb.value();
   }
 
@@ -220,9 +358,8 @@ public final class Array extends FItem {
   public void string(final TokenBuilder tb, final InputInfo ii) throws QueryException {
     tb.add('[');
     int c = 0;
-    for(int a = 0; a < size; a++) {
+    for(final Value v : members()) {
       if(c++ > 0) tb.add(", ");
-      final Value v = get(a);
       final long vs = v.size();
       if(vs != 1) tb.add('(');
       int cc = 0;
@@ -245,7 +382,7 @@ public final class Array extends FItem {
    */
   public boolean hasType(final ArrayType t) {
     if(!t.retType.eq(SeqType.ITEM_ZM)) {
-      for(int a = 0; a < size; a++) if(!t.retType.instance(get(a))) return false;
+      for(final Value v : members()) if(!t.retType.instance(v)) return false;
     }
     return true;
   }
@@ -264,8 +401,9 @@ public final class Array extends FItem {
     if(item instanceof Array) {
       final Array o = (Array) item;
       if(size != o.size) return false;
-      for(int a = 0; a < size; a++) {
-        final Value v1 = get(a), v2 = o.get(a);
+      final Iterator<Value> iter1 = members().iterator(), iter2 = o.members().iterator();
+      while(iter1.hasNext()) {
+        final Value v1 = iter1.next(), v2 = iter2.next();
         if(v1.size() != v2.size() || !new Compare(ii).collation(coll).equal(v1, v2))
           return false;
       }
@@ -290,16 +428,17 @@ public final class Array extends FItem {
   @Override
   public Object toJava() throws QueryException {
     final Object[] tmp = new Object[size];
-    for(int a = 0; a < size; a++) tmp[a] = get(a).toJava();
+    int a = 0;
+    for(final Value v : members()) tmp[a++] = v.toJava();
     return tmp;
   }
 
   @Override
   public String toString() {
     final StringBuilder tb = new StringBuilder().append('[');
-    for(int a = 0; a < size; a++) {
-      if(a != 0) tb.append(", ");
-      final Value value = get(a);
+    int a = 0;
+    for(final Value value : members()) {
+      if(a++ != 0) tb.append(", ");
       final long vs = value.size();
       if(vs != 1) tb.append('(');
       for(int i = 0; i < vs; i++) {
@@ -310,4 +449,126 @@ public final class Array extends FItem {
     }
     return tb.append(']').toString();
   }
+
+  /**
+   * Checks the invariants of the array.
+   * @return result of check
+   */
+  boolean verify() {
+    return front.length <= CHUNK && back.length <= CHUNK && (tree == null || tree.verify());
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Returns the number of members in the tree.
+   * @return number of members
+   */
+  private int treeSize() {
+    return tree == null ? 0 : tree.size;
+  }
+
+  /**
+   * Creates a leaf node for the specified members.
+   * @param members members
+   * @return leaf, or {@code null} if no members are specified
+   */
+  private static Node leaf(final Value[] members) {
+    return members.length == 0 ? null : new Leaf(members);
+  }
+
+  /**
+   * Returns a copy of the specified members with an additional member.
+   * @param members members
+   * @param index insertion index
+   * @param value member to be inserted
+   * @return new members
+   */
+  static Value[] insert(final Value[] members, final int index, final Value value) {
+    final int ml = members.length;
+    final Value[] ms = new Value[ml + 1];
+    System.arraycopy(members, 0, ms, 0, index);
+    ms[index] = value;
+    System.arraycopy(members, index, ms, index + 1, ml - index);
+    return ms;
+  }
+
+  /**
+   * Returns a copy of the specified members without the member at the specified index.
+   * @param members members
+   * @param index index of the member to be deleted
+   * @return new members
+   */
+  private static Value[] delete(final Value[] members, final int index) {
+    final int ml = members.length - 1;
+    if(ml == 0) return NONE;
+    final Value[] ms = new Value[ml];
+    System.arraycopy(members, 0, ms, 0, index);
+    System.arraycopy(members, index + 1, ms, index, ml - index);
+    return ms;
+  }
+
+  /**
+   * Returns a range of the specified members.
+   * @param members members
+   * @param start start index (may be out of bounds)
+   * @param end end index (may be out of bounds)
+   * @return range
+   */
+  private static Value[] slice(final Value[] members, final int start, final int end) {
+    final int ml = members.length, s = Math.max(0, start), e = Math.min(ml, end);
+    return s >= e ? NONE : s == 0 && e == ml ? members : Arrays.copyOfRange(members, s, e);
+  }
+
+  /** Iterator over all members. */
+  private final class MemberIterator implements Iterator<Value> {
+    /** Subtrees that remain to be visited. */
+    private final Node[] stack = new Node[tree == null ? 0 : tree.height];
+    /** Stack pointer. */
+    private int sp;
+    /** Current chunk. */
+    private Value[] chunk = front;
+    /** Position in the current chunk. */
+    private int pos;
+    /** Indicates if the members after the tree have been reached. */
+    private boolean end;
+
+    /** Constructor. */
+    MemberIterator() {
+      if(tree != null) stack[sp++] = tree;
+    }
+
+    @Override
+    public boolean hasNext() {
+      while(pos == chunk.length) {
+        if(sp > 0) {
+          // descend to the leftmost leaf of the next subtree
+          Node node = stack[--sp];
+          while(node instanceof Branch) {
+            stack[sp++] = ((Branch) node).right;
+            node = ((Branch) node).left;
+          }
+          chunk = ((Leaf) node).members;
+        } else if(!end) {
+          end = true;
+          chunk = back;
+        } else {
+          return false;
+        }
+        pos = 0;
+      }
+      return true;
+    }
+
+    @Override
+    public Value next() {
+      if(!hasNext()) throw new NoSuchElementException();
+      return chunk[pos++];
+    }
+
+    @Override
+    public void remove() {
+      throw Util.notExpected();
+    }
+  }
 }
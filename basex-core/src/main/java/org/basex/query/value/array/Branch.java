@@ -0,0 +1,72 @@
+package org.basex.query.value.array;
+
+import org.basex.query.value.*;
+
+/**
+ * Inner node of a persistent array tree.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class Branch extends Node {
+  /** Left subtree. */
+  final Node left;
+  /** Right subtree. */
+  final Node right;
+
+  /**
+   * Constructor.
+   * @param left left subtree
+   * @param right right subtree
+   */
+  Branch(final Node left, final Node right) {
+    super(left.size + right.size, Math.max(left.height, right.height) + 1);
+    this.left = left;
+    this.right = right;
+  }
+
+  @Override
+  Node put(final int index, final Value value) {
+    final int ls = left.size;
+    return index < ls ? new Branch(left.put(index, value), right) :
+      new Branch(left, right.put(index - ls, value));
+  }
+
+  @Override
+  Node insert(final int index, final Value value) {
+    final int ls = left.size;
+    return index < ls ? balance(left.insert(index, value), right) :
+      balance(left, right.insert(index - ls, value));
+  }
+
+  @Override
+  Node remove(final int index) {
+    final int ls = left.size;
+    if(index < ls) {
+      final Node l = left.remove(index);
+      return l == null ? right : balance(l, right);
+    }
+    final Node r = right.remove(index - ls);
+    return r == null ? left : balance(left, r);
+  }
+
+  @Override
+  Node sub(final int start, final int length) {
+    if(start == 0 && length == size) return this;
+    final int ls = left.size, end = start + length;
+    if(end <= ls) return left.sub(start, length);
+    if(start >= ls) return right.sub(start - ls, length);
+    return join(left.sub(start, ls - start), right.sub(0, end - ls));
+  }
+
+  @Override
+  void copy(final Value[] target, final int pos) {
+    left.copy(target, pos);
+    right.copy(target, pos + left.size);
+  }
+
+  @Override
+  boolean verify() {
+    return Math.abs(left.height - right.height) <= 1 && left.verify() && right.verify();
+  }
+}
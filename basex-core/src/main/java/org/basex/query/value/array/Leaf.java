@@ -0,0 +1,69 @@
+package org.basex.query.value.array;
+
+import org.basex.query.value.*;
+
+/**
+ * Leaf node of a persistent array tree, storing a chunk of members.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class Leaf extends Node {
+  /** Members. */
+  final Value[] members;
+
+  /**
+   * Constructor.
+   * @param members members (at least one, at most {@link Array#CHUNK})
+   */
+  Leaf(final Value[] members) {
+    super(members.length, 1);
+    this.members = members;
+  }
+
+  @Override
+  Node put(final int index, final Value value) {
+    final Value[] ms = members.clone();
+    ms[index] = value;
+    return new Leaf(ms);
+  }
+
+  @Override
+  Node insert(final int index, final Value value) {
+    final Value[] ms = Array.insert(members, index, value);
+    if(size < Array.CHUNK) return new Leaf(ms);
+    // split full leaf
+    final int half = ms.length >>> 1;
+    final Value[] l = new Value[half], r = new Value[ms.length - half];
+    System.arraycopy(ms, 0, l, 0, half);
+    System.arraycopy(ms, half, r, 0, r.length);
+    return new Branch(new Leaf(l), new Leaf(r));
+  }
+
+  @Override
+  Node remove(final int index) {
+    if(size == 1) return null;
+    final Value[] ms = new Value[size - 1];
+    System.arraycopy(members, 0, ms, 0, index);
+    System.arraycopy(members, index + 1, ms, index, size - 1 - index);
+    return new Leaf(ms);
+  }
+
+  @Override
+  Node sub(final int start, final int length) {
+    if(start == 0 && length == size) return this;
+    final Value[] ms = new Value[length];
+    System.arraycopy(members, start, ms, 0, length);
+    return new Leaf(ms);
+  }
+
+  @Override
+  void copy(final Value[] target, final int pos) {
+    System.arraycopy(members, 0, target, pos, size);
+  }
+
+  @Override
+  boolean verify() {
+    return size > 0 && size <= Array.CHUNK;
+  }
+}
@@ -0,0 +1,165 @@
+package org.basex.query.value.array;
+
+import org.basex.query.value.*;
+
+/**
+ * Abstract superclass of the nodes of a persistent array tree.
+ * The tree is height-balanced (AVL); its leaves store chunks of up to {@link Array#CHUNK}
+ * members. All operations leave the original tree untouched.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+abstract class Node {
+  /** Number of members. */
+  final int size;
+  /** Height of the tree (leaves have height {@code 1}). */
+  final int height;
+
+  /**
+   * Constructor.
+   * @param size number of members
+   * @param height height of the tree
+   */
+  Node(final int size, final int height) {
+    this.size = size;
+    this.height = height;
+  }
+
+  /**
+   * Returns the member at the specified position.
+   * @param index position (must be valid)
+   * @return member
+   */
+  final Value get(final int index) {
+    Node node = this;
+    int i = index;
+    while(node instanceof Branch) {
+      final Branch b = (Branch) node;
+      if(i < b.left.size) {
+        node = b.left;
+      } else {
+        i -= b.left.size;
+        node = b.right;
+      }
+    }
+    return ((Leaf) node).members[i];
+  }
+
+  /**
+   * Replaces the member at the specified position.
+   * @param index position (must be valid)
+   * @param value new member
+   * @return new node
+   */
+  abstract Node put(int index, Value value);
+
+  /**
+   * Inserts a member at the specified position.
+   * @param index position ({@code 0 <= index <= size})
+   * @param value member to be inserted
+   * @return new node
+   */
+  abstract Node insert(int index, Value value);
+
+  /**
+   * Removes the member at the specified position.
+   * @param index position (must be valid)
+   * @return new node, or {@code null} if the node is empty
+   */
+  abstract Node remove(int index);
+
+  /**
+   * Returns a node with the specified range of members.
+   * @param start first position
+   * @param length number of members (must be positive)
+   * @return new node
+   */
+  abstract Node sub(int start, int length);
+
+  /**
+   * Copies all members to the specified array.
+   * @param target target array
+   * @param pos target position
+   */
+  abstract void copy(Value[] target, int pos);
+
+  /**
+   * Concatenates two trees.
+   * @param left left tree (can be {@code null})
+   * @param right right tree (can be {@code null})
+   * @return resulting tree (can be {@code null})
+   */
+  static Node join(final Node left, final Node right) {
+    if(left == null) return right;
+    if(right == null) return left;
+
+    final int lh = left.height, rh = right.height;
+    if(lh > rh + 1) {
+      final Branch b = (Branch) left;
+      return balance(b.left, join(b.right, right));
+    }
+    if(rh > lh + 1) {
+      final Branch b = (Branch) right;
+      return balance(join(left, b.left), b.right);
+    }
+    // merge small leaves
+    if(left instanceof Leaf && right instanceof Leaf && left.size + right.size <= Array.CHUNK) {
+      final Value[] members = new Value[left.size + right.size];
+      left.copy(members, 0);
+      right.copy(members, left.size);
+      return new Leaf(members);
+    }
+    return new Branch(left, right);
+  }
+
+  /**
+   * Creates a balanced branch from two trees whose heights differ by at most {@code 2}.
+   * @param left left tree
+   * @param right right tree
+   * @return new node
+   */
+  static Node balance(final Node left, final Node right) {
+    if(left.height > right.height + 1) {
+      final Branch b = (Branch) left;
+      if(b.left.height >= b.right.height) {
+        return new Branch(b.left, new Branch(b.right, right));
+      }
+      final Branch c = (Branch) b.right;
+      return new Branch(new Branch(b.left, c.left), new Branch(c.right, right));
+    }
+    if(right.height > left.height + 1) {
+      final Branch b = (Branch) right;
+      if(b.right.height >= b.left.height) {
+        return new Branch(new Branch(left, b.left), b.right);
+      }
+      final Branch c = (Branch) b.left;
+      return new Branch(new Branch(left, c.left), new Branch(c.right, b.right));
+    }
+    return new Branch(left, right);
+  }
+
+  /**
+   * Builds a balanced tree from the specified members.
+   * @param members members
+   * @param start first position
+   * @param length number of members (must be positive)
+   * @return new node
+   */
+  static Node build(final Value[] members, final int start, final int length) {
+    if(length <= Array.CHUNK) {
+      final Value[] chunk = new Value[length];
+      System.arraycopy(members, start, chunk, 0, length);
+      return new Leaf(chunk);
+    }
+    // split at a multiple of the chunk size
+    final int half = (length + Array.CHUNK) / Array.CHUNK / 2 * Array.CHUNK;
+    return balance(build(members, start, half), build(members, start + half, length - half));
+  }
+
+  /**
+   * Checks the invariants of the tree.
+   * @return result of check
+   */
+  abstract boolean verify();
+}
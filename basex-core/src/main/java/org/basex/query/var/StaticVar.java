@@ -15,6 +15,7 @@ import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
 import org.basex.query.value.type.*;
 import org.basex.util.*;
+import org.basex.util.hash.*;
 
 /**
  * Static variable to which an expression can be assigned.
@@ -29,7 +30,7 @@ public final class StaticVar extends StaticDecl {
   private final boolean lazy;
 
   /** Bound value. */
-  Value val;
+  volatile Value val;
 
   /**
    * Constructor for a variable declared in a query.
@@ -79,12 +80,44 @@ public final class StaticVar extends StaticDecl {
   }
 
   /**
-   * Evaluates this variable lazily.
+   * Returns the copy of this variable that has been created for the specified query context.
+   * If no parsed query is being copied, the variable itself is returned.
+   * @param qc query context
+   * @param vs mapping from old variable IDs to new variable copies
+   * @return variable
+   */
+  StaticVar copy(final QueryContext qc, final IntObjMap<Var> vs) {
+    if(qc.copies == null) return this;
+    StaticVar sv = (StaticVar) qc.copies.get(this);
+    if(sv == null) {
+      final VarScope scp = scope.copy(qc, vs);
+      sv = new StaticVar(sc, scp, anns, name, declType, null, external, docString(), info);
+      qc.copies.put(this, sv);
+      qc.vars.add(sv);
+      if(expr != null) sv.expr = expr.copy(qc, scp, vs);
+    }
+    return sv;
+  }
+
+  /**
+   * Evaluates this variable lazily. The variable may be requested by concurrent threads
+   * (see {@link QueryContext#fork()}); it will only be evaluated once.
    * @param qc query context
    * @return value of this variable
    * @throws QueryException query exception
    */
   Value value(final QueryContext qc) throws QueryException {
+    final Value v = val;
+    return v != null ? v : evaluate(qc);
+  }
+
+  /**
+   * Evaluates this variable if it has not been evaluated yet.
+   * @param qc query context
+   * @return value of this variable
+   * @throws QueryException query exception
+   */
+  private synchronized Value evaluate(final QueryContext qc) throws QueryException {
     if(dontEnter) throw circVarError(this);
 
     if(lazy) {
@@ -73,7 +73,7 @@ final class StaticVarRef extends ParseExpr {
   @Override
   public Expr copy(final QueryContext qc, final VarScope scp, final IntObjMap<Var> vs) {
     final StaticVarRef ref = new StaticVarRef(info, name, sc);
-    ref.var = var;
+    ref.var = var.copy(qc, vs);
     return ref;
   }
 
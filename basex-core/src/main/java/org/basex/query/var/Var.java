@@ -123,6 +123,14 @@ public final class Var extends ExprInfo {
     }
   }
 
+  /**
+   * Discards the compile-time type of this variable that has been derived from bound
+   * expressions. The declared type is kept.
+   */
+  public void resetType() {
+    seqType = SeqType.ITEM_ZM;
+  }
+
   /**
    * Determines if this variable checks the type of the expression bound to it.
    * @return {@code true} if the type is checked or promoted, {@code false} otherwise
@@ -13,6 +13,7 @@ import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
 import org.basex.query.value.type.*;
 import org.basex.util.*;
+import org.basex.util.hash.*;
 
 /**
  * Container of global variables of a module.
@@ -49,6 +50,24 @@ public final class Variables extends ExprInfo implements Iterable<StaticVar> {
     return var;
   }
 
+  /**
+   * Adds copies of the variables of a parsed query.
+   * @param parsed variables of the parsed query
+   * @param qc query context
+   * @param vs mapping from old variable IDs to new variable copies
+   */
+  public void copy(final Variables parsed, final QueryContext qc, final IntObjMap<Var> vs) {
+    for(final VarEntry ve : parsed.vars.values()) ve.var.copy(qc, vs);
+  }
+
+  /**
+   * Adds a copied variable.
+   * @param var variable
+   */
+  void add(final StaticVar var) {
+    vars.put(var.name, new VarEntry(var));
+  }
+
   /**
    * Checks if none of the variables contains an updating expression.
    * @throws QueryException query exception
@@ -21,6 +21,11 @@ import org.basex.util.list.*;
 /**
  * Server-side client session in the client-server architecture.
  *
+ * By default, each session is run in its own thread. If the server is run in selector mode
+ * (see {@link StaticOptions#SELECTOR}), the thread will not be started. Instead, the
+ * {@link ClientSelector} passes on complete requests to {@link #login(byte[])} and
+ * {@link #request(byte[])}.
+ *
  * @author BaseX Team 2005-15, BSD License
  * @author Andreas Weiler
  * @author Christian Gruen
@@ -41,6 +46,8 @@ public final class ClientListener extends Thread {
   private final BaseXServer server;
   /** Socket reference. */
   private final Socket socket;
+  /** Nonce, used for authentication. */
+  private final String nonce = Long.toString(System.nanoTime());
 
   /** Socket for events. */
   private Socket esocket;
@@ -56,6 +63,8 @@ public final class ClientListener extends Thread {
   private Command command;
   /** Query id counter. */
   private int id;
+  /** Id of the most recently created query (may be {@code null}). */
+  private String recent;
   /** Indicates if the server thread is running. */
   private boolean running;
 
@@ -75,99 +84,172 @@ public final class ClientListener extends Thread {
 
   @Override
   public void run() {
-    if(!authenticate()) return;
+    try {
+      challenge(socket.getOutputStream());
+      in = new BufferInput(socket.getInputStream());
+    } catch(final IOException ex) {
+      Util.debug(ex);
+      server.remove(this);
+      return;
+    }
+    if(authenticate()) {
+      while(running && request());
+    }
+  }
+
+  /**
+   * Sends the authentication challenge to the client.
+   * @param os output stream
+   * @throws IOException I/O exception
+   */
+  void challenge(final OutputStream os) throws IOException {
+    // send {REALM:NONCE}0
+    out = PrintOutput.get(os);
+    out.print(Prop.NAME + ':' + nonce);
+    send(true);
+  }
 
+  /**
+   * Authenticates the session with a complete login request.
+   * @param request login request
+   * @return success flag
+   */
+  boolean login(final byte[] request) {
+    in = new ArrayInput(request);
+    return authenticate();
+  }
+
+  /**
+   * Rejects a request whose input has been discarded.
+   * @param info error message
+   * @return {@code true} if the session is still active
+   */
+  boolean reject(final String info) {
+    in = null;
     try {
-      while(running) {
-        command = null;
-        String cmd;
-        final ServerCmd sc;
-        try {
-          final int b = in.read();
-          if(b == -1) {
-            // end of stream: exit session
-            quit();
-            break;
-          }
-
-          last = System.currentTimeMillis();
-          perf.time();
-          sc = ServerCmd.get(b);
-          cmd = null;
-          if(sc == ServerCmd.CREATE) {
-            create();
-          } else if(sc == ServerCmd.ADD) {
-            add();
-          } else if(sc == ServerCmd.WATCH) {
-            watch();
-          } else if(sc == ServerCmd.UNWATCH) {
-            unwatch();
-          } else if(sc == ServerCmd.REPLACE) {
-            replace();
-          } else if(sc == ServerCmd.STORE) {
-            store();
-          } else if(sc != ServerCmd.COMMAND) {
-            query(sc);
-          } else {
-            // database command
-            cmd = new ByteList().add(b).add(in.readBytes()).toString();
-          }
-        } catch(final IOException ex) {
-          // this exception may be thrown if a session is stopped
+      error(info);
+      return true;
+    } catch(final IOException ex) {
+      log(LogType.ERROR, Util.message(ex));
+      quit();
+      return false;
+    }
+  }
+
+  /**
+   * Processes complete client requests.
+   * @param request one or more requests
+   * @return {@code true} if the session is still active
+   */
+  boolean request(final byte[] request) {
+    final ArrayInput ai = new ArrayInput(request);
+    in = ai;
+    // process all pipelined requests
+    do {
+      if(!request() || !running) return false;
+    } while(ai.available() > 0);
+    return true;
+  }
+
+  /**
+   * Processes the next client request.
+   * @return {@code false} if the session has been terminated
+   */
+  private boolean request() {
+    try {
+      command = null;
+      String cmd;
+      final ServerCmd sc;
+      try {
+        final int b = in.read();
+        if(b == -1) {
+          // end of stream: exit session
           quit();
-          break;
-        }
-        if(sc != ServerCmd.COMMAND) continue;
-
-        // parse input and create command instance
-        try {
-          command = new CommandParser(cmd, context).parseSingle();
-          log(LogType.REQUEST, command.toString(true));
-        } catch(final QueryException ex) {
-          // log invalid command
-          final String msg = ex.getMessage();
-          log(LogType.REQUEST, cmd);
-          log(LogType.ERROR, msg);
-          // send 0 to mark end of potential result
-          out.write(0);
-          // send {INFO}0
-          out.print(msg);
-          out.write(0);
-          // send 1 to mark error
-          send(false);
-          continue;
+          return false;
         }
 
-        // execute command and send {RESULT}
-        boolean ok = true;
-        String info;
-        try {
-          // run command
-          command.execute(context, new EncodingOutput(out));
-          info = command.info();
-        } catch(final BaseXException ex) {
-          ok = false;
-          info = ex.getMessage();
-          if(info.startsWith(INTERRUPTED)) info = TIMEOUT_EXCEEDED;
+        last = System.currentTimeMillis();
+        perf.time();
+        sc = ServerCmd.get(b);
+        cmd = null;
+        if(sc == ServerCmd.CREATE) {
+          create();
+        } else if(sc == ServerCmd.ADD) {
+          add();
+        } else if(sc == ServerCmd.WATCH) {
+          watch();
+        } else if(sc == ServerCmd.UNWATCH) {
+          unwatch();
+        } else if(sc == ServerCmd.REPLACE) {
+          replace();
+        } else if(sc == ServerCmd.STORE) {
+          store();
+        } else if(sc != ServerCmd.COMMAND) {
+          query(sc);
+        } else {
+          // database command
+          cmd = new ByteList().add(b).add(in.readBytes()).toString();
         }
-
-        // send 0 to mark end of result
+      } catch(final IOException ex) {
+        // this exception may be thrown if a session is stopped
+        quit();
+        return false;
+      }
+      if(sc != ServerCmd.COMMAND) return true;
+
+      // parse input and create command instance
+      try {
+        command = new CommandParser(cmd, context).parseSingle();
+        log(LogType.REQUEST, command.toString(true));
+      } catch(final QueryException ex) {
+        // log invalid command
+        final String msg = ex.getMessage();
+        log(LogType.REQUEST, cmd);
+        log(LogType.ERROR, msg);
+        // send 0 to mark end of potential result
         out.write(0);
-        // send info
-        info(info, ok);
+        // send {INFO}0
+        out.print(msg);
+        out.write(0);
+        // send 1 to mark error
+        send(false);
+        return true;
+      }
 
-        // stop console
-        if(command instanceof Exit) {
-          command = null;
-          quit();
-        }
+      // execute command and send {RESULT}
+      boolean ok = true;
+      String info;
+      try {
+        // run command
+        pending(command.updating(context), null);
+        command.execute(context, new EncodingOutput(out));
+        info = command.info();
+      } catch(final BaseXException ex) {
+        ok = false;
+        info = ex.getMessage();
+        if(info.startsWith(INTERRUPTED)) info = TIMEOUT_EXCEEDED;
+      }
+
+      // send 0 to mark end of result
+      out.write(0);
+      // send info
+      info(info, ok);
+
+      // stop console
+      if(command instanceof Exit) {
+        command = null;
+        quit();
+        return false;
       }
+      return true;
     } catch(final IOException ex) {
       log(LogType.ERROR, Util.message(ex));
       command = null;
       quit();
+      return false;
+    } finally {
+      command = null;
     }
-    command = null;
   }
 
   /**
@@ -176,17 +258,9 @@ public final class ClientListener extends Thread {
    */
   private boolean authenticate() {
     try {
-      final String nonce = Long.toString(System.nanoTime());
       final byte[] address = socket.getInetAddress().getAddress();
 
-      // send {REALM:TIMESTAMP}0
-      out = PrintOutput.get(socket.getOutputStream());
-      out.print(Prop.NAME + ':' + nonce);
-      send(true);
-
-      // evaluate login data
-      in = new BufferInput(socket.getInputStream());
-      // receive {USER}0{DIGEST-HASH}0
+      // evaluate login data: receive {USER}0{DIGEST-HASH}0
       final String us = in.readString(), hash = in.readString();
       final User user = context.users.get(us);
       running = user != null &&
@@ -243,6 +317,9 @@ public final class ClientListener extends Thread {
       do Performance.sleep(50); while(command != null);
     }
     context.sessions.remove(this);
+    // stop queries with pending results
+    for(final ServerQuery qp : queries.values()) qp.close();
+    queries.clear();
 
     try {
       new Close().run(context);
@@ -384,6 +461,7 @@ public final class ClientListener extends Thread {
     log(LogType.REQUEST, cmd + " [...]");
     final DecodingInput di = new DecodingInput(in);
     try {
+      pending(true, null);
       cmd.setInput(di);
       cmd.execute(context);
       success(cmd.info());
@@ -464,13 +542,15 @@ public final class ClientListener extends Thread {
         qp = new ServerQuery(query, context);
         arg = Integer.toString(id++);
         queries.put(arg, qp);
+        recent = arg;
         // send {ID}0
         out.print(arg);
         out.write(0);
         // write log file
         info.append(query);
       } else {
-        // find query process
+        // find query process (an empty id references the most recently created query)
+        if(arg.isEmpty() && recent != null) arg = recent;
         qp = queries.get(arg);
         // ID has already been removed
         if(qp == null) {
@@ -489,10 +569,17 @@ public final class ClientListener extends Thread {
           info.append(val);
           if(!typ.isEmpty()) info.append(" as ").append(typ);
         } else if(sc == ServerCmd.RESULTS) {
+          pending(qp.updating(), qp);
           qp.execute(true, out, true, false);
+        } else if(sc == ServerCmd.CHUNK) {
+          final int max = Integer.parseInt(in.readString());
+          if(!qp.pending()) pending(qp.updating(), qp);
+          qp.results(max, out);
         } else if(sc == ServerCmd.EXEC) {
+          pending(qp.updating(), qp);
           qp.execute(false, out, true, false);
         } else if(sc == ServerCmd.FULL) {
+          pending(qp.updating(), qp);
           qp.execute(true, out, true, true);
         } else if(sc == ServerCmd.INFO) {
           out.print(qp.info());
@@ -501,7 +588,7 @@ public final class ClientListener extends Thread {
         } else if(sc == ServerCmd.UPDATING) {
           out.print(Boolean.toString(qp.updating()));
         } else if(sc == ServerCmd.CLOSE) {
-          queries.remove(arg);
+          queries.remove(arg).close();
         } else if(sc == ServerCmd.NEXT) {
           throw new Exception("Protocol for query iteration is out-of-date.");
         }
@@ -518,7 +605,8 @@ public final class ClientListener extends Thread {
       error = Util.message(ex);
       log(LogType.REQUEST, sc + "[" + arg + ']');
       log(LogType.ERROR, error);
-      queries.remove(arg);
+      final ServerQuery qp = queries.remove(arg);
+      if(qp != null) qp.close();
     }
     if(error != null) {
       // send 0 as end marker, 1 as error flag, and {MSG}0
@@ -527,7 +615,22 @@ public final class ClientListener extends Thread {
       out.print(error);
       out.write(0);
     }
-    out.flush();
+    flush();
+  }
+
+  /**
+   * Rejects an update if another query of this session has pending results. The update would
+   * wait for the locks of the query, which are only released if the query is closed or if its
+   * results have been requested.
+   * @param updating updating flag
+   * @param query query that will be evaluated (may be {@code null})
+   * @throws BaseXException database exception
+   */
+  private void pending(final boolean updating, final ServerQuery query) throws BaseXException {
+    if(!updating) return;
+    for(final ServerQuery qp : queries.values()) {
+      if(qp != query && qp.pending()) throw new BaseXException(PENDING_RESULTS);
+    }
   }
 
   /**
@@ -537,7 +640,16 @@ public final class ClientListener extends Thread {
    */
   private void send(final boolean ok) throws IOException {
     out.write(ok ? 0 : 1);
-    out.flush();
+    flush();
+  }
+
+  /**
+   * Flushes the output, unless further requests have already been received.
+   * In this case, the responses to pipelined requests will be sent together.
+   * @throws IOException I/O exception
+   */
+  private void flush() throws IOException {
+    if(in == null || in.available() == 0) out.flush();
   }
 
   /**
@@ -0,0 +1,425 @@
+package org.basex.server;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.io.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * Event-driven front end of the database server. A single thread accepts new connections
+ * and reads the incoming data of all clients. A worker thread is only dispatched if a
+ * request has been completely received. Idle connections do not occupy any threads.
+ *
+ * As the end of a request can only be detected by parsing the protocol, the input of
+ * commands like {@code ADD} or {@code STORE} is cached in main memory before it is processed.
+ * Requests with input larger than {@link StaticOptions#SELECTORINPUT} are rejected.
+ *
+ * If the response to a request cannot be written at once, the worker thread waits until
+ * the selector thread signals that the channel is ready for writing.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class ClientSelector {
+  /** Initial buffer size of a connection. */
+  private static final int BUFFER = 1 << 8;
+  /** Interval for checking if a connection waiting for writing has been closed (ms). */
+  private static final int INTERVAL = 100;
+  /** Marker for a request whose input has been discarded. */
+  private static final byte[] REJECTED = {};
+
+  /** Connections that are ready to process further requests. */
+  private final ConcurrentLinkedQueue<Connection> ready = new ConcurrentLinkedQueue<>();
+  /** Connections that wait until their channel is ready for writing. */
+  private final ConcurrentLinkedQueue<Connection> writers = new ConcurrentLinkedQueue<>();
+  /** Read buffer. */
+  private final ByteBuffer bb = ByteBuffer.allocate(IO.BLOCKSIZE << 2);
+  /** Server socket channel. */
+  private final ServerSocketChannel channel;
+  /** Server reference. */
+  private final BaseXServer server;
+  /** Selector. */
+  private final Selector selector;
+  /** Worker threads. */
+  private final ExecutorService workers;
+
+  /**
+   * Constructor.
+   * @param channel bound server socket channel
+   * @param server server reference
+   * @throws IOException I/O exception
+   */
+  public ClientSelector(final ServerSocketChannel channel, final BaseXServer server)
+      throws IOException {
+    this.channel = channel;
+    this.server = server;
+    selector = Selector.open();
+    workers = Executors.newCachedThreadPool(new ThreadFactory() {
+      @Override
+      public Thread newThread(final Runnable r) {
+        final Thread t = new Thread(r);
+        t.setDaemon(true);
+        return t;
+      }
+    });
+  }
+
+  /**
+   * Accepts connections and dispatches requests until the server socket is closed.
+   * @throws IOException I/O exception
+   */
+  public void listen() throws IOException {
+    channel.configureBlocking(false);
+    channel.register(selector, SelectionKey.OP_ACCEPT);
+    try {
+      while(channel.isOpen()) {
+        selector.select();
+        for(Connection conn; (conn = ready.poll()) != null;) resume(conn);
+        for(Connection conn; (conn = writers.poll()) != null;) {
+          if(conn.key.isValid()) conn.key.interestOps(SelectionKey.OP_WRITE);
+        }
+
+        final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while(keys.hasNext()) {
+          final SelectionKey key = keys.next();
+          keys.remove();
+          if(!key.isValid()) continue;
+          if(key.isAcceptable()) {
+            accept();
+          } else if(key.isWritable()) {
+            key.interestOps(0);
+            ((Connection) key.attachment()).writable();
+          } else if(key.isReadable()) {
+            read((Connection) key.attachment());
+          }
+        }
+      }
+    } finally {
+      workers.shutdown();
+      for(final SelectionKey key : selector.keys()) key.channel().close();
+      selector.close();
+    }
+  }
+
+  /**
+   * Wakes up the selector thread. Must be called after the server socket has been closed.
+   */
+  public void close() {
+    selector.wakeup();
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Accepts a new connection.
+   * @throws IOException I/O exception
+   */
+  private void accept() throws IOException {
+    final SocketChannel sc = channel.accept();
+    if(sc == null) return;
+
+    final ClientListener cl = server.accept(sc.socket());
+    if(cl == null) {
+      sc.close();
+      return;
+    }
+    try {
+      // the channel remains in blocking mode until the challenge has been sent
+      final ChannelOutput out = new ChannelOutput(sc);
+      cl.challenge(out);
+      sc.configureBlocking(false);
+      final Connection conn = new Connection(sc, cl);
+      conn.key = sc.register(selector, SelectionKey.OP_READ, conn);
+      out.conn = conn;
+    } catch(final IOException ex) {
+      Util.debug(ex);
+      server.remove(cl);
+      sc.close();
+    }
+  }
+
+  /**
+   * Reads incoming data of a connection.
+   * @param conn connection
+   */
+  private void read(final Connection conn) {
+    bb.clear();
+    int n;
+    try {
+      n = conn.channel.read(bb);
+    } catch(final IOException ex) {
+      Util.debug(ex);
+      n = -1;
+    }
+    if(n == -1) {
+      conn.close();
+    } else if(n > 0) {
+      conn.add(bb.array(), n);
+      dispatch(conn);
+    }
+  }
+
+  /**
+   * Resumes reading from a connection whose last request has been processed.
+   * @param conn connection
+   */
+  private void resume(final Connection conn) {
+    if(conn.key.isValid() && !dispatch(conn)) conn.key.interestOps(SelectionKey.OP_READ);
+  }
+
+  /**
+   * Dispatches the next requests of a connection to a worker thread, if they are complete.
+   * No further data will be read from this connection until the request has been processed.
+   * @param conn connection
+   * @return {@code true} if a request was dispatched
+   */
+  private boolean dispatch(final Connection conn) {
+    byte[] request = conn.next();
+    if(request == null) return false;
+    // pipelined requests are processed in one go; rejected requests are processed separately
+    byte[] next = conn.login || request == REJECTED ? null : conn.next();
+    if(next != null && next != REJECTED) {
+      final ByteList bl = new ByteList().add(request);
+      do bl.add(next); while((next = conn.next()) != null && next != REJECTED);
+      request = bl.finish();
+    }
+    conn.pending = next;
+    conn.request = request;
+    conn.key.interestOps(0);
+    workers.execute(conn);
+    return true;
+  }
+
+  /** Client connection. */
+  private final class Connection implements Runnable {
+    /** Socket channel. */
+    private final SocketChannel channel;
+    /** Client session. */
+    private final ClientListener client;
+    /** Selection key. */
+    private SelectionKey key;
+
+    /** Received bytes. */
+    private byte[] buffer = new byte[BUFFER];
+    /** Number of received bytes. */
+    private int size;
+    /** Request to be processed by a worker thread. */
+    private byte[] request;
+    /** Complete request that has not been dispatched yet (may be {@code null}). */
+    private byte[] pending;
+    /** Maximum size of requests with input. */
+    private final int limit;
+    /** Indicates if the next request contains the login data. */
+    private boolean login = true;
+
+    /** Number of parsed bytes of the current request. */
+    private int pos;
+    /** Number of strings that remain to be parsed ({@code -1}: request type is unknown). */
+    private int strings = -1;
+    /** Indicates if the strings will be followed by encoded input. */
+    private boolean input;
+    /** Indicates if the next input byte is escaped. */
+    private boolean escape;
+    /** Indicates if the input of the current request is discarded. */
+    private boolean discard;
+    /** Indicates if the connection waits until the channel is ready for writing. */
+    private boolean writing;
+
+    /**
+     * Constructor.
+     * @param channel socket channel
+     * @param client client session
+     */
+    Connection(final SocketChannel channel, final ClientListener client) {
+      this.channel = channel;
+      this.client = client;
+      limit = server.context.soptions.get(StaticOptions.SELECTORINPUT);
+    }
+
+    @Override
+    public void run() {
+      final boolean active = login ? client.login(request) : request == REJECTED ?
+        client.reject(Util.info(Text.REQUEST_LIMIT_X, limit)) : client.request(request);
+      login = false;
+      request = null;
+      if(active) {
+        ready.add(this);
+        selector.wakeup();
+      } else {
+        try {
+          channel.close();
+        } catch(final IOException ex) {
+          Util.debug(ex);
+        }
+      }
+    }
+
+    /**
+     * Adds received bytes.
+     * @param bytes bytes
+     * @param length number of bytes
+     */
+    void add(final byte[] bytes, final int length) {
+      if(size + length > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(size + length, Array.newSize(buffer.length)));
+      }
+      System.arraycopy(bytes, 0, buffer, size, length);
+      size += length;
+    }
+
+    /**
+     * Returns the next complete request.
+     * @return request, or {@code null} if no request has been completely received
+     */
+    byte[] next() {
+      final byte[] pend = pending;
+      if(pend != null) {
+        pending = null;
+        return pend;
+      }
+      if(size == 0) return null;
+      if(strings == -1) {
+        // determine the structure of the request
+        input = false;
+        strings = 1;
+        if(!login) {
+          final ServerCmd sc = ServerCmd.get(buffer[0] & 0xFF);
+          if(sc == ServerCmd.BIND) {
+            strings = 4;
+          } else if(sc == ServerCmd.CONTEXT) {
+            strings = 3;
+          } else if(sc == ServerCmd.CHUNK) {
+            strings = 2;
+          } else {
+            input = sc == ServerCmd.CREATE || sc == ServerCmd.ADD ||
+                sc == ServerCmd.REPLACE || sc == ServerCmd.STORE;
+          }
+          // the first byte of a database command is part of the command string
+          if(sc != ServerCmd.COMMAND) pos = 1;
+        } else {
+          // user name and digest
+          strings = 2;
+        }
+      }
+
+      // parse 0-terminated strings, followed by encoded input (0xFF: escape byte, 0x00: end)
+      while(pos < size) {
+        final byte b = buffer[pos++];
+        if(strings > 0) {
+          if(b == 0) strings--;
+        } else if(escape) {
+          escape = false;
+        } else if(b == (byte) 0xFF) {
+          escape = true;
+        } else if(b == 0) {
+          input = false;
+        }
+        if(strings == 0) {
+          if(!input) {
+            final byte[] req = discard ? REJECTED : Arrays.copyOf(buffer, pos);
+            skip();
+            strings = -1;
+            discard = false;
+            return req;
+          }
+          // discard input that exceeds the limit
+          if(!discard && limit > 0 && pos > limit) discard = true;
+        }
+      }
+      if(discard) skip();
+      return null;
+    }
+
+    /**
+     * Removes the parsed bytes from the buffer.
+     */
+    private void skip() {
+      size -= pos;
+      if(size == 0 && buffer.length > BUFFER) {
+        buffer = new byte[BUFFER];
+      } else {
+        System.arraycopy(buffer, pos, buffer, 0, size);
+      }
+      pos = 0;
+    }
+
+    /**
+     * Waits until the selector thread signals that the channel is ready for writing.
+     * @throws IOException I/O exception
+     */
+    synchronized void await() throws IOException {
+      writing = true;
+      writers.add(this);
+      selector.wakeup();
+      try {
+        while(writing) {
+          if(!channel.isOpen()) throw new ClosedChannelException();
+          wait(INTERVAL);
+        }
+      } catch(final InterruptedException ex) {
+        throw new InterruptedIOException();
+      }
+    }
+
+    /**
+     * Signals that the channel is ready for writing.
+     */
+    synchronized void writable() {
+      writing = false;
+      notifyAll();
+    }
+
+    /**
+     * Closes a connection that has been terminated by the client.
+     */
+    void close() {
+      key.cancel();
+      if(login) {
+        server.remove(client);
+        try {
+          channel.close();
+        } catch(final IOException ex) {
+          Util.debug(ex);
+        }
+      } else {
+        client.quit();
+      }
+    }
+  }
+
+  /** Output stream, writing to a socket channel. */
+  private static final class ChannelOutput extends OutputStream {
+    /** Socket channel. */
+    private final SocketChannel channel;
+    /** Connection, assigned when the channel has been switched to non-blocking mode. */
+    private Connection conn;
+
+    /**
+     * Constructor.
+     * @param channel socket channel
+     */
+    ChannelOutput(final SocketChannel channel) {
+      this.channel = channel;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+      write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+      final ByteBuffer buf = ByteBuffer.wrap(b, off, len);
+      while(buf.hasRemaining()) {
+        if(channel.write(buf) == 0) conn.await();
+      }
+    }
+  }
+}
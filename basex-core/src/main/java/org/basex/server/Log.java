@@ -5,6 +5,9 @@ import static org.basex.util.Token.*;
 import java.io.*;
 import java.math.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
 
 import org.basex.core.*;
 import org.basex.core.users.*;
@@ -13,6 +16,7 @@ import org.basex.util.*;
 
 /**
  * This class writes daily log files to disk.
+ * Entries are queued by the logging threads and written by a single background thread.
  * The log format has been updated in Version 7.4; it now has the following columns:
  * <ul>
  *   <li><b>Time</b>: timestamp (format: {@code xs:time})</li>
@@ -39,8 +43,28 @@ public final class Log {
     /** OK.      */ OK
   }
 
+  /** Maximum number of pending entries. If the limit is reached, logging threads will wait. */
+  private static final int CAPACITY = 1 << 14;
+  /** Maximum number of entries that will be written at once. */
+  private static final int BATCH = 1 << 10;
+  /** Interval for checking pending entries (ms). */
+  private static final int INTERVAL = 100;
+
   /** Static options. */
   private final StaticOptions sopts;
+  /** Pending entries. */
+  private final ConcurrentLinkedQueue<Entry> entries = new ConcurrentLinkedQueue<>();
+  /** Number of pending entries. */
+  private final AtomicInteger pending = new AtomicInteger();
+  /** Number of entries that have been queued so far. */
+  private final AtomicLong queued = new AtomicLong();
+  /** Monitor for threads waiting for the writer. */
+  private final Object signal = new Object();
+  /** Writer thread (may be {@code null}). */
+  private volatile Writer writer;
+  /** Number of entries that have been processed by the writer. */
+  private volatile long written;
+
   /** Start date of log. */
   private String start;
   /** Output stream. */
@@ -59,7 +83,7 @@ public final class Log {
    * @param type log type
    * @param info info string (can be {@code null})
    */
-  public synchronized void writeServer(final LogType type, final String info) {
+  public void writeServer(final LogType type, final String info) {
     write(SERVER, null, type, info, null);
   }
 
@@ -71,7 +95,7 @@ public final class Log {
    * @param info info string (can be {@code null})
    * @param perf performance string
    */
-  public synchronized void write(final String address, final User user, final int type,
+  public void write(final String address, final User user, final int type,
       final String info, final Performance perf) {
     write(address, user, Integer.toString(type), info, perf);
   }
@@ -84,20 +108,22 @@ public final class Log {
    * @param info info string (can be {@code null})
    * @param perf performance string
    */
-  public synchronized void write(final String address, final User user, final LogType type,
+  public void write(final String address, final User user, final LogType type,
       final String info, final Performance perf) {
     write(address, user, type.toString(), info, perf);
   }
 
   /**
-   * Writes an entry to the log file.
+   * Writes an entry to the log file. The entry is added to a queue, and it will be
+   * written by a background thread. If too many entries are pending, the calling thread
+   * will wait until entries have been written.
    * @param address address string
    * @param user user ({@code admin} if null)
    * @param type type (ERROR, OK, REQUEST, INFO, HTTP status code)
    * @param info info string (can be {@code null})
    * @param perf performance string
    */
-  private synchronized void write(final String address, final User user, final String type,
+  private void write(final String address, final User user, final String type,
       final String info, final Performance perf) {
 
     if(!sopts.get(StaticOptions.LOG)) {
@@ -105,44 +131,141 @@ public final class Log {
       return;
     }
 
-    // initializes the output stream and returns the current date
-    final Date date = new Date();
-    try {
-      // check if day has changed
-      final String nstart = DateTime.format(date, DateTime.DATE);
-      if(fos != null && !start.equals(nstart)) close();
-
-      // create new log file
-      if(fos == null) {
-        final IOFile dir = dir();
-        dir.md();
-        fos = new FileOutputStream(new IOFile(dir, nstart + IO.LOGSUFFIX).file(), true);
-        start = nstart;
+    entries.add(new Entry(System.currentTimeMillis(), address,
+        user == null ? UserText.ADMIN : user.name(), type, info,
+        perf == null ? null : perf.toString()));
+    queued.incrementAndGet();
+
+    final Writer wr = writer();
+    if(pending.incrementAndGet() < CAPACITY) {
+      if(wr.idle) LockSupport.unpark(wr);
+    } else {
+      // queue is full: wait until entries have been written
+      LockSupport.unpark(wr);
+      synchronized(signal) {
+        while(pending.get() >= CAPACITY && wr.isAlive()) {
+          try {
+            signal.wait(INTERVAL);
+          } catch(final InterruptedException ex) {
+            Util.debug(ex);
+            break;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Waits until all entries that have been queued so far have been written.
+   */
+  public void flush() {
+    final Writer wr = writer;
+    if(wr == null) return;
+    final long target = queued.get();
+    LockSupport.unpark(wr);
+    synchronized(signal) {
+      while(written < target && wr.isAlive()) {
+        try {
+          signal.wait(INTERVAL);
+        } catch(final InterruptedException ex) {
+          Util.debug(ex);
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes all pending entries and closes the log file.
+   */
+  public void close() {
+    if(writer == null) return;
+    synchronized(this) {
+      final Writer wr = writer;
+      if(wr == null) return;
+      wr.stopped = true;
+      LockSupport.unpark(wr);
+      try {
+        wr.join();
+      } catch(final InterruptedException ex) {
+        Util.debug(ex);
+      }
+      writer = null;
+    }
+  }
+
+  /**
+   * Returns the writer thread. A new thread will be started if required.
+   * @return writer
+   */
+  private Writer writer() {
+    Writer wr = writer;
+    if(wr == null) {
+      synchronized(this) {
+        wr = writer;
+        if(wr == null) {
+          wr = new Writer();
+          wr.start();
+          writer = wr;
+        }
       }
+    }
+    return wr;
+  }
 
-      // construct log text
-      final int ml = sopts.get(StaticOptions.LOGMSGMAXLEN);
-      final TokenBuilder tb = new TokenBuilder();
-      tb.add(DateTime.format(date, DateTime.TIME));
-      tb.add('\t').add(address);
-      tb.add('\t').add(user == null ? UserText.ADMIN : user.name());
-      tb.add('\t').add(type);
-      tb.add('\t').add(info == null ? EMPTY : chop(normalize(token(info)), ml));
-      if(perf != null) tb.add('\t').add(perf.toString());
-      tb.add(Prop.NL);
+  /**
+   * Writes the next pending entries to disk. Must only be called by the writer thread.
+   * @return number of processed entries
+   */
+  private int drain() {
+    final int ml = sopts.get(StaticOptions.LOGMSGMAXLEN);
+    final TokenBuilder tb = new TokenBuilder();
+    int n = 0;
+    try {
+      for(Entry entry; n < BATCH && (entry = entries.poll()) != null;) {
+        // count entry as processed, even if it cannot be written
+        n++;
+        // check if day has changed
+        final Date date = new Date(entry.time);
+        final String nstart = DateTime.format(date, DateTime.DATE);
+        if(fos != null && !start.equals(nstart)) {
+          fos.write(tb.next());
+          closeFile();
+        }
+        // create new log file
+        if(fos == null) {
+          final IOFile dir = dir();
+          dir.md();
+          fos = new FileOutputStream(new IOFile(dir, nstart + IO.LOGSUFFIX).file(), true);
+          start = nstart;
+        }
 
+        // construct log text
+        tb.add(DateTime.format(date, DateTime.TIME));
+        tb.add('\t').add(entry.address);
+        tb.add('\t').add(entry.user);
+        tb.add('\t').add(entry.type);
+        tb.add('\t').add(entry.info == null ? EMPTY : chop(normalize(token(entry.info)), ml));
+        if(entry.perf != null) tb.add('\t').add(entry.perf);
+        tb.add(Prop.NL);
+      }
       // write and flush text
-      fos.write(tb.finish());
-      fos.flush();
+      if(fos != null && !tb.isEmpty()) {
+        fos.write(tb.finish());
+        fos.flush();
+      }
     } catch(final IOException ex) {
+      // discard remaining entries of the batch
       Util.stack(ex);
+      while(n < BATCH && entries.poll() != null) n++;
     }
+    return n;
   }
 
   /**
-   * Closes the log file.
+   * Closes the log file. Must only be called by the writer thread.
    */
-  public synchronized void close() {
+  private void closeFile() {
     if(fos == null) return;
     try {
       fos.close();
@@ -156,7 +279,7 @@ public final class Log {
    * Returns a reference to the log directory.
    * @return log directory
    */
-  public synchronized IOFile dir() {
+  public IOFile dir() {
     // log suffix, plural
     return sopts.dbpath(IO.LOGSUFFIX + 's');
   }
@@ -165,7 +288,7 @@ public final class Log {
    * Returns all log files.
    * @return log directory
    */
-  public synchronized IOFile[] files() {
+  public IOFile[] files() {
     return dir().children(".*\\" + IO.LOGSUFFIX);
   }
 
@@ -186,4 +309,78 @@ public final class Log {
     /** Message. */
     public String message;
   }
+
+  /**
+   * Pending log entry.
+   */
+  private static final class Entry {
+    /** Timestamp. */
+    private final long time;
+    /** Address. */
+    private final String address;
+    /** User. */
+    private final String user;
+    /** Type. */
+    private final String type;
+    /** Info string (can be {@code null}). */
+    private final String info;
+    /** Performance string (can be {@code null}). */
+    private final String perf;
+
+    /**
+     * Constructor.
+     * @param time timestamp
+     * @param address address
+     * @param user user
+     * @param type type
+     * @param info info string
+     * @param perf performance string
+     */
+    private Entry(final long time, final String address, final String user, final String type,
+        final String info, final String perf) {
+      this.time = time;
+      this.address = address;
+      this.user = user;
+      this.type = type;
+      this.info = info;
+      this.perf = perf;
+    }
+  }
+
+  /**
+   * Thread, which writes the pending entries to disk.
+   */
+  private final class Writer extends Thread {
+    /** Indicates if the thread is waiting for new entries. */
+    private volatile boolean idle;
+    /** Indicates if the thread will be stopped once all entries have been written. */
+    private volatile boolean stopped;
+
+    /** Constructor. */
+    private Writer() {
+      super("LogWriter");
+      setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      while(true) {
+        final int n = drain();
+        if(n > 0) {
+          pending.addAndGet(-n);
+          written += n;
+          synchronized(signal) {
+            signal.notifyAll();
+          }
+        } else if(stopped) {
+          break;
+        } else {
+          idle = true;
+          if(entries.isEmpty() && !stopped) LockSupport.parkNanos(this, INTERVAL * 1000000L);
+          idle = false;
+        }
+      }
+      closeFile();
+    }
+  }
 }
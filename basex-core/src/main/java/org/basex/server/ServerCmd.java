@@ -3,6 +3,9 @@ package org.basex.server;
 /**
  * This class defines the available command-line commands.
  *
+ * Query commands with an empty id reference the most recently created query of a session.
+ * This way, clients can send pipelined requests without waiting for the query id.
+ *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
  */
@@ -37,6 +40,8 @@ public enum ServerCmd {
   STORE(13),
   /** Code for binding a context value: {id}0{val}0{type}0. */
   CONTEXT(14),
+  /** Code for returning the next chunk of results: {id}0{max}0. */
+  CHUNK(15),
   /** Code for returning the update flag: {id}0. */
   UPDATING(30),
   /** Code for executing a query and returning all information relevant for XQJ: {id}0. */
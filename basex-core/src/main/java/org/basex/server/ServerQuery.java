@@ -4,12 +4,14 @@ import static org.basex.core.Text.*;
 import static org.basex.query.QueryError.*;
 
 import java.io.*;
+import java.util.concurrent.*;
 
 import org.basex.api.client.*;
 import org.basex.core.*;
 import org.basex.io.out.*;
 import org.basex.io.serial.*;
 import org.basex.query.*;
+import org.basex.query.PreparedQueries.Prepared;
 import org.basex.query.iter.*;
 import org.basex.query.value.item.*;
 import org.basex.util.*;
@@ -17,10 +19,24 @@ import org.basex.util.*;
 /**
  * Server-side query, generated by {@link LocalQuery} and {@link ClientQuery}.
  *
+ * If results are requested in chunks, the query will be evaluated in a separate thread, which
+ * owns the database locks until all results have been requested or the query is closed.
+ * The thread will be suspended as long as the results of the next chunk have not been requested.
+ * If the next chunk is not requested within the time specified by
+ * {@link StaticOptions#CHUNKTIMEOUT}, the evaluation will be stopped, and the locks will be
+ * released. Until then, the query occupies one of the slots for parallel readers
+ * ({@link StaticOptions#PARALLEL}), and updates of the same session are rejected, as they
+ * would wait for the locks of the query (see {@link ClientListener}).
+ *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
  */
 public final class ServerQuery extends Proc {
+  /** Interval for checking if the query has been stopped (ms). */
+  private static final int INTERVAL = 100;
+  /** End marker of chunked results. */
+  private static final byte[] END = {};
+
   /** Performance. */
   private final Performance perf = new Performance();
   /** Query string. */
@@ -30,12 +46,12 @@ public final class ServerQuery extends Proc {
 
   /** Query processor. */
   private QueryProcessor qp;
-  /** Serialization parameters. */
-  private SerializerOptions parameters;
   /** Parsing flag. */
   private boolean parsed;
   /** Query info. */
   private String info = "";
+  /** Evaluation of chunked results (may be {@code null}). */
+  private Producer producer;
 
   /**
    * Constructor.
@@ -55,6 +71,7 @@ public final class ServerQuery extends Proc {
    * @throws IOException query exception
    */
   public void bind(final String name, final Object value, final String type) throws IOException {
+    close();
     try {
       init().bind(name, value, type);
     } catch(final QueryException ex) {
@@ -70,6 +87,7 @@ public final class ServerQuery extends Proc {
    * @throws IOException query exception
    */
   public void context(final Object value, final String type) throws IOException {
+    close();
     try {
       init().context(value, type);
     } catch(final QueryException ex) {
@@ -91,8 +109,7 @@ public final class ServerQuery extends Proc {
    * @throws IOException I/O Exception
    */
   public String parameters() throws IOException {
-    if(parameters == null) parameters = parse().qc.serParams();
-    return parameters.toString();
+    return prepare().parameters;
   }
 
   /**
@@ -101,7 +118,7 @@ public final class ServerQuery extends Proc {
    * @throws IOException I/O Exception
    */
   public boolean updating() throws IOException {
-    return parse().updating;
+    return prepare().updating;
   }
 
   /**
@@ -115,6 +132,7 @@ public final class ServerQuery extends Proc {
   public void execute(final boolean iter, final OutputStream out, final boolean encode,
       final boolean full) throws IOException {
 
+    close();
     try {
       // parses the query and registers the process
       ctx.register(parse());
@@ -125,12 +143,11 @@ public final class ServerQuery extends Proc {
       qi.compiling = perf.time();
       final Iter ir = qp.iter();
       qi.evaluating = perf.time();
-      parameters();
 
       // iterate through results
       int c = 0;
       final PrintOutput po = PrintOutput.get(encode ? new EncodingOutput(out) : out);
-      try(final Serializer ser = Serializer.get(po, full ? null : parameters)) {
+      try(final Serializer ser = Serializer.get(po, full ? null : qp.qc.serParams())) {
         for(Item it; (it = ir.next()) != null;) {
           if(iter) {
             po.write(full ? it.xdmInfo() : it.typeId().bytes());
@@ -169,6 +186,82 @@ public final class ServerQuery extends Proc {
     }
   }
 
+  /**
+   * Returns the next chunk of results. The query will be evaluated in a separate thread
+   * when the first chunk is requested. The next results will be evaluated in advance, but
+   * no more than the specified number of items will be kept in memory. If a chunk contains
+   * less than the requested number of items, all results have been returned.
+   * @param max maximum number of items to be returned
+   * @param out output stream
+   * @throws IOException I/O Exception
+   */
+  public void results(final int max, final OutputStream out) throws IOException {
+    if(producer == null) {
+      producer = new Producer(parse(), Math.max(1, max));
+      // the query processor will be closed and unregistered by the producer
+      qp = null;
+      parsed = false;
+      producer.start();
+    }
+
+    final Producer pr = producer;
+    try {
+      for(int c = 0; c < max; c++) {
+        final byte[] item = pr.items.take();
+        if(item == END) {
+          producer = null;
+          if(pr.error != null) throw new BaseXException(pr.error);
+          break;
+        }
+        out.write(item[0]);
+        final EncodingOutput eo = new EncodingOutput(out);
+        for(int i = 1; i < item.length; i++) eo.write(item[i]);
+        out.write(0);
+      }
+    } catch(final InterruptedException ex) {
+      throw new BaseXException(ex);
+    }
+  }
+
+  /**
+   * Indicates if chunked results are pending.
+   * @return result of check
+   */
+  public boolean pending() {
+    return producer != null;
+  }
+
+  /**
+   * Stops the evaluation of chunked results and waits until the database locks
+   * have been released.
+   */
+  public void close() {
+    final Producer pr = producer;
+    if(pr == null) return;
+    producer = null;
+    pr.closed = true;
+    pr.proc.stop();
+    try {
+      pr.join();
+    } catch(final InterruptedException ex) {
+      Util.debug(ex);
+    }
+  }
+
+  /**
+   * Returns the static properties of the query.
+   * The query will only be parsed if the properties have not been cached before.
+   * @return properties
+   * @throws IOException I/O Exception
+   */
+  private Prepared prepare() throws IOException {
+    try {
+      return init().prepare();
+    } catch(final QueryException ex) {
+      throw new BaseXException(ex);
+    }
+  }
+
   /**
    * Initializes the query.
    * @return query processor
@@ -199,4 +292,113 @@ public final class ServerQuery extends Proc {
     }
     return qp;
   }
+
+  /**
+   * Thread, which evaluates a query and serializes the results for chunked requests.
+   */
+  private final class Producer extends Thread {
+    /** Serialized items, each starting with the type id. */
+    private final BlockingQueue<byte[]> items;
+    /** Query processor. */
+    private final QueryProcessor proc;
+    /** Error message (may be {@code null}). */
+    private volatile String error;
+    /** Indicates if the query has been closed. */
+    private volatile boolean closed;
+    /** Indicates if the next results have not been requested in time. */
+    private boolean idle;
+
+    /**
+     * Constructor.
+     * @param proc parsed query processor
+     * @param max maximum number of items to be cached
+     */
+    private Producer(final QueryProcessor proc, final int max) {
+      super("QueryProducer");
+      setDaemon(true);
+      this.proc = proc;
+      items = new ArrayBlockingQueue<>(max);
+    }
+
+    @Override
+    public void run() {
+      boolean registered = false;
+      try {
+        ctx.register(proc);
+        registered = true;
+
+        proc.compile();
+        final QueryInfo qi = proc.qc.info;
+        qi.compiling = perf.time();
+        final Iter ir = proc.iter();
+        qi.evaluating = perf.time();
+
+        // serialize items and pass them on to the consumer
+        int c = 0;
+        long size = 0;
+        final ArrayOutput ao = new ArrayOutput();
+        try(final Serializer ser = Serializer.get(ao, proc.qc.serParams())) {
+          for(Item it; (it = ir.next()) != null;) {
+            ao.write(it.typeId().asByte());
+            ser.reset();
+            ser.serialize(it);
+            size += ao.size() - 1;
+            put(ao.toArray());
+            ao.reset();
+            c++;
+          }
+        }
+        qi.serializing = perf.time();
+        info = qi.toString(proc, size, c, ctx.options.get(MainOptions.QUERYINFO));
+
+      } catch(final QueryException ex) {
+        error = Util.message(ex);
+      } catch(final StackOverflowError ex) {
+        Util.debug(ex);
+        error = BASX_STACKOVERFLOW.desc;
+      } catch(final ProcException ex) {
+        error = TIMEOUT_EXCEEDED;
+      } catch(final Throwable th) {
+        Util.stack(th);
+        error = Util.message(th);
+      } finally {
+        // close processor and unregister the process before the end marker is passed on
+        proc.close();
+        if(registered) ctx.unregister(proc);
+        // discard pending items of an idle query, and return the error with the next request
+        if(idle) items.clear();
+        try {
+          put(END);
+        } catch(final ProcException ex) {
+          // query was closed: discard pending items
+          items.clear();
+          items.offer(END);
+        }
+      }
+    }
+
+    /**
+     * Passes on an item. Waits until the consumer has requested more items, or until the query
+     * has been stopped. The query is stopped if no more items have been requested in time.
+     * @param item item
+     */
+    private void put(final byte[] item) {
+      final long timeout = ctx.soptions.get(StaticOptions.CHUNKTIMEOUT) * 1000L;
+      final long start = System.currentTimeMillis();
+      try {
+        while(!items.offer(item, INTERVAL, TimeUnit.MILLISECONDS)) {
+          if(closed) throw new ProcException();
+          if(item != END) {
+            proc.checkStop();
+            if(timeout > 0 && System.currentTimeMillis() - start > timeout) {
+              idle = true;
+              throw new ProcException();
+            }
+          }
+        }
+      } catch(final InterruptedException ex) {
+        throw new ProcException();
+      }
+    }
+  }
 }
@@ -0,0 +1,143 @@
+package org.basex.core;
+
+import static org.basex.query.func.Function.*;
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.basex.*;
+import org.basex.core.cmd.*;
+import org.basex.core.cmd.Set;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Runs many small updates on the same database in parallel, which will be flushed in groups
+ * if {@link MainOptions#GROUPFLUSH} is enabled.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class GroupCommitTest extends SandboxTest {
+  /** Number of clients. */
+  private static final int CLIENTS = 8;
+  /** Number of updates per client. */
+  private static final int UPDATES = 25;
+
+  /** Error. */
+  private Throwable error;
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void init() throws BaseXException {
+    new CreateDB(NAME, "<x/>").execute(context);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Adds documents via commands.
+   * @throws Throwable throwable
+   */
+  @Test
+  public void commands() throws Throwable {
+    run(false, true);
+  }
+
+  /**
+   * Adds documents via XQuery.
+   * @throws Throwable throwable
+   */
+  @Test
+  public void queries() throws Throwable {
+    run(true, true);
+  }
+
+  /**
+   * Adds documents without grouping flushes.
+   * @throws Throwable throwable
+   */
+  @Test
+  public void noGroups() throws Throwable {
+    run(true, false);
+  }
+
+  /**
+   * Runs the clients and checks the resulting database.
+   * @param xquery use XQuery
+   * @param group group flushes
+   * @throws Throwable throwable
+   */
+  private void run(final boolean xquery, final boolean group) throws Throwable {
+    final ArrayList<Client> clients = new ArrayList<>();
+    for(int c = 0; c < CLIENTS; c++) clients.add(new Client(c, xquery, group));
+    for(final Client c : clients) c.start();
+    for(final Client c : clients) c.join();
+    if(error != null) throw error;
+
+    // all updates have been flushed
+    final String count = String.valueOf(CLIENTS * UPDATES + 1);
+    assertFalse(context.data().meta.updateFile().exists());
+    assertEquals(count, new XQuery(COUNT.args(_DB_OPEN.args(NAME))).execute(context));
+
+    // check reopened database
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+    assertEquals(count, new XQuery(COUNT.args(_DB_OPEN.args(NAME))).execute(context));
+  }
+
+  /**
+   * Client, running several updates.
+   */
+  private final class Client extends Thread {
+    /** Client id. */
+    private final int id;
+    /** Use XQuery. */
+    private final boolean xquery;
+    /** Group flushes. */
+    private final boolean group;
+
+    /**
+     * Constructor.
+     * @param id client id
+     * @param xquery use XQuery
+     * @param group group flushes
+     */
+    private Client(final int id, final boolean xquery, final boolean group) {
+      this.id = id;
+      this.xquery = xquery;
+      this.group = group;
+    }
+
+    @Override
+    public void run() {
+      final Context ctx = new Context(context, null);
+      ctx.user(context.user());
+      try {
+        new Set(MainOptions.GROUPFLUSH, group).execute(ctx);
+        new Open(NAME).execute(ctx);
+        for(int u = 0; u < UPDATES; u++) {
+          final String path = id + "/" + u + ".xml";
+          if(xquery) {
+            new XQuery(_DB_ADD.args(NAME, " <a/>", path)).execute(ctx);
+          } else {
+            new Add(path, "<a/>").execute(ctx);
+          }
+        }
+        new Close().execute(ctx);
+      } catch(final Throwable th) {
+        error = th;
+      }
+    }
+  }
+}
@@ -498,6 +498,39 @@ public final class LockingTest extends SandboxTest {
     else th2.release();
   }
 
+  /**
+   * Checks that a waiting writer does not block transactions on other objects.
+   * @throws InterruptedException Got interrupted.
+   */
+  @Test
+  public void waitingWriterTest() throws InterruptedException {
+    final int parallel = context.soptions.get(StaticOptions.PARALLEL);
+    context.soptions.set(StaticOptions.PARALLEL, 2);
+    try {
+      final CountDownLatch sync1 = new CountDownLatch(1), sync2 = new CountDownLatch(1),
+          test = new CountDownLatch(1);
+      final String[] first = { objects[0] }, second = { objects[1] };
+      final LockTester th1 = new LockTester(null, first, NONE, sync1);
+      final LockTester th2 = new LockTester(sync1, NONE, first, sync2);
+      final LockTester th3 = new LockTester(sync1, second, NONE, test);
+
+      th1.start();
+      th2.start();
+      assertFalse("Thread 2 shouldn't be able to acquire lock yet.",
+          sync2.await(WAIT, TimeUnit.MILLISECONDS));
+      th3.start();
+      assertTrue("Thread 3 shouldn't be blocked by thread 2.",
+          test.await(WAIT, TimeUnit.MILLISECONDS));
+      th1.release();
+      assertTrue("Thread 2 should be able to acquire lock now.",
+          sync2.await(WAIT, TimeUnit.MILLISECONDS));
+      th2.release();
+      th3.release();
+    } finally {
+      context.soptions.set(StaticOptions.PARALLEL, parallel);
+    }
+  }
+
   /**
    * Fuzzing test, watch for deadlocks. Uses multiple threads in parallel which all fetch
    * random locks, hold them for a while, release them and fetch the next one.
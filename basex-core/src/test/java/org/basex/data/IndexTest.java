@@ -1,6 +1,7 @@
 package org.basex.data;
 
 import static org.basex.query.func.Function.*;
+import static org.junit.Assert.*;
 
 import org.basex.core.*;
 import org.basex.core.cmd.*;
@@ -23,6 +24,7 @@ public final class IndexTest extends AdvancedQueryTest {
   public void after() throws BaseXException {
     run(new Set(MainOptions.UPDINDEX, false));
     run(new Set(MainOptions.AUTOOPTIMIZE, false));
+    run(new Set(MainOptions.FTINDEX, false));
   }
 
   /**
@@ -144,6 +146,97 @@ public final class IndexTest extends AdvancedQueryTest {
     run(new Close());
   }
 
+  /**
+   * Test.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void updindexFT() throws BaseXException {
+    run(new Set(MainOptions.UPDINDEX, true));
+    run(new Set(MainOptions.FTINDEX, true));
+    run(new CreateDB(NAME, "<x><a>apple banana</a><a>cherry</a></x>"));
+    query("insert node <a>banana date</a> into /x");
+    query("replace value of node /x/a[1] with 'elder fig'");
+    query("delete node /x/a[2]");
+    query("insert node <a>elder</a> before /x/a[1]");
+    query("delete node /x/a[1]");
+    ftquery();
+
+    run(new Close());
+    run(new Open(NAME));
+    ftquery();
+
+    // rebuild index
+    run(new Optimize());
+    ftquery();
+  }
+
+  /**
+   * Test: updates of the full-text index are appended to the log.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void updindexFTLog() throws BaseXException {
+    run(new Set(MainOptions.UPDINDEX, true));
+    run(new Set(MainOptions.FTINDEX, true));
+    run(new CreateDB(NAME, "<x>{ (1 to 10000) ! <a>{ 'w' || . }</a> }</x>"));
+    query("insert node <a>apple banana</a> into /x");
+    final long size = ftdelta();
+    for(int i = 0; i < 10; i++) query("insert node <a>banana " + i + "</a> into /x");
+    query("replace value of node /x/a[. = 'apple banana'] with 'cherry'");
+    query("delete node /x/a[. = 'banana 5']");
+    // each update appends a few bytes
+    final long logged = ftdelta() - size;
+    assertTrue("Log size: " + logged, logged > 0 && logged < 1024);
+
+    run(new Close());
+    run(new Open(NAME));
+    query("count(" + _FT_SEARCH.args(NAME, "banana") + ')', 9);
+    query(_FT_SEARCH.args(NAME, "cherry") + "/string()", "cherry");
+    query(_FT_SEARCH.args(NAME, "apple"), "");
+    query(_FT_SEARCH.args(NAME, "5"), "");
+  }
+
+  /**
+   * Test: a fragmented full-text index is rebuilt, even if AUTOOPTIMIZE is disabled.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void updindexFTRebuild() throws BaseXException {
+    run(new Set(MainOptions.UPDINDEX, true));
+    run(new Set(MainOptions.FTINDEX, true));
+    run(new CreateDB(NAME, "<x><a>apple</a></x>"));
+    query("insert node (1 to 10000) ! <a>{ 'w' || . }</a> into /x");
+    query(_DB_INFO.args(NAME) + "//ftindex/text()", "true");
+    // the delta structure has been discarded
+    assertTrue("Delta size: " + ftdelta(), ftdelta() < 16);
+    query(_FT_SEARCH.args(NAME, "w10000") + "/string()", "w10000");
+    query(_FT_SEARCH.args(NAME, "apple") + "/string()", "apple");
+  }
+
+  /**
+   * Returns the size of the delta structure of the full-text index.
+   * @return size
+   */
+  private static long ftdelta() {
+    return context.data().meta.dbfile(DataText.DATAFTX + 'd').length();
+  }
+
+  /**
+   * Runs full-text queries on the updated database.
+   */
+  private static void ftquery() {
+    query(_DB_INFO.args(NAME) + "//ftindex/text()", "true");
+    query(_FT_SEARCH.args(NAME, "banana") + "/string()", "banana date");
+    query(_FT_SEARCH.args(NAME, "elder") + "/string()", "elder fig");
+    query(_FT_SEARCH.args(NAME, "apple"), "");
+    query(_FT_SEARCH.args(NAME, "cherry"), "");
+    query("//a[text() contains text 'd.*' using wildcards]/string()", "banana date");
+    query("//a[text() contains text 'eldar' using fuzzy]/string()", "elder fig");
+    query("string-join(" + _FT_TOKENS.args(NAME) + " ! (. || ':' || @count), ',')",
+        "fig:1,date:1,elder:1,banana:1");
+  }
+
   /**
    * Test.
    * @throws BaseXException database exception
@@ -0,0 +1,36 @@
+package org.basex.data;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * Test index updates when using disk storage with memory-mapped files ({@link DiskData}).
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class MappedDiskDataTest extends MemDataTest {
+  /** Test database name. */
+  private final String dbname = Util.className(MappedDiskDataTest.class);
+
+  @Override
+  @Before
+  public void setUp() throws BaseXException {
+    new CreateDB(dbname, XMLSTR).execute(context);
+    new Close().execute(context);
+    new Set(MainOptions.MMAP, true).execute(context);
+    new Open(dbname).execute(context);
+  }
+
+  /**
+   * Clean up method; executed after each test; drops the database.
+   * @throws BaseXException the database cannot be dropped
+   */
+  @After
+  public void cleanUp() throws BaseXException {
+    new Set(MainOptions.MMAP, false).execute(context);
+    new DropDB(dbname).execute(context);
+  }
+}
@@ -0,0 +1,113 @@
+package org.basex.index;
+
+import static org.basex.util.Token.*;
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.core.cmd.Set;
+import org.basex.data.*;
+import org.basex.index.query.*;
+import org.basex.util.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Concurrent lookups in the value index.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class DiskValuesConcurrencyTest extends SandboxTest {
+  /** Number of distinct keys. */
+  private static final int KEYS = 100;
+  /** Number of hits per key. */
+  private static final int HITS = 5;
+  /** Number of threads. */
+  private static final int THREADS = 4;
+  /** Number of lookups per thread. */
+  private static final int LOOKUPS = 500;
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void init() throws BaseXException {
+    final TokenBuilder tb = new TokenBuilder("<x>");
+    for(int i = 0; i < KEYS * HITS; i++) tb.add("<a>").addInt(i % KEYS).add("</a>");
+    new CreateDB(NAME, tb.add("</x>").toString()).execute(context);
+    new Close().execute(context);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new Set(MainOptions.MMAP, false).execute(context);
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Concurrent lookups with buffered file access.
+   * @throws Exception exception
+   */
+  @Test
+  public void buffered() throws Exception {
+    run(false);
+  }
+
+  /**
+   * Concurrent lookups with memory-mapped file access.
+   * @throws Exception exception
+   */
+  @Test
+  public void mapped() throws Exception {
+    run(true);
+  }
+
+  /**
+   * Performs concurrent lookups and checks the returned text nodes.
+   * @param mmap memory mapping
+   * @throws Exception exception
+   */
+  private static void run(final boolean mmap) throws Exception {
+    new Set(MainOptions.MMAP, mmap).execute(context);
+    new Open(NAME).execute(context);
+    final Data data = context.data();
+    final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+    try {
+      final ArrayList<Future<Void>> futures = new ArrayList<>();
+      for(int t = 0; t < THREADS; t++) {
+        final int seed = t;
+        futures.add(pool.submit(new Callable<Void>() {
+          @Override
+          public Void call() {
+            final Random rnd = new Random(seed);
+            for(int l = 0; l < LOOKUPS; l++) {
+              final byte[] key = token(rnd.nextInt(KEYS));
+              final IndexIterator ii = data.iter(new StringToken(true, key));
+              int c = 0;
+              while(ii.more()) {
+                assertArrayEquals(key, data.text(ii.pre(), true));
+                c++;
+              }
+              assertEquals(HITS, c);
+            }
+            return null;
+          }
+        }));
+      }
+      for(final Future<Void> f : futures) f.get();
+    } finally {
+      pool.shutdown();
+      new Close().execute(context);
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package org.basex.index;
+
+import static org.basex.query.func.Function.*;
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.core.cmd.Set;
+import org.basex.util.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Compares index structures that have been built sequentially, in parallel,
+ * and with partial index structures.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class IndexBuilderTest extends SandboxTest {
+  /** Number of elements. */
+  private static final int SIZE = 40000;
+  /** Query returning the contents of all index structures. */
+  private static final String QUERY =
+    "string-join(for $e in " + _INDEX_TEXTS.args(NAME) + " return $e || ':' || $e/@count, ',')" +
+    " || '|' || " +
+    "string-join(for $e in " + _INDEX_ATTRIBUTES.args(NAME) + " return $e || ':' || $e/@count)" +
+    " || '|' || " +
+    "string-join(for $e in " + _FT_TOKENS.args(NAME) + " return $e || ':' || $e/@count, ',')" +
+    " || '|' || " +
+    "string-join(" + _DB_NODE_PRE.args(_DB_TEXT.args(NAME, "17")) + " ! string(), ',')" +
+    " || '|' || " +
+    "string-join(" + _DB_NODE_PRE.args(_DB_OPEN.args(NAME) +
+      "//text()[. contains text 'w5']") + " ! string(), ',')";
+
+  /** Test document. */
+  private static String doc;
+
+  /**
+   * Creates the test document.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void init() throws BaseXException {
+    final TokenBuilder tb = new TokenBuilder("<x>");
+    for(int i = 0; i < SIZE; i++) {
+      tb.add("<a b='").addInt(i % 101).add("'>").addInt(i).add(" w").addInt(i % 13);
+      tb.add("</a>");
+    }
+    doc = tb.add("</x>").toString();
+    new Set(MainOptions.FTINDEX, true).execute(context);
+  }
+
+  /**
+   * Resets the options and drops the test database.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new Set(MainOptions.FTINDEX, false).execute(context);
+    new Set(MainOptions.UPDINDEX, false).execute(context);
+    new Set(MainOptions.INDEXTHREADS, 0).execute(context);
+    new Set(MainOptions.INDEXSPLITSIZE, 0).execute(context);
+    new Set(MainOptions.FTINDEXSPLITSIZE, 0).execute(context);
+    new Set(MainOptions.INDEXMEMORY, 0).execute(context);
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Compares parallel and sequential index builds.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void parallel() throws BaseXException {
+    final String expected = build(1, 0);
+    assertEquals(expected, build(4, 0));
+    assertEquals(expected, build(3, 0));
+  }
+
+  /**
+   * Compares index builds with partial index structures.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void split() throws BaseXException {
+    final String expected = build(1, 0);
+    assertEquals(expected, build(1, 5000));
+    assertEquals(expected, build(4, 5000));
+  }
+
+  /**
+   * Compares index builds with a small memory budget.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void budget() throws BaseXException {
+    final String expected = build(1, 0);
+    new Set(MainOptions.INDEXMEMORY, 1).execute(context);
+    try {
+      assertEquals(expected, build(1, 0));
+      assertEquals(expected, build(4, 0));
+    } finally {
+      new Set(MainOptions.INDEXMEMORY, 0).execute(context);
+    }
+  }
+
+  /**
+   * Compares updatable index builds.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void updindex() throws BaseXException {
+    new Set(MainOptions.UPDINDEX, true).execute(context);
+    try {
+      final String expected = build(1, 0);
+      assertEquals(expected, build(4, 0));
+      assertEquals(expected, build(4, 5000));
+    } finally {
+      new Set(MainOptions.UPDINDEX, false).execute(context);
+    }
+  }
+
+  /**
+   * Creates the database and returns the contents of its index structures.
+   * @param threads number of threads
+   * @param split split size
+   * @return index contents
+   * @throws BaseXException database exception
+   */
+  private static String build(final int threads, final int split) throws BaseXException {
+    new Set(MainOptions.INDEXTHREADS, threads).execute(context);
+    new Set(MainOptions.INDEXSPLITSIZE, split).execute(context);
+    new Set(MainOptions.FTINDEXSPLITSIZE, split).execute(context);
+    new CreateDB(NAME, doc).execute(context);
+    new Close().execute(context);
+
+    final String result = new XQuery(QUERY).execute(context);
+    assertFalse(result.isEmpty());
+    return result;
+  }
+}
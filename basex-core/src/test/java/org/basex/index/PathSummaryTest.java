@@ -0,0 +1,86 @@
+package org.basex.index;
+
+import static org.basex.query.func.Function.*;
+import static org.junit.Assert.*;
+
+import org.basex.core.cmd.*;
+import org.basex.query.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Checks if the path summary and the statistics are kept up-to-date after updates.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class PathSummaryTest extends AdvancedQueryTest {
+  /** Query returning results that are computed from the statistics. */
+  private static final String QUERY = "let $db := " + _DB_OPEN.args(NAME) + " return (" +
+    "count($db//b), count($db/a/b/c), count($db//@x), count($db//text()), " +
+    "string-join(sort(distinct-values($db//c)), ','), " +
+    "string-join(sort(distinct-values($db//@x)), ','), " +
+    "string-join(for $e in " + _INDEX_FACETS.args(NAME, "flat") + "//*[@name] " +
+    "return $e/@name || ':' || $e/@count, ','))";
+
+  /**
+   * Creates the test database.
+   * @throws Exception exception
+   */
+  @Before
+  public void init() throws Exception {
+    new CreateDB(NAME, "<a><b x='1'><c>A</c></b><b x='2'><c>B</c><d/></b></a>").
+      execute(context);
+    new Close().execute(context);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws Exception exception
+   */
+  @After
+  public void finish() throws Exception {
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Runs updates and compares the results with those of an optimized database.
+   * @throws Exception exception
+   */
+  @Test
+  public void update() throws Exception {
+    final String db = _DB_OPEN.args(NAME);
+    update("insert node <b x='3'><c>C</c></b> into " + db + "/a");
+    update("delete node " + db + "//b[@x = '1']");
+    update("rename node (" + db + "//d)[1] as 'e'");
+    update("rename node (" + db + "//@x)[1] as 'y'");
+    update("replace value of node (" + db + "//c)[1] with 'D'");
+    update("replace value of node (" + db + "//@x)[1] with 'z'");
+    update("replace node (" + db + "//b)[1] with <b x='5'><c>E</c><c>F</c></b>");
+    update("insert node <!--x--> into (" + db + "//c)[1]");
+    update("insert node attribute x { 'w' } into " + db + "/a");
+    update(_DB_ADD.args(NAME, " <a><b x='6'><c>A</c></b></a>", "x.xml"));
+    update(_DB_DELETE.args(NAME, "x.xml"));
+    update("delete node " + db + "/a/*");
+  }
+
+  /**
+   * Runs an update and checks the statistics.
+   * @param update update query
+   * @throws Exception exception
+   */
+  private static void update(final String update) throws Exception {
+    query(update);
+    new Open(NAME).execute(context);
+    assertTrue("Statistics are out-of-date: " + update, context.data().meta.uptodate);
+    new Close().execute(context);
+    final String result = query(QUERY);
+
+    // compare results with those of a database with rebuilt statistics
+    new Open(NAME).execute(context);
+    context.data().meta.uptodate = false;
+    new Optimize().execute(context);
+    new Close().execute(context);
+    assertEquals(update, query(QUERY), result);
+  }
+}
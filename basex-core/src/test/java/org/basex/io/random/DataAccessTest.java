@@ -338,6 +338,20 @@ public class DataAccessTest {
     assertContent(pos, CINT1_BIN);
   }
 
+  /** Positional reads return unflushed changes and do not move the cursor. */
+  @Test
+  public final void testReadUnflushed() {
+    final long off = STR_BIN.length + BYTE_BIN.length + LONG_BIN.length;
+    assertEquals(INT, da.read4(off));
+    da.write4(RANDOM_POS, CINT4);
+    assertEquals(CINT4, da.read4(RANDOM_POS));
+    da.flush();
+    da.cursor(0);
+    assertEquals(CINT4, da.read4(RANDOM_POS));
+    assertEquals(STR, Token.string(da.readToken(BLOCK_BOUNDARY_POS)));
+    assertEquals(0L, da.cursor());
+  }
+
   /** Test method for {@link DataAccess#free(long, int)}. */
   @Ignore
   @Test
@@ -0,0 +1,90 @@
+package org.basex.io.random;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.basex.io.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+import org.junit.*;
+
+/**
+ * Tests for class {@link PageCache}.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class PageCacheTest {
+  /** Number of blocks (exceeds the number of file buffers). */
+  private static final int BLOCKS = 64;
+
+  /** Temporary file. */
+  private IOFile file;
+  /** Original cache size. */
+  private long capacity;
+
+  /**
+   * Set up method.
+   * @throws IOException I/O exception
+   */
+  @Before
+  public void setUp() throws IOException {
+    capacity = PageCache.capacity();
+    PageCache.limit(1 << 20);
+    file = new IOFile(Prop.TMP, "pagecache" + IO.BASEXSUFFIX);
+    try(final DataAccess da = new DataAccess(file)) {
+      for(int b = 0; b < BLOCKS; b++) da.write4((long) b * IO.BLOCKSIZE, b);
+    }
+  }
+
+  /**
+   * Clean up method.
+   */
+  @After
+  public void cleanUp() {
+    PageCache.limit(capacity);
+    file.delete();
+  }
+
+  /**
+   * Repeated scans are served by the cache.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void scan() throws IOException {
+    try(final DataAccess da = new DataAccess(file)) {
+      for(int r = 0; r < 2; r++) {
+        for(int b = 0; b < BLOCKS; b++) assertEquals(b, da.read4((long) b * IO.BLOCKSIZE));
+      }
+      final TokenList stats = stats();
+      assertEquals(BLOCKS, Token.toLong(stats.get(2)));
+      assertTrue(Token.toLong(stats.get(1)) >= BLOCKS - 16);
+    }
+  }
+
+  /**
+   * Cached pages are updated if the buffers are written back.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void update() throws IOException {
+    try(final DataAccess da = new DataAccess(file)) {
+      for(int b = 0; b < BLOCKS; b++) da.read4((long) b * IO.BLOCKSIZE);
+      for(int b = 0; b < BLOCKS; b++) da.write4((long) b * IO.BLOCKSIZE, -b);
+      for(int b = 0; b < BLOCKS; b++) assertEquals(-b, da.read4((long) b * IO.BLOCKSIZE));
+    }
+  }
+
+  /**
+   * Returns the cache statistics of the test file.
+   * @return table row
+   */
+  private TokenList stats() {
+    for(final TokenList tl : PageCache.table(file.parent()).contents) {
+      if(Token.string(tl.get(0)).equals(file.name())) return tl;
+    }
+    fail("File not found: " + file);
+    return null;
+  }
+}
@@ -0,0 +1,128 @@
+package org.basex.query;
+
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.io.*;
+import org.basex.query.PreparedQueries.Prepared;
+import org.basex.util.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Tests for the cache of prepared queries.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class PreparedQueriesTest extends SandboxTest {
+  /** Clears the cache. */
+  @Before
+  public void clear() {
+    context.prepared.clear();
+  }
+
+  /**
+   * Caches the serialization parameters.
+   * @throws Exception exception
+   */
+  @Test
+  public void parameters() throws Exception {
+    final String query = "declare option output:method 'text'; 1";
+    assertNull(context.prepared.get(query, context));
+    final String params = new XQuery(query).parameters(context);
+    assertTrue(params.contains("text"));
+
+    final Prepared p = context.prepared.get(query, context);
+    assertNotNull(p);
+    assertEquals(params, p.parameters);
+    assertEquals(params, new XQuery(query).parameters(context));
+  }
+
+  /**
+   * Caches the updating flag.
+   * @throws Exception exception
+   */
+  @Test
+  public void updating() throws Exception {
+    final String query = "delete node <a/>";
+    try(final QueryProcessor qp = new QueryProcessor(query, context)) {
+      assertTrue(qp.prepare().updating);
+    }
+    try(final QueryProcessor qp = new QueryProcessor(query, context)) {
+      assertSame(context.prepared.get(query, context), qp.prepare());
+    }
+    try(final QueryProcessor qp = new QueryProcessor("1", context)) {
+      assertFalse(qp.prepare().updating);
+    }
+    assertEquals(2, context.prepared.size());
+  }
+
+  /**
+   * Invalidates entries if imported modules are modified.
+   * @throws Exception exception
+   */
+  @Test
+  public void modules() throws Exception {
+    final IOFile module = new IOFile(sandbox(), "prepared.xqm");
+    module.write(Token.token("module namespace m = 'm'; declare function m:f() { 1 };"));
+    final String query = "import module namespace m = 'm' at '" + module.path() + "'; m:f()";
+    try(final QueryProcessor qp = new QueryProcessor(query, context)) {
+      assertFalse(qp.prepare().updating);
+    }
+    assertNotNull(context.prepared.get(query, context));
+
+    module.write(Token.token("module namespace m = 'm'; " +
+        "declare updating function m:f() { delete node <a/> };"));
+    assertTrue(module.file().setLastModified(module.timeStamp() + 2000));
+    // time stamps are checked at most once per second
+    Performance.sleep(1100);
+    assertNull(context.prepared.get(query, context));
+    try(final QueryProcessor qp = new QueryProcessor(query, context)) {
+      assertTrue(qp.prepare().updating);
+    }
+  }
+
+  /**
+   * Compiles copies of parsed modules with different bindings.
+   * @throws Exception exception
+   */
+  @Test
+  public void copies() throws Exception {
+    final String query = "declare variable $x external := 1; declare variable $y := $x + 1; " +
+        "declare function local:f($n) { $n * $y }; local:f(2)";
+    for(int i = 1; i <= 5; i++) {
+      final AQuery xq = new XQuery(query).bind("x", String.valueOf(i), "xs:integer");
+      assertEquals(String.valueOf((i + 1) * 2), xq.execute(context));
+    }
+    assertEquals(1, context.prepared.get(query, context).parsed());
+    assertEquals("4", new XQuery(query).execute(context));
+    assertEquals("5", new XQuery(query).bind("x", "1.5", "xs:decimal").execute(context));
+  }
+
+  /**
+   * Does not block databases that have been accessed by cached queries.
+   * @throws Exception exception
+   */
+  @Test
+  public void databases() throws Exception {
+    new CreateDB(NAME, "<a>1</a>").execute(context);
+    new Close().execute(context);
+    final String query = "db:open('" + NAME + "')/a/text()";
+    for(int i = 0; i < 3; i++) assertEquals("1", new XQuery(query).execute(context));
+    assertEquals(1, context.prepared.get(query, context).parsed());
+
+    new XQuery("replace value of node " + query + " with 2").execute(context);
+    assertEquals("2", new XQuery(query).execute(context));
+
+    new DropDB(NAME).execute(context);
+    try {
+      new XQuery(query).execute(context);
+      fail("Database was not dropped.");
+    } catch(final BaseXException ex) {
+      assertTrue(ex.getMessage().contains(NAME));
+    }
+  }
+}
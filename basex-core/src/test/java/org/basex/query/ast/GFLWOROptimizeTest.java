@@ -246,6 +246,47 @@ public final class GFLWOROptimizeTest extends QueryPlanTest {
     );
   }
 
+  /** Tests the rewriting of equality predicates to hash joins. */
+  @Test public void hashJoin() {
+    // join on untyped values
+    check("let $b := (0 to 9) ! <b k='{ . }'>{ . * 10 }</b> " +
+        "for $a in (1, 3, 5) ! <a k='{ . }'/> " +
+        "for $c in $b where $a/@k = $c/@k return $c/text()",
+        "10\n30\n50",
+        "exists(//HashJoin)"
+    );
+    // operands in reverse order, numeric keys of different types
+    check("let $b := (1e0, 2, 3.0, -0e0, xs:float(1)) " +
+        "for $a in (0, 1, 3, 4) for $c in $b where $a = $c return $c",
+        "-0\n1\n1\n3",
+        "exists(//HashJoin)"
+    );
+    // untyped keys and numeric probes are compared sequentially
+    check("let $b := (<b>1</b>, <b>2.0</b>, <b>02</b>) " +
+        "for $a in (1, 2) for $c in $b where $c = $a return $c/text()",
+        "1\n2.0\n02",
+        "exists(//HashJoin)"
+    );
+    // multiple keys and probes: return each item once, in the original order
+    check("let $b := (<b k='1' l='2'>x</b>, <b k='2'>y</b>) " +
+        "for $a in 1 to 2 for $c in $b where $c/(@k, @l) = ($a, 2) return $c/text()",
+        "x\ny\nx\ny",
+        "exists(//HashJoin)"
+    );
+    // no rewriting: inner sequence depends on outer variable
+    check("for $a in (<a><b>1</b></a>, <a><b>2</b></a>) for $b in $a/b " +
+        "where $b = $a return $b/text()",
+        "1\n2",
+        "empty(//HashJoin)"
+    );
+    // no rewriting: positional access after comparison
+    check("let $b := (<b>1</b>, <b>1</b>) for $a in 1 to 2 " +
+        "for $c in $b[. = $a][1] return $c/text()",
+        "1",
+        "empty(//HashJoin)"
+    );
+  }
+
   /** Tests if {@link And} expressions inside {@code where} are split. */
   @Test public void dontInlineNDTTest() {
     check("let $rnd := random:double() return (1 to 10) ! $rnd",
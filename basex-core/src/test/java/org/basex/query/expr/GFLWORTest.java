@@ -3,9 +3,11 @@ package org.basex.query.expr;
 import static org.basex.query.QueryError.*;
 import static org.junit.Assert.*;
 
+import org.basex.core.*;
 import org.basex.query.*;
 import org.basex.util.*;
 import org.junit.*;
+import org.junit.Test;
 
 /**
  * Test cases for FLWOR expressions.
@@ -28,6 +30,80 @@ public final class GFLWORTest extends AdvancedQueryTest {
     query("let $i := 1 group by $i, $i return $i", "1");
   }
 
+  /** Tests the order by clause. */
+  @Test
+  public void orderBy() {
+    query("string-join(for $i in (2, 0, 1, 3) order by (2e0, xs:double('NaN'), 1e0)[$i] " +
+        "empty greatest return string($i), ' ')", "3 1 2 0");
+    query("string-join(for $i in (2, 0, 1, 3) order by (2e0, xs:double('NaN'), 1e0)[$i] " +
+        "descending empty least return string($i), ' ')", "1 3 2 0");
+    query("string-join(for $s in ('b', 'a', 'c', 'a') count $c order by $s, $c descending " +
+        "return string($c), ' ')", "4 2 1 3");
+    query("string-join(for $i in (1, 'a', 2e0) order by $i[. instance of xs:string] " +
+        "return string($i), ' ')", "1 2 a");
+    error("for $i in (1, 'a') order by $i return $i", INVCAST_X_X_X);
+  }
+
+  /** Tests the stable sorting of large inputs. */
+  @Test
+  public void orderByLarge() {
+    // integers, strings, doubles, mixed numbers
+    for(final String key : new String[] { "$i mod 1000", "string($i mod 1000)",
+        "xs:double($i mod 1000)",
+        "if($i mod 2 = 0) then $i mod 1000 else xs:double($i mod 1000)" }) {
+      final String prev = key.replace("$i", "$s[$p - 1]"), curr = key.replace("$i", "$s[$p]");
+      query("let $s := for $i in 1 to 100000 order by " + key + " descending return $i " +
+          "return every $p in 2 to count($s) satisfies (let $a := " + prev + ", $b := " + curr +
+          " return $a > $b or $a = $b and $s[$p - 1] < $s[$p])", "true");
+    }
+  }
+
+  /** Tests the incremental aggregation of non-grouping variables. */
+  @Test
+  public void groupByAggregate() {
+    final String q = "for $i in 1 to 10 let $x := $i * 2, $y := <y>{ $i }</y> " +
+        "group by $k := $i mod 3 order by $k return ";
+    aggregated(q + "$k || ':' || count($x)", "0:3 1:4 2:3", true);
+    aggregated(q + "$k || ':' || sum($x)", "0:36 1:44 2:30", true);
+    aggregated(q + "$k || ':' || sum($y)", "0:18 1:22 2:15", true);
+    aggregated(q + "$k || ':' || avg($y)", "0:6 1:5.5 2:5", true);
+    aggregated(q + "$k || ':' || count($y) || ':' || count($y)", "0:3:3 1:4:4 2:3:3", true);
+    aggregated(q + "$k || ':' || count($x) || ':' || sum($x)", "0:3:36 1:4:44 2:3:30", false);
+    aggregated(q + "$k || ':' || count($x[. > 4])", "0:3 1:3 2:2", false);
+    // paths are not aggregated: the nodes of all tuples are deduplicated before they are summed up
+    aggregated(q + "$k || ':' || sum($y/text())", "0:18 1:22 2:15", false);
+    // the types of the grouped values do not apply to aggregated values
+    aggregated(q + "$k || ':' || (sum($y) instance of xs:double)", "0:true 1:true 2:true", true);
+    aggregated(q + "$k || ':' || (count($y) instance of xs:integer)", "0:true 1:true 2:true",
+        true);
+    aggregated("for $i in 1 to 3 let $d := xs:dayTimeDuration('PT' || $i || 'S') " +
+        "group by $k := 1 return string(avg($d))", "PT2S", true);
+    aggregated("for $i in 1 to 3 let $s := (1 to $i) group by $k := 1 " +
+        "return string(sum($s))", "10", true);
+    error("for $i in 1 to 3 let $s := 'a' group by $k := 1 return sum($s)", SUM_X_X);
+    error("for $i in (1, 'a') let $s := $i group by $k := 1 return sum($s)", SUMNUM_X_X);
+  }
+
+  /**
+   * Runs a query and checks if non-grouping variables are aggregated.
+   * @param query query
+   * @param expected expected result
+   * @param aggr aggregation flag
+   */
+  private static void aggregated(final String query, final String expected,
+      final boolean aggr) {
+    context.options.set(MainOptions.QUERYINFO, true);
+    try(final QueryProcessor proc = new QueryProcessor("string-join(" + query + ", ' ')",
+        context)) {
+      assertEquals(expected, proc.value().serialize().toString());
+      assertEquals(aggr, proc.qc.info().contains("aggregating"));
+    } catch(final Exception ex) {
+      throw (Error) new AssertionError(Util.message(ex)).initCause(ex);
+    } finally {
+      context.options.set(MainOptions.QUERYINFO, false);
+    }
+  }
+
   /**
    * Runs an updating query and matches the result of the second query
    * against the expected output.
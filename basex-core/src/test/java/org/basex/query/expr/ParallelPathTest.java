@@ -0,0 +1,79 @@
+package org.basex.query.expr;
+
+import static org.basex.query.func.Function.*;
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.core.cmd.Set;
+import org.basex.query.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Compares paths that are evaluated sequentially and in parallel.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class ParallelPathTest extends AdvancedQueryTest {
+  /** Queries. */
+  private static final String[] QUERIES = {
+    "count(" + COLLECTION.args(NAME) + "//b)",
+    COLLECTION.args(NAME) + "//a[@i mod 997 = 0]/b/string()",
+    COLLECTION.args(NAME) + "/r/a[last()]/b/string()",
+    "(" + COLLECTION.args(NAME) + "//b)[2]",
+    "(" + COLLECTION.args(NAME) + "//b)[last()]",
+    "for $i in 1 to 2 return " + COLLECTION.args(NAME) + "//a[@i = $i]/b/string()",
+    COLLECTION.args(NAME) + "//b[text() contains text '12']/string()",
+    "declare function local:f($b, $n) { " +
+      "if($n = 0) then $b contains text '12' else local:f($b, $n - 1) }; " +
+      COLLECTION.args(NAME) + "//b[local:f(., 1)]/string()",
+  };
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void init() throws BaseXException {
+    new XQuery(_DB_CREATE.args(NAME, " for $d in 1 to 20 return document { <r>{ " +
+      "for $i in 1 to 2000 return <a i='{ $i }'><b>{ $i * $d }</b></a> }</r> }",
+      " (1 to 20) ! (. || '.xml')")).execute(context);
+  }
+
+  /**
+   * Resets the options and drops the test database.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new Set(MainOptions.PATHTHREADS, 1).execute(context);
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Compares the results of sequential and parallel evaluation.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void compare() throws BaseXException {
+    for(final String query : QUERIES) {
+      new Set(MainOptions.PATHTHREADS, 1).execute(context);
+      final String expected = query(query);
+      new Set(MainOptions.PATHTHREADS, 4).execute(context);
+      assertEquals(query, expected, query(query));
+    }
+  }
+
+  /**
+   * Errors in the workers.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void errors() throws BaseXException {
+    new Set(MainOptions.PATHTHREADS, 4).execute(context);
+    error("count(" + COLLECTION.args(NAME) + "//a[1 idiv (xs:integer(@i) - 1500)])",
+        QueryError.DIVZERO_X);
+  }
+}
@@ -35,6 +35,33 @@ public final class CsvModuleTest extends AdvancedQueryTest {
     parseError("", "'separator':'XXX'");
   }
 
+  /** Test method. */
+  @Test
+  public void parseStream() {
+    final String path = sandbox().path() + "/input.csv";
+    query(_FILE_WRITE_TEXT.args(path, "A,B&#xA;1,2&#xA;3,\"4&#xA;5\"&#xA;"));
+
+    query("string-join(" + _CSV_PARSE_STREAM.args(path, " map { 'header': true() }") +
+        " ! string-join(*, '|'), ',')", "1|2,3|4\n5");
+    query("count(" + _CSV_PARSE_STREAM.args(path) + ")", "3");
+    query(_CSV_PARSE_STREAM.args(path) + "[1]", "<record>\n<entry>A</entry>\n" +
+        "<entry>B</entry>\n</record>");
+    query("deep-equal(" + _CSV_PARSE_STREAM.args(path) + ", " +
+        _CSV_PARSE.args(_FILE_READ_TEXT.args(path)) + "/csv/record)", "true");
+    query(_CSV_PARSE_STREAM.args(path, " map { 'format': 'attributes', 'header': true() }") +
+        "[2]/entry[@name = 'B']/string()", "4\n5");
+
+    query(_CSV_PARSE_STREAM.args(path, " map { 'format': 'map', 'header': true() }") +
+        "[2]?B", "4\n5");
+    query(_CSV_PARSE_STREAM.args(path, " map { 'format': 'map' }") + "[1](2)", "B");
+    query("count(" + _CSV_PARSE_STREAM.args(path, " map { 'format': 'map' }") + ")", "3");
+
+    query(_FILE_WRITE_TEXT.args(path, ""));
+    query(_CSV_PARSE_STREAM.args(path), "");
+    query(_FILE_DELETE.args(path));
+    error(_CSV_PARSE_STREAM.args(path), WHICHRES_X);
+  }
+
   /** Test method. */
   @Test
   public void serialize() {
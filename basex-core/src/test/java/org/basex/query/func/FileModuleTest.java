@@ -220,6 +220,37 @@ public final class FileModuleTest extends AdvancedQueryTest {
     query(_FILE_DELETE.args(PATH1));
   }
 
+  /** Test method. */
+  @Test
+  public void readTextLines() {
+    error(_FILE_READ_TEXT_LINES.args(PATH1), FILE_NOT_FOUND_X);
+    error(_FILE_READ_TEXT_LINES.args(PATH), FILE_IS_DIR_X);
+    query(_FILE_WRITE_TEXT.args(PATH1, "ab&#xA;cd&#xD;&#xA;ef&#xD;gh"));
+    query(_FILE_READ_TEXT_LINES.args(PATH1), "ab\ncd\nef\ngh");
+    query(_FILE_READ_TEXT_LINES.args(PATH1, "UTF-8", 0), "ab\ncd\nef\ngh");
+    query(_FILE_READ_TEXT_LINES.args(PATH1, "UTF-8", 0, 3), "ab");
+    query(_FILE_READ_TEXT_LINES.args(PATH1, "UTF-8", 1, 6), "cd");
+    query(_FILE_READ_TEXT_LINES.args(PATH1, "UTF-8", 3, 4), "cd");
+    query(_FILE_READ_TEXT_LINES.args(PATH1, "UTF-8", 6), "ef\ngh");
+    query(_FILE_READ_TEXT_LINES.args(PATH1, "UTF-8", 12), "");
+    query(_FILE_READ_TEXT_LINES.args(PATH1, "UTF-8", 3, 0), "");
+    query("string-join((0, 4, 8) ! " + _FILE_READ_TEXT_LINES.args(PATH1, "UTF-8", " .", 4) +
+        ", ',')", "ab,cd,ef,gh");
+    error(_FILE_READ_TEXT_LINES.args(PATH1, "UTF-8", 13), FILE_OUT_OF_RANGE_X_X);
+    error(_FILE_READ_TEXT_LINES.args(PATH1, "UTF-8", -1), FILE_OUT_OF_RANGE_X_X);
+    error(_FILE_READ_TEXT_LINES.args(PATH1, "UTF-8", 4, 9), FILE_OUT_OF_RANGE_X_X);
+
+    // split files at each byte offset, including offsets inside multi-byte characters
+    for(final String enc : new String[] { "UTF-8", "UTF-16LE", "UTF-16BE" }) {
+      query(_FILE_WRITE_TEXT.args(PATH1, "\u00e4\u00f6&#xA;\u20acx&#xD;&#xA;\u4e2dz&#xA;",
+          enc));
+      query("string-join((0 to " + _FILE_SIZE.args(PATH1) + " - 1) ! " +
+          _FILE_READ_TEXT_LINES.args(PATH1, enc, " .", 1) + ", ',')",
+          "\u00e4\u00f6,\u20acx,\u4e2dz");
+    }
+    query(_FILE_DELETE.args(PATH1));
+  }
+
   /** Test method. */
   @Test
   public void readBinary() {
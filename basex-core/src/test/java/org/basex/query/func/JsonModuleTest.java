@@ -90,6 +90,59 @@ public final class JsonModuleTest extends AdvancedQueryTest {
     query(_JSON_PARSE.args("null", map), "");
   }
 
+  /** Test method. */
+  @Test
+  public void parseStream() {
+    final String path = sandbox().path() + "/input.json";
+    final String json = "{ \"meta\": { \"a\": \"]}\\\"\", \"b\": [1, {}] },"
+        + " \"rows\": [ { \"id\": 1 }, [ 2 ], \"x,]\", null ] }";
+    query(_FILE_WRITE_TEXT.args(path, json));
+
+    query("count(" + _JSON_PARSE_STREAM.args(path, " map { }", "rows") + ")", "4");
+    query(_JSON_PARSE_STREAM.args(path, " map { }", "rows") + "[1]",
+        "<json type=\"object\">\n<id type=\"number\">1</id>\n</json>");
+    query(_JSON_PARSE_STREAM.args(path, " map { }", "rows") + "[3]/string()", "x,]");
+    query(_JSON_PARSE_STREAM.args(path, " map { }", "rows") + "[2]",
+        "<json type=\"array\">\n<_ type=\"number\">2</_>\n</json>");
+    query(_JSON_PARSE_STREAM.args(path, " map { }", " ('meta', 'a')") + "/string()", "]}\"");
+    query(_JSON_PARSE_STREAM.args(path, " map { }", "unknown"), "");
+
+    // map format: null members are skipped
+    query("count(" + _JSON_PARSE_STREAM.args(path, " map { 'format': 'map' }", "rows") + ")",
+        "3");
+    query(_JSON_PARSE_STREAM.args(path, " map { 'format': 'map' }", "rows") + "[1]?id", "1");
+
+    // no array: complete document is returned
+    query("deep-equal(" + _JSON_PARSE_STREAM.args(path) + ", " +
+        _JSON_PARSE.args(_FILE_READ_TEXT.args(path)) + ")", "true");
+
+    // database creation
+    query(_FILE_WRITE_TEXT.args(path, "[ 1, { \"a\": [ true ] }, \"s\", [ ] ]"));
+    query(_DB_CREATE.args(NAME, path, "input.json", " map { 'parser': 'json' }"));
+    query("deep-equal(" + _DB_OPEN.args(NAME) + ", " +
+        _JSON_PARSE.args(_FILE_READ_TEXT.args(path)) + ")", "true");
+    query(_DB_DROP.args(NAME));
+
+    query(_FILE_WRITE_TEXT.args(path, "[ 1, { \"a\": } ]"));
+    query(_JSON_PARSE_STREAM.args(path) + "[1]", "<json type=\"number\">1</json>");
+    error(_JSON_PARSE_STREAM.args(path), BXJS_PARSE_X_X_X);
+    query(_FILE_WRITE_TEXT.args(path, "[ 1, 2"));
+    error(_JSON_PARSE_STREAM.args(path), BXJS_PARSE_X_X_X);
+
+    // errors in members are reported with their positions in the document
+    final String desc = " } catch * { $err:description }";
+    query(_FILE_WRITE_TEXT.args(path, "[ 1, { \"a\": } ]"));
+    query("contains(try { " + _JSON_PARSE_STREAM.args(path) + desc + ", '(1:13)')", "true");
+    query(_FILE_WRITE_TEXT.args(path, "[ 1,\n  { \"a\": } ]"));
+    query("contains(try { " + _JSON_PARSE_STREAM.args(path) + desc + ", '(2:10)')", "true");
+
+    // escaped surrogate pairs in keys
+    query(_FILE_WRITE_TEXT.args(path, "{ \"x\": 1, \"\\uD83D\\uDE00\": [ 1, 2 ] }"));
+    query("count(" + _JSON_PARSE_STREAM.args(path, " map { }", "&#x1F600;") + ")", "2");
+    query(_FILE_DELETE.args(path));
+    error(_JSON_PARSE_STREAM.args(path), WHICHRES_X);
+  }
+
   /** Test method. */
   @Test
   public void serialize() {
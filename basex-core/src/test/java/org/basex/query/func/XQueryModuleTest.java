@@ -101,4 +101,36 @@ public final class XQueryModuleTest extends AdvancedQueryTest {
       System.setErr(ERR);
     }
   }
+
+  /** Test method. */
+  @Test
+  public void forkJoin() {
+    query(_XQUERY_FORK_JOIN.args(" ()"), "");
+    query(_XQUERY_FORK_JOIN.args(" function() { 1 }"), "1");
+    query(_XQUERY_FORK_JOIN.args(" (function() { 1 }, function() { 2 to 3 })"), "1\n2\n3");
+    query(_XQUERY_FORK_JOIN.args(" for $i in 1 to 20 return function() { $i * 2 }") + "[last()]",
+        "40");
+    query("count(" + _XQUERY_FORK_JOIN.args(" for $i in 1 to 10 return function() { " +
+        DOC.args(PATH) + "//li }") + ")", "20");
+    query("count(distinct-values(" + _XQUERY_FORK_JOIN.args(
+        " (current-dateTime#0, current-dateTime#0, current-dateTime#0)") + "))", "1");
+    // static variables are evaluated once, even if they are accessed by concurrent functions
+    query("declare %basex:lazy variable $v := count(1 to 100000); " +
+        _XQUERY_FORK_JOIN.args(" for $i in 1 to 20 return function() { $v }") + "[last()]",
+        "100000");
+    query("declare %basex:lazy variable $v := error(); " +
+        _XQUERY_FORK_JOIN.args(" (function() { 1 }, function() { 2 })"), "1\n2");
+    // nested calls are evaluated by the calling threads if all workers are busy
+    query("count(" + _XQUERY_FORK_JOIN.args(" for $i in 1 to 64 return function() { " +
+        _XQUERY_FORK_JOIN.args(" for $j in 1 to 64 return function() { $i * $j }") + " }") +
+        ")", "4096");
+
+    error(_XQUERY_FORK_JOIN.args(" (function() { 1 }, function() { error() })"), FUNERR1);
+    error(_XQUERY_FORK_JOIN.args(" (function() { error() }, " +
+        "function() { (1 to 100000000)[. = 0] })"), FUNERR1);
+    error(_XQUERY_FORK_JOIN.args(" (1, function() { 1 })"), INVCAST_X_X_X);
+    error(_XQUERY_FORK_JOIN.args(" function($a) { $a }"), INVARITY_X_X_X_X);
+    error(_XQUERY_FORK_JOIN.args(" (function() { 1 }, %updating function() { delete node <a/> })"),
+        BXXQ_UPDATING);
+  }
 }
@@ -110,6 +110,18 @@ public final class FnTest extends AdvancedQueryTest {
     query(SORT.args("(1, 4, 6, 5, 3)"), "1\n3\n4\n5\n6");
     query(SORT.args("(1,-2,5,10,-10,10,8)", " abs#1"), "1\n-2\n5\n8\n10\n-10\n10");
     query(SORT.args("((1,0), (1,1), (0,1), (0,0))"), "0\n0\n0\n0\n1\n1\n1\n1");
+    query(SORT.args("(<a>b</a>, 'a', <a>c</a>)"), "a\n<a>b</a>\n<a>c</a>");
+    query(SORT.args("(2, 1e0, 3.5)"), "1\n2\n3.5");
+    error(SORT.args("(1, 'a')"), CMPTYPES_X_X);
+    error(SORT.args("(1, true#0)"), FIEQ_X);
+
+    // large inputs
+    query("let $s := " + SORT.args(" 1 to 100000", " function($i) { $i mod 1000 }") +
+        " return every $p in 2 to count($s) satisfies (let $a := $s[$p - 1], $b := $s[$p] " +
+        "return $a mod 1000 < $b mod 1000 or $a mod 1000 = $b mod 1000 and $a < $b)", "true");
+    query("let $s := " + SORT.args(" 1 to 100000", " function($i) { string($i mod 1000), $i }") +
+        " return every $p in 2 to count($s) satisfies (let $a := string($s[$p - 1] mod 1000), " +
+        "$b := string($s[$p] mod 1000) return $a < $b or $a = $b and $s[$p - 1] < $s[$p])", "true");
   }
 
   /** Tests for the {@code outermost} and {@code innermost} functions. */
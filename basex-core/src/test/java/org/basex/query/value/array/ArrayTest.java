@@ -0,0 +1,155 @@
+package org.basex.query.value.array;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Tests for persistent arrays.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class ArrayTest {
+  /** Number of random operations. */
+  private static final int OPS = 20000;
+
+  /**
+   * Appends and prepends members.
+   */
+  @Test
+  public void appendPrepend() {
+    final int n = 5000;
+    Array array = Array.EMPTY;
+    for(int i = 0; i < n; i++) array = array.append(Int.get(i)).prepend(Int.get(-i - 1));
+    assertTrue(array.verify());
+    assertEquals(n << 1, array.arraySize());
+    for(int i = 0; i < n << 1; i++) assertEquals(i - n, value(array.get(i)));
+  }
+
+  /**
+   * Checks that updates leave the original array untouched.
+   */
+  @Test
+  public void persistence() {
+    final Array array = Array.get(values(0, 1000));
+    final Array put = array.put(500, Int.get(-1));
+    final Array ins = array.insertBefore(500, Int.get(-1));
+    final Array rem = array.remove(500);
+    final Array sub = array.subArray(10, 900);
+    for(int i = 0; i < 1000; i++) assertEquals(i, value(array.get(i)));
+    assertEquals(-1, value(put.get(500)));
+    assertEquals(-1, value(ins.get(500)));
+    assertEquals(500, value(ins.get(501)));
+    assertEquals(501, value(rem.get(500)));
+    assertEquals(10, value(sub.get(0)));
+    assertEquals(909, value(sub.get(899)));
+  }
+
+  /**
+   * Concatenates and reverses arrays.
+   */
+  @Test
+  public void concatReverse() {
+    Array array = Array.EMPTY;
+    for(int i = 0; i < 100; i++) array = array.concat(Array.get(values(i * i, i)));
+    assertTrue(array.verify());
+    final Array rev = array.reverse();
+    final int as = array.arraySize();
+    for(int i = 0; i < as; i++) assertSame(array.get(i), rev.get(as - i - 1));
+  }
+
+  /**
+   * Performs random operations and compares the results with a list.
+   */
+  @Test
+  public void random() {
+    final Random rnd = new Random(42);
+    final ArrayList<Value> list = new ArrayList<>();
+    Array array = Array.EMPTY;
+    for(int o = 0; o < OPS; o++) {
+      final int s = list.size(), i = rnd.nextInt(s + 1);
+      final Value v = Int.get(o);
+      switch(rnd.nextInt(8)) {
+        case 0:
+          array = array.prepend(v);
+          list.add(0, v);
+          break;
+        case 1:
+        case 2:
+          array = array.insertBefore(i, v);
+          list.add(i, v);
+          break;
+        case 3:
+          if(s == 0) break;
+          array = array.put(i % s, v);
+          list.set(i % s, v);
+          break;
+        case 4:
+          if(s == 0) break;
+          array = array.remove(i % s);
+          list.remove(i % s);
+          break;
+        case 5:
+          final int l = rnd.nextInt(s - i + 1);
+          final Array sub = array.subArray(i, l);
+          assertTrue(sub.verify());
+          compare(list.subList(i, i + l), sub);
+          // re-add the removed members
+          array = sub.concat(array.subArray(0, i)).concat(array.subArray(i + l, s - i - l));
+          final ArrayList<Value> tmp = new ArrayList<>(list.subList(i, i + l));
+          tmp.addAll(list.subList(0, i));
+          tmp.addAll(list.subList(i + l, s));
+          list.clear();
+          list.addAll(tmp);
+          break;
+        default:
+          array = array.append(v);
+          list.add(v);
+      }
+      if(o % 1000 == 0) compare(list, array);
+    }
+    compare(list, array);
+  }
+
+  /**
+   * Compares the members of an array with a list.
+   * @param list expected members
+   * @param array array
+   */
+  private static void compare(final List<Value> list, final Array array) {
+    assertTrue(array.verify());
+    final int s = list.size();
+    assertEquals(s, array.arraySize());
+    for(int i = 0; i < s; i++) assertSame(list.get(i), array.get(i));
+    int i = 0;
+    for(final Value v : array.members()) assertSame(list.get(i++), v);
+    assertEquals(s, i);
+  }
+
+  /**
+   * Creates integer values.
+   * @param start first value
+   * @param count number of values
+   * @return values
+   */
+  private static Value[] values(final int start, final int count) {
+    final Value[] values = new Value[count];
+    for(int i = 0; i < count; i++) values[i] = Int.get(start + i);
+    return values;
+  }
+
+  /**
+   * Returns the integer value of an item.
+   * @param value value
+   * @return integer
+   */
+  private static long value(final Value value) {
+    return ((Int) value).itr();
+  }
+}
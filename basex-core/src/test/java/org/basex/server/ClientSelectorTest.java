@@ -0,0 +1,161 @@
+package org.basex.server;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.*;
+import org.basex.api.client.*;
+import org.basex.core.*;
+import org.basex.io.in.*;
+import org.basex.util.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests the client/server session API with a selector-based server.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class ClientSelectorTest extends SessionTest {
+  /** Number of concurrent sessions. */
+  private static final int SESSIONS = 100;
+  /** Server reference. */
+  private static BaseXServer server;
+
+  /**
+   * Starts the server.
+   * @throws IOException I/O exception
+   */
+  @BeforeClass
+  public static void startServer() throws IOException {
+    final Context ctx = new Context();
+    ctx.soptions.set(StaticOptions.SELECTOR, true);
+    ctx.soptions.set(StaticOptions.DBPATH, sandbox().path());
+    try {
+      System.setOut(NULL);
+      server = new BaseXServer(ctx, "-z", "-p9999", "-e9998", "-q");
+    } finally {
+      System.setOut(OUT);
+    }
+  }
+
+  /**
+   * Stops the server.
+   * @throws IOException I/O exception
+   */
+  @AfterClass
+  public static void stop() throws IOException {
+    stopServer(server);
+  }
+
+  /** Starts a session. */
+  @Before
+  public void startSession() {
+    try {
+      session = createClient();
+      session.setOutputStream(out);
+    } catch(final IOException ex) {
+      fail(Util.message(ex));
+    }
+  }
+
+  /**
+   * Opens many idle sessions and sends interleaved requests.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void idleSessions() throws IOException {
+    final ArrayList<ClientSession> sessions = new ArrayList<>();
+    try {
+      for(int s = 0; s < SESSIONS; s++) sessions.add(createClient());
+      for(int s = 0; s < SESSIONS; s++) {
+        assertEquals(Integer.toString(s), sessions.get(s).query(s + " ! string()").execute());
+      }
+    } finally {
+      for(final ClientSession cs : sessions) cs.close();
+    }
+  }
+
+  /**
+   * Requests query results in chunks.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void queryChunks() throws IOException {
+    try(final ClientQuery query = ((ClientSession) session).query("1 to 5")) {
+      query.setChunkSize(2);
+      int c = 0;
+      while(query.more()) assertEqual(++c, query.next());
+      assertEquals(5, c);
+    }
+  }
+
+  /**
+   * Sends a batch of requests.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void batch() throws IOException {
+    final ClientBatch batch = ((ClientSession) session).batch();
+    for(int q = 0; q < 10; q++) batch.query(q + " ! string()", null);
+    final String[] results = batch.execute();
+    for(int q = 0; q < 10; q++) assertEquals(Integer.toString(q), results[q]);
+  }
+
+  /**
+   * Returns a result that cannot be written to the channel at once.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void largeResult() throws IOException {
+    // the client starts reading after a delay
+    final long[] size = { 0 };
+    session.setOutputStream(new OutputStream() {
+      @Override
+      public void write(final int b) {
+        if(size[0]++ == 0) Performance.sleep(500);
+      }
+    });
+    session.execute("xquery string-join((1 to 1000000) ! 'xxxxxxxxxx')");
+    assertEquals(10000000, size[0]);
+  }
+
+  /**
+   * Rejects a request whose input exceeds the maximum size.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void inputLimit() throws IOException {
+    server.context.soptions.set(StaticOptions.SELECTORINPUT, 1000);
+    try(final ClientSession cs = createClient()) {
+      cs.execute("create db " + NAME);
+      final StringBuilder sb = new StringBuilder("<x>");
+      for(int i = 0; i < 1000; i++) sb.append("<y/>");
+      try {
+        cs.add("x.xml", new ArrayInput(sb.append("</x>").toString()));
+        fail("Error expected.");
+      } catch(final BaseXException ex) {
+        assertTrue(ex.getMessage().contains("1000"));
+      }
+      // smaller input is accepted, and the session is still usable
+      cs.add("y.xml", new ArrayInput("<y/>"));
+      assertEquals("1", cs.execute("xquery count(db:open('" + NAME + "'))"));
+      cs.execute("drop db " + NAME);
+    } finally {
+      server.context.soptions.set(StaticOptions.SELECTORINPUT,
+          StaticOptions.SELECTORINPUT.value());
+    }
+  }
+
+  /**
+   * Sends a login request with wrong credentials.
+   * @throws IOException I/O exception
+   */
+  @Test(expected = LoginException.class)
+  public void wrongLogin() throws IOException {
+    createClient("unknown", "unknown").close();
+  }
+}
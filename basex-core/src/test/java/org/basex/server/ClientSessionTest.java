@@ -3,8 +3,12 @@ package org.basex.server;
 import static org.junit.Assert.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.*;
+import org.basex.api.client.*;
+import org.basex.core.*;
+import org.basex.io.in.*;
 import org.basex.util.*;
 import org.junit.*;
 
@@ -46,4 +50,202 @@ public class ClientSessionTest extends SessionTest {
       fail(Util.message(ex));
     }
   }
+
+  /**
+   * Requests results in chunks.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void queryChunks() throws IOException {
+    try(final ClientQuery query = ((ClientSession) session).query("1 to 10")) {
+      query.setChunkSize(3);
+      for(int r = 0; r < 2; r++) {
+        int c = 0;
+        while(query.more()) assertEqual(++c, query.next());
+        assertEquals(10, c);
+      }
+    }
+  }
+
+  /**
+   * Requests results in chunks, and raises an error after the first chunk.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void queryChunksError() throws IOException {
+    try(final ClientQuery query = ((ClientSession) session).query("1, 2, error()")) {
+      query.setChunkSize(2);
+      assertEqual("1", query.next());
+      assertEqual("2", query.next());
+      try {
+        query.next();
+        fail("Error expected.");
+      } catch(final BaseXException ex) {
+        assertTrue(ex.getMessage().contains("FOER0000"));
+      }
+    }
+  }
+
+  /**
+   * Closes a query before all chunks have been requested, and checks if the locks
+   * have been released.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void queryChunksClose() throws IOException {
+    session.execute("create db " + NAME + " <x><a/><a/><a/><a/></x>");
+    try(final ClientQuery query = ((ClientSession) session).query("db:open('" + NAME + "')//a")) {
+      query.setChunkSize(1);
+      assertEqual("<a/>", query.next());
+    }
+    session.execute("drop db " + NAME);
+  }
+
+  /**
+   * Stops a chunked query and releases its locks if the next results are not requested in time.
+   * The idle timeout also applies if the request timeout is disabled.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void queryChunksTimeout() throws IOException {
+    session.execute("create db " + NAME + " <a/>");
+    server.context.soptions.set(StaticOptions.TIMEOUT, 0);
+    server.context.soptions.set(StaticOptions.CHUNKTIMEOUT, 1);
+    try(final ClientQuery query = ((ClientSession) session).query(
+        "db:open('" + NAME + "') ! (1 to 10)")) {
+      query.setChunkSize(2);
+      assertEqual("1", query.next());
+      // the update will be performed as soon as the read lock has been released
+      try(final ClientSession cs = createClient()) {
+        cs.execute("xquery db:add('" + NAME + "', <b/>, 'b.xml')");
+      }
+      assertEqual("2", query.next());
+      try {
+        query.next();
+        fail("Error expected.");
+      } catch(final BaseXException ex) {
+        assertTrue(ex.getMessage().contains(Text.TIMEOUT_EXCEEDED));
+      }
+    } finally {
+      server.context.soptions.set(StaticOptions.TIMEOUT, StaticOptions.TIMEOUT.value());
+      server.context.soptions.set(StaticOptions.CHUNKTIMEOUT, StaticOptions.CHUNKTIMEOUT.value());
+    }
+  }
+
+  /**
+   * Stops a query that sorts large inputs, and reports the timeout to the client.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void sortTimeout() throws IOException {
+    // timeouts only apply to non-admin users
+    if(server.context.users.get(NAME) == null) session.execute("create user " + NAME + ' ' + NAME);
+    server.context.soptions.set(StaticOptions.TIMEOUT, 1);
+    try(final ClientSession cs = createClient(NAME, NAME)) {
+      try {
+        cs.execute("xquery let $s := (1 to 4000000) ! (. * 7919 mod 1000003) " +
+            "return sum(for $n in 1 to 100 return head(sort($s)))");
+        fail("Error expected.");
+      } catch(final BaseXException ex) {
+        assertTrue(ex.getMessage().contains(Text.TIMEOUT_EXCEEDED));
+      }
+      // the session is still usable
+      assertEquals("1", cs.execute("xquery 1"));
+    } finally {
+      server.context.soptions.set(StaticOptions.TIMEOUT, StaticOptions.TIMEOUT.value());
+    }
+  }
+
+  /**
+   * Rejects updates of the same session while a chunked query has pending results.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void queryChunksUpdate() throws IOException {
+    session.execute("create db " + NAME + " <a/>");
+    try(final ClientQuery query = ((ClientSession) session).query(
+        "db:open('" + NAME + "') ! (1 to 10)")) {
+      query.setChunkSize(2);
+      assertEqual("1", query.next());
+      // reading is possible, updates are rejected
+      assertEqual("1", session.execute("xquery count(db:open('" + NAME + "'))"));
+      try {
+        session.execute("xquery db:add('" + NAME + "', <b/>, 'b.xml')");
+        fail("Error expected.");
+      } catch(final BaseXException ex) {
+        assertTrue(ex.getMessage().contains(Text.PENDING_RESULTS));
+      }
+      try {
+        session.add("b.xml", new ArrayInput("<b/>"));
+        fail("Error expected.");
+      } catch(final BaseXException ex) {
+        assertTrue(ex.getMessage().contains(Text.PENDING_RESULTS));
+      }
+      try(final ClientQuery update = ((ClientSession) session).query(
+          "db:add('" + NAME + "', <b/>, 'b.xml')")) {
+        update.execute();
+        fail("Error expected.");
+      } catch(final BaseXException ex) {
+        assertTrue(ex.getMessage().contains(Text.PENDING_RESULTS));
+      }
+      assertEqual("2", query.next());
+    }
+    // updates are accepted after the query has been closed
+    session.execute("xquery db:add('" + NAME + "', <b/>, 'b.xml')");
+    assertEqual("2", session.execute("xquery count(db:open('" + NAME + "'))"));
+    session.execute("drop db " + NAME);
+  }
+
+  /**
+   * Sends a batch of requests.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void batch() throws IOException {
+    final HashMap<String, Object> bindings = new HashMap<>();
+    bindings.put("x", 2);
+    final String[] results = ((ClientSession) session).batch().
+      execute("create db " + NAME).
+      add("a.xml", new ArrayInput("<a/>")).
+      store("b.bin", new ArrayInput("b")).
+      query("declare variable $x external; count(db:open('" + NAME + "')) * xs:integer($x)",
+        bindings).execute();
+    assertEquals(4, results.length);
+    assertEquals("2", results[3]);
+  }
+
+  /**
+   * Sends a batch of requests with large requests and results.
+   * @throws IOException I/O exception
+   */
+  @Test(timeout = 60000)
+  public void batchLarge() throws IOException {
+    final StringBuilder sb = new StringBuilder("(:");
+    for(int i = 0; i < 4000; i++) sb.append(' ');
+    final String query = sb.append(":) string-join((1 to 10000) ! 'x')").toString();
+    final ClientBatch batch = ((ClientSession) session).batch();
+    final int queries = 2000;
+    for(int q = 0; q < queries; q++) batch.query(query, null);
+    final String[] results = batch.execute();
+    assertEquals(queries, results.length);
+    for(final String result : results) assertEquals(10000, result.length());
+  }
+
+  /**
+   * Sends a batch of requests, one of which fails.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void batchError() throws IOException {
+    final ClientBatch batch = ((ClientSession) session).batch();
+    batch.query("error()", null).execute("xquery 1");
+    try {
+      batch.execute();
+      fail("Error expected.");
+    } catch(final BaseXException ex) {
+      assertTrue(ex.getMessage().contains("FOER0000"));
+    }
+    // all responses have been consumed
+    assertEqual("2", session.execute("xquery 2"));
+  }
 }
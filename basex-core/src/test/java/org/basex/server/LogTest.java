@@ -0,0 +1,107 @@
+package org.basex.server;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.io.*;
+import org.basex.server.Log.LogType;
+import org.basex.util.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Tests the asynchronous log writer.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class LogTest extends SandboxTest {
+  /** Number of threads. */
+  private static final int THREADS = 8;
+  /** Number of entries per thread. */
+  private static final int ENTRIES = 1000;
+
+  /**
+   * Deletes the log files.
+   */
+  @After
+  public void finish() {
+    context.log.close();
+    context.log.dir().delete();
+    context.soptions.set(StaticOptions.LOGMSGMAXLEN, StaticOptions.LOGMSGMAXLEN.value());
+  }
+
+  /**
+   * Writes entries in parallel.
+   * @throws Exception exception
+   */
+  @Test
+  public void parallel() throws Exception {
+    final ArrayList<Thread> threads = new ArrayList<>();
+    for(int t = 0; t < THREADS; t++) {
+      final String address = "thread" + t;
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          for(int e = 0; e < ENTRIES; e++) {
+            context.log.write(address, null, LogType.INFO, "x", null);
+          }
+        }
+      });
+    }
+    for(final Thread thread : threads) thread.start();
+    for(final Thread thread : threads) thread.join();
+
+    context.log.flush();
+    assertEquals(THREADS * ENTRIES, lines().length);
+  }
+
+  /**
+   * Chops long messages.
+   * @throws Exception exception
+   */
+  @Test
+  public void maxLength() throws Exception {
+    context.soptions.set(StaticOptions.LOGMSGMAXLEN, 10);
+    context.log.writeServer(LogType.INFO, "12345678901234567890");
+    // entries will be written before the log is closed
+    context.log.close();
+    final String[] lines = lines();
+    assertEquals(1, lines.length);
+    assertTrue(lines[0].endsWith("\t1234567..."));
+  }
+
+  /**
+   * Does not block if entries cannot be written.
+   * @throws Exception exception
+   */
+  @Test(timeout = 30000)
+  public void unwritable() throws Exception {
+    // create file instead of log directory
+    final IOFile dir = context.log.dir();
+    dir.delete();
+    dir.write(Token.EMPTY);
+    try {
+      final int entries = THREADS * ENTRIES * 3;
+      for(int e = 0; e < entries; e++) context.log.writeServer(LogType.INFO, "x");
+      context.log.flush();
+      assertFalse(dir.isDir());
+    } finally {
+      dir.delete();
+    }
+  }
+
+  /**
+   * Returns the lines of the log file.
+   * @return lines
+   * @throws Exception exception
+   */
+  private static String[] lines() throws Exception {
+    final IOFile[] files = context.log.files();
+    assertEquals(1, files.length);
+    return Token.string(files[0].read()).split("\r?\n");
+  }
+}
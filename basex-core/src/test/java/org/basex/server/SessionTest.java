@@ -675,7 +675,7 @@ public abstract class SessionTest extends SandboxTest {
    * @param exp expected string
    * @param ret string returned from the client API
    */
-  private void assertEqual(final Object exp, final Object ret) {
+  void assertEqual(final Object exp, final Object ret) {
     final String result = (out != null ? out : ret).toString();
     if(out != null) out.reset();
     assertEquals(exp.toString(), normNL(result));
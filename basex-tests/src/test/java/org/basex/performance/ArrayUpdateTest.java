@@ -0,0 +1,93 @@
+package org.basex.performance;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.util.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class benchmarks the incremental construction and modification of arrays.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class ArrayUpdateTest extends SandboxTest {
+  /** Number of loops. */
+  private static final int LOOPS = 3;
+
+  /**
+   * Appends members to an array.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void append() throws BaseXException {
+    for(int n = 1000; n <= 1000000; n *= 10) {
+      query("array:size(fold-left(1 to " + n + ", [], array:append#2))");
+    }
+  }
+
+  /**
+   * Prepends members to an array.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void insertFirst() throws BaseXException {
+    for(int n = 1000; n <= 1000000; n *= 10) {
+      query("array:size(fold-left(1 to " + n + ", [], function($a, $i) { " +
+          "array:insert-before($a, 1, $i) }))");
+    }
+  }
+
+  /**
+   * Inserts members in the middle of an array.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void insertMiddle() throws BaseXException {
+    for(int n = 1000; n <= 100000; n *= 10) {
+      query("array:size(fold-left(1 to " + n + ", [], function($a, $i) { " +
+          "array:insert-before($a, array:size($a) idiv 2 + 1, $i) }))");
+    }
+  }
+
+  /**
+   * Removes members from an array.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void remove() throws BaseXException {
+    for(int n = 1000; n <= 100000; n *= 10) {
+      query("array:size(fold-left(1 to " + n + " idiv 2, array { 1 to " + n + " }, " +
+          "function($a, $i) { array:remove($a, array:size($a) idiv 2) }))");
+    }
+  }
+
+  /**
+   * Recursively consumes an array via head and tail.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void tail() throws BaseXException {
+    for(int n = 1000; n <= 100000; n *= 10) {
+      query("declare function local:sum($a, $s) { if(array:size($a) = 0) then $s " +
+          "else local:sum(array:tail($a), $s + array:head($a)) }; " +
+          "local:sum(array { 1 to " + n + " }, 0)");
+    }
+  }
+
+  /**
+   * Performs the specified query and outputs the average runtime.
+   * @param query query to be evaluated
+   * @throws BaseXException database exception
+   */
+  private static void query(final String query) throws BaseXException {
+    Util.outln("Query: " + query);
+    // warm up
+    new XQuery(query).execute(context);
+    final Performance p = new Performance();
+    for(int l = 0; l < LOOPS; l++) new XQuery(query).execute(context);
+    Util.outln(p.getTime(LOOPS));
+  }
+}
@@ -0,0 +1,130 @@
+package org.basex.performance;
+
+import static org.basex.util.Token.*;
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.core.cmd.Set;
+import org.basex.data.*;
+import org.basex.index.query.*;
+import org.basex.util.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class benchmarks concurrent lookups in the value index.
+ * Outputs the throughput for an increasing number of threads.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class ValueIndexConcurrencyTest extends SandboxTest {
+  /** Number of distinct keys. */
+  private static final int KEYS = 2000;
+  /** Number of hits per key. */
+  private static final int HITS = 10;
+  /** Number of lookups per test run. */
+  private static final int LOOKUPS = 200000;
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void init() throws BaseXException {
+    final TokenBuilder tb = new TokenBuilder("<x>");
+    for(int i = 0; i < KEYS * HITS; i++) tb.add("<a>").addInt(i % KEYS).add("</a>");
+    new CreateDB(NAME, tb.add("</x>").toString()).execute(context);
+    new Close().execute(context);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new Set(MainOptions.MMAP, false).execute(context);
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Concurrent lookups with buffered file access.
+   * @throws Exception exception
+   */
+  @Test
+  public void buffered() throws Exception {
+    run(false);
+  }
+
+  /**
+   * Concurrent lookups with memory-mapped file access.
+   * @throws Exception exception
+   */
+  @Test
+  public void mapped() throws Exception {
+    run(true);
+  }
+
+  /**
+   * Runs the lookups with an increasing number of threads.
+   * @param mmap memory mapping
+   * @throws Exception exception
+   */
+  private static void run(final boolean mmap) throws Exception {
+    new Set(MainOptions.MMAP, mmap).execute(context);
+    new Open(NAME).execute(context);
+    try {
+      final Data data = context.data();
+      for(int threads = 1; threads <= 8; threads <<= 1) {
+        final Performance perf = new Performance();
+        lookups(data, threads);
+        final long ms = Math.max(1, perf.time() / 1000000);
+        Util.errln((mmap ? "mapped" : "buffered") + ", " + threads + " thread(s): " +
+            LOOKUPS * 1000L / ms + " lookups/sec");
+      }
+    } finally {
+      new Close().execute(context);
+    }
+  }
+
+  /**
+   * Performs lookups with the specified number of threads.
+   * @param data data reference
+   * @param threads number of threads
+   * @throws Exception exception
+   */
+  private static void lookups(final Data data, final int threads) throws Exception {
+    final ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      final ArrayList<Future<Void>> futures = new ArrayList<>();
+      for(int t = 0; t < threads; t++) {
+        final int seed = t;
+        futures.add(pool.submit(new Callable<Void>() {
+          @Override
+          public Void call() {
+            final Random rnd = new Random(seed);
+            for(int l = LOOKUPS / threads; l > 0; l--) {
+              final IndexIterator ii = data.iter(new StringToken(true, token(rnd.nextInt(KEYS))));
+              int c = 0;
+              while(ii.more()) {
+                assertTrue(ii.pre() > 0);
+                c++;
+              }
+              assertEquals(HITS, c);
+            }
+            return null;
+          }
+        }));
+      }
+      for(final Future<Void> f : futures) f.get();
+    } finally {
+      pool.shutdown();
+    }
+  }
+}